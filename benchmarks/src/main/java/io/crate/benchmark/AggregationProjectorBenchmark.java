@@ -0,0 +1,93 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.benchmark;
+
+import com.google.common.collect.ImmutableSet;
+import io.crate.metadata.Functions;
+import io.crate.operation.AggregationContext;
+import io.crate.operation.aggregation.impl.AggregationImplModule;
+import io.crate.operation.aggregation.impl.CountAggregation;
+import io.crate.operation.aggregation.impl.MaximumAggregation;
+import io.crate.operation.aggregation.impl.SumAggregation;
+import io.crate.operation.collect.CollectExpression;
+import io.crate.operation.collect.InputCollectExpression;
+import io.crate.operation.projectors.AggregationProjector;
+import io.crate.types.DataTypes;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * global aggregation <code>SELECT count(*), sum(value), max(key) ...</code> on generated rows
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class AggregationProjectorBenchmark {
+
+    @Param({"10", "100000"})
+    public int cardinality;
+
+    @Param({"500000"})
+    public int numRows;
+
+    private Object[][] rows;
+    private Functions functions;
+
+    @Setup
+    public void setup() {
+        rows = BenchmarkData.longKeyRows(numRows, cardinality);
+        functions = BenchmarkData.functions(new AggregationImplModule());
+    }
+
+    @Benchmark
+    public Object[] aggregate() {
+        InputCollectExpression<Object> key = new InputCollectExpression<>(0);
+        InputCollectExpression<Object> value = new InputCollectExpression<>(1);
+
+        AggregationContext count = BenchmarkData.aggregation(functions, CountAggregation.NAME, DataTypes.LONG);
+        AggregationContext sum = BenchmarkData.aggregation(
+                functions, SumAggregation.NAME, DataTypes.DOUBLE, DataTypes.LONG);
+        sum.addInput(value);
+        AggregationContext max = BenchmarkData.aggregation(
+                functions, MaximumAggregation.NAME, DataTypes.LONG, DataTypes.LONG);
+        max.addInput(key);
+
+        CountingProjector downstream = new CountingProjector();
+        AggregationProjector projector = new AggregationProjector(
+                ImmutableSet.<CollectExpression<?>>of(key, value),
+                new AggregationContext[]{count, sum, max},
+                BenchmarkData.RAM_ACCOUNTING_CONTEXT
+        );
+        projector.downstream(downstream);
+        projector.registerUpstream(null);
+        projector.startProjection();
+        for (Object[] row : rows) {
+            projector.setNextRow(row);
+        }
+        projector.upstreamFinished();
+        return downstream.lastRow();
+    }
+}
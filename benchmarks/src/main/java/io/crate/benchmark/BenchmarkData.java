@@ -0,0 +1,104 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.benchmark;
+
+import com.google.common.collect.ImmutableList;
+import io.crate.breaker.RamAccountingContext;
+import io.crate.metadata.FunctionIdent;
+import io.crate.metadata.FunctionInfo;
+import io.crate.metadata.Functions;
+import io.crate.operation.AggregationContext;
+import io.crate.operation.aggregation.AggregationFunction;
+import io.crate.planner.symbol.Aggregation;
+import io.crate.planner.symbol.Symbol;
+import io.crate.types.DataType;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.elasticsearch.common.inject.Module;
+import org.elasticsearch.common.inject.ModulesBuilder;
+
+import java.util.Random;
+
+/**
+ * generates the data sets and components used by the benchmarks
+ */
+public class BenchmarkData {
+
+    public static final RamAccountingContext RAM_ACCOUNTING_CONTEXT =
+            new RamAccountingContext("benchmark", new NoopCircuitBreaker(CircuitBreaker.Name.FIELDDATA));
+
+    private static final long SEED = 42L;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * rows of <code>[long key, long value]</code> with <code>cardinality</code> distinct keys
+     */
+    public static Object[][] longKeyRows(int numRows, int cardinality) {
+        Random random = new Random(SEED);
+        Object[][] rows = new Object[numRows][];
+        for (int i = 0; i < numRows; i++) {
+            rows[i] = new Object[]{(long) random.nextInt(cardinality), random.nextLong()};
+        }
+        return rows;
+    }
+
+    /**
+     * rows of <code>[BytesRef key, long value]</code> with <code>cardinality</code> distinct keys
+     */
+    public static Object[][] stringKeyRows(int numRows, int cardinality) {
+        Random random = new Random(SEED);
+        BytesRef[] keys = new BytesRef[cardinality];
+        for (int i = 0; i < cardinality; i++) {
+            keys[i] = new BytesRef("key_" + i + "_" + Long.toHexString(random.nextLong()));
+        }
+        Object[][] rows = new Object[numRows][];
+        for (int i = 0; i < numRows; i++) {
+            rows[i] = new Object[]{keys[random.nextInt(cardinality)], random.nextLong()};
+        }
+        return rows;
+    }
+
+    public static Functions functions(Module... modules) {
+        ModulesBuilder modulesBuilder = new ModulesBuilder();
+        for (Module module : modules) {
+            modulesBuilder.add(module);
+        }
+        return modulesBuilder.createInjector().getInstance(Functions.class);
+    }
+
+    /**
+     * create the context of an aggregation which is computed from its raw input to the final value
+     */
+    public static AggregationContext aggregation(Functions functions,
+                                                 String name,
+                                                 DataType returnType,
+                                                 DataType... argumentTypes) {
+        FunctionInfo info = new FunctionInfo(
+                new FunctionIdent(name, ImmutableList.copyOf(argumentTypes)), returnType);
+        Aggregation aggregation = new Aggregation(
+                info, ImmutableList.<Symbol>of(), Aggregation.Step.ITER, Aggregation.Step.FINAL);
+        return new AggregationContext((AggregationFunction) functions.get(info.ident()), aggregation);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.benchmark;
+
+import io.crate.operation.ProjectorUpstream;
+import io.crate.operation.projectors.Projector;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * terminal projector which only counts the rows it receives so that
+ * the benchmarked projector is measured without gathering its result
+ */
+public class CountingProjector implements Projector {
+
+    private final AtomicInteger rows = new AtomicInteger();
+    private volatile Object[] lastRow;
+
+    @Override
+    public void startProjection() {
+        rows.set(0);
+    }
+
+    @Override
+    public boolean setNextRow(Object... row) {
+        lastRow = row;
+        rows.incrementAndGet();
+        return true;
+    }
+
+    @Override
+    public void registerUpstream(ProjectorUpstream upstream) {
+    }
+
+    @Override
+    public void upstreamFinished() {
+    }
+
+    @Override
+    public void upstreamFailed(Throwable throwable) {
+        throw new IllegalStateException("upstream failed", throwable);
+    }
+
+    @Override
+    public void downstream(Projector downstream) {
+        throw new UnsupportedOperationException("CountingProjector has no downstream");
+    }
+
+    public int rows() {
+        return rows.get();
+    }
+
+    public Object[] lastRow() {
+        return lastRow;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.benchmark;
+
+import io.crate.Streamer;
+import io.crate.executor.transport.ColumnBatchStreamer;
+import io.crate.types.DataTypes;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * serialization of the rows sent from the mappers to the reducers
+ * with the column wise format of {@link ColumnBatchStreamer}
+ * and the row wise format which was used before.
+ *
+ * The size of the serialized rows is printed at the end of each trial,
+ * the request itself only adds a fixed size header.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class DistributedResultRequestBenchmark {
+
+    @Param({"10", "100000"})
+    public int cardinality;
+
+    @Param({"long", "string"})
+    public String keyType;
+
+    @Param({"100000"})
+    public int numRows;
+
+    @Param({"column", "row"})
+    public String format;
+
+    private Streamer<?>[] streamers;
+    private Object[][] rows;
+    private BytesReference serialized;
+
+    @Setup
+    public void setup() throws IOException {
+        if (keyType.equals("long")) {
+            rows = BenchmarkData.longKeyRows(numRows, cardinality);
+            streamers = new Streamer[]{DataTypes.LONG.streamer(), DataTypes.LONG.streamer()};
+        } else {
+            rows = BenchmarkData.stringKeyRows(numRows, cardinality);
+            streamers = new Streamer[]{DataTypes.STRING.streamer(), DataTypes.LONG.streamer()};
+        }
+        serialized = serialize();
+    }
+
+    @TearDown
+    public void printSize() {
+        System.out.println(String.format(Locale.ENGLISH,
+                "%n%s format, %s keys, cardinality %d: %d rows serialized to %d bytes",
+                format, keyType, cardinality, numRows, serialized.length()));
+    }
+
+    private BytesReference serialize() throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        if (format.equals("column")) {
+            ColumnBatchStreamer.writeRows(out, streamers, rows);
+        } else {
+            writeRowWise(out, streamers, rows);
+        }
+        return out.bytes();
+    }
+
+    @Benchmark
+    public BytesReference writeTo() throws IOException {
+        return serialize();
+    }
+
+    @Benchmark
+    public Object[][] readFrom() throws IOException {
+        BytesStreamInput in = new BytesStreamInput(serialized);
+        if (format.equals("column")) {
+            return ColumnBatchStreamer.readRows(in, streamers);
+        }
+        return readRowWise(in, streamers);
+    }
+
+    private static void writeRowWise(StreamOutput out, Streamer<?>[] streamers, Object[][] rows) throws IOException {
+        out.writeVInt(rows.length);
+        for (Object[] row : rows) {
+            for (int c = 0; c < streamers.length; c++) {
+                streamers[c].writeValueTo(out, row[c]);
+            }
+        }
+    }
+
+    private static Object[][] readRowWise(StreamInput in, Streamer<?>[] streamers) throws IOException {
+        Object[][] rows = new Object[in.readVInt()][];
+        for (int r = 0; r < rows.length; r++) {
+            rows[r] = new Object[streamers.length];
+            for (int c = 0; c < streamers.length; c++) {
+                rows[r][c] = streamers[c].readValueFrom(in);
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.benchmark;
+
+import com.google.common.collect.ImmutableList;
+import io.crate.metadata.Functions;
+import io.crate.operation.AggregationContext;
+import io.crate.operation.Input;
+import io.crate.operation.aggregation.impl.AggregationImplModule;
+import io.crate.operation.aggregation.impl.CountAggregation;
+import io.crate.operation.aggregation.impl.SumAggregation;
+import io.crate.operation.collect.CollectExpression;
+import io.crate.operation.collect.InputCollectExpression;
+import io.crate.operation.projectors.GroupingProjector;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <code>SELECT key, count(*), sum(value) ... GROUP BY key</code> on generated rows,
+ * fed row by row and as batches
+ *
+ * The <code>generic</code> grouper variant is the baseline: it declares the key with a type that has
+ * no primitive grouper (double for long keys, ip for string keys) so the rows are grouped by the
+ * HashMap based grouper that was used for every single key before.
+ * Both types use the same size estimators as long and string, so only the hash table differs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class GroupingProjectorBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int cardinality;
+
+    @Param({"long", "string"})
+    public String keyType;
+
+    @Param({"primitive", "generic"})
+    public String grouper;
+
+    @Param({"500000"})
+    public int numRows;
+
+    private Object[][] rows;
+    private Functions functions;
+
+    @Setup
+    public void setup() {
+        rows = keyType.equals("long")
+                ? BenchmarkData.longKeyRows(numRows, cardinality)
+                : BenchmarkData.stringKeyRows(numRows, cardinality);
+        functions = BenchmarkData.functions(new AggregationImplModule());
+    }
+
+    private GroupingProjector newProjector(CountingProjector downstream) {
+        DataType keyDataType;
+        if (grouper.equals("primitive")) {
+            keyDataType = keyType.equals("long") ? DataTypes.LONG : DataTypes.STRING;
+        } else {
+            keyDataType = keyType.equals("long") ? DataTypes.DOUBLE : DataTypes.IP;
+        }
+        InputCollectExpression<Object> key = new InputCollectExpression<>(0);
+        InputCollectExpression<Object> value = new InputCollectExpression<>(1);
+
+        AggregationContext count = BenchmarkData.aggregation(functions, CountAggregation.NAME, DataTypes.LONG);
+        AggregationContext sum = BenchmarkData.aggregation(
+                functions, SumAggregation.NAME, DataTypes.DOUBLE, DataTypes.LONG);
+        sum.addInput(value);
+
+        GroupingProjector projector = new GroupingProjector(
+                ImmutableList.of(keyDataType),
+                ImmutableList.<Input<?>>of(key),
+                new CollectExpression[]{key, value},
+                new AggregationContext[]{count, sum},
+                BenchmarkData.RAM_ACCOUNTING_CONTEXT
+        );
+        projector.downstream(downstream);
+        projector.registerUpstream(null);
+        projector.startProjection();
+        return projector;
+    }
+
+    @Benchmark
+    public int groupRowByRow() {
+        CountingProjector downstream = new CountingProjector();
+        GroupingProjector projector = newProjector(downstream);
+        for (Object[] row : rows) {
+            projector.setNextRow(row);
+        }
+        projector.upstreamFinished();
+        return downstream.rows();
+    }
+
+    @Benchmark
+    public int groupBatches() {
+        CountingProjector downstream = new CountingProjector();
+        GroupingProjector projector = newProjector(downstream);
+        projector.setNextRows(rows, rows.length);
+        projector.upstreamFinished();
+        return downstream.rows();
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.benchmark;
+
+import com.google.common.collect.ImmutableList;
+import io.crate.analyze.WhereClause;
+import io.crate.lucene.LuceneQueryBuilder;
+import io.crate.metadata.*;
+import io.crate.operation.operator.*;
+import io.crate.planner.RowGranularity;
+import io.crate.planner.symbol.Function;
+import io.crate.planner.symbol.Literal;
+import io.crate.planner.symbol.Reference;
+import io.crate.planner.symbol.Symbol;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import io.crate.types.SetType;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.index.cache.IndexCache;
+import org.elasticsearch.search.internal.SearchContext;
+import org.mockito.Answers;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * conversion of where clauses into lucene queries, done once per shard and query
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class LuceneQueryBuilderBenchmark {
+
+    /**
+     * number of values of the <code>IN</code> list
+     */
+    @Param({"10", "1000"})
+    public int cardinality;
+
+    private LuceneQueryBuilder builder;
+    private WhereClause eq;
+    private WhereClause rangeAndLike;
+    private WhereClause in;
+
+    @Setup
+    public void setup() {
+        Functions functions = BenchmarkData.functions(new OperatorModule());
+        builder = new LuceneQueryBuilder(functions,
+                mock(SearchContext.class, Answers.RETURNS_MOCKS.get()),
+                mock(IndexCache.class, Answers.RETURNS_MOCKS.get()));
+
+        Reference id = reference("id", DataTypes.LONG);
+        Reference name = reference("name", DataTypes.STRING);
+
+        eq = new WhereClause(function(EqOperator.NAME, id, Literal.newLiteral(1L)));
+        rangeAndLike = new WhereClause(function(AndOperator.NAME,
+                function(AndOperator.NAME,
+                        function(GtOperator.NAME, id, Literal.newLiteral(10L)),
+                        function(LtOperator.NAME, id, Literal.newLiteral(1000L))),
+                function(LikeOperator.NAME, name, Literal.newLiteral("foo%"))));
+
+        Set<BytesRef> values = new HashSet<>(cardinality);
+        for (int i = 0; i < cardinality; i++) {
+            values.add(new BytesRef("value_" + i));
+        }
+        in = new WhereClause(function(InOperator.NAME,
+                name, Literal.newLiteral(new SetType(DataTypes.STRING), values)));
+    }
+
+    private static Reference reference(String column, DataType type) {
+        return new Reference(new ReferenceInfo(
+                new ReferenceIdent(new TableIdent(null, "t"), new ColumnIdent(column)),
+                RowGranularity.DOC,
+                type));
+    }
+
+    private static Function function(String name, Symbol left, Symbol right) {
+        return new Function(
+                new FunctionInfo(
+                        new FunctionIdent(name, ImmutableList.of(left.valueType(), right.valueType())),
+                        DataTypes.BOOLEAN),
+                ImmutableList.of(left, right));
+    }
+
+    @Benchmark
+    public Query convertEq() {
+        return builder.convert(eq).query();
+    }
+
+    @Benchmark
+    public Query convertRangeAndLike() {
+        return builder.convert(rangeAndLike).query();
+    }
+
+    @Benchmark
+    public Query convertIn() {
+        return builder.convert(in).query();
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.benchmark;
+
+import io.crate.operation.collect.ModuloBucketingIterator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * bucketing of generated rows by the hash of their first column,
+ * as done when distributing rows to the merge nodes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ModuloBucketingIteratorBenchmark {
+
+    @Param({"10", "100000"})
+    public int cardinality;
+
+    @Param({"long", "string"})
+    public String keyType;
+
+    @Param({"2", "16"})
+    public int numBuckets;
+
+    @Param({"500000"})
+    public int numRows;
+
+    private List<Object[]> rows;
+
+    @Setup
+    public void setup() {
+        rows = Arrays.asList(keyType.equals("long")
+                ? BenchmarkData.longKeyRows(numRows, cardinality)
+                : BenchmarkData.stringKeyRows(numRows, cardinality));
+    }
+
+    @Benchmark
+    public int bucket() {
+        int numRows = 0;
+        for (List<Object[]> bucket : new ModuloBucketingIterator(numBuckets, rows)) {
+            numRows += bucket.size();
+        }
+        return numRows;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.benchmark;
+
+import com.google.common.collect.ImmutableList;
+import io.crate.metadata.FunctionIdent;
+import io.crate.metadata.Functions;
+import io.crate.metadata.Scalar;
+import io.crate.operation.Input;
+import io.crate.operation.scalar.ScalarFunctionModule;
+import io.crate.operation.scalar.SubstrFunction;
+import io.crate.operation.scalar.arithmetic.AddFunction;
+import io.crate.operation.scalar.arithmetic.RoundFunction;
+import io.crate.operation.scalar.regex.ReplaceFunction;
+import io.crate.planner.symbol.InputColumn;
+import io.crate.planner.symbol.Literal;
+import io.crate.planner.symbol.Symbol;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.apache.lucene.util.BytesRef;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * evaluates scalar functions once per generated row, like the projectors do
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ScalarFunctionBenchmark {
+
+    @Param({"1000", "100000"})
+    public int cardinality;
+
+    @Param({"100000"})
+    public int numRows;
+
+    private Object[][] rows;
+
+    private Scalar add;
+    private Scalar round;
+    private Scalar substr;
+    private Scalar regexpReplace;
+    private Scalar compiledRegexpReplace;
+
+    private final RowInput column0 = new RowInput(0);
+    private final RowInput column1 = new RowInput(1);
+    private final RowInput column2 = new RowInput(2);
+    private final Literal<Integer> substrFrom = Literal.newLiteral(2);
+    private final Literal<Integer> substrLength = Literal.newLiteral(5);
+    private final Literal<BytesRef> pattern = Literal.newLiteral("_([0-9]+)_");
+    private final Literal<BytesRef> replacement = Literal.newLiteral("-$1-");
+
+    /**
+     * input returning one column of the current row
+     */
+    private class RowInput implements Input<Object> {
+
+        private final int index;
+        private Object[] row;
+
+        private RowInput(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public Object value() {
+            return row[index];
+        }
+    }
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42L);
+        Object[][] stringRows = BenchmarkData.stringKeyRows(numRows, cardinality);
+        rows = new Object[numRows][];
+        for (int i = 0; i < numRows; i++) {
+            rows[i] = new Object[]{stringRows[i][0], stringRows[i][1], random.nextDouble() * cardinality};
+        }
+
+        Functions functions = BenchmarkData.functions(new ScalarFunctionModule());
+        add = scalar(functions, AddFunction.NAME, DataTypes.LONG, DataTypes.LONG);
+        round = scalar(functions, RoundFunction.NAME, DataTypes.DOUBLE);
+        substr = scalar(functions, SubstrFunction.NAME, DataTypes.STRING, DataTypes.INTEGER, DataTypes.INTEGER);
+        regexpReplace = scalar(functions, ReplaceFunction.NAME, DataTypes.STRING, DataTypes.STRING, DataTypes.STRING);
+        compiledRegexpReplace = scalar(functions, ReplaceFunction.NAME, DataTypes.STRING, DataTypes.STRING, DataTypes.STRING)
+                .compile(ImmutableList.<Symbol>of(new InputColumn(0, DataTypes.STRING), pattern, replacement));
+    }
+
+    private static Scalar scalar(Functions functions, String name, DataType... argumentTypes) {
+        return (Scalar) functions.get(new FunctionIdent(name, ImmutableList.copyOf(argumentTypes)));
+    }
+
+    private void setRow(Object[] row) {
+        column0.row = row;
+        column1.row = row;
+        column2.row = row;
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public void add(Blackhole blackhole) {
+        for (Object[] row : rows) {
+            setRow(row);
+            blackhole.consume(add.evaluate(column1, column1));
+        }
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public void round(Blackhole blackhole) {
+        for (Object[] row : rows) {
+            setRow(row);
+            blackhole.consume(round.evaluate(column2));
+        }
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public void substr(Blackhole blackhole) {
+        for (Object[] row : rows) {
+            setRow(row);
+            blackhole.consume(substr.evaluate(column0, substrFrom, substrLength));
+        }
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public void regexpReplace(Blackhole blackhole) {
+        for (Object[] row : rows) {
+            setRow(row);
+            blackhole.consume(regexpReplace.evaluate(column0, pattern, replacement));
+        }
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public void compiledRegexpReplace(Blackhole blackhole) {
+        for (Object[] row : rows) {
+            setRow(row);
+            blackhole.consume(compiledRegexpReplace.evaluate(column0, pattern, replacement));
+        }
+    }
+}
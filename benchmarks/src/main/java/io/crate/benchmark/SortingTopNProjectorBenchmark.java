@@ -0,0 +1,109 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.benchmark;
+
+import com.google.common.collect.ImmutableList;
+import io.crate.operation.Input;
+import io.crate.operation.collect.CollectExpression;
+import io.crate.operation.collect.InputCollectExpression;
+import io.crate.operation.projectors.SortingTopNProjector;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <code>SELECT key, value ... ORDER BY key, value DESC LIMIT ?</code> on generated rows
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SortingTopNProjectorBenchmark {
+
+    @Param({"10", "100000"})
+    public int cardinality;
+
+    @Param({"long", "string"})
+    public String keyType;
+
+    @Param({"10", "10000"})
+    public int limit;
+
+    @Param({"500000"})
+    public int numRows;
+
+    /**
+     * pass the orderBy types, so fixed width keys are sorted by normalized keys
+     */
+    @Param({"false", "true"})
+    public boolean typed;
+
+    private Object[][] rows;
+
+    @Setup
+    public void setup() {
+        rows = keyType.equals("long")
+                ? BenchmarkData.longKeyRows(numRows, cardinality)
+                : BenchmarkData.stringKeyRows(numRows, cardinality);
+    }
+
+    private SortingTopNProjector newProjector() {
+        InputCollectExpression<Object> key = new InputCollectExpression<>(0);
+        InputCollectExpression<Object> value = new InputCollectExpression<>(1);
+        SortingTopNProjector projector = new SortingTopNProjector(
+                new Input<?>[]{key, value},
+                new CollectExpression<?>[]{key, value},
+                2,
+                new int[]{0, 1},
+                typed ? ImmutableList.<DataType>of(keyType.equals("long") ? DataTypes.LONG : DataTypes.STRING, DataTypes.LONG) : null,
+                new boolean[]{false, true},
+                new Boolean[]{null, null},
+                limit,
+                0
+        );
+        projector.registerUpstream(null);
+        projector.startProjection();
+        return projector;
+    }
+
+    @Benchmark
+    public Object[][] sortRowByRow() throws Exception {
+        SortingTopNProjector projector = newProjector();
+        for (Object[] row : rows) {
+            projector.setNextRow(row);
+        }
+        projector.upstreamFinished();
+        return projector.result().get();
+    }
+
+    @Benchmark
+    public Object[][] sortBatches() throws Exception {
+        SortingTopNProjector projector = newProjector();
+        projector.setNextRows(rows, rows.length);
+        projector.upstreamFinished();
+        return projector.result().get();
+    }
+}
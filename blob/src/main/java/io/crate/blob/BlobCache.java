@@ -0,0 +1,246 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.blob;
+
+import com.google.common.cache.*;
+import io.crate.blob.exceptions.DigestNotFoundException;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the file channels of recently read blobs open and,
+ * if <code>blobs.cache.memory</code> is set, the content of small blobs in memory.
+ */
+public class BlobCache {
+
+    public static final String SETTING_OPEN_FILES = "blobs.cache.open_files";
+    public static final String SETTING_MEMORY = "blobs.cache.memory";
+
+    /**
+     * only blobs up to this size are held in memory
+     */
+    static final int MAX_IN_MEMORY_SIZE = 64 * 1024;
+
+    private static final ESLogger logger = Loggers.getLogger(BlobCache.class);
+
+    private static final RemovalListener<String, CachedBlob> RELEASE_ON_REMOVAL = new RemovalListener<String, CachedBlob>() {
+        @Override
+        public void onRemoval(RemovalNotification<String, CachedBlob> notification) {
+            notification.getValue().release();
+        }
+    };
+
+    private final BlobContainer blobContainer;
+    private final Cache<String, CachedBlob> openFiles;
+    @Nullable
+    private final Cache<String, CachedBlob> contents;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public BlobCache(BlobContainer blobContainer, Settings settings) {
+        this.blobContainer = blobContainer;
+        openFiles = CacheBuilder.newBuilder()
+                .maximumSize(settings.getAsInt(SETTING_OPEN_FILES, 32))
+                .removalListener(RELEASE_ON_REMOVAL)
+                .build();
+        long memory = settings.getAsBytesSize(SETTING_MEMORY, new ByteSizeValue(0)).bytes();
+        if (memory > 0) {
+            contents = CacheBuilder.newBuilder()
+                    .maximumWeight(memory)
+                    .weigher(new Weigher<String, CachedBlob>() {
+                        @Override
+                        public int weigh(String digest, CachedBlob blob) {
+                            return (int) blob.length();
+                        }
+                    })
+                    .build();
+        } else {
+            contents = null;
+        }
+    }
+
+    /**
+     * The returned blob has to be {@link CachedBlob#release() released} once it has been read.
+     *
+     * @throws DigestNotFoundException if there is no blob with this digest
+     */
+    public CachedBlob get(String digest) throws IOException {
+        CachedBlob blob;
+        if (contents != null) {
+            blob = contents.getIfPresent(digest);
+            if (blob != null) {
+                hits.incrementAndGet();
+                return blob;
+            }
+        }
+        blob = openFiles.getIfPresent(digest);
+        if (blob != null && blob.retain()) {
+            hits.incrementAndGet();
+            return blob;
+        }
+        misses.incrementAndGet();
+
+        File file = blobContainer.getFile(digest);
+        RandomAccessFile raf;
+        try {
+            raf = new RandomAccessFile(file, "r");
+        } catch (FileNotFoundException e) {
+            throw new DigestNotFoundException(digest);
+        }
+        FileChannel channel = raf.getChannel();
+        long length = channel.size();
+        if (contents != null && length <= MAX_IN_MEMORY_SIZE) {
+            try {
+                ByteBuffer buffer = ByteBuffer.allocate((int) length);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, buffer.position()) < 0) {
+                        break;
+                    }
+                }
+                buffer.flip();
+                blob = new CachedBlob(ChannelBuffers.wrappedBuffer(buffer));
+            } finally {
+                channel.close();
+            }
+            contents.put(digest, blob);
+        } else {
+            blob = new CachedBlob(channel, length);
+            // one reference is held by the cache, the other by the caller
+            blob.retain();
+            openFiles.put(digest, blob);
+        }
+        if (!file.exists()) {
+            // the blob has been deleted while it was loaded, its invalidation might
+            // have happened before it was put into the cache
+            invalidate(digest);
+            blob.release();
+            throw new DigestNotFoundException(digest);
+        }
+        return blob;
+    }
+
+    /**
+     * remove a blob from the cache, e.g. because it has been deleted.
+     * Blobs which are still read are closed once they are released.
+     */
+    public void invalidate(String digest) {
+        openFiles.invalidate(digest);
+        if (contents != null) {
+            contents.invalidate(digest);
+        }
+    }
+
+    public void invalidateAll() {
+        openFiles.invalidateAll();
+        if (contents != null) {
+            contents.invalidateAll();
+        }
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    /**
+     * A blob that is either held in memory or read from a file channel
+     * that stays open as long as the blob is cached or read.
+     */
+    public static class CachedBlob {
+
+        private final ChannelBuffer content;
+        private final FileChannel channel;
+        private final long length;
+        private int refCount = 1;
+
+        private CachedBlob(ChannelBuffer content) {
+            this.content = content;
+            this.channel = null;
+            this.length = content.readableBytes();
+        }
+
+        private CachedBlob(FileChannel channel, long length) {
+            this.content = null;
+            this.channel = channel;
+            this.length = length;
+        }
+
+        public long length() {
+            return length;
+        }
+
+        /**
+         * @return the content if the blob is held in memory, otherwise null
+         */
+        @Nullable
+        public ChannelBuffer content() {
+            return content == null ? null : content.duplicate();
+        }
+
+        /**
+         * @return the channel to read the blob from if it isn't held in memory
+         */
+        @Nullable
+        public FileChannel channel() {
+            return channel;
+        }
+
+        private synchronized boolean retain() {
+            if (refCount == 0) {
+                return false;
+            }
+            refCount++;
+            return true;
+        }
+
+        public synchronized void release() {
+            if (channel == null || refCount == 0) {
+                return;
+            }
+            refCount--;
+            if (refCount == 0) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    logger.warn("could not close blob file", e);
+                }
+            }
+        }
+    }
+}
@@ -28,11 +28,9 @@ import org.elasticsearch.common.io.FileSystemUtils;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FilenameFilter;
-import java.io.RandomAccessFile;
+import java.io.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
@@ -46,6 +44,12 @@ public class BlobContainer {
 
     private final File[] subDirs = new File[256];
 
+    /**
+     * guard the blob files of a sub-folder, so that files are never moved or deleted
+     * while the folder is listed to compute its stats
+     */
+    private final Object[] prefixLocks = new Object[256];
+
     static {
         for (int i = 0; i < 256; i++) {
             SUB_DIRS[i] = String.format("%02x", i & 0xFFFFF);
@@ -53,18 +57,50 @@ public class BlobContainer {
         }
     }
 
+    /**
+     * file the blob stats are persisted to on close, it is read and removed on startup
+     */
+    private static final String STATS_FILE = "stats";
+
+    /**
+     * matches the files of committed blobs, not the leftovers of interrupted transfers
+     */
+    private static final FilenameFilter BLOB_FILTER = new FilenameFilter() {
+        @Override
+        public boolean accept(File dir, String name) {
+            return !name.contains(".");
+        }
+    };
+
     private final File baseDirectory;
     private final File tmpDirectory;
     private final File varDirectory;
 
+    /**
+     * guards the stats, it's only held to update or read them and is acquired after a prefix lock
+     */
+    private final Object statsLock = new Object();
+    private final Object reconcileLock = new Object();
+    private long blobsCount = 0;
+    private long blobsSize = 0;
+    private final long[] prefixCounts = new long[256];
+    private final long[] prefixSizes = new long[256];
+    private final long[] prefixChecksums = new long[256];
+    private volatile boolean statsValid;
+    private volatile boolean statsReconciled;
+
     public BlobContainer(File baseDirectory) {
         this.baseDirectory = baseDirectory;
         this.tmpDirectory = new File(baseDirectory, "tmp");
         this.varDirectory = new File(baseDirectory, "var");
+        for (int i = 0; i < prefixLocks.length; i++) {
+            prefixLocks[i] = new Object();
+        }
         FileSystemUtils.mkdirs(this.varDirectory);
         FileSystemUtils.mkdirs(this.tmpDirectory);
 
         createSubDirectories(this.varDirectory);
+        statsValid = loadStats();
     }
 
     /**
@@ -125,6 +161,15 @@ public class BlobContainer {
         return digests;
     }
 
+    /**
+     * delete the leftover files of an interrupted recovery in all sub-folders
+     */
+    public void cleanAllDigests() {
+        for (int i = 0; i < subDirs.length; i++) {
+            cleanDigests(subDirs[i].list(), i);
+        }
+    }
+
     /**
      * delete all digests that have a .X suffix.
      * they are leftover files from a previous recovery that was interrupted
@@ -147,6 +192,244 @@ public class BlobContainer {
         return newNames.toArray(new String[newNames.size()]);
     }
 
+    /**
+     * @return the number of blobs, maintained whenever a blob is added or deleted
+     */
+    public long blobsCount() {
+        synchronized (statsLock) {
+            return blobsCount;
+        }
+    }
+
+    /**
+     * @return the total size of all blobs in bytes, maintained whenever a blob is added or deleted
+     */
+    public long blobsSize() {
+        synchronized (statsLock) {
+            return blobsSize;
+        }
+    }
+
+    /**
+     * the checksums are the sums of {@link #digestChecksum(String)} of all blobs in a prefix directory.
+     * Two containers whose checksums for a prefix are equal contain the same blobs in that directory,
+     * which lets the recovery skip those directories.
+     *
+     * @return a copy of the checksums, indexed by prefix
+     */
+    public long[] prefixChecksums() {
+        synchronized (statsLock) {
+            return prefixChecksums.clone();
+        }
+    }
+
+    /**
+     * digests are sha1 hashes, so their first 8 bytes are already evenly distributed
+     * and summing them up gives an order independent checksum of a set of digests
+     */
+    static long digestChecksum(String digest) {
+        long checksum = 0;
+        for (int i = 0; i < 16; i++) {
+            checksum = (checksum << 4) | Character.digit(digest.charAt(i), 16);
+        }
+        return checksum;
+    }
+
+    private static int prefixIndex(String digest) {
+        return Character.digit(digest.charAt(0), 16) << 4 | Character.digit(digest.charAt(1), 16);
+    }
+
+    /**
+     * @return true if the stats were restored from the stats file written on close
+     * or computed by {@link #reconcileStats()}
+     */
+    public boolean statsValid() {
+        return statsValid;
+    }
+
+    /**
+     * re-compute the stats by walking all blob files.
+     *
+     * The sub-folders are walked one at a time while holding the lock of the folder,
+     * so the stats of a folder are replaced by a consistent listing of it
+     * while blobs of other folders can still be added or deleted.
+     * Blobs which are added or deleted in a folder before it is walked are part of the listing,
+     * changes after it was walked are accounted for on top of it,
+     * therefore no concurrent change is lost or counted twice.
+     */
+    public void reconcileStats() {
+        synchronized (reconcileLock) {
+            for (int i = 0; i < subDirs.length; i++) {
+                reconcilePrefix(i);
+            }
+            statsValid = true;
+            statsReconciled = true;
+        }
+    }
+
+    /**
+     * re-compute the stats if they are not valid yet,
+     * waits for a re-computation which is already running instead of starting another one
+     */
+    public void ensureStatsValid() {
+        if (statsValid) {
+            return;
+        }
+        synchronized (reconcileLock) {
+            if (!statsValid) {
+                reconcileStats();
+            }
+        }
+    }
+
+    /**
+     * re-compute the stats unless they were already computed from the blob files since the container was created.
+     * Stats which were restored from the stats file are not trusted,
+     * the blob files might have been changed while the node was stopped.
+     */
+    public void ensureStatsReconciled() {
+        if (statsReconciled) {
+            return;
+        }
+        synchronized (reconcileLock) {
+            if (!statsReconciled) {
+                reconcileStats();
+            }
+        }
+    }
+
+    private void reconcilePrefix(int index) {
+        long count = 0;
+        long size = 0;
+        long checksum = 0;
+        synchronized (prefixLocks[index]) {
+            File[] files = subDirs[index].listFiles(BLOB_FILTER);
+            if (files != null) {
+                for (File file : files) {
+                    count++;
+                    size += file.length();
+                    checksum += digestChecksum(file.getName());
+                }
+            }
+            synchronized (statsLock) {
+                blobsCount += count - prefixCounts[index];
+                blobsSize += size - prefixSizes[index];
+                prefixCounts[index] = count;
+                prefixSizes[index] = size;
+                prefixChecksums[index] = checksum;
+            }
+        }
+    }
+
+    private boolean loadStats() {
+        File statsFile = new File(baseDirectory, STATS_FILE);
+        if (!statsFile.exists()) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(statsFile))) {
+            synchronized (statsLock) {
+                for (int i = 0; i < prefixChecksums.length; i++) {
+                    prefixCounts[i] = in.readLong();
+                    prefixSizes[i] = in.readLong();
+                    prefixChecksums[i] = in.readLong();
+                    blobsCount += prefixCounts[i];
+                    blobsSize += prefixSizes[i];
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            logger.warn("could not read blob stats from {}", e, statsFile);
+            synchronized (statsLock) {
+                blobsCount = 0;
+                blobsSize = 0;
+                Arrays.fill(prefixCounts, 0);
+                Arrays.fill(prefixSizes, 0);
+                Arrays.fill(prefixChecksums, 0);
+            }
+            return false;
+        } finally {
+            // stats are only valid until the container is modified,
+            // if the node stops without persisting them they are re-computed
+            if (!statsFile.delete()) {
+                logger.warn("could not delete blob stats file {}", statsFile);
+            }
+        }
+    }
+
+    /**
+     * write the stats to disk, so that they don't have to be computed on the next start.
+     * The container must not be modified afterwards.
+     */
+    public void persistStats() {
+        if (!statsValid) {
+            return;
+        }
+        File statsFile = new File(baseDirectory, STATS_FILE);
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(statsFile))) {
+            synchronized (statsLock) {
+                for (int i = 0; i < prefixChecksums.length; i++) {
+                    out.writeLong(prefixCounts[i]);
+                    out.writeLong(prefixSizes[i]);
+                    out.writeLong(prefixChecksums[i]);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("could not write blob stats to {}", e, statsFile);
+        }
+    }
+
+    /**
+     * move a completely written file to <code>target</code>, replacing an existing file,
+     * and account for it in the stats
+     *
+     * @return false if the file couldn't be moved
+     */
+    public boolean moveToTarget(File source, File target) {
+        int index = prefixIndex(target.getName());
+        synchronized (prefixLocks[index]) {
+            boolean replaced = target.exists();
+            long replacedSize = target.length();
+            if (!source.renameTo(target)) {
+                return false;
+            }
+            long size = target.length();
+            synchronized (statsLock) {
+                if (!replaced) {
+                    blobsCount++;
+                    prefixCounts[index]++;
+                    prefixChecksums[index] += digestChecksum(target.getName());
+                }
+                blobsSize += size - replacedSize;
+                prefixSizes[index] += size - replacedSize;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * delete the blob and account for it in the stats
+     *
+     * @return true if the blob was deleted
+     */
+    public boolean delete(String digest) {
+        File file = getFile(digest);
+        int index = prefixIndex(digest);
+        synchronized (prefixLocks[index]) {
+            long size = file.length();
+            if (!file.delete()) {
+                return false;
+            }
+            synchronized (statsLock) {
+                blobsCount--;
+                blobsSize -= size;
+                prefixCounts[index]--;
+                prefixSizes[index] -= size;
+                prefixChecksums[index] -= digestChecksum(digest);
+            }
+            return true;
+        }
+    }
+
     public File getBaseDirectory() {
         return baseDirectory;
     }
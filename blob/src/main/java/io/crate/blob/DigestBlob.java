@@ -163,7 +163,7 @@ public class DigestBlob {
             throw new DigestMismatchException(digest, contentDigest);
         }
         File newFile = container.getFile(digest);
-        file.renameTo(newFile);
+        container.moveToTarget(file, newFile);
         return newFile;
     }
 
@@ -23,6 +23,7 @@ package io.crate.blob;
 
 import io.crate.common.Hex;
 import org.elasticsearch.ElasticsearchIllegalArgumentException;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.logging.ESLogger;
@@ -34,7 +35,8 @@ import java.util.UUID;
 public class RemoteDigestBlob {
 
     private final String index;
-    private Status status;
+    // updated by the listeners of the transport actions
+    private volatile Status status;
 
     public static enum Status {
         FULL((byte) 0),
@@ -82,7 +84,6 @@ public class RemoteDigestBlob {
     private final BlobService blobService;
     private final Client client;
     private long size;
-    private StartBlobResponse startResponse;
     private UUID transferId;
 
 
@@ -98,7 +99,7 @@ public class RemoteDigestBlob {
         return status;
     }
 
-    public boolean delete() {
+    public void delete(final ActionListener<Boolean> listener) {
         logger.trace("delete");
         assert (transferId == null);
         DeleteBlobRequest request = new DeleteBlobRequest(
@@ -106,11 +107,20 @@ public class RemoteDigestBlob {
                 Hex.decodeHex(digest)
         );
 
-        DeleteBlobResponse response = client.execute(DeleteBlobAction.INSTANCE, request).actionGet();
-        return response.deleted;
+        client.execute(DeleteBlobAction.INSTANCE, request, new ActionListener<DeleteBlobResponse>() {
+            @Override
+            public void onResponse(DeleteBlobResponse response) {
+                listener.onResponse(response.deleted);
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                listener.onFailure(e);
+            }
+        });
     }
 
-    private void start(ChannelBuffer buffer, boolean last) {
+    private void start(ChannelBuffer buffer, boolean last, final ActionListener<Status> listener) {
         logger.trace("start blob upload");
         assert (transferId == null);
         StartBlobRequest request = new StartBlobRequest(
@@ -119,13 +129,23 @@ public class RemoteDigestBlob {
                 new BytesArray(buffer.array()),
                 last
         );
-        size += buffer.readableBytes();
-        startResponse = client.execute(StartBlobAction.INSTANCE, request).actionGet();
         transferId = request.transferId();
-        status = startResponse.status();
+        size += buffer.readableBytes();
+        client.execute(StartBlobAction.INSTANCE, request, new ActionListener<StartBlobResponse>() {
+            @Override
+            public void onResponse(StartBlobResponse response) {
+                status = response.status();
+                listener.onResponse(status);
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                listener.onFailure(e);
+            }
+        });
     }
 
-    private void chunk(ChannelBuffer buffer, boolean last) {
+    private void chunk(ChannelBuffer buffer, boolean last, final ActionListener<Status> listener) {
         assert (transferId != null);
         PutChunkRequest request = new PutChunkRequest(
             index,
@@ -136,24 +156,38 @@ public class RemoteDigestBlob {
             last
         );
         size += buffer.readableBytes();
-        PutChunkResponse response = client.execute(PutChunkAction.INSTANCE, request).actionGet();
-        status = response.status();
+        client.execute(PutChunkAction.INSTANCE, request, new ActionListener<PutChunkResponse>() {
+            @Override
+            public void onResponse(PutChunkResponse response) {
+                status = response.status();
+                listener.onResponse(status);
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                listener.onFailure(e);
+            }
+        });
     }
 
-    public Status addContent(ChannelBuffer buffer, boolean last) {
-        if (startResponse == null) {
+    /**
+     * Add the content to the blob. The content is written asynchronously, the status after
+     * the content was written is passed to the listener.
+     * The next content must not be added before the listener was called.
+     */
+    public void addContent(ChannelBuffer buffer, boolean last, ActionListener<Status> listener) {
+        if (transferId == null) {
             // this is the first call to addContent
-            start(buffer, last);
+            start(buffer, last, listener);
         } else if (status == Status.EXISTS) {
             // client probably doesn't support 100-continue and is sending chunked requests
             // need to ignore the content.
+            listener.onResponse(status);
         } else if (status != Status.PARTIAL){
-            throw new IllegalStateException("Expected Status.PARTIAL for chunk but got: " + status);
+            listener.onFailure(new IllegalStateException("Expected Status.PARTIAL for chunk but got: " + status));
         } else {
-            chunk(buffer, last);
+            chunk(buffer, last, listener);
         }
-
-        return status;
     }
 
     public long size() {
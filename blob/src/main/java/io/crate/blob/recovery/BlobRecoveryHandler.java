@@ -27,6 +27,7 @@ import io.crate.blob.v2.BlobIndices;
 import io.crate.blob.v2.BlobShard;
 import io.crate.common.Hex;
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.common.StopWatch;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.logging.ESLogger;
@@ -37,9 +38,14 @@ import org.elasticsearch.index.shard.service.InternalIndexShard;
 import org.elasticsearch.indices.recovery.*;
 import org.elasticsearch.transport.*;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
@@ -48,6 +54,11 @@ import java.util.concurrent.atomic.AtomicReference;
 
 public class BlobRecoveryHandler {
 
+    /**
+     * number of chunk requests of a single file that are sent without waiting for their response
+     */
+    private static final int CHUNKS_IN_FLIGHT = 4;
+
     private final ESLogger logger = Loggers.getLogger(getClass());
     private final StartRecoveryRequest request;
     private final TransportService transportService;
@@ -57,6 +68,12 @@ public class BlobRecoveryHandler {
     private final BlobTransferTarget blobTransferTarget;
     private final int GET_HEAD_TIMEOUT;
 
+    /**
+     * targets of older versions don't support positional chunks,
+     * the chunks of a file are sent to them one after another
+     */
+    private volatile boolean positionalChunks = true;
+
     public BlobRecoveryHandler(TransportService transportService,
                                RecoverySettings recoverySettings,
                                BlobTransferTarget blobTransferTarget,
@@ -99,6 +116,34 @@ public class BlobRecoveryHandler {
         return result;
     }
 
+    /**
+     * @return the checksums of the digests of every prefix on the target
+     * or null if the target doesn't support them, in which case all prefixes have to be synced
+     */
+    private long[] getPrefixChecksumsFromTarget() {
+        try {
+            BlobPrefixChecksumsResponse response =
+                (BlobPrefixChecksumsResponse)transportService.submitRequest(
+                    request.targetNode(),
+                    BlobRecoveryTarget.Actions.PREFIX_CHECKSUMS,
+                    new BlobPrefixChecksumsRequest(request.recoveryId()),
+                    TransportRequestOptions.options(),
+                    new FutureTransportResponseHandler<TransportResponse>() {
+                        @Override
+                        public TransportResponse newInstance() {
+                            return new BlobPrefixChecksumsResponse();
+                        }
+                    }
+                ).txGet();
+            return response.checksums;
+        } catch (TransportException e) {
+            if (ExceptionsHelper.unwrapCause(e) instanceof ActionNotFoundTransportException) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
     public void phase1() throws Exception {
         logger.debug("[{}][{}] recovery [phase1] to {}: start",
             request.shardId().index().name(), request.shardId().id(), request.targetNode().getName());
@@ -154,7 +199,15 @@ public class BlobRecoveryHandler {
 
     private void syncVarFiles(AtomicReference<Exception> lastException) throws InterruptedException {
 
+        long[] remoteChecksums = getPrefixChecksumsFromTarget();
+        long[] localChecksums = blobShard.prefixChecksums();
+        int skippedPrefixes = 0;
         for (byte prefix : BlobContainer.PREFIXES) {
+            int index = prefix & 0xFF;
+            if (remoteChecksums != null && remoteChecksums[index] == localChecksums[index]) {
+                skippedPrefixes++;
+                continue;
+            }
             // byte[1] and byte[1] have different hashCodes
             // so setA.removeAll(setB) wouldn't work with byte[], that's why BytesArray is used here
             Set<BytesArray> remoteDigests = getExistingDigestsFromTarget(prefix);
@@ -185,6 +238,9 @@ public class BlobRecoveryHandler {
                 deleteFilesRequest(remoteDigests.toArray(new BytesArray[remoteDigests.size()]));
             }
         }
+        logger.debug("[{}][{}] skipped {} prefixes with equal checksums on {}",
+            request.shardId().index().name(), request.shardId().id(), skippedPrefixes,
+            request.targetNode().getName());
     }
 
     private void deleteFilesRequest(BytesArray[] digests) {
@@ -232,91 +288,150 @@ public class BlobRecoveryHandler {
         @Override
         public void run() {
 
-            try {
-                final int BUFFER_SIZE = 4 * 4096;
-
-                long fileSize = file.length();
+            try (FileChannel fileChannel = new FileInputStream(file).getChannel()) {
+                long fileSize = fileChannel.size();
 
                 if (fileSize == 0) {
                     logger.warn("[{}][{}] empty file: {}",
                         request.shardId().index().name(), request.shardId().id(), file.getName());
+                    return;
                 }
 
-                try (FileInputStream fileStream = new FileInputStream(file)) {
-                    String filePath = file.getAbsolutePath();
-                    String relPath = filePath.substring(baseDir.length(), filePath.length());
-                    byte[] buf = new byte[BUFFER_SIZE];
-                    int bytesRead = fileStream.read(buf, 0, BUFFER_SIZE);
-                    long bytesReadTotal = 0;
-                    BytesArray content = new BytesArray(buf, 0, bytesRead);
-                    BlobRecoveryStartTransferRequest startTransferRequest =
-                        new BlobRecoveryStartTransferRequest(request.recoveryId(), relPath, content,
-                            fileSize
-                        );
-
-                    if (bytesRead > 0) {
-                        bytesReadTotal += bytesRead;
-
-                        logger.trace("[{}][{}] send BlobRecoveryStartTransferRequest to {} for file {} with size {}",
-                            request.shardId().index().name(), request.shardId().id(),
-                            request.targetNode().getName(),
-                            relPath,
-                            fileSize
-                        );
-                        transportService.submitRequest(
-                            request.targetNode(),
-                            BlobRecoveryTarget.Actions.START_TRANSFER,
-                            startTransferRequest,
-                            TransportRequestOptions.options(),
-                            EmptyTransportResponseHandler.INSTANCE_SAME
-                        ).txGet();
-
-                        boolean isLast = false;
-                        boolean sentChunks = false;
-                        while ((bytesRead = fileStream.read(buf, 0, BUFFER_SIZE)) > 0) {
-
-                            sentChunks = true;
-                            bytesReadTotal += bytesRead;
-
-                            if (shard.state() == IndexShardState.CLOSED) { // check if the shard got closed on us
-                                throw new IndexShardClosedException(shard.shardId());
-                            }
-                            if (bytesReadTotal == fileSize) {
-                                isLast = true;
-                            }
-                            content = new BytesArray(buf, 0, bytesRead);
-
-                            transportService.submitRequest(request.targetNode(),
-                                BlobRecoveryTarget.Actions.TRANSFER_CHUNK,
-                                new BlobRecoveryChunkRequest(request.recoveryId(),
-                                    startTransferRequest.transferId(), content, isLast),
-                                TransportRequestOptions.options(),
-                                EmptyTransportResponseHandler.INSTANCE_SAME
-                            ).txGet();
-                        }
-
-                        if (!isLast && sentChunks) {
-                            logger.error("Sending isLast because it wasn't sent before for {}", relPath);
-                            transportService.submitRequest(request.targetNode(),
-                                BlobRecoveryTarget.Actions.TRANSFER_CHUNK,
-                                new BlobRecoveryChunkRequest(request.recoveryId(),
-                                    startTransferRequest.transferId(), BytesArray.EMPTY, true),
-                                TransportRequestOptions.options(),
-                                EmptyTransportResponseHandler.INSTANCE_SAME
-                            ).txGet();
+                String filePath = file.getAbsolutePath();
+                String relPath = filePath.substring(baseDir.length(), filePath.length());
+                int chunkSize = (int) Math.min(recoverySettings.fileChunkSize().bytes(), fileSize);
+                // a buffer is only re-used after the chunk that was sent from it has been acknowledged
+                byte[][] buffers = new byte[CHUNKS_IN_FLIGHT][];
+                buffers[0] = new byte[chunkSize];
+
+                BytesArray content = readChunk(fileChannel, buffers[0], 0);
+                BlobRecoveryStartTransferRequest startTransferRequest =
+                    new BlobRecoveryStartTransferRequest(request.recoveryId(), relPath, content,
+                        fileSize
+                    );
+
+                logger.trace("[{}][{}] send BlobRecoveryStartTransferRequest to {} for file {} with size {}",
+                    request.shardId().index().name(), request.shardId().id(),
+                    request.targetNode().getName(),
+                    relPath,
+                    fileSize
+                );
+                transportService.submitRequest(
+                    request.targetNode(),
+                    BlobRecoveryTarget.Actions.START_TRANSFER,
+                    startTransferRequest,
+                    TransportRequestOptions.options(),
+                    EmptyTransportResponseHandler.INSTANCE_SAME
+                ).txGet();
+
+                long position = content.length();
+                if (positionalChunks) {
+                    try {
+                        sendPositionalChunks(fileChannel, buffers, startTransferRequest.transferId(),
+                            position, fileSize, chunkSize);
+                        position = fileSize;
+                    } catch (TransportException e) {
+                        if (!(ExceptionsHelper.unwrapCause(e) instanceof ActionNotFoundTransportException)) {
+                            throw e;
                         }
+                        // none of the positional chunks has been written by the target
+                        positionalChunks = false;
                     }
-
-                    logger.trace("[{}][{}] completed to transfer file {} to {}",
-                        request.shardId().index().name(), request.shardId().id(), file.getName(),
-                        request.targetNode().getName());
                 }
-            } catch (IOException ex) {
+                if (position < fileSize) {
+                    sendChunks(fileChannel, buffers[0], startTransferRequest.transferId(), position, fileSize);
+                }
+
+                logger.trace("[{}][{}] completed to transfer file {} to {}",
+                    request.shardId().index().name(), request.shardId().id(), file.getName(),
+                    request.targetNode().getName());
+            } catch (Exception ex) {
                 logger.error("exception while file transfer", ex);
                 lastException.set(ex);
             } finally {
                 latch.countDown();
             }
         }
+
+        /**
+         * sends the remaining chunks of the file with up to {@link #CHUNKS_IN_FLIGHT} requests in flight
+         */
+        private void sendPositionalChunks(FileChannel fileChannel, byte[][] buffers, long transferId,
+                                          long position, long fileSize, int chunkSize) throws IOException {
+            Deque<TransportFuture<TransportResponse.Empty>> chunksInFlight = new ArrayDeque<>(CHUNKS_IN_FLIGHT);
+            try {
+                for (int chunk = 1; position < fileSize; chunk++) {
+                    checkShardNotClosed();
+                    if (chunksInFlight.size() == CHUNKS_IN_FLIGHT) {
+                        chunksInFlight.poll().txGet();
+                    }
+                    int slot = chunk % CHUNKS_IN_FLIGHT;
+                    if (buffers[slot] == null) {
+                        buffers[slot] = new byte[chunkSize];
+                    }
+                    BytesArray content = readChunk(fileChannel, buffers[slot], position);
+                    chunksInFlight.add(transportService.submitRequest(request.targetNode(),
+                        BlobRecoveryTarget.Actions.TRANSFER_POSITIONAL_CHUNK,
+                        new BlobRecoveryPositionalChunkRequest(request.recoveryId(), transferId, content, position),
+                        TransportRequestOptions.options(),
+                        EmptyTransportResponseHandler.INSTANCE_SAME
+                    ));
+                    position += content.length();
+                }
+                while (!chunksInFlight.isEmpty()) {
+                    chunksInFlight.poll().txGet();
+                }
+            } finally {
+                // don't re-use the buffers while requests which were sent from them are still in flight
+                for (TransportFuture<TransportResponse.Empty> chunkInFlight : chunksInFlight) {
+                    try {
+                        chunkInFlight.txGet();
+                    } catch (TransportException e) {
+                        // the first failure is already propagated
+                    }
+                }
+            }
+        }
+
+        /**
+         * sends the remaining chunks of the file one after another, the last one is flagged so that
+         * targets which don't support positional chunks know when the file is complete
+         */
+        private void sendChunks(FileChannel fileChannel, byte[] buffer, long transferId,
+                                long position, long fileSize) throws IOException {
+            while (position < fileSize) {
+                checkShardNotClosed();
+                BytesArray content = readChunk(fileChannel, buffer, position);
+                position += content.length();
+                transportService.submitRequest(request.targetNode(),
+                    BlobRecoveryTarget.Actions.TRANSFER_CHUNK,
+                    new BlobRecoveryChunkRequest(request.recoveryId(), transferId, content, position >= fileSize),
+                    TransportRequestOptions.options(),
+                    EmptyTransportResponseHandler.INSTANCE_SAME
+                ).txGet();
+            }
+        }
+
+        private void checkShardNotClosed() {
+            if (shard.state() == IndexShardState.CLOSED) { // check if the shard got closed on us
+                throw new IndexShardClosedException(shard.shardId());
+            }
+        }
+
+        private BytesArray readChunk(FileChannel fileChannel, byte[] bytes, long position) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                if (fileChannel.read(buffer, position + buffer.position()) < 0) {
+                    break;
+                }
+            }
+            if (buffer.position() == 0) {
+                throw new EOFException("unexpected end of file " + file.getName() + " at " + position);
+            }
+            if (recoverySettings.rateLimiter() != null) {
+                recoverySettings.rateLimiter().pause(buffer.position());
+            }
+            return new BytesArray(bytes, 0, buffer.position());
+        }
     }
 }
@@ -21,64 +21,121 @@
 
 package io.crate.blob.v2;
 
+import io.crate.blob.BlobCache;
 import io.crate.blob.BlobContainer;
 import io.crate.blob.BlobEnvironment;
 import io.crate.blob.stats.BlobStats;
 import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.settings.IndexSettings;
 import org.elasticsearch.index.shard.AbstractIndexShardComponent;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.service.IndexShard;
+import org.elasticsearch.indices.IndicesLifecycle;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.File;
 
 public class BlobShard extends AbstractIndexShardComponent {
 
     private final BlobContainer blobContainer;
+    private final BlobCache blobCache;
     private final IndexShard indexShard;
 
     @Inject
     protected BlobShard(ShardId shardId, @IndexSettings Settings indexSettings,
                         BlobEnvironment blobEnvironment,
-                        IndexShard indexShard) {
+                        IndexShard indexShard,
+                        IndicesLifecycle indicesLifecycle,
+                        ThreadPool threadPool) {
         super(shardId, indexSettings);
         this.indexShard = indexShard;
         File blobDir = blobDir(blobEnvironment);
         logger.info("creating BlobContainer at {}", blobDir);
         this.blobContainer = new BlobContainer(blobDir);
+        this.blobCache = new BlobCache(blobContainer, indexSettings);
+
+        // stats restored from the stats file are used right away but re-computed in the background,
+        // the blob files might have been changed while the node was stopped
+        threadPool.generic().execute(new Runnable() {
+            @Override
+            public void run() {
+                blobContainer.ensureStatsReconciled();
+                logger.debug("computed blob stats: {} blobs, {} bytes",
+                        blobContainer.blobsCount(), blobContainer.blobsSize());
+            }
+        });
+        indicesLifecycle.addListener(new StatsPersistingListener(indicesLifecycle));
+    }
+
+    /**
+     * persists the blob stats and closes the cached files once the shard is closed
+     */
+    private class StatsPersistingListener extends IndicesLifecycle.Listener {
+
+        private final IndicesLifecycle indicesLifecycle;
+
+        private StatsPersistingListener(IndicesLifecycle indicesLifecycle) {
+            this.indicesLifecycle = indicesLifecycle;
+        }
+
+        @Override
+        public void beforeIndexShardClosed(ShardId shardId, @Nullable IndexShard indexShard) {
+            if (shardId.equals(BlobShard.this.shardId)) {
+                blobContainer.persistStats();
+                blobCache.invalidateAll();
+                indicesLifecycle.removeListener(this);
+            }
+        }
     }
 
     public byte[][] currentDigests(byte prefix) {
         return blobContainer.cleanAndReturnDigests(prefix);
     }
 
+    /**
+     * the recovery skips prefixes with equal checksums, so they are computed from the blob files
+     * if they were only restored from the stats file.
+     *
+     * @return the checksums of the digests of every prefix, see {@link BlobContainer#prefixChecksums()}
+     */
+    public long[] prefixChecksums() {
+        blobContainer.ensureStatsReconciled();
+        return blobContainer.prefixChecksums();
+    }
+
     public boolean delete(String digest) {
-        return blobContainer.getFile(digest).delete();
+        boolean deleted = blobContainer.delete(digest);
+        blobCache.invalidate(digest);
+        return deleted;
     }
 
     public BlobContainer blobContainer() {
         return blobContainer;
     }
 
+    public BlobCache blobCache() {
+        return blobCache;
+    }
+
     public ShardRouting shardRouting() {
         return indexShard.routingEntry();
     }
 
+    /**
+     * if the stats are still being computed in the background this waits for them,
+     * so that no partial counts are reported
+     */
     public BlobStats blobStats() {
-        final BlobStats stats = new BlobStats();
+        blobContainer.ensureStatsValid();
+        BlobStats stats = new BlobStats();
 
         stats.location(blobContainer().getBaseDirectory().getAbsolutePath());
         stats.availableSpace(blobContainer().getBaseDirectory().getFreeSpace());
-        blobContainer().walkFiles(null, new BlobContainer.FileVisitor() {
-            @Override
-            public boolean visit(File file) {
-                stats.totalUsage(stats.totalUsage() + file.length());
-                stats.count(stats.count() + 1);
-                return true;
-            }
-        });
+        stats.totalUsage(blobContainer.blobsSize());
+        stats.count(blobContainer.blobsCount());
 
         return stats;
     }
@@ -21,6 +21,7 @@
 
 package io.crate.http.netty;
 
+import io.crate.blob.BlobCache;
 import io.crate.blob.BlobService;
 import io.crate.blob.DigestBlob;
 import io.crate.blob.RemoteDigestBlob;
@@ -30,6 +31,8 @@ import io.crate.blob.exceptions.MissingHTTPEndpointException;
 import io.crate.blob.v2.BlobIndices;
 import io.crate.blob.v2.BlobShard;
 import io.crate.blob.v2.BlobsDisabledException;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.indices.IndexMissingException;
@@ -40,10 +43,11 @@ import org.jboss.netty.handler.codec.http.*;
 import org.jboss.netty.util.CharsetUtil;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.Queue;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -67,11 +71,20 @@ public class HttpBlobHandler extends SimpleChannelUpstreamHandler implements
 
     private final BlobService blobService;
     private final BlobIndices blobIndices;
-    private HttpMessage currentMessage;
+    // messages are handled by the netty worker or, after a write, by the thread which completed the write
+    private volatile HttpMessage currentMessage;
     private ChannelHandlerContext ctx;
     private static final Pattern contentRangePattern = Pattern.compile("^bytes=(\\d+)-(\\d*)$");
 
-    private RemoteDigestBlob digestBlob;
+    private volatile RemoteDigestBlob digestBlob;
+
+    /**
+     * true while blob content is written, reading from the channel is suspended meanwhile.
+     * Messages which are received in the meantime are queued in {@link #pendingMessages}
+     * and handled in order once the write has finished.
+     */
+    private boolean writeInProgress = false;
+    private final Queue<MessageEvent> pendingMessages = new ArrayDeque<>();
 
     public HttpBlobHandler(BlobService blobService, BlobIndices blobIndices) {
         this.blobService = blobService;
@@ -104,7 +117,19 @@ public class HttpBlobHandler extends SimpleChannelUpstreamHandler implements
     @Override
     public void messageReceived(ChannelHandlerContext ctx, MessageEvent e)
             throws Exception {
+        synchronized (pendingMessages) {
+            if (writeInProgress) {
+                pendingMessages.add(e);
+                return;
+            }
+        }
+        handleMessage(ctx, e);
+    }
 
+    /**
+     * @return true if an asynchronous write or delete of a blob was started
+     */
+    private boolean handleMessage(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
         Object msg = e.getMessage();
         HttpMessage currentMessage = this.currentMessage;
 
@@ -119,14 +144,14 @@ public class HttpBlobHandler extends SimpleChannelUpstreamHandler implements
                 // e.g. url like "localhost:4200//" throws exception
                 // sendUpstream so that regular ES status is returned
                 ctx.sendUpstream(e);
-                return;
+                return false;
             }
 
             Matcher matcher = pattern.matcher(uri.getPath());
             if (!matcher.matches()){
                 this.currentMessage = null;
                 ctx.sendUpstream(e);
-                return;
+                return false;
             }
             String index = matcher.group(1);
             String digest = matcher.group(2);
@@ -138,7 +163,7 @@ public class HttpBlobHandler extends SimpleChannelUpstreamHandler implements
 
             if (possibleRedirect(request, index, digest)) {
                 reset();
-                return;
+                return false;
             }
 
             if (request.getMethod().equals(HttpMethod.GET)) {
@@ -149,9 +174,11 @@ public class HttpBlobHandler extends SimpleChannelUpstreamHandler implements
                 reset();
             } else if (request.getMethod().equals(HttpMethod.PUT)) {
                 put(request, index, digest);
+                return true;
             } else if (request.getMethod().equals(HttpMethod.DELETE)) {
-                delete(index, digest);
                 reset();
+                delete(index, digest);
+                return true;
             } else {
                 simpleResponse(HttpResponseStatus.METHOD_NOT_ALLOWED, null);
                 reset();
@@ -161,19 +188,17 @@ public class HttpBlobHandler extends SimpleChannelUpstreamHandler implements
             if (currentMessage == null) {
                 // the chunk is probably from a regular non-blob request.
                 ctx.sendUpstream(e);
-                return;
+                return false;
             }
 
             // write chunk to file
             writeToFile(chunk.getContent(), chunk.isLast(), false);
-
-            if (chunk.isLast()) {
-                reset();
-            }
+            return true;
         } else {
             // Neither HttpMessage or HttpChunk
             ctx.sendUpstream(e);
         }
+        return false;
     }
 
     private void reset() {
@@ -210,7 +235,10 @@ public class HttpBlobHandler extends SimpleChannelUpstreamHandler implements
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e)
             throws Exception {
-        Throwable ex = e.getCause();
+        handleException(e.getCause());
+    }
+
+    private void handleException(Throwable ex) {
         if (ex instanceof ClosedChannelException) {
             logger.info("channel closed: {}", ex.toString());
             return;
@@ -242,14 +270,26 @@ public class HttpBlobHandler extends SimpleChannelUpstreamHandler implements
         // should be a redirect upfront if data is not local
 
         BlobShard blobShard = localBlobShard(index, digest);
-        long length = blobShard.blobContainer().getFile(digest).length();
+        BlobCache.CachedBlob blob;
+        try {
+            blob = blobShard.blobCache().get(digest);
+        } catch (DigestNotFoundException e) {
+            simpleResponse(HttpResponseStatus.NOT_FOUND, null);
+            return;
+        }
+        long length = blob.length();
+        blob.release();
         if (length < 1) {
             simpleResponse(HttpResponseStatus.NOT_FOUND, null);
             return;
         }
+        if (notModified(request, digest)) {
+            notModifiedResponse(request, digest);
+            return;
+        }
         HttpResponse response = new DefaultHttpResponse(HTTP_1_1, OK);
         HttpHeaders.setContentLength(response, length);
-        setDefaultGetHeaders(response);
+        setDefaultGetHeaders(response, digest);
         ChannelFuture cf = ctx.getChannel().write(response);
         if (!HttpHeaders.isKeepAlive(request)) {
             cf.addListener(ChannelFutureListener.CLOSE);
@@ -257,11 +297,17 @@ public class HttpBlobHandler extends SimpleChannelUpstreamHandler implements
     }
 
     private void get(HttpRequest request, String index, final String digest) throws IOException {
+        BlobCache.CachedBlob blob = localBlobShard(index, digest).blobCache().get(digest);
+        if (notModified(request, digest)) {
+            blob.release();
+            notModifiedResponse(request, digest);
+            return;
+        }
         String range = request.headers().get(RANGE);
         if (range != null) {
-            partialContentResponse(range, request, index, digest);
+            partialContentResponse(range, request, blob, digest);
         } else {
-            fullContentResponse(request, index, digest);
+            fullContentResponse(request, blob, digest);
         }
     }
 
@@ -269,69 +315,104 @@ public class HttpBlobHandler extends SimpleChannelUpstreamHandler implements
         return blobIndices.localBlobShard(index, digest);
     }
 
-    private void partialContentResponse(String range, HttpRequest request, String index, final String digest)
-        throws  IOException
-    {
+    /**
+     * the digest is the sha1 hash of the content, so it can be used as entity tag
+     */
+    private static String etag(String digest) {
+        return '"' + digest + '"';
+    }
+
+    private boolean notModified(HttpRequest request, String digest) {
+        String ifNoneMatch = request.headers().get(IF_NONE_MATCH);
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String etag = etag(digest);
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void notModifiedResponse(HttpRequest request, String digest) {
+        HttpResponse response = new DefaultHttpResponse(HTTP_1_1, HttpResponseStatus.NOT_MODIFIED);
+        HttpHeaders.setContentLength(response, 0);
+        setDefaultGetHeaders(response, digest);
+        ChannelFuture cf = ctx.getChannel().write(response);
+        if (!HttpHeaders.isKeepAlive(request)) {
+            cf.addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    private void partialContentResponse(String range, HttpRequest request, BlobCache.CachedBlob blob,
+                                        final String digest) throws IOException {
         assert(range != null);
         Matcher matcher = contentRangePattern.matcher(range);
         if (!matcher.matches()) {
             logger.warn("Invalid byte-range: {}; returning full content", range);
-            fullContentResponse(request, index, digest);
+            fullContentResponse(request, blob, digest);
             return;
         }
-        BlobShard blobShard = localBlobShard(index, digest);
-
-        final RandomAccessFile raf = blobShard.blobContainer().getRandomAccessFile(digest);
         long start;
         long end;
         try {
             start = Long.parseLong(matcher.group(1));
-            if (start > raf.length()) {
+            if (start > blob.length()) {
                 logger.warn("416 Requested Range not satisfiable");
                 simpleResponse(HttpResponseStatus.REQUESTED_RANGE_NOT_SATISFIABLE, null);
-                raf.close();
+                blob.release();
                 return;
             }
-            end = raf.length() - 1 ;
+            end = blob.length() - 1 ;
             if (!matcher.group(2).equals("")) {
-                end = Long.parseLong(matcher.group(2));
+                end = Math.min(Long.parseLong(matcher.group(2)), end);
             }
         } catch (NumberFormatException ex) {
             logger.error("Couldn't parse Range Header", ex);
             start = 0;
-            end = raf.length();
+            end = blob.length() - 1;
         }
 
         HttpResponse response = new DefaultHttpResponse(HTTP_1_1, PARTIAL_CONTENT);
         HttpHeaders.setContentLength(response, end - start + 1);
-        response.headers().set(CONTENT_RANGE, "bytes " + start + "-" + end + "/" + raf.length());
-        setDefaultGetHeaders(response);
+        response.headers().set(CONTENT_RANGE, "bytes " + start + "-" + end + "/" + blob.length());
+        setDefaultGetHeaders(response, digest);
 
         ctx.getChannel().write(response);
-        ChannelFuture writeFuture = transferFile(digest, raf, start, end - start + 1);
+        ChannelFuture writeFuture = transferFile(digest, blob, start, end - start + 1);
         if (!HttpHeaders.isKeepAlive(request)) {
             writeFuture.addListener(ChannelFutureListener.CLOSE);
         }
     }
 
-    private void fullContentResponse(HttpRequest request, String index, final String digest) throws  IOException {
-        BlobShard blobShard = localBlobShard(index, digest);
-        final RandomAccessFile raf = blobShard.blobContainer().getRandomAccessFile(digest);
+    private void fullContentResponse(HttpRequest request, BlobCache.CachedBlob blob, final String digest)
+        throws IOException {
         HttpResponse response = new DefaultHttpResponse(HTTP_1_1, OK);
-        HttpHeaders.setContentLength(response, raf.length());
-        setDefaultGetHeaders(response);
+        HttpHeaders.setContentLength(response, blob.length());
+        setDefaultGetHeaders(response, digest);
         logger.trace("HttpResponse: {}", response);
         ctx.getChannel().write(response);
-        ChannelFuture writeFuture = transferFile(digest, raf, 0, raf.length());
+        ChannelFuture writeFuture = transferFile(digest, blob, 0, blob.length());
         if (!HttpHeaders.isKeepAlive(request)) {
             writeFuture.addListener(ChannelFutureListener.CLOSE);
         }
     }
 
-    private ChannelFuture transferFile(final String digest, RandomAccessFile raf, long position, long count)
+    private ChannelFuture transferFile(final String digest, final BlobCache.CachedBlob blob, long position, long count)
         throws IOException
     {
-        final FileRegion region = new DefaultFileRegion(raf.getChannel(), position, count);
+        ChannelBuffer content = blob.content();
+        if (content != null) {
+            return ctx.getChannel().write(content.slice((int) position, (int) count));
+        }
+        // the channel is shared with other requests, it is closed by releasing the blob
+        final FileRegion region = new DefaultFileRegion(blob.channel(), position, count);
         ChannelFuture writeFuture = ctx.getChannel().write(region);
         writeFuture.addListener(new ChannelFutureProgressListener() {
             @Override
@@ -341,17 +422,18 @@ public class HttpBlobHandler extends SimpleChannelUpstreamHandler implements
 
             @Override
             public void operationComplete(ChannelFuture future) throws Exception {
-                region.releaseExternalResources();
+                blob.release();
                 logger.trace("file transfer completed");
             }
         });
         return writeFuture;
     }
 
-    private void setDefaultGetHeaders(HttpResponse response) {
+    private void setDefaultGetHeaders(HttpResponse response, String digest) {
         response.headers().set(ACCEPT_RANGES, "bytes");
         response.headers().set(EXPIRES, EXPIRES_VALUE);
         response.headers().set(CACHE_CONTROL, CACHE_CONTROL_VALUE);
+        response.headers().set(ETAG, etag(digest));
     }
 
     private void put(HttpRequest request, String index, String digest) throws IOException {
@@ -372,31 +454,66 @@ public class HttpBlobHandler extends SimpleChannelUpstreamHandler implements
         digestBlob = blobService.newBlob(index, digest);
         currentMessage = request;
 
-        if (request.isChunked()) {
-            writeToFile(request.getContent(), false, HttpHeaders.is100ContinueExpected(request));
-        } else {
-            writeToFile(request.getContent(), true, HttpHeaders.is100ContinueExpected(request));
-            reset();
-        }
+        writeToFile(request.getContent(), !request.isChunked(), HttpHeaders.is100ContinueExpected(request));
     }
 
     private void delete(String index, String digest) throws IOException {
-        digestBlob = blobService.newBlob(index, digest);
-        if (digestBlob.delete()) {
-            simpleResponse(HttpResponseStatus.NO_CONTENT, null); // 204 for success
-        } else {
-            simpleResponse(HttpResponseStatus.NOT_FOUND, null);
-        }
+        RemoteDigestBlob digestBlob = blobService.newBlob(index, digest);
+        this.digestBlob = digestBlob;
+        suspendReading();
+        digestBlob.delete(new ActionListener<Boolean>() {
+            @Override
+            public void onResponse(Boolean deleted) {
+                if (deleted) {
+                    simpleResponse(HttpResponseStatus.NO_CONTENT, null); // 204 for success
+                } else {
+                    simpleResponse(HttpResponseStatus.NOT_FOUND, null);
+                }
+                writeFinished();
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                writeFailed(e);
+            }
+        });
     }
 
-    protected void writeToFile(ChannelBuffer input, boolean last, boolean continueExpected) throws
+    /**
+     * Write the content to the blob without blocking the I/O thread.
+     * Reading from the channel is suspended until the content was written.
+     * The handler state is reset before the write is started, because the write listener
+     * may already handle the next pipelined request.
+     */
+    protected void writeToFile(ChannelBuffer input, boolean last, final boolean continueExpected) throws
             IOException {
+        RemoteDigestBlob digestBlob = this.digestBlob;
         if (digestBlob == null) {
             throw new IllegalStateException("digestBlob is null in writeToFile");
         }
+        HttpMessage currentMessage = this.currentMessage;
+        final boolean closeAfterResponse = currentMessage == null || !HttpHeaders.isKeepAlive(currentMessage);
+        if (last) {
+            reset();
+        }
+        suspendReading();
 
+        digestBlob.addContent(input, last, new ActionListener<RemoteDigestBlob.Status>() {
+            @Override
+            public void onResponse(RemoteDigestBlob.Status status) {
+                writeResponse(status, continueExpected, closeAfterResponse);
+                writeFinished();
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                writeFailed(e);
+            }
+        });
+    }
+
+    private void writeResponse(RemoteDigestBlob.Status status, boolean continueExpected, boolean closeAfterResponse) {
         HttpResponseStatus exitStatus = null;
-        RemoteDigestBlob.Status status = digestBlob.addContent(input, last);
         switch (status) {
             case FULL:
                 exitStatus = HttpResponseStatus.CREATED;
@@ -423,11 +540,62 @@ public class HttpBlobHandler extends SimpleChannelUpstreamHandler implements
         HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, exitStatus);
         HttpHeaders.setContentLength(response, 0);
         ChannelFuture cf = ctx.getChannel().write(response);
-        if (currentMessage == null || !HttpHeaders.isKeepAlive(currentMessage)) {
+        if (closeAfterResponse) {
             cf.addListener(ChannelFutureListener.CLOSE);
         }
     }
 
+    private void suspendReading() {
+        synchronized (pendingMessages) {
+            writeInProgress = true;
+        }
+        ctx.getChannel().setReadable(false);
+    }
+
+    private void writeFailed(Throwable e) {
+        synchronized (pendingMessages) {
+            pendingMessages.clear();
+            writeInProgress = false;
+        }
+        // reading stays suspended, the channel is always closed after the error response
+        Throwable cause = ExceptionsHelper.unwrapCause(e);
+        if (cause instanceof ClosedChannelException) {
+            logger.info("channel closed: {}", cause.toString());
+            ctx.getChannel().close();
+        } else if (cause instanceof IOException) {
+            logger.warn("failed to write blob", cause);
+            simpleResponse(HttpResponseStatus.INTERNAL_SERVER_ERROR, cause.toString());
+        } else {
+            handleException(cause);
+        }
+    }
+
+    /**
+     * handle the messages received while the content was written,
+     * until one of them starts another write or all are handled.
+     */
+    private void writeFinished() {
+        while (true) {
+            MessageEvent event;
+            synchronized (pendingMessages) {
+                event = pendingMessages.poll();
+                if (event == null) {
+                    writeInProgress = false;
+                    break;
+                }
+            }
+            try {
+                if (handleMessage(ctx, event)) {
+                    // the next write continues with the remaining messages once it is done
+                    return;
+                }
+            } catch (Exception e) {
+                handleException(e);
+            }
+        }
+        ctx.getChannel().setReadable(true);
+    }
+
     public void beforeAdd(ChannelHandlerContext ctx) throws Exception {
         this.ctx = ctx;
     }
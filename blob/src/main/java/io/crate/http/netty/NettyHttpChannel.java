@@ -23,6 +23,7 @@ package io.crate.http.netty;
 
 import com.google.common.base.Strings;
 import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
@@ -64,6 +65,8 @@ public class NettyHttpChannel extends HttpChannel {
     private final Channel channel;
     private final org.jboss.netty.handler.codec.http.HttpRequest nettyRequest;
     private OrderedUpstreamMessageEvent orderedUpstreamMessageEvent = null;
+    // sequence of the next event of a chunked response within the pipelined response to the request
+    private int subSequence = 0;
     private Pattern corsPattern;
 
     public NettyHttpChannel(NettyHttpServerTransport transport, NettyHttpRequest request, Pattern corsPattern) {
@@ -87,14 +90,134 @@ public class NettyHttpChannel extends HttpChannel {
 
     @Override
     public void sendResponse(RestResponse response) {
+        boolean close = closeConnection();
+        org.jboss.netty.handler.codec.http.HttpResponse resp = newHttpResponse(response.status(), response.getHeaders());
+
+        BytesReference content = response.content();
+        ChannelBuffer buffer;
+        boolean addedReleaseListener = false;
+        try {
+            if (response.contentThreadSafe()) {
+                buffer = content.toChannelBuffer();
+            } else {
+                buffer = content.copyBytesArray().toChannelBuffer();
+            }
+            // handle JSONP
+            String callback = request.param("callback");
+            if (callback != null) {
+                final BytesRef callbackBytes = new BytesRef(callback);
+                callbackBytes.bytes[callbackBytes.length] = '(';
+                callbackBytes.length++;
+                buffer = ChannelBuffers.wrappedBuffer(NettyUtils.DEFAULT_GATHERING,
+                        ChannelBuffers.wrappedBuffer(callbackBytes.bytes, callbackBytes.offset, callbackBytes.length),
+                        buffer,
+                        ChannelBuffers.wrappedBuffer(END_JSONP)
+                );
+                // Add content-type header of "application/javascript"
+                resp.headers().add(HttpHeaders.Names.CONTENT_TYPE, "application/javascript");
+            }
+            resp.setContent(buffer);
+
+            // If our response doesn't specify a content-type header, set one
+            if (!resp.headers().contains(HttpHeaders.Names.CONTENT_TYPE)) {
+                resp.headers().add(HttpHeaders.Names.CONTENT_TYPE, response.contentType());
+            }
+
+            // If our response has no content-length, calculate and set one
+            if (!resp.headers().contains(HttpHeaders.Names.CONTENT_LENGTH)) {
+                resp.headers().add(HttpHeaders.Names.CONTENT_LENGTH, String.valueOf(buffer.readableBytes()));
+            }
+
+            ChannelFuture future = write(resp, true);
+
+            if (response.contentThreadSafe() && content instanceof Releasable) {
+                future.addListener(new ReleaseChannelFutureListener((Releasable) content));
+                addedReleaseListener = true;
+            }
+
+            if (close) {
+                future.addListener(ChannelFutureListener.CLOSE);
+            }
+
+        } finally {
+            if (!addedReleaseListener && content instanceof Releasable) {
+                ((Releasable) content).close();
+            }
+        }
+    }
+
+    /**
+     * @return true if the response can be sent in chunks with {@link #sendChunkedResponseStart(RestStatus, String)},
+     * which isn't the case for HTTP/1.0 and JSONP requests.
+     */
+    public boolean supportsChunkedResponse() {
+        return !nettyRequest.getProtocolVersion().equals(HttpVersion.HTTP_1_0) && request.param("callback") == null;
+    }
+
+    /**
+     * Send the status and headers of a response with chunked transfer encoding.
+     * The content is sent with {@link #sendChunk(BytesReference)}, the response has to be completed with
+     * {@link #sendLastChunk()}.
+     *
+     * @return a future which is done once the headers are written to the connection
+     */
+    public ChannelFuture sendChunkedResponseStart(RestStatus status, String contentType) {
+        assert supportsChunkedResponse() : "chunked responses aren't supported for this request";
+        org.jboss.netty.handler.codec.http.HttpResponse resp = newHttpResponse(status, null);
+        resp.setChunked(true);
+        resp.headers().add(HttpHeaders.Names.TRANSFER_ENCODING, HttpHeaders.Values.CHUNKED);
+        resp.headers().add(HttpHeaders.Names.CONTENT_TYPE, contentType);
+        return write(resp, false);
+    }
+
+    /**
+     * @param content the content of the chunk, it must not be modified afterwards
+     * @return a future which is done once the chunk is written to the connection,
+     * used to wait with producing the next chunk
+     */
+    public ChannelFuture sendChunk(BytesReference content) {
+        return write(new DefaultHttpChunk(content.toChannelBuffer()), false);
+    }
+
+    public ChannelFuture sendLastChunk() {
+        ChannelFuture future = write(HttpChunk.LAST_CHUNK, true);
+        if (closeConnection()) {
+            future.addListener(ChannelFutureListener.CLOSE);
+        }
+        return future;
+    }
+
+    /**
+     * close the connection of an unfinished chunked response, so the client notices that it is incomplete
+     */
+    public void abortChunkedResponse() {
+        channel.close();
+    }
+
+    private ChannelFuture write(Object message, boolean last) {
+        if (orderedUpstreamMessageEvent != null) {
+            OrderedDownstreamChannelEvent downstreamChannelEvent =
+                    new OrderedDownstreamChannelEvent(orderedUpstreamMessageEvent, subSequence++, last, message);
+            channel.getPipeline().sendDownstream(downstreamChannelEvent);
+            return downstreamChannelEvent.getFuture();
+        }
+        return channel.write(message);
+    }
+
+    private boolean closeConnection() {
+        boolean http10 = nettyRequest.getProtocolVersion().equals(HttpVersion.HTTP_1_0);
+        return HttpHeaders.Values.CLOSE.equalsIgnoreCase(nettyRequest.headers().get(HttpHeaders.Names.CONNECTION)) ||
+                (http10 && !HttpHeaders.Values.KEEP_ALIVE.equalsIgnoreCase(nettyRequest.headers().get(HttpHeaders.Names.CONNECTION)));
+    }
+
+    private org.jboss.netty.handler.codec.http.HttpResponse newHttpResponse(RestStatus restStatus,
+                                                                            @Nullable Map<String, List<String>> customHeaders) {
         // Decide whether to close the connection or not.
         boolean http10 = nettyRequest.getProtocolVersion().equals(HttpVersion.HTTP_1_0);
-        boolean close =
-                HttpHeaders.Values.CLOSE.equalsIgnoreCase(nettyRequest.headers().get(HttpHeaders.Names.CONNECTION)) ||
-                        (http10 && !HttpHeaders.Values.KEEP_ALIVE.equalsIgnoreCase(nettyRequest.headers().get(HttpHeaders.Names.CONNECTION)));
+        boolean close = closeConnection();
 
         // Build the response object.
-        HttpResponseStatus status = getStatus(response.status());
+        HttpResponseStatus status = getStatus(restStatus);
         org.jboss.netty.handler.codec.http.HttpResponse resp;
         if (http10) {
             resp = new DefaultHttpResponse(HttpVersion.HTTP_1_0, status);
@@ -133,7 +256,6 @@ public class NettyHttpChannel extends HttpChannel {
         }
 
         // Add all custom headers
-        Map<String, List<String>> customHeaders = response.getHeaders();
         if (customHeaders != null) {
             for (Map.Entry<String, List<String>> headerEntry : customHeaders.entrySet()) {
                 for (String headerValue : headerEntry.getValue()) {
@@ -142,81 +264,22 @@ public class NettyHttpChannel extends HttpChannel {
             }
         }
 
-        BytesReference content = response.content();
-        ChannelBuffer buffer;
-        boolean addedReleaseListener = false;
-        try {
-            if (response.contentThreadSafe()) {
-                buffer = content.toChannelBuffer();
-            } else {
-                buffer = content.copyBytesArray().toChannelBuffer();
-            }
-            // handle JSONP
-            String callback = request.param("callback");
-            if (callback != null) {
-                final BytesRef callbackBytes = new BytesRef(callback);
-                callbackBytes.bytes[callbackBytes.length] = '(';
-                callbackBytes.length++;
-                buffer = ChannelBuffers.wrappedBuffer(NettyUtils.DEFAULT_GATHERING,
-                        ChannelBuffers.wrappedBuffer(callbackBytes.bytes, callbackBytes.offset, callbackBytes.length),
-                        buffer,
-                        ChannelBuffers.wrappedBuffer(END_JSONP)
-                );
-                // Add content-type header of "application/javascript"
-                resp.headers().add(HttpHeaders.Names.CONTENT_TYPE, "application/javascript");
-            }
-            resp.setContent(buffer);
-
-            // If our response doesn't specify a content-type header, set one
-            if (!resp.headers().contains(HttpHeaders.Names.CONTENT_TYPE)) {
-                resp.headers().add(HttpHeaders.Names.CONTENT_TYPE, response.contentType());
-            }
-
-            // If our response has no content-length, calculate and set one
-            if (!resp.headers().contains(HttpHeaders.Names.CONTENT_LENGTH)) {
-                resp.headers().add(HttpHeaders.Names.CONTENT_LENGTH, String.valueOf(buffer.readableBytes()));
-            }
-
-            if (transport.resetCookies) {
-                String cookieString = nettyRequest.headers().get(HttpHeaders.Names.COOKIE);
-                if (cookieString != null) {
-                    CookieDecoder cookieDecoder = new CookieDecoder();
-                    Set<Cookie> cookies = cookieDecoder.decode(cookieString);
-                    if (!cookies.isEmpty()) {
-                        // Reset the cookies if necessary.
-                        CookieEncoder cookieEncoder = new CookieEncoder(true);
-                        for (Cookie cookie : cookies) {
-                            cookieEncoder.addCookie(cookie);
-                        }
-                        resp.headers().add(HttpHeaders.Names.SET_COOKIE, cookieEncoder.encode());
+        if (transport.resetCookies) {
+            String cookieString = nettyRequest.headers().get(HttpHeaders.Names.COOKIE);
+            if (cookieString != null) {
+                CookieDecoder cookieDecoder = new CookieDecoder();
+                Set<Cookie> cookies = cookieDecoder.decode(cookieString);
+                if (!cookies.isEmpty()) {
+                    // Reset the cookies if necessary.
+                    CookieEncoder cookieEncoder = new CookieEncoder(true);
+                    for (Cookie cookie : cookies) {
+                        cookieEncoder.addCookie(cookie);
                     }
+                    resp.headers().add(HttpHeaders.Names.SET_COOKIE, cookieEncoder.encode());
                 }
             }
-
-            ChannelFuture future;
-
-            if (orderedUpstreamMessageEvent != null) {
-                OrderedDownstreamChannelEvent downstreamChannelEvent = new OrderedDownstreamChannelEvent(orderedUpstreamMessageEvent, 0, true, resp);
-                future = downstreamChannelEvent.getFuture();
-                channel.getPipeline().sendDownstream(downstreamChannelEvent);
-            } else {
-                future = channel.write(resp);
-            }
-
-            if (response.contentThreadSafe() && content instanceof Releasable) {
-                future.addListener(new ReleaseChannelFutureListener((Releasable) content));
-                addedReleaseListener = true;
-            }
-
-            if (close) {
-                future.addListener(ChannelFutureListener.CLOSE);
-            }
-
-        } finally {
-            if (!addedReleaseListener && content instanceof Releasable) {
-                ((Releasable) content).close();
-            }
         }
+        return resp;
     }
 
     private static final HttpResponseStatus TOO_MANY_REQUESTS = new HttpResponseStatus(429, "Too Many Requests");
@@ -41,7 +41,9 @@ import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.*;
 
 import java.io.File;
-import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
 
 
 public class BlobRecoveryTarget extends AbstractComponent {
@@ -52,7 +54,9 @@ public class BlobRecoveryTarget extends AbstractComponent {
     * actor SourceNode as s
     * actor TargetNode as t
     *
-    * group for every two char prefix
+    * s -> t:PrefixChecksums
+    * t --> s:checksum of the digests of every prefix
+    * group for every two char prefix with a different checksum
     * s -> t:StartPrefixSync(prefix)
     * t -> t:getDigests for prefix
     * t --> s:found digests
@@ -60,8 +64,9 @@ public class BlobRecoveryTarget extends AbstractComponent {
     * group for every missing digest
     *  s -> t:BlobSyncStartRequest(transferId, digest, contents, totalsize)
     *  t -> s: ack
-    *  s -> s: BlobSyncChunkRequest(transferid, contents, isLast)
-    *  t -> t: if isLast move to final
+    *  s -> s: BlobSyncPositionalChunkRequest(transferid, contents, position), several in flight
+    *  t -> t: if all bytes are written move to final
+    *  (sources of older versions send BlobSyncChunkRequest(transferid, contents, isLast) one after another)
     *  t -> s: ack
     * end
     * s -> t:FinishPrefixSync(deletableDigests)
@@ -83,7 +88,9 @@ public class BlobRecoveryTarget extends AbstractComponent {
         public static final String DELETE_FILE = "crate/blob/shard/recovery/delete_file";
         public static final String START_RECOVERY = "crate/blob/shard/recovery/start";
         public static final String START_PREFIX = "crate/blob/shard/recovery/start_prefix";
+        public static final String PREFIX_CHECKSUMS = "crate/blob/shard/recovery/prefix_checksums";
         public static final String TRANSFER_CHUNK = "crate/blob/shard/recovery/transfer_chunk";
+        public static final String TRANSFER_POSITIONAL_CHUNK = "crate/blob/shard/recovery/transfer_positional_chunk";
         public static final String START_TRANSFER = "crate/blob/shard/recovery/start_transfer";
     }
 
@@ -96,7 +103,9 @@ public class BlobRecoveryTarget extends AbstractComponent {
 
         transportService.registerHandler(Actions.START_RECOVERY, new StartRecoveryRequestHandler());
         transportService.registerHandler(Actions.START_PREFIX, new StartPrefixSyncRequestHandler());
+        transportService.registerHandler(Actions.PREFIX_CHECKSUMS, new PrefixChecksumsRequestHandler());
         transportService.registerHandler(Actions.TRANSFER_CHUNK, new TransferChunkRequestHandler());
+        transportService.registerHandler(Actions.TRANSFER_POSITIONAL_CHUNK, new TransferPositionalChunkRequestHandler());
         transportService.registerHandler(Actions.START_TRANSFER, new StartTransferRequestHandler());
         transportService.registerHandler(Actions.DELETE_FILE, new DeleteFileRequestHandler());
         transportService.registerHandler(Actions.FINALIZE_RECOVERY, new FinalizeRecoveryRequestHandler());
@@ -169,6 +178,64 @@ public class BlobRecoveryTarget extends AbstractComponent {
     }
 
 
+    /**
+     * @return the status of a transfer to which chunks are written
+     */
+    private BlobRecoveryTransferStatus transferStatus(BlobRecoveryStatus onGoingRecovery, long transferId) {
+        BlobRecoveryTransferStatus transferStatus = onGoingRecovery.onGoingTransfers().get(transferId);
+        if (onGoingRecovery.canceled()) {
+            onGoingRecovery.sentCanceledToSource();
+            throw new IndexShardClosedException(onGoingRecovery.shardId());
+        }
+        if (transferStatus == null) {
+            throw new IndexShardClosedException(onGoingRecovery.shardId());
+        }
+        return transferStatus;
+    }
+
+    private BlobRecoveryStatus onGoingRecovery(long recoveryId) {
+        BlobRecoveryStatus onGoingRecovery = onGoingRecoveries.get(recoveryId);
+        if (onGoingRecovery == null) {
+             // shard is getting closed on us
+            throw new IllegalBlobRecoveryStateException("Could not retrieve onGoingRecoveryStatus");
+        }
+        return onGoingRecovery;
+    }
+
+    private void finishTransfer(BlobRecoveryStatus onGoingRecovery, BlobRecoveryTransferStatus transferStatus)
+        throws IOException {
+        transferStatus.channel().close();
+        BlobShard shard = onGoingRecovery.blobShard;
+        File source = new File(shard.blobContainer().getBaseDirectory(),
+            transferStatus.sourcePath()
+        );
+        File target = new File(shard.blobContainer().getBaseDirectory(),
+            transferStatus.targetPath()
+        );
+
+        if (target.exists()) {
+            logger.info("target file {} exists already.", target.getName());
+            // this might happen on bad timing while recovering/relocating.
+            // noop
+        } else {
+            if (!shard.blobContainer().moveToTarget(source, target)) {
+                throw new BlobWriteException(target.getName(), target.length(), null);
+            }
+        }
+
+        onGoingRecovery.onGoingTransfers().remove(transferStatus.transferId());
+    }
+
+    private static BytesReference arrayContent(BytesReference content) {
+        if (!content.hasArray()) {
+            return content.toBytesArray();
+        }
+        return content;
+    }
+
+    /**
+     * handles chunks of sources which send the chunks of a file one after another
+     */
     class TransferChunkRequestHandler extends BaseHandler<BlobRecoveryChunkRequest> {
 
         @Override
@@ -178,52 +245,33 @@ public class BlobRecoveryTarget extends AbstractComponent {
 
         @Override
         public void messageReceived(BlobRecoveryChunkRequest request, TransportChannel channel) throws Exception {
+            BlobRecoveryStatus onGoingRecovery = onGoingRecovery(request.recoveryId());
+            BlobRecoveryTransferStatus transferStatus = transferStatus(onGoingRecovery, request.transferId());
 
-            BlobRecoveryStatus onGoingRecovery = onGoingRecoveries.get(request.recoveryId());
-            if (onGoingRecovery == null) {
-                 // shard is getting closed on us
-                throw new IllegalBlobRecoveryStateException("Could not retrieve onGoingRecoveryStatus");
+            transferStatus.append(arrayContent(request.content()));
+            if (request.isLast()) {
+                finishTransfer(onGoingRecovery, transferStatus);
             }
 
-            BlobRecoveryTransferStatus transferStatus = onGoingRecovery.onGoingTransfers().get(request.transferId());
-            BlobShard shard = onGoingRecovery.blobShard;
-            if (onGoingRecovery.canceled()) {
-                onGoingRecovery.sentCanceledToSource();
-                 throw new IndexShardClosedException(onGoingRecovery.shardId());
-            }
+            channel.sendResponse(TransportResponse.Empty.INSTANCE);
+        }
+    }
 
-            if (transferStatus == null) {
-                throw new IndexShardClosedException(onGoingRecovery.shardId());
-            }
 
-            BytesReference content = request.content();
-            if (!content.hasArray()) {
-                content = content.toBytesArray();
-            }
-            transferStatus.outputStream().write(
-                content.array(), content.arrayOffset(), content.length()
-            );
+    class TransferPositionalChunkRequestHandler extends BaseHandler<BlobRecoveryPositionalChunkRequest> {
 
-            if (request.isLast()) {
-                transferStatus.outputStream().close();
-                File source = new File(shard.blobContainer().getBaseDirectory(),
-                    transferStatus.sourcePath()
-                );
-                File target = new File(shard.blobContainer().getBaseDirectory(),
-                    transferStatus.targetPath()
-                );
+        @Override
+        public BlobRecoveryPositionalChunkRequest newInstance() {
+            return new BlobRecoveryPositionalChunkRequest();
+        }
 
-                if (target.exists()) {
-                    logger.info("target file {} exists already.", target.getName());
-                    // this might happen on bad timing while recovering/relocating.
-                    // noop
-                } else {
-                    if (!source.renameTo(target)) {
-                        throw new BlobWriteException(target.getName(), target.length(), null);
-                    }
-                }
+        @Override
+        public void messageReceived(BlobRecoveryPositionalChunkRequest request, TransportChannel channel) throws Exception {
+            BlobRecoveryStatus onGoingRecovery = onGoingRecovery(request.recoveryId());
+            BlobRecoveryTransferStatus transferStatus = transferStatus(onGoingRecovery, request.transferId());
 
-                onGoingRecovery.onGoingTransfers().remove(request.transferId());
+            if (transferStatus.write(arrayContent(request.content()), request.position())) {
+                finishTransfer(onGoingRecovery, transferStatus);
             }
 
             channel.sendResponse(TransportResponse.Empty.INSTANCE);
@@ -256,6 +304,34 @@ public class BlobRecoveryTarget extends AbstractComponent {
     }
 
 
+    class PrefixChecksumsRequestHandler extends BaseHandler<BlobPrefixChecksumsRequest> {
+
+        @Override
+        public BlobPrefixChecksumsRequest newInstance() {
+            return new BlobPrefixChecksumsRequest();
+        }
+
+        @Override
+        public void messageReceived(BlobPrefixChecksumsRequest request, TransportChannel channel) throws Exception {
+            BlobRecoveryStatus status = onGoingRecoveries.get(request.recoveryId());
+            if (status == null) {
+                throw new IllegalBlobRecoveryStateException(
+                    "could not retrieve BlobRecoveryStatus"
+                );
+            }
+            if (status.canceled()) {
+                throw new IndexShardClosedException(status.shardId());
+            }
+            // prefixes with equal checksums are skipped by the source,
+            // so leftovers of an interrupted recovery have to be removed for all of them here
+            status.blobShard.blobContainer().cleanAllDigests();
+            BlobPrefixChecksumsResponse response = new BlobPrefixChecksumsResponse();
+            response.checksums = status.blobShard.prefixChecksums();
+            channel.sendResponse(response);
+        }
+    }
+
+
     private class StartTransferRequestHandler extends BaseHandler<BlobRecoveryStartTransferRequest> {
 
 
@@ -278,31 +354,30 @@ public class BlobRecoveryTarget extends AbstractComponent {
 
             BlobShard shard = status.blobShard;
             String tmpPath = request.path() + "." + request.transferId();
-            FileOutputStream outputStream = new FileOutputStream(
-                new File(shard.blobContainer().getBaseDirectory(), tmpPath)
-            );
+            FileChannel fileChannel = new RandomAccessFile(
+                new File(shard.blobContainer().getBaseDirectory(), tmpPath), "rw"
+            ).getChannel();
 
             BytesReference content = request.content();
             if (!content.hasArray()) {
                 content = content.toBytesArray();
             }
-            outputStream.write(content.array(), content.arrayOffset(), content.length());
+            BlobRecoveryTransferStatus transferStatus = new BlobRecoveryTransferStatus(
+                request.transferId(), fileChannel, request.size(), 0, tmpPath, request.path()
+            );
 
-            if (request.size() == request.content().length()) {  // start request contains the whole file.
-                outputStream.close();
+            if (transferStatus.write(content, 0)) {  // start request contains the whole file.
+                fileChannel.close();
                 File source = new File(shard.blobContainer().getBaseDirectory(), tmpPath);
                 File target = new File(shard.blobContainer().getBaseDirectory(), request.path());
                 if (!target.exists()) {
-                    if (!source.renameTo(target)) {
+                    if (!shard.blobContainer().moveToTarget(source, target)) {
                         throw new IllegalBlobRecoveryStateException(
                             "couldn't rename file to " + request.path()
                         );
                     }
                 }
             } else {
-                BlobRecoveryTransferStatus transferStatus= new BlobRecoveryTransferStatus(
-                    request.transferId(), outputStream, tmpPath, request.path()
-                );
                 status.onGoingTransfers().put(request.transferId(), transferStatus);
             }
 
@@ -342,7 +417,7 @@ public class BlobRecoveryTarget extends AbstractComponent {
             BlobRecoveryStatus status = onGoingRecoveries.get(request.recoveryId);
 
             for (BlobRecoveryTransferStatus transferStatus : status.onGoingTransfers().values()) {
-                if (transferStatus.outputStream().getChannel().isOpen()) {
+                if (transferStatus.channel().isOpen()) {
                     throw new IllegalBlobRecoveryStateException(
                         "File channel was left open for "
                     );
@@ -21,20 +21,28 @@
 
 package org.elasticsearch.indices.recovery;
 
-import java.io.FileOutputStream;
-import java.io.RandomAccessFile;
+import org.elasticsearch.common.bytes.BytesReference;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class BlobRecoveryTransferStatus {
 
     private final long transferId;
-    private final FileOutputStream outputStream;
+    private final FileChannel channel;
+    private final long size;
+    private final AtomicLong bytesWritten;
     private final String sourcePath;
     private final String targetPath;
 
-    public BlobRecoveryTransferStatus(long transferId, FileOutputStream outputStream,
+    public BlobRecoveryTransferStatus(long transferId, FileChannel channel, long size, long bytesWritten,
                                       String sourcePath, String targetPath) {
         this.transferId = transferId;
-        this.outputStream = outputStream;
+        this.channel = channel;
+        this.size = size;
+        this.bytesWritten = new AtomicLong(bytesWritten);
         this.sourcePath = sourcePath;
         this.targetPath = targetPath;
     }
@@ -47,11 +55,31 @@ public class BlobRecoveryTransferStatus {
         return targetPath;
     }
 
-    public FileOutputStream outputStream() {
-        return outputStream;
+    public FileChannel channel() {
+        return channel;
     }
 
     public long transferId() {
         return transferId;
     }
+
+    /**
+     * write a chunk at the given position, chunks may be written concurrently and in any order
+     *
+     * @return true if this was the last missing chunk of the file
+     */
+    public boolean write(BytesReference content, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(content.array(), content.arrayOffset(), content.length());
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        return bytesWritten.addAndGet(content.length()) == size;
+    }
+
+    /**
+     * write a chunk right after the previously written bytes, used for chunks which are sent one after another
+     */
+    public void append(BytesReference content) throws IOException {
+        write(content, bytesWritten.get());
+    }
 }
@@ -0,0 +1,140 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate;
+
+import io.crate.blob.BlobCache;
+import io.crate.blob.BlobContainer;
+import io.crate.blob.exceptions.DigestNotFoundException;
+import org.elasticsearch.common.io.FileSystemUtils;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class BlobCacheTest {
+
+    private static final String DIGEST = "32d10c7b8cf96570ca04ce37f2a19d84240d3a89";
+
+    private Path tmpDir;
+    private BlobContainer container;
+
+    @Before
+    public void prepare() throws Exception {
+        tmpDir = Files.createTempDirectory(getClass().getName());
+        container = new BlobContainer(tmpDir.toFile());
+        File file = container.getFile(DIGEST);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write("abcdefghijklmnopqrstuvwxyz".getBytes());
+        }
+    }
+
+    @After
+    public void cleanUp() throws Exception {
+        if (tmpDir != null) {
+            FileSystemUtils.deleteRecursively(tmpDir.toFile());
+        }
+    }
+
+    @Test
+    public void testOpenFilesAreCached() throws Exception {
+        BlobCache cache = new BlobCache(container, ImmutableSettings.EMPTY);
+
+        BlobCache.CachedBlob blob = cache.get(DIGEST);
+        assertNull(blob.content());
+        assertEquals(26L, blob.length());
+        blob.release();
+        assertTrue(blob.channel().isOpen());
+
+        BlobCache.CachedBlob cached = cache.get(DIGEST);
+        assertSame(blob, cached);
+        assertEquals(1L, cache.hits());
+        assertEquals(1L, cache.misses());
+
+        // the channel stays open until the last reader released it
+        cache.invalidate(DIGEST);
+        assertTrue(cached.channel().isOpen());
+        cached.release();
+        assertFalse(cached.channel().isOpen());
+    }
+
+    @Test
+    public void testSmallBlobsAreHeldInMemory() throws Exception {
+        BlobCache cache = new BlobCache(container, ImmutableSettings.builder()
+                .put(BlobCache.SETTING_MEMORY, "1mb").build());
+
+        BlobCache.CachedBlob blob = cache.get(DIGEST);
+        assertNull(blob.channel());
+        assertEquals("abcdefghijklmnopqrstuvwxyz", new String(blob.content().array()));
+
+        cache.get(DIGEST);
+        assertEquals(1L, cache.hits());
+        assertEquals(1L, cache.misses());
+    }
+
+    @Test
+    public void testBlobDeletedWhileLoadingIsNotCached() throws Exception {
+        final File file = container.getFile(DIGEST);
+        BlobContainer deletingContainer = new BlobContainer(tmpDir.toFile()) {
+            @Override
+            public File getFile(String digest) {
+                // the file is deleted right after it has been opened
+                return new File(file.getPath()) {
+                    @Override
+                    public boolean exists() {
+                        return false;
+                    }
+                };
+            }
+        };
+        BlobCache cache = new BlobCache(deletingContainer, ImmutableSettings.EMPTY);
+        try {
+            cache.get(DIGEST);
+            fail("expected DigestNotFoundException");
+        } catch (DigestNotFoundException e) {
+            // expected
+        }
+
+        // the next lookup must not be served from the cache
+        assertTrue(file.delete());
+        try {
+            cache.get(DIGEST);
+            fail("expected DigestNotFoundException");
+        } catch (DigestNotFoundException e) {
+            // expected
+        }
+        assertEquals(0L, cache.hits());
+        assertEquals(2L, cache.misses());
+    }
+
+    @Test(expected = DigestNotFoundException.class)
+    public void testMissingBlob() throws IOException {
+        new BlobCache(container, ImmutableSettings.EMPTY).get("417de3231e23dcd6d224ff60918024bc6c59aa58");
+    }
+}
@@ -36,9 +36,14 @@ import java.nio.file.FileVisitor;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Locale;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class DigestBlobTests {
@@ -144,4 +149,125 @@ public class DigestBlobTests {
         file.delete();
     }
 
+    @Test
+    public void testBlobStatsAreMaintainedAndPersisted() throws IOException {
+        String digest = "417de3231e23dcd6d224ff60918024bc6c59aa58";
+        BlobContainer container = new BlobContainer(tmpDir.toFile());
+        assertFalse(container.statsValid());
+        container.reconcileStats();
+        assertTrue(container.statsValid());
+        assertEquals(0L, container.blobsCount());
+
+        DigestBlob digestBlob = new DigestBlob(container, digest, UUID.randomUUID());
+        digestBlob.addContent(new BytesArray("ABCDEFGHIJKLMNO".getBytes()), true);
+        digestBlob.commit();
+        assertEquals(1L, container.blobsCount());
+        assertEquals(15L, container.blobsSize());
+
+        container.persistStats();
+        BlobContainer reopened = new BlobContainer(tmpDir.toFile());
+        assertTrue(reopened.statsValid());
+        assertEquals(1L, reopened.blobsCount());
+        assertEquals(15L, reopened.blobsSize());
+
+        assertTrue(reopened.delete(digest));
+        assertEquals(0L, reopened.blobsCount());
+        assertEquals(0L, reopened.blobsSize());
+
+        // the stats file is consumed on startup
+        assertFalse(new BlobContainer(tmpDir.toFile()).statsValid());
+    }
+
+    @Test
+    public void testPrefixChecksumsOnlyDependOnTheDigests() throws IOException {
+        String digest = "417de3231e23dcd6d224ff60918024bc6c59aa58";
+        BlobContainer container = new BlobContainer(tmpDir.toFile());
+        container.reconcileStats();
+        assertArrayEquals(new long[256], container.prefixChecksums());
+
+        DigestBlob digestBlob = new DigestBlob(container, digest, UUID.randomUUID());
+        digestBlob.addContent(new BytesArray("ABCDEFGHIJKLMNO".getBytes()), true);
+        digestBlob.commit();
+        long[] checksums = container.prefixChecksums();
+        assertEquals(0x417de3231e23dcd6L, checksums[0x41]);
+
+        // re-computing them from the files gives the same checksums
+        container.reconcileStats();
+        assertArrayEquals(checksums, container.prefixChecksums());
+
+        assertTrue(container.delete(digest));
+        assertArrayEquals(new long[256], container.prefixChecksums());
+    }
+
+    @Test
+    public void testRestoredStatsAreReconciledWithTheBlobFiles() throws IOException {
+        String digest = "417de3231e23dcd6d224ff60918024bc6c59aa58";
+        BlobContainer container = new BlobContainer(tmpDir.toFile());
+        container.reconcileStats();
+        DigestBlob digestBlob = new DigestBlob(container, digest, UUID.randomUUID());
+        digestBlob.addContent(new BytesArray("ABCDEFGHIJKLMNO".getBytes()), true);
+        digestBlob.commit();
+        container.persistStats();
+
+        // the blob is removed while the container is closed, the restored stats still contain it
+        assertTrue(container.getFile(digest).delete());
+        BlobContainer reopened = new BlobContainer(tmpDir.toFile());
+        assertTrue(reopened.statsValid());
+        reopened.ensureStatsValid();
+        assertEquals(0x417de3231e23dcd6L, reopened.prefixChecksums()[0x41]);
+
+        reopened.ensureStatsReconciled();
+        assertEquals(0L, reopened.blobsCount());
+        assertArrayEquals(new long[256], reopened.prefixChecksums());
+    }
+
+    @Test
+    public void testReconcileStatsDoesNotLoseConcurrentChanges() throws Exception {
+        final BlobContainer container = new BlobContainer(tmpDir.toFile());
+        final int numBlobs = 500;
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread writer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < numBlobs; i++) {
+                        // spread the blobs over all prefix directories
+                        String digest = String.format(Locale.ENGLISH, "%02x%038x", i % 256, i);
+                        File tmpFile = new File(container.getTmpDirectory(), digest);
+                        Files.write(tmpFile.toPath(), new byte[i % 7 + 1]);
+                        assertTrue(container.moveToTarget(tmpFile, container.getFile(digest)));
+                        if (i % 3 == 0) {
+                            assertTrue(container.delete(digest));
+                        }
+                    }
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            }
+        };
+        writer.start();
+        while (writer.isAlive()) {
+            container.reconcileStats();
+        }
+        writer.join();
+        assertNull(failure.get());
+
+        long expectedCount = 0;
+        long expectedSize = 0;
+        for (int i = 0; i < numBlobs; i++) {
+            if (i % 3 != 0) {
+                expectedCount++;
+                expectedSize += i % 7 + 1;
+            }
+        }
+        assertEquals(expectedCount, container.blobsCount());
+        assertEquals(expectedSize, container.blobsSize());
+        long[] checksums = container.prefixChecksums();
+
+        container.reconcileStats();
+        assertEquals(expectedCount, container.blobsCount());
+        assertEquals(expectedSize, container.blobsSize());
+        assertArrayEquals(checksums, container.prefixChecksums());
+    }
+
 }
@@ -6,16 +6,42 @@ import io.crate.test.integration.CrateIntegrationTest;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.Header;
 import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.entity.ContentType;
+import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
 import org.apache.http.message.BasicHeader;
 import org.apache.http.util.EntityUtils;
 import org.elasticsearch.common.settings.ImmutableSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.hamcrest.Matchers.isOneOf;
 
 @CrateIntegrationTest.ClusterScope(scope = CrateIntegrationTest.Scope.SUITE, numNodes = 2)
 public class BlobIntegrationTest extends BlobHttpIntegrationTest {
@@ -46,6 +72,66 @@ public class BlobIntegrationTest extends BlobHttpIntegrationTest {
         return digest;
     }
 
+    private static String sha1(byte[] content) throws NoSuchAlgorithmException {
+        MessageDigest md = MessageDigest.getInstance("SHA-1");
+        return String.format(Locale.ENGLISH, "%040x", new BigInteger(1, md.digest(content)));
+    }
+
+    private static byte[] randomContent(int size) {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+
+    private HttpPut chunkedPut(String uri, byte[] content) {
+        HttpPut httpPut = new HttpPut(String.format("http://%s:%s/_blobs/%s",
+                address.getHostName(), address.getPort(), uri));
+        InputStreamEntity entity = new InputStreamEntity(new ByteArrayInputStream(content), -1);
+        entity.setChunked(true);
+        httpPut.setEntity(entity);
+        return httpPut;
+    }
+
+    private CloseableHttpResponse putChunked(String uri, byte[] content) throws IOException {
+        return httpClient.execute(chunkedPut(uri, content));
+    }
+
+    /**
+     * send raw requests over a single connection and return the status codes of all responses
+     * received until the server closes the connection
+     */
+    private List<Integer> rawRequests(byte[] requests) throws IOException {
+        try (Socket socket = new Socket(address.getAddress(), address.getPort())) {
+            socket.setSoTimeout(30000);
+            OutputStream out = socket.getOutputStream();
+            out.write(requests);
+            out.flush();
+            InputStream in = socket.getInputStream();
+            ByteArrayOutputStream received = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                received.write(buffer, 0, read);
+            }
+            List<Integer> statusCodes = new ArrayList<>();
+            Matcher matcher = Pattern.compile("HTTP/1\\.1 (\\d{3}) ")
+                    .matcher(new String(received.toByteArray(), StandardCharsets.ISO_8859_1));
+            while (matcher.find()) {
+                statusCodes.add(Integer.parseInt(matcher.group(1)));
+            }
+            return statusCodes;
+        }
+    }
+
+    private static byte[] rawPut(String uri, byte[] content) throws IOException {
+        ByteArrayOutputStream request = new ByteArrayOutputStream();
+        request.write(String.format(Locale.ENGLISH,
+                "PUT /_blobs/%s HTTP/1.1\r\nHost: localhost\r\nContent-Length: %d\r\n\r\n",
+                uri, content.length).getBytes(StandardCharsets.US_ASCII));
+        request.write(content);
+        return request.toByteArray();
+    }
+
     @Test
     public void testUploadInvalidSha1() throws IOException {
         CloseableHttpResponse response = put("test/d937ea65641c23fadc83616309e5b0e11acc5806", "asdf");
@@ -98,6 +184,23 @@ public class BlobIntegrationTest extends BlobHttpIntegrationTest {
         assertEquals("bytes", res.getFirstHeader("Accept-Ranges").getValue());
         assertEquals("Thu, 31 Dec 2037 23:59:59 GMT", res.getFirstHeader("Expires").getValue());
         assertEquals("max-age=315360000", res.getFirstHeader("Cache-Control").getValue());
+        assertEquals("\"" + digest + "\"", res.getFirstHeader("ETag").getValue());
+    }
+
+    @Test
+    public void testConditionalGet() throws IOException {
+        String digest = uploadTinyBlob();
+        CloseableHttpResponse res = get(blobUri(digest), new Header[] {
+                new BasicHeader("If-None-Match", "\"" + digest + "\"")
+        });
+        assertEquals(304, res.getStatusLine().getStatusCode());
+        assertEquals("0", res.getFirstHeader("Content-Length").getValue());
+
+        res = get(blobUri(digest), new Header[] {
+                new BasicHeader("If-None-Match", "\"0000000000000000000000000000000000000000\"")
+        });
+        assertEquals(200, res.getStatusLine().getStatusCode());
+        assertEquals("abcdefghijklmnopqrstuvwxyz", EntityUtils.toString(res.getEntity()));
     }
 
     @Test
@@ -233,4 +336,149 @@ public class BlobIntegrationTest extends BlobHttpIntegrationTest {
         assertEquals("{\"_index\":\"test_no_blobs\",\"_type\":\"default\",\"_id\":\"1\",\"_version\":1,\"created\":true}",
                 EntityUtils.toString(res.getEntity()));
     }
+
+    @Test
+    public void testUploadLargeChunkedBlob() throws Exception {
+        // sent with chunked transfer encoding, so the content arrives in many HTTP chunks
+        byte[] content = randomContent(1024 * 1024 * 5 + 17);
+        String digest = sha1(content);
+        CloseableHttpResponse res = putChunked(blobUri(digest), content);
+        assertEquals(201, res.getStatusLine().getStatusCode());
+        EntityUtils.consume(res.getEntity());
+
+        res = get(blobUri(digest));
+        assertEquals(200, res.getStatusLine().getStatusCode());
+        byte[] received = EntityUtils.toByteArray(res.getEntity());
+        assertEquals(content.length, received.length);
+        assertEquals(digest, sha1(received));
+    }
+
+    @Test
+    public void testChunkedUploadWithDigestMismatchCanBeRetried() throws Exception {
+        byte[] content = randomContent(1024 * 1024 * 2);
+        String digest = sha1(content);
+        byte[] corrupted = content.clone();
+        corrupted[corrupted.length - 1] ^= 1;
+
+        CloseableHttpResponse res = putChunked(blobUri(digest), corrupted);
+        assertEquals(400, res.getStatusLine().getStatusCode());
+        EntityUtils.consume(res.getEntity());
+        assertEquals(404, get(blobUri(digest)).getStatusLine().getStatusCode());
+
+        res = putChunked(blobUri(digest), content);
+        assertEquals(201, res.getStatusLine().getStatusCode());
+        EntityUtils.consume(res.getEntity());
+        res = get(blobUri(digest));
+        assertEquals(digest, sha1(EntityUtils.toByteArray(res.getEntity())));
+    }
+
+    @Test
+    public void testUploadAbortedMidStreamCanBeRetried() throws Exception {
+        byte[] content = randomContent(1024 * 1024 * 2);
+        String digest = sha1(content);
+
+        // announce the full content but close the connection after half of it
+        try (Socket socket = new Socket(address.getAddress(), address.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            byte[] request = rawPut(blobUri(digest), content);
+            out.write(request, 0, request.length - content.length / 2);
+            out.flush();
+        }
+        assertEquals(404, get(blobUri(digest)).getStatusLine().getStatusCode());
+
+        CloseableHttpResponse res = putChunked(blobUri(digest), content);
+        assertEquals(201, res.getStatusLine().getStatusCode());
+        EntityUtils.consume(res.getEntity());
+        res = get(blobUri(digest));
+        assertEquals(digest, sha1(EntityUtils.toByteArray(res.getEntity())));
+    }
+
+    @Test
+    public void testPipelinedPutsAndDeleteAreAnsweredInOrder() throws Exception {
+        byte[] first = randomContent(1024 * 512);
+        byte[] second = randomContent(1024 * 512 + 1);
+        String firstDigest = sha1(first);
+        String secondDigest = sha1(second);
+
+        ByteArrayOutputStream requests = new ByteArrayOutputStream();
+        requests.write(rawPut(blobUri(firstDigest), first));
+        requests.write(rawPut(blobUri(secondDigest), second));
+        requests.write(String.format(Locale.ENGLISH,
+                "DELETE /_blobs/%s HTTP/1.1\r\nHost: localhost\r\n\r\n",
+                blobUri(firstDigest)).getBytes(StandardCharsets.US_ASCII));
+
+        // the delete response closes the connection
+        List<Integer> statusCodes = rawRequests(requests.toByteArray());
+        assertEquals(3, statusCodes.size());
+        assertEquals(201, (int) statusCodes.get(0));
+        assertEquals(201, (int) statusCodes.get(1));
+        assertEquals(204, (int) statusCodes.get(2));
+
+        assertEquals(404, get(blobUri(firstDigest)).getStatusLine().getStatusCode());
+        CloseableHttpResponse res = get(blobUri(secondDigest));
+        assertEquals(200, res.getStatusLine().getStatusCode());
+        assertEquals(secondDigest, sha1(EntityUtils.toByteArray(res.getEntity())));
+    }
+
+    @Test
+    public void testConcurrentPutAndDelete() throws Exception {
+        final byte[] content = randomContent(1024 * 1024);
+        final String digest = sha1(content);
+        int numRequests = 20;
+        ExecutorService executor = Executors.newFixedThreadPool(numRequests);
+        // the default client only opens two connections per host
+        final CloseableHttpClient client = HttpClients.custom()
+                .setMaxConnPerRoute(numRequests)
+                .setMaxConnTotal(numRequests)
+                .build();
+        try {
+            List<Future<Integer>> puts = new ArrayList<>();
+            List<Future<Integer>> deletes = new ArrayList<>();
+            for (int i = 0; i < numRequests / 2; i++) {
+                puts.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        CloseableHttpResponse res = client.execute(chunkedPut(blobUri(digest), content));
+                        EntityUtils.consume(res.getEntity());
+                        return res.getStatusLine().getStatusCode();
+                    }
+                }));
+                deletes.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        CloseableHttpResponse res = client.execute(new HttpDelete(String.format(
+                                "http://%s:%s/_blobs/%s", address.getHostName(), address.getPort(), blobUri(digest))));
+                        EntityUtils.consume(res.getEntity());
+                        return res.getStatusLine().getStatusCode();
+                    }
+                }));
+            }
+            for (Future<Integer> put : puts) {
+                assertThat(put.get(30, TimeUnit.SECONDS), isOneOf(201, 409));
+            }
+            for (Future<Integer> delete : deletes) {
+                assertThat(delete.get(30, TimeUnit.SECONDS), isOneOf(204, 404));
+            }
+        } finally {
+            executor.shutdownNow();
+            client.close();
+        }
+
+        // whatever the order was, the blob is either gone or complete
+        CloseableHttpResponse res = get(blobUri(digest));
+        int status = res.getStatusLine().getStatusCode();
+        assertThat(status, isOneOf(200, 404));
+        if (status == 200) {
+            assertEquals(digest, sha1(EntityUtils.toByteArray(res.getEntity())));
+        } else {
+            EntityUtils.consume(res.getEntity());
+        }
+
+        // and it can be uploaded again afterwards
+        if (status == 404) {
+            res = putChunked(blobUri(digest), content);
+            assertEquals(201, res.getStatusLine().getStatusCode());
+            EntityUtils.consume(res.getEntity());
+        }
+    }
 }
@@ -29,6 +29,7 @@ import io.crate.blob.v2.BlobIndices;
 import io.crate.blob.v2.BlobShard;
 import io.crate.common.Hex;
 import io.crate.test.integration.CrateIntegrationTest;
+import io.crate.test.integration.CrateTestCluster;
 import org.apache.log4j.ConsoleAppender;
 import org.apache.log4j.Logger;
 import org.apache.log4j.PatternLayout;
@@ -42,13 +43,20 @@ import org.elasticsearch.common.settings.ImmutableSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.indices.recovery.RecoverySettings;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -257,4 +265,136 @@ public class RecoveryTests extends CrateIntegrationTest {
             writer.join(6000);
         }
     }
+
+    /**
+     * start two nodes with a blob table with one replica and upload some blobs
+     *
+     * @return the digests of the uploaded blobs
+     */
+    private List<String> startNodesWithReplicatedBlobs(String node1, String node2) throws Exception {
+        BlobIndices blobIndices = cluster().getInstance(BlobIndices.class, node1);
+        Settings indexSettings = ImmutableSettings.builder()
+                .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 1)
+                .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1)
+                .build();
+        blobIndices.createBlobTable("test", indexSettings).get();
+        ensureGreen();
+
+        List<String> digests = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            digests.add(uploadFile(cluster().client(node1), genFile(i * 10)));
+        }
+        ensureGreen();
+        for (String node : new String[]{node1, node2}) {
+            File varDirectory = blobVarDirectory(node);
+            for (String digest : digests) {
+                assertTrue(blobFile(varDirectory, digest).exists());
+            }
+        }
+        return digests;
+    }
+
+    private File blobVarDirectory(String node) {
+        return cluster().getInstance(BlobIndices.class, node)
+                .blobShardSafe(BlobIndices.fullIndexName("test"), 0).blobContainer().getVarDirectory();
+    }
+
+    private static File blobFile(File varDirectory, String digest) {
+        return new File(new File(varDirectory, digest.substring(0, 2)), digest);
+    }
+
+    @Test
+    public void testRecoveryOfUnchangedReplicaSkipsPrefixes() throws Exception {
+        String node1 = cluster().startNode();
+        String node2 = cluster().startNode();
+        final List<String> digests = startNodesWithReplicatedBlobs(node1, node2);
+        final Map<String, File> varDirectories = new HashMap<>();
+        varDirectories.put(node1, blobVarDirectory(node1));
+        varDirectories.put(node2, blobVarDirectory(node2));
+
+        // the restarted copy restores its stats from the stats file,
+        // all prefixes have the same checksums on both copies and are skipped
+        cluster().restartRandomNode();
+        ensureGreen();
+
+        for (String node : new String[]{node1, node2}) {
+            BlobShard blobShard = cluster().getInstance(BlobIndices.class, node)
+                    .blobShardSafe(BlobIndices.fullIndexName("test"), 0);
+            assertThat(blobShard.blobContainer().blobsCount(), equalTo((long) digests.size()));
+            for (String digest : digests) {
+                assertTrue(blobFile(varDirectories.get(node), digest).exists());
+            }
+        }
+    }
+
+    @Test
+    public void testRecoverySyncsPrefixesChangedWhileTheNodeWasStopped() throws Exception {
+        String node1 = cluster().startNode();
+        String node2 = cluster().startNode();
+        final List<String> digests = startNodesWithReplicatedBlobs(node1, node2);
+        final Map<String, File> varDirectories = new HashMap<>();
+        varDirectories.put(node1, blobVarDirectory(node1));
+        varDirectories.put(node2, blobVarDirectory(node2));
+        final String removedDigest = digests.get(0);
+        final String foreignDigest = "ff00000000000000000000000000000000000000";
+
+        final List<String> restartedNodes = new ArrayList<>();
+        cluster().restartRandomNode(new CrateTestCluster.RestartCallback() {
+            @Override
+            public Settings onNodeStopped(String nodeName) throws IOException {
+                // change the blob files behind the back of the persisted stats,
+                // the checksums of the stats file still match the other copy
+                File varDirectory = varDirectories.get(nodeName);
+                assertTrue(blobFile(varDirectory, removedDigest).delete());
+                Files.write(blobFile(varDirectory, foreignDigest).toPath(), new byte[]{1, 2, 3});
+                restartedNodes.add(nodeName);
+                return null;
+            }
+        });
+        ensureGreen();
+
+        assertThat(restartedNodes.size(), equalTo(1));
+        File varDirectory = varDirectories.get(restartedNodes.get(0));
+        for (String digest : digests) {
+            assertTrue(blobFile(varDirectory, digest).exists());
+        }
+        assertFalse(blobFile(varDirectory, foreignDigest).exists());
+    }
+
+    @Test
+    public void testRecoveryOfBlobWithManyChunks() throws Exception {
+        // small chunks, so that more chunks than the handler sends at once are in flight for one file
+        Settings nodeSettings = ImmutableSettings.builder()
+                .put(RecoverySettings.INDICES_RECOVERY_FILE_CHUNK_SIZE, "1kb")
+                .build();
+        String node1 = cluster().startNode(nodeSettings);
+        BlobIndices blobIndices = cluster().getInstance(BlobIndices.class, node1);
+        Settings indexSettings = ImmutableSettings.builder()
+                .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0)
+                .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1)
+                .build();
+        blobIndices.createBlobTable("test", indexSettings).get();
+        ensureGreen();
+
+        // not a multiple of the chunk size, so the last chunk is shorter
+        byte[] content = new byte[1024 * 100 + 123];
+        new Random(content.length).nextBytes(content);
+        MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+        byte[] digestBytes = sha1.digest(content);
+        cluster().client(node1).execute(StartBlobAction.INSTANCE,
+                new StartBlobRequest(BlobIndices.fullIndexName("test"), digestBytes, new BytesArray(content), true))
+                .actionGet();
+        String digest = Hex.encodeHexString(digestBytes);
+
+        String node2 = cluster().startNode(nodeSettings);
+        cluster().client(node1).admin().indices()
+                .prepareUpdateSettings(BlobIndices.fullIndexName("test"))
+                .setSettings(ImmutableSettings.builder().put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 1))
+                .execute().actionGet();
+        ensureGreen();
+
+        File recovered = blobFile(blobVarDirectory(node2), digest);
+        assertTrue(recovered.exists());
+        assertArrayEquals(content, Files.readAllBytes(recovered.toPath()));
+    }
 }
@@ -1,167 +0,0 @@
-/*
-  * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
-  * license agreements.  See the NOTICE file distributed with this work for
-  * additional information regarding copyright ownership.  Crate licenses
-  * this file to you under the Apache License, Version 2.0 (the "License");
-  * you may not use this file except in compliance with the License.  You may
-  * obtain a copy of the License at
-  *
-  *     http://www.apache.org/licenses/LICENSE-2.0
-  *
-  * Unless required by applicable law or agreed to in writing, software
-  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
-  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
-  * License for the specific language governing permissions and limitations
-  * under the License.
-  *
-  * However, if you have executed another commercial license agreement
-  * with Crate these terms will supersede the license and you may use the
-  * software solely pursuant to the terms of the relevant commercial agreement.
-  */
-
-package io.crate.core.collections;
-
-import com.google.common.collect.Iterators;
-
-import java.util.Collection;
-import java.util.Iterator;
-import java.util.Queue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.TimeUnit;
-
-public class NoopQueue<E> implements BlockingQueue<E>, Queue<E> {
-
-    private final static NoopQueue INSTANCE = new NoopQueue();
-
-    private NoopQueue() {}
-
-    public static <T> NoopQueue<T> instance() {
-        return INSTANCE;
-    }
-
-    @Override
-    public boolean add(E e) {
-        return false;
-    }
-
-    @Override
-    public boolean offer(E e) {
-        return false;
-    }
-
-    @Override
-    public E remove() {
-        return null;
-    }
-
-    @Override
-    public E poll() {
-        return null;
-    }
-
-    @Override
-    public E element() {
-        return null;
-    }
-
-    @Override
-    public E peek() {
-        return null;
-    }
-
-    @Override
-    public void put(E e) throws InterruptedException {
-
-    }
-
-    @Override
-    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
-        return false;
-    }
-
-    @Override
-    public E take() throws InterruptedException {
-        return null;
-    }
-
-    @Override
-    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
-        return null;
-    }
-
-    @Override
-    public int remainingCapacity() {
-        return 0;
-    }
-
-    @Override
-    public boolean remove(Object o) {
-        return false;
-    }
-
-    @Override
-    public boolean containsAll(Collection<?> c) {
-        return false;
-    }
-
-    @Override
-    public boolean addAll(Collection<? extends E> c) {
-        return false;
-    }
-
-    @Override
-    public boolean removeAll(Collection<?> c) {
-        return false;
-    }
-
-    @Override
-    public boolean retainAll(Collection<?> c) {
-        return false;
-    }
-
-    @Override
-    public void clear() {
-
-    }
-
-    @Override
-    public int size() {
-        return 0;
-    }
-
-    @Override
-    public boolean isEmpty() {
-        return false;
-    }
-
-    @Override
-    public boolean contains(Object o) {
-        return false;
-    }
-
-    @Override
-    public Iterator<E> iterator() {
-        return Iterators.emptyIterator();
-    }
-
-    @Override
-    public Object[] toArray() {
-        return new Object[0];
-    }
-
-    @Override
-    public <T> T[] toArray(T[] a) {
-        return null;
-    }
-
-    @Override
-    public int drainTo(Collection<? super E> c) {
-        return 0;
-    }
-
-    @Override
-    public int drainTo(Collection<? super E> c, int maxElements) {
-        return 0;
-    }
-
-}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.core.collections;
+
+import com.google.common.collect.Iterators;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A fixed size, lock-free ring buffer that can be written to by many threads concurrently.
+ *
+ * Once the buffer is full every new element overwrites the oldest one.
+ * Iterating over the buffer returns a snapshot of its content ordered from the oldest
+ * to the newest element without blocking any writers.
+ * An element that is overwritten while the snapshot is taken might be contained in it instead
+ * of its successor.
+ *
+ * A buffer with a capacity of 0 discards all elements.
+ */
+public class RingBuffer<E> implements Iterable<E> {
+
+    private final int capacity;
+    private final AtomicReferenceArray<E> slots;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public RingBuffer(int capacity) {
+        assert capacity >= 0 : "capacity must not be negative";
+        this.capacity = capacity;
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * add an element to the buffer, overwriting the oldest element if the buffer is full.
+     *
+     * @return false if the buffer has a capacity of 0 and discarded the element, otherwise true
+     */
+    public boolean add(E element) {
+        if (capacity == 0) {
+            return false;
+        }
+        long seq = sequence.getAndIncrement();
+        slots.set((int) (seq % capacity), element);
+        return true;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of elements in the buffer, which is at most {@link #capacity()}
+     */
+    public int size() {
+        return (int) Math.min(sequence.get(), capacity);
+    }
+
+    /**
+     * copy the newest {@code min(size(), other.capacity())} elements into another buffer.
+     */
+    public void copyTo(RingBuffer<E> other) {
+        List<E> snapshot = snapshot();
+        int start = Math.max(0, snapshot.size() - other.capacity());
+        for (int i = start; i < snapshot.size(); i++) {
+            other.add(snapshot.get(i));
+        }
+    }
+
+    private List<E> snapshot() {
+        long end = sequence.get();
+        long start = Math.max(0, end - capacity);
+        List<E> elements = new ArrayList<>((int) (end - start));
+        for (long seq = start; seq < end; seq++) {
+            // slots of sequences that have been claimed but not yet written are still empty
+            E element = slots.get((int) (seq % capacity));
+            if (element != null) {
+                elements.add(element);
+            }
+        }
+        return elements;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        if (capacity == 0) {
+            return Collections.emptyIterator();
+        }
+        return Iterators.unmodifiableIterator(snapshot().iterator());
+    }
+}
@@ -21,18 +21,21 @@
 
 package io.crate.core.collections;
 
+import com.google.common.collect.ImmutableList;
 import org.junit.Test;
 
 import java.util.concurrent.CountDownLatch;
 
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.emptyIterable;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 
-public class NonBlockingArrayQueueTest {
+public class RingBufferTest {
 
     @Test
-    public void testOffer() throws Exception {
-        final NonBlockingArrayQueue<String> strings = new NonBlockingArrayQueue<>(15_000);
+    public void testConcurrentAdd() throws Exception {
+        final RingBuffer<String> strings = new RingBuffer<>(15_000);
 
         int THREADS = 20;
         final CountDownLatch latch = new CountDownLatch(THREADS);
@@ -53,5 +56,36 @@ public class NonBlockingArrayQueueTest {
 
         latch.await();
         assertThat(strings.size(), is(15_000));
+        assertThat(ImmutableList.copyOf(strings).size(), is(15_000));
+    }
+
+    @Test
+    public void testOldestElementsAreOverwritten() throws Exception {
+        RingBuffer<Integer> ints = new RingBuffer<>(3);
+        for (int i = 0; i < 5; i++) {
+            ints.add(i);
+        }
+        assertThat(ints.size(), is(3));
+        assertThat(ints, contains(2, 3, 4));
+    }
+
+    @Test
+    public void testCopyToKeepsNewestElements() throws Exception {
+        RingBuffer<Integer> ints = new RingBuffer<>(3);
+        ints.add(1);
+        ints.add(2);
+        ints.add(3);
+
+        RingBuffer<Integer> smaller = new RingBuffer<>(2);
+        ints.copyTo(smaller);
+        assertThat(smaller, contains(2, 3));
+    }
+
+    @Test
+    public void testZeroCapacityDiscardsElements() throws Exception {
+        RingBuffer<Integer> ints = new RingBuffer<>(0);
+        assertThat(ints.add(1), is(false));
+        assertThat(ints.size(), is(0));
+        assertThat(ints, emptyIterable());
     }
 }
@@ -0,0 +1,301 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.action.sql;
+
+import com.google.common.base.Objects;
+import io.crate.metadata.ColumnIdent;
+import io.crate.metadata.ReferenceInfo;
+import io.crate.metadata.table.TableInfo;
+import io.crate.planner.Plan;
+import io.crate.planner.node.PlanNode;
+import io.crate.planner.node.dql.ESGetNode;
+import io.crate.sql.tree.DefaultTraversalVisitor;
+import io.crate.sql.tree.ParameterExpression;
+import io.crate.sql.tree.Statement;
+import io.crate.types.DataType;
+import org.elasticsearch.common.lucene.BytesRefs;
+
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * plan of a primary key lookup whose ids and routing values are bound to the arguments of the statement.
+ *
+ * A template is created by planning the statement a second time with probe arguments: every id
+ * (and routing value) which changes with the arguments must be the converted value of exactly one argument,
+ * everything else in the plan must be the same. The template is only created if each argument is
+ * referenced once by the statement and ends up in the ids, so arguments which only influence
+ * the WHERE clause can't be ignored by {@link #bind(Object[])}.
+ */
+class ESGetPlanTemplate {
+
+    private static final int CONSTANT = -1;
+
+    private final ESGetNode node;
+    private final DataType idType;
+    private final int[] idArgs;
+    private final String[] idConstants;
+    private final int[] routingArgs;
+    private final String[] routingConstants;
+
+    private ESGetPlanTemplate(ESGetNode node,
+                              DataType idType,
+                              int[] idArgs,
+                              int[] routingArgs) {
+        this.node = node;
+        this.idType = idType;
+        this.idArgs = idArgs;
+        this.idConstants = node.ids().toArray(new String[node.ids().size()]);
+        this.routingArgs = routingArgs;
+        this.routingConstants = node.routingValues().toArray(new String[node.routingValues().size()]);
+    }
+
+    /**
+     * @return true if the plan is a primary key lookup
+     */
+    static boolean isCandidate(Plan plan) {
+        return singleESGetNode(plan) != null;
+    }
+
+    /**
+     * @return arguments of the same classes as <code>args</code> with other values,
+     *         or null if the arguments aren't supported by templates
+     */
+    @Nullable
+    static Object[] probeArgs(Object[] args) {
+        if (args.length == 0) {
+            return null;
+        }
+        Object[] probeArgs = new Object[args.length];
+        for (int i = 0; i < args.length; i++) {
+            Object arg = args[i];
+            Object probeArg;
+            if (arg instanceof String) {
+                probeArg = "\u0000probe" + i;
+            } else if (arg instanceof Integer) {
+                probeArg = Integer.MIN_VALUE + 7 + i;
+            } else if (arg instanceof Long) {
+                probeArg = Long.MIN_VALUE + 7 + i;
+            } else if (arg instanceof Short && i < 100) {
+                probeArg = (short) (Short.MIN_VALUE + 7 + i);
+            } else if (arg instanceof Byte && i < 100) {
+                probeArg = (byte) (Byte.MIN_VALUE + 7 + i);
+            } else {
+                return null;
+            }
+            probeArgs[i] = probeArg;
+        }
+        return probeArgs;
+    }
+
+    /**
+     * @return the number of parameter placeholders of the statement
+     */
+    static int numParameters(Statement statement) {
+        final int[] count = new int[1];
+        new DefaultTraversalVisitor<Void, Void>() {
+            @Override
+            public Void visitParameterExpression(ParameterExpression node, Void context) {
+                count[0]++;
+                return null;
+            }
+        }.process(statement, null);
+        return count[0];
+    }
+
+    /**
+     * @param plan the plan of the statement for <code>args</code>
+     * @param probePlan the plan of the statement for <code>probeArgs</code>
+     * @param table the table of the statement
+     * @param numParameters the number of parameter placeholders of the statement
+     * @return the template or null if the plan can't be bound to the arguments
+     */
+    @Nullable
+    static ESGetPlanTemplate create(Plan plan,
+                                    Plan probePlan,
+                                    TableInfo table,
+                                    Object[] args,
+                                    Object[] probeArgs,
+                                    int numParameters) {
+        if (numParameters != args.length || table.primaryKey().size() != 1) {
+            return null;
+        }
+        ESGetNode node = singleESGetNode(plan);
+        ESGetNode probeNode = singleESGetNode(probePlan);
+        if (node == null || probeNode == null || !sameShape(node, probeNode)) {
+            return null;
+        }
+        ReferenceInfo primaryKey = table.getReferenceInfo(table.primaryKey().get(0));
+        ColumnIdent clusteredBy = table.clusteredBy();
+        if (primaryKey == null || (clusteredBy != null && !clusteredBy.equals(primaryKey.ident().columnIdent()))) {
+            return null;
+        }
+        DataType idType = primaryKey.type();
+
+        String[] values = new String[args.length];
+        String[] probeValues = new String[args.length];
+        Set<String> distinctValues = new HashSet<>(args.length * 2);
+        try {
+            for (int i = 0; i < args.length; i++) {
+                values[i] = convert(idType, args[i]);
+                probeValues[i] = convert(idType, probeArgs[i]);
+                distinctValues.add(values[i]);
+                distinctValues.add(probeValues[i]);
+            }
+        } catch (Exception e) {
+            return null;
+        }
+        if (distinctValues.size() != args.length * 2) {
+            return null;
+        }
+
+        int[] idArgs = bindSlots(node.ids(), probeNode.ids(), values, probeValues);
+        int[] routingArgs = bindSlots(node.routingValues(), probeNode.routingValues(), values, probeValues);
+        if (idArgs == null || routingArgs == null) {
+            return null;
+        }
+        boolean[] bound = new boolean[args.length];
+        for (int idArg : idArgs) {
+            if (idArg != CONSTANT) {
+                bound[idArg] = true;
+            }
+        }
+        for (boolean argBound : bound) {
+            if (!argBound) {
+                return null;
+            }
+        }
+        return new ESGetPlanTemplate(node, idType, idArgs, routingArgs);
+    }
+
+    /**
+     * @return a plan for the given arguments or null if they can't be bound,
+     *         e.g. because an argument is null or two arguments result in the same id
+     */
+    @Nullable
+    Plan bind(Object[] args) {
+        String[] values = new String[args.length];
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i] == null) {
+                    return null;
+                }
+                values[i] = convert(idType, args[i]);
+            }
+        } catch (Exception e) {
+            return null;
+        }
+        List<String> ids = bindValues(idArgs, idConstants, values);
+        List<String> routingValues = bindValues(routingArgs, routingConstants, values);
+        if (new HashSet<>(ids).size() != ids.size()) {
+            return null;
+        }
+
+        ESGetNode boundNode = new ESGetNode(
+                node.index(),
+                node.outputs(),
+                node.outputTypes(),
+                ids,
+                routingValues,
+                node.sortSymbols(),
+                node.reverseFlags(),
+                node.nullsFirst(),
+                node.limit(),
+                node.offset(),
+                node.partitionBy());
+        boundNode.inputTypes(node.inputTypes());
+        Plan plan = new Plan();
+        plan.add(boundNode);
+        return plan;
+    }
+
+    private static String convert(DataType type, Object arg) {
+        return BytesRefs.toString(type.value(arg));
+    }
+
+    @Nullable
+    private static ESGetNode singleESGetNode(Plan plan) {
+        Iterator<PlanNode> it = plan.iterator();
+        if (!it.hasNext()) {
+            return null;
+        }
+        PlanNode planNode = it.next();
+        if (it.hasNext() || !(planNode instanceof ESGetNode)) {
+            return null;
+        }
+        return (ESGetNode) planNode;
+    }
+
+    private static boolean sameShape(ESGetNode node, ESGetNode probeNode) {
+        return node.partitionBy().isEmpty()
+               && probeNode.partitionBy().isEmpty()
+               && node.index().equals(probeNode.index())
+               && node.outputs().equals(probeNode.outputs())
+               && node.outputTypes().equals(probeNode.outputTypes())
+               && node.sortSymbols().equals(probeNode.sortSymbols())
+               && Arrays.equals(node.reverseFlags(), probeNode.reverseFlags())
+               && Arrays.equals(node.nullsFirst(), probeNode.nullsFirst())
+               && Objects.equal(node.limit(), probeNode.limit())
+               && node.offset() == probeNode.offset()
+               && node.ids().size() == probeNode.ids().size()
+               && node.routingValues().size() == probeNode.routingValues().size();
+    }
+
+    /**
+     * @return the index of the argument of each slot or {@link #CONSTANT},
+     *         null if a slot can't be attributed to exactly one argument
+     */
+    @Nullable
+    private static int[] bindSlots(List<String> slots,
+                                   List<String> probeSlots,
+                                   String[] values,
+                                   String[] probeValues) {
+        int[] slotArgs = new int[slots.size()];
+        for (int i = 0; i < slots.size(); i++) {
+            String slot = slots.get(i);
+            String probeSlot = probeSlots.get(i);
+            int slotArg = CONSTANT;
+            for (int a = 0; a < values.length; a++) {
+                if (slot.equals(values[a]) || slot.equals(probeValues[a])
+                    || probeSlot.equals(values[a]) || probeSlot.equals(probeValues[a])) {
+                    if (slotArg != CONSTANT || !slot.equals(values[a]) || !probeSlot.equals(probeValues[a])) {
+                        return null;
+                    }
+                    slotArg = a;
+                }
+            }
+            if (slotArg == CONSTANT && !slot.equals(probeSlot)) {
+                return null;
+            }
+            slotArgs[i] = slotArg;
+        }
+        return slotArgs;
+    }
+
+    private static List<String> bindValues(int[] slotArgs, String[] constants, String[] values) {
+        List<String> bound = new ArrayList<>(slotArgs.length);
+        for (int i = 0; i < slotArgs.length; i++) {
+            bound.add(slotArgs[i] == CONSTANT ? constants[i] : values[slotArgs[i]]);
+        }
+        return bound;
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.action.sql;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.crate.planner.Plan;
+import io.crate.planner.node.PlanNode;
+import io.crate.planner.node.dql.ESCountNode;
+import io.crate.planner.node.dql.ESGetNode;
+import io.crate.planner.node.dql.QueryThenFetchNode;
+import io.crate.types.DataType;
+import org.elasticsearch.cluster.ClusterChangedEvent;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.ClusterStateListener;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.inject.Singleton;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * cache for the plans of read-only statements, keyed by the statement and its arguments.
+ *
+ * The analyzer substitutes the arguments into the statement, so a plan can only be reused
+ * for the same arguments. Primary key lookups are additionally cached as {@link ESGetPlanTemplate},
+ * keyed by the statement and the classes of its arguments, and bound to the arguments of later requests.
+ * Only plans whose nodes don't carry per-execution state
+ * (like the context ids of collect and merge nodes) are cached.
+ *
+ * Plans contain the routing of the statement, so all entries are invalidated if the cluster metadata,
+ * the routing table or the nodes of the cluster change. Every invalidation increments the generation
+ * of the cache, plans created during an older generation are not cached.
+ *
+ * One cache is shared by all SQL transport actions of a node.
+ */
+@Singleton
+public class PlanCache implements ClusterStateListener {
+
+    private static final int MAX_SIZE = 1000;
+
+    private final Cache<Key, Entry> cache = CacheBuilder.newBuilder()
+            .maximumSize(MAX_SIZE)
+            .build();
+
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    @Inject
+    public PlanCache(ClusterService clusterService) {
+        clusterService.add(this);
+    }
+
+    PlanCache() {
+    }
+
+    /**
+     * the generation must be read before the statement is analyzed and passed to
+     * {@link #put(String, Object[], Entry, long)} together with the resulting plan.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    @Nullable
+    public Entry get(String stmt, Object[] args) {
+        Entry entry = cache.getIfPresent(new Key(stmt, args));
+        if (entry == null) {
+            Entry templateEntry = cache.getIfPresent(new TemplateKey(stmt, args));
+            if (templateEntry != null) {
+                entry = templateEntry.bind(args);
+            }
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return entry;
+    }
+
+    /**
+     * caches the plan if it is cacheable and the cache wasn't invalidated since <code>generation</code>
+     */
+    public void put(String stmt, Object[] args, Entry entry, long generation) {
+        if (isCacheable(entry.plan)) {
+            put(entry.template == null ? new Key(stmt, args) : new TemplateKey(stmt, args), entry, generation);
+        }
+    }
+
+    private void put(Key key, Entry entry, long generation) {
+        if (generation != this.generation.get()) {
+            return;
+        }
+        cache.put(key, entry);
+        if (generation != this.generation.get()) {
+            // invalidated concurrently, the invalidation might have run before the put
+            cache.invalidate(key);
+        }
+    }
+
+    static boolean isCacheable(Plan plan) {
+        if (plan.isEmpty()) {
+            return false;
+        }
+        for (PlanNode planNode : plan) {
+            if (!(planNode instanceof ESGetNode
+                  || planNode instanceof ESCountNode
+                  || planNode instanceof QueryThenFetchNode)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void clusterChanged(ClusterChangedEvent event) {
+        if ((event.metaDataChanged() || event.routingTableChanged() || event.nodesChanged())
+            && cache.size() > 0) {
+            generation.incrementAndGet();
+            cache.invalidateAll();
+        }
+    }
+
+    public long hitCount() {
+        return hits.get();
+    }
+
+    public long missCount() {
+        return misses.get();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public static class Entry {
+
+        private final Plan plan;
+        private final String[] outputNames;
+        private final DataType[] outputTypes;
+        private final boolean expectsAffectedRows;
+        private final ESGetPlanTemplate template;
+
+        public Entry(Plan plan, String[] outputNames, DataType[] outputTypes, boolean expectsAffectedRows) {
+            this(plan, outputNames, outputTypes, expectsAffectedRows, null);
+        }
+
+        Entry(Plan plan,
+              String[] outputNames,
+              DataType[] outputTypes,
+              boolean expectsAffectedRows,
+              @Nullable ESGetPlanTemplate template) {
+            this.plan = plan;
+            this.outputNames = outputNames;
+            this.outputTypes = outputTypes;
+            this.expectsAffectedRows = expectsAffectedRows;
+            this.template = template;
+        }
+
+        @Nullable
+        private Entry bind(Object[] args) {
+            assert template != null : "only template entries can be bound";
+            Plan boundPlan = template.bind(args);
+            if (boundPlan == null) {
+                return null;
+            }
+            return new Entry(boundPlan, outputNames, outputTypes, expectsAffectedRows);
+        }
+
+        public Plan plan() {
+            return plan;
+        }
+
+        public String[] outputNames() {
+            return outputNames;
+        }
+
+        public DataType[] outputTypes() {
+            return outputTypes;
+        }
+
+        public boolean expectsAffectedRows() {
+            return expectsAffectedRows;
+        }
+    }
+
+    private static class Key {
+
+        private final String stmt;
+        private final Object[] args;
+
+        private Key(String stmt, Object[] args) {
+            this.stmt = stmt;
+            this.args = args;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return stmt.equals(key.stmt) && Arrays.deepEquals(args, key.args);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * stmt.hashCode() + Arrays.deepHashCode(args);
+        }
+    }
+
+    /**
+     * key of template entries, only the classes of the arguments are compared
+     */
+    private static class TemplateKey extends Key {
+
+        private TemplateKey(String stmt, Object[] args) {
+            super(stmt, argClasses(args));
+        }
+
+        private static Object[] argClasses(Object[] args) {
+            Object[] classes = new Object[args.length];
+            for (int i = 0; i < args.length; i++) {
+                classes[i] = args[i] == null ? null : args[i].getClass();
+            }
+            return classes;
+        }
+    }
+}
@@ -43,6 +43,7 @@ public abstract class SQLBaseResponse extends ActionResponse implements ToXConte
         static final XContentBuilderString COLUMNTYPES = new XContentBuilderString("colTypes");
         static final XContentBuilderString ROWS = new XContentBuilderString("rows");
         static final XContentBuilderString ROWCOUNT = new XContentBuilderString("rowcount");
+        static final XContentBuilderString CURSOR = new XContentBuilderString("cursor");
         static final XContentBuilderString DURATION = new XContentBuilderString("duration");
         static final XContentBuilderString ERROR_MESSAGE = new XContentBuilderString("error_message");
     }
@@ -95,6 +96,11 @@ public abstract class SQLBaseResponse extends ActionResponse implements ToXConte
     }
 
     protected void writeSharedAttributes(XContentBuilder builder) throws IOException {
+        writeColumns(builder);
+        builder.field(Fields.DURATION, duration());
+    }
+
+    protected void writeColumns(XContentBuilder builder) throws IOException {
         builder.array(Fields.COLS, cols);
         if (includeTypes) {
             builder.startArray(Fields.COLUMNTYPES);
@@ -105,8 +111,6 @@ public abstract class SQLBaseResponse extends ActionResponse implements ToXConte
             }
             builder.endArray();
         }
-
-        builder.field(Fields.DURATION, duration());
     }
 
     public static void toXContentNestedDataType(XContentBuilder builder, DataType dataType) throws IOException {
@@ -22,9 +22,11 @@
 package io.crate.action.sql;
 
 import com.google.common.base.Objects;
+import org.elasticsearch.action.ActionRequestValidationException;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.util.Arrays;
 
@@ -34,7 +36,9 @@ import java.util.Arrays;
 public class SQLRequest extends SQLBaseRequest {
 
     public final static Object[] EMPTY_ARGS = new Object[0];
-    private Object[] args;
+    private Object[] args = EMPTY_ARGS;
+    private int fetchSize = 0;
+    private String cursor;
 
     public SQLRequest() {} // used for serialization
 
@@ -72,6 +76,42 @@ public class SQLRequest extends SQLBaseRequest {
         this.args = Objects.firstNonNull(args, EMPTY_ARGS);
     }
 
+    /**
+     * the number of rows per page.
+     *
+     * If set to a value greater than 0 a select statement returns only the first page
+     * of its result. The response then contains a cursor if there may be further pages
+     * which can be fetched using {@link #cursor(String)}.
+     */
+    public void fetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    public int fetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * set the cursor of a previous response to fetch the next page of its result
+     * instead of executing a statement.
+     */
+    public void cursor(@Nullable String cursor) {
+        this.cursor = cursor;
+    }
+
+    @Nullable
+    public String cursor() {
+        return cursor;
+    }
+
+    @Override
+    public ActionRequestValidationException validate() {
+        if (cursor != null) {
+            return null;
+        }
+        return super.validate();
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         // doesn't call super to stay compatible with older crate version
@@ -85,6 +125,8 @@ public class SQLRequest extends SQLBaseRequest {
         }
         creationTime = in.readVLong();
         includeTypesOnResponse = in.readBoolean();
+        fetchSize = in.readVInt();
+        cursor = in.readOptionalString();
     }
 
     @Override
@@ -93,13 +135,15 @@ public class SQLRequest extends SQLBaseRequest {
 
         out.writeBoolean(false); // headers == null from TransportRequest base class
 
-        out.writeString(stmt);
+        out.writeString(stmt == null ? "" : stmt);
         out.writeVInt(args.length);
         for (int i = 0; i < args.length; i++) {
             out.writeGenericValue(args[i]);
         }
         out.writeVLong(creationTime);
         out.writeBoolean(includeTypesOnResponse);
+        out.writeVInt(fetchSize);
+        out.writeOptionalString(cursor);
     }
 
     @Override
@@ -107,6 +151,8 @@ public class SQLRequest extends SQLBaseRequest {
         return Objects.toStringHelper(this)
                 .add("stmt", stmt)
                 .add("args", Arrays.asList(args))
+                .add("fetchSize", fetchSize)
+                .add("cursor", cursor)
                 .add("creationTime", creationTime).toString();
     }
 }
@@ -27,6 +27,7 @@ import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.util.Arrays;
 
@@ -36,6 +37,7 @@ public class SQLResponse extends SQLBaseResponse {
 
     private Object[][] rows;
     private long rowCount = NO_ROW_COUNT;
+    private String cursor;
 
     public SQLResponse() {
     }
@@ -57,9 +59,34 @@ public class SQLResponse extends SQLBaseResponse {
 
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        return toXContent(builder, false);
+    }
+
+    /**
+     * Like {@link #toXContent(XContentBuilder, Params)} but every row is released as soon as
+     * it has been written to the builder. So the rows and the serialized response don't have
+     * to be kept in memory completely at the same time.
+     * The rows of this response can't be used afterwards.
+     */
+    public XContentBuilder toXContentReleasingRows(XContentBuilder builder) throws IOException {
+        return toXContent(builder, true);
+    }
+
+    private XContentBuilder toXContent(XContentBuilder builder, boolean releaseRows) throws IOException {
         builder.startObject();
         writeSharedAttributes(builder);
         builder.startArray(Fields.ROWS);
+        writeRows(builder, releaseRows);
+        builder.endArray();
+        builder.field(Fields.ROWCOUNT, rowCount());
+        if (cursor != null) {
+            builder.field(Fields.CURSOR, cursor);
+        }
+        builder.endObject();
+        return builder;
+    }
+
+    private void writeRows(XContentBuilder builder, boolean releaseRows) throws IOException {
         if (rows != null) {
             for (int i = 0; i < rows.length; i++) {
                 builder.startArray();
@@ -67,10 +94,42 @@ public class SQLResponse extends SQLBaseResponse {
                     builder.value(rows[i][j]);
                 }
                 builder.endArray();
+                if (releaseRows) {
+                    rows[i] = null;
+                }
             }
         }
+        if (releaseRows) {
+            rows = null;
+        }
+    }
+
+    /**
+     * Start a response whose rows are written page by page: writes the columns of this response
+     * and opens the rows array. The rows of every page, including this one, are written with
+     * {@link #toXContentPageRows(XContentBuilder)} and the response is completed with
+     * {@link #toXContentPagesEnd(XContentBuilder, long, long)}.
+     */
+    public XContentBuilder toXContentPagesStart(XContentBuilder builder) throws IOException {
+        builder.startObject();
+        writeColumns(builder);
+        builder.startArray(Fields.ROWS);
+        return builder;
+    }
+
+    /**
+     * write the rows of this page, they are released as soon as they have been written
+     */
+    public XContentBuilder toXContentPageRows(XContentBuilder builder) throws IOException {
+        writeRows(builder, true);
+        return builder;
+    }
+
+    public static XContentBuilder toXContentPagesEnd(XContentBuilder builder, long rowCount, long duration)
+        throws IOException {
         builder.endArray();
-        builder.field(Fields.ROWCOUNT, rowCount());
+        builder.field(Fields.ROWCOUNT, rowCount);
+        builder.field(Fields.DURATION, duration);
         builder.endObject();
         return builder;
     }
@@ -95,6 +154,19 @@ public class SQLResponse extends SQLBaseResponse {
         this.rows = rows;
     }
 
+    /**
+     * @return the cursor to fetch the next page of the result, see {@link SQLRequest#fetchSize(int)}.
+     * null if there are no further pages.
+     */
+    @Nullable
+    public String cursor() {
+        return cursor;
+    }
+
+    public void cursor(@Nullable String cursor) {
+        this.cursor = cursor;
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         // don't user super.readFrom to stay binary backward compatible
@@ -124,6 +196,7 @@ public class SQLResponse extends SQLBaseResponse {
         } else {
             colTypes = EMPTY_TYPES;
         }
+        cursor = in.readOptionalString();
     }
 
     @Override
@@ -148,6 +221,7 @@ public class SQLResponse extends SQLBaseResponse {
                 DataTypes.toStream(colTypes[i], out);
             }
         }
+        out.writeOptionalString(cursor);
     }
 
     @Override
@@ -157,6 +231,7 @@ public class SQLResponse extends SQLBaseResponse {
                 "colTypes=" + ((colTypes !=null) ? Arrays.toString(colTypes): null) +
                 ", rows=" + ((rows!=null) ? rows.length: -1)  +
                 ", rowCount=" + rowCount  +
+                ", cursor=" + cursor  +
                 ", duration=" + duration()  +
                 '}';
     }
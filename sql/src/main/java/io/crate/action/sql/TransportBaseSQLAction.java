@@ -31,6 +31,7 @@ import io.crate.Constants;
 import io.crate.analyze.Analysis;
 import io.crate.analyze.AnalyzedStatement;
 import io.crate.analyze.Analyzer;
+import io.crate.analyze.SelectAnalyzedStatement;
 import io.crate.exceptions.*;
 import io.crate.executor.Executor;
 import io.crate.executor.Job;
@@ -81,6 +82,7 @@ public abstract class TransportBaseSQLAction<TRequest extends SQLBaseRequest, TR
                     }
             );
 
+    private final PlanCache planCache;
     private final ClusterService clusterService;
     protected final Analyzer analyzer;
     protected final Planner planner;
@@ -96,9 +98,11 @@ public abstract class TransportBaseSQLAction<TRequest extends SQLBaseRequest, TR
                                   Planner planner,
                                   Provider<Executor> executorProvider,
                                   StatsTables statsTables,
+                                  PlanCache planCache,
                                   ActionFilters actionFilters) {
         super(settings, actionName, threadPool, actionFilters);
         this.clusterService = clusterService;
+        this.planCache = planCache;
         this.analyzer = analyzer;
         this.planner = planner;
         this.executorProvider = executorProvider;
@@ -134,6 +138,30 @@ public abstract class TransportBaseSQLAction<TRequest extends SQLBaseRequest, TR
                                                           long requestCreationTime,
                                                           boolean includeTypesOnResponse);
 
+    /**
+     * the arguments which determine the plan of a request together with its statement,
+     * used as key of the plan cache.
+     *
+     * @return null if the plan of the request must not be cached
+     */
+    @Nullable
+    protected Object[] planCacheArgs(TRequest request) {
+        return null;
+    }
+
+    public PlanCache planCache() {
+        return planCache;
+    }
+
+    /**
+     * hook to adapt the plan to request specific options before it is executed
+     *
+     * @param plan the plan created for the request
+     * @param request the request the plan was created for
+     */
+    protected void preparePlan(Plan plan, TRequest request) {
+    }
+
     @Override
     protected void doExecute(TRequest request, ActionListener<TResponse> listener) {
         logger.debug("{}", request);
@@ -143,9 +171,19 @@ public abstract class TransportBaseSQLAction<TRequest extends SQLBaseRequest, TR
             return;
         }
         try {
+            Object[] planCacheArgs = planCacheArgs(request);
+            if (planCacheArgs != null) {
+                PlanCache.Entry entry = planCache.get(request.stmt(), planCacheArgs);
+                if (entry != null) {
+                    executePlan(entry.expectsAffectedRows(), entry.plan(), entry.outputNames(), entry.outputTypes(),
+                            listener, request);
+                    return;
+                }
+            }
+            long planCacheGeneration = planCache.generation();
             Statement statement = statementCache.get(request.stmt());
             Analysis analysis = getAnalysis(statement, request);
-            processAnalysis(analysis, request, listener);
+            processAnalysis(statement, analysis, request, planCacheArgs, planCacheGeneration, listener);
         } catch (Throwable e) {
             logger.debug("Error executing SQLRequest", e);
             sendResponse(listener, buildSQLActionException(e));
@@ -162,7 +200,12 @@ public abstract class TransportBaseSQLAction<TRequest extends SQLBaseRequest, TR
         statsTables.activeRequestsDec();
     }
 
-    private void processAnalysis(Analysis analysis, TRequest request, ActionListener<TResponse> listener) {
+    private void processAnalysis(Statement statement,
+                                 Analysis analysis,
+                                 TRequest request,
+                                 @Nullable Object[] planCacheArgs,
+                                 long planCacheGeneration,
+                                 ActionListener<TResponse> listener) {
         AnalyzedStatement analyzedStatement = analysis.analyzedStatement();
         final String[] outputNames = analyzedStatement.outputNames().toArray(new String[analyzedStatement.outputNames().size()]);
         DataType[] outputTypes = analyzedStatement.outputTypes().toArray(new DataType[analyzedStatement.outputTypes().size()]);
@@ -172,6 +215,7 @@ public abstract class TransportBaseSQLAction<TRequest extends SQLBaseRequest, TR
             return;
         }
         final Plan plan = planner.plan(analysis);
+        preparePlan(plan, request);
         tracePlan(plan);
 
         if (plan.isEmpty()) {
@@ -182,11 +226,16 @@ public abstract class TransportBaseSQLAction<TRequest extends SQLBaseRequest, TR
             sendResponse(listener, emptyResponse(request, outputNames, outputTypes));
             statsTables.jobFinished(jobId, null);
         } else {
-            executePlan(analyzedStatement, plan, outputNames, outputTypes, listener, request);
+            if (planCacheArgs != null) {
+                planCache.put(request.stmt(), planCacheArgs, new PlanCache.Entry(
+                        plan, outputNames, outputTypes, analyzedStatement.expectsAffectedRows(),
+                        planTemplate(statement, analyzedStatement, plan, planCacheArgs)), planCacheGeneration);
+            }
+            executePlan(analyzedStatement.expectsAffectedRows(), plan, outputNames, outputTypes, listener, request);
         }
     }
 
-    private void executePlan(final AnalyzedStatement analyzedStatement,
+    private void executePlan(final boolean expectsAffectedRows,
                              final Plan plan,
                              final String[] outputNames,
                              final DataType[] outputTypes,
@@ -212,7 +261,7 @@ public abstract class TransportBaseSQLAction<TRequest extends SQLBaseRequest, TR
                                 outputNames,
                                 outputTypes,
                                 result,
-                                analyzedStatement.expectsAffectedRows(),
+                                expectsAffectedRows,
                                 request.creationTime(),
                                 request.includeTypesOnResponse()
                         );
@@ -239,6 +288,40 @@ public abstract class TransportBaseSQLAction<TRequest extends SQLBaseRequest, TR
         });
     }
 
+    /**
+     * plans the statement again with probe arguments to find out if the ids of a
+     * primary key lookup can be bound to the arguments of later requests
+     */
+    @Nullable
+    private ESGetPlanTemplate planTemplate(Statement statement,
+                                           AnalyzedStatement analyzedStatement,
+                                           Plan plan,
+                                           Object[] args) {
+        if (!(analyzedStatement instanceof SelectAnalyzedStatement) || !ESGetPlanTemplate.isCandidate(plan)) {
+            return null;
+        }
+        Object[] probeArgs = ESGetPlanTemplate.probeArgs(args);
+        if (probeArgs == null) {
+            return null;
+        }
+        try {
+            Analysis probeAnalysis = analyzer.analyze(statement, probeArgs, SQLBulkRequest.EMPTY_BULK_ARGS);
+            if (probeAnalysis.analyzedStatement().hasNoResult()) {
+                return null;
+            }
+            return ESGetPlanTemplate.create(
+                    plan,
+                    planner.plan(probeAnalysis),
+                    ((SelectAnalyzedStatement) analyzedStatement).table(),
+                    args,
+                    probeArgs,
+                    ESGetPlanTemplate.numParameters(statement));
+        } catch (Exception e) {
+            logger.trace("statement can't be cached as plan template", e);
+            return null;
+        }
+    }
+
     private void tracePlan(Plan plan) {
         if (logger.isTraceEnabled()) {
             PlanPrinter printer = new PlanPrinter();
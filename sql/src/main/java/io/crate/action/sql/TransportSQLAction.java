@@ -21,14 +21,27 @@
 
 package io.crate.action.sql;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
 import io.crate.analyze.Analysis;
 import io.crate.analyze.Analyzer;
+import io.crate.exceptions.CursorUnknownException;
 import io.crate.executor.BytesRefUtils;
+import io.crate.executor.Cursor;
 import io.crate.executor.Executor;
+import io.crate.executor.QueryResult;
 import io.crate.executor.TaskResult;
 import io.crate.executor.transport.ResponseForwarder;
 import io.crate.operation.collect.StatsTables;
+import io.crate.planner.Plan;
 import io.crate.planner.Planner;
+import io.crate.planner.node.PlanNode;
+import io.crate.planner.node.dql.QueryThenFetchNode;
 import io.crate.sql.tree.Statement;
 import io.crate.types.DataType;
 import org.elasticsearch.action.ActionListener;
@@ -37,17 +50,26 @@ import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.inject.Provider;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.BaseTransportRequestHandler;
 import org.elasticsearch.transport.TransportChannel;
 import org.elasticsearch.transport.TransportService;
 
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.Iterator;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 
 public class TransportSQLAction extends TransportBaseSQLAction<SQLRequest, SQLResponse> {
 
+    private static final int MAX_OPEN_CURSORS = 1000;
+
+    private final Cache<String, CursorContext> cursors;
+
     @Inject
     protected TransportSQLAction(
             ClusterService clusterService,
@@ -58,10 +80,96 @@ public class TransportSQLAction extends TransportBaseSQLAction<SQLRequest, SQLRe
             Provider<Executor> executor,
             TransportService transportService,
             StatsTables statsTables,
+            PlanCache planCache,
             ActionFilters actionFilters) {
         super(clusterService, settings, SQLAction.NAME, threadPool,
-                analyzer, planner, executor, statsTables, actionFilters);
+                analyzer, planner, executor, statsTables, planCache, actionFilters);
         transportService.registerHandler(SQLAction.NAME, new TransportHandler());
+        TimeValue keepAlive = settings.getAsTime("search.default_keep_alive", TimeValue.timeValueMinutes(5));
+        cursors = CacheBuilder.newBuilder()
+                .maximumSize(MAX_OPEN_CURSORS)
+                .expireAfterAccess(keepAlive.millis(), TimeUnit.MILLISECONDS)
+                .removalListener(new RemovalListener<String, CursorContext>() {
+                    @Override
+                    public void onRemoval(@Nonnull RemovalNotification<String, CursorContext> notification) {
+                        // explicitly removed cursors are consumed by the next page request
+                        if (notification.getCause() != RemovalCause.EXPLICIT && notification.getValue() != null) {
+                            notification.getValue().cursor.close();
+                        }
+                    }
+                })
+                .build();
+    }
+
+    @Override
+    protected void doExecute(SQLRequest request, ActionListener<SQLResponse> listener) {
+        if (request.cursor() == null) {
+            super.doExecute(request, listener);
+        } else {
+            fetchNextPage(request.cursor(), listener);
+        }
+    }
+
+    @Override
+    protected Object[] planCacheArgs(SQLRequest request) {
+        if (request.fetchSize() > 0) {
+            // the plan is modified for paging
+            return null;
+        }
+        return request.args();
+    }
+
+    @Override
+    protected void preparePlan(Plan plan, SQLRequest request) {
+        if (request.fetchSize() <= 0) {
+            return;
+        }
+        Iterator<PlanNode> it = plan.iterator();
+        if (!it.hasNext()) {
+            return;
+        }
+        PlanNode node = it.next();
+        // paging is only supported for plain query-then-fetch plans
+        if (!it.hasNext() && node instanceof QueryThenFetchNode) {
+            ((QueryThenFetchNode) node).fetchSize(request.fetchSize());
+        }
+    }
+
+    private void fetchNextPage(final String cursorId, final ActionListener<SQLResponse> listener) {
+        final CursorContext context = cursors.asMap().remove(cursorId);
+        if (context == null) {
+            listener.onFailure(buildSQLActionException(new CursorUnknownException(cursorId)));
+            return;
+        }
+        final long creationTime = System.currentTimeMillis();
+        Futures.addCallback(context.cursor.nextPage(), new FutureCallback<QueryResult>() {
+            @Override
+            public void onSuccess(@Nullable QueryResult result) {
+                Object[][] rows = result == null ? TaskResult.EMPTY_ROWS : result.rows();
+                BytesRefUtils.ensureStringTypesAreStrings(context.outputTypes, rows);
+                SQLResponse response = new SQLResponse(
+                        context.outputNames,
+                        rows,
+                        context.outputTypes,
+                        rows.length,
+                        creationTime,
+                        context.includeTypesOnResponse
+                );
+                if (result != null && result.cursor() != null) {
+                    cursors.put(cursorId, new CursorContext(
+                            result.cursor(), context.outputNames, context.outputTypes, context.includeTypesOnResponse));
+                    response.cursor(cursorId);
+                }
+                listener.onResponse(response);
+            }
+
+            @Override
+            public void onFailure(@Nonnull Throwable t) {
+                logger.debug("Error fetching next page of cursor {}", t, cursorId);
+                context.cursor.close();
+                listener.onFailure(buildSQLActionException(t));
+            }
+        });
     }
 
     @Override
@@ -101,7 +209,7 @@ public class TransportSQLAction extends TransportBaseSQLAction<SQLRequest, SQLRe
             rowCount = rows.length;
         }
         BytesRefUtils.ensureStringTypesAreStrings(outputTypes, rows);
-        return new SQLResponse(
+        SQLResponse response = new SQLResponse(
                 outputNames,
                 rows,
                 outputTypes,
@@ -109,6 +217,31 @@ public class TransportSQLAction extends TransportBaseSQLAction<SQLRequest, SQLRe
                 requestCreationTime,
                 includeTypesOnResponse
         );
+        if (taskResult instanceof QueryResult && ((QueryResult) taskResult).cursor() != null) {
+            String cursorId = UUID.randomUUID().toString();
+            cursors.put(cursorId, new CursorContext(
+                    ((QueryResult) taskResult).cursor(), outputNames, outputTypes, includeTypesOnResponse));
+            response.cursor(cursorId);
+        }
+        return response;
+    }
+
+    private static class CursorContext {
+
+        private final Cursor cursor;
+        private final String[] outputNames;
+        private final DataType[] outputTypes;
+        private final boolean includeTypesOnResponse;
+
+        private CursorContext(Cursor cursor,
+                              String[] outputNames,
+                              DataType[] outputTypes,
+                              boolean includeTypesOnResponse) {
+            this.cursor = cursor;
+            this.outputNames = outputNames;
+            this.outputTypes = outputTypes;
+            this.includeTypesOnResponse = includeTypesOnResponse;
+        }
     }
 
     private class TransportHandler extends BaseTransportRequestHandler<SQLRequest> {
@@ -56,9 +56,10 @@ public class TransportSQLBulkAction extends TransportBaseSQLAction<SQLBulkReques
                                   Provider<Executor> executor,
                                   TransportService transportService,
                                   StatsTables statsTables,
+                                  PlanCache planCache,
                                   ActionFilters actionFilters) {
         super(clusterService, settings, SQLBulkAction.NAME, threadPool, analyzer,
-                planner, executor, statsTables, actionFilters);
+                planner, executor, statsTables, planCache, actionFilters);
         transportService.registerHandler(SQLBulkAction.NAME, new TransportHandler());
     }
 
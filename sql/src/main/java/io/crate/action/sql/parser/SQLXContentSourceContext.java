@@ -29,6 +29,8 @@ public class SQLXContentSourceContext {
     private String stmt;
     private Object[] args;
     private Object[][] bulkArgs;
+    private int fetchSize = 0;
+    private String cursor;
 
     public String stmt() {
         return stmt;
@@ -54,4 +56,20 @@ public class SQLXContentSourceContext {
     public void bulkArgs(Object[][] bulkArgs) {
         this.bulkArgs = bulkArgs;
     }
+
+    public int fetchSize() {
+        return fetchSize;
+    }
+
+    public void fetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    public String cursor() {
+        return cursor;
+    }
+
+    public void cursor(String cursor) {
+        this.cursor = cursor;
+    }
 }
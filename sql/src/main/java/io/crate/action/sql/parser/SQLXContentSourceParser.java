@@ -32,7 +32,14 @@ import org.elasticsearch.common.xcontent.XContentParser;
  * Parser for SQL statements in JSON and other XContent formats
  * <p/>
  * {
- * "stmt": "select * from...."
+ * "stmt": "select * from....",
+ * "fetch_size": 100
+ * }
+ * <p/>
+ * or to fetch the next page of a previous result
+ * <p/>
+ * {
+ * "cursor": "..."
  * }
  */
 public class SQLXContentSourceParser {
@@ -43,12 +50,16 @@ public class SQLXContentSourceParser {
         static final String STMT = "stmt";
         static final String ARGS = "args";
         static final String BULK_ARGS = "bulk_args";
+        static final String FETCH_SIZE = "fetch_size";
+        static final String CURSOR = "cursor";
     }
 
     private static final ImmutableMap<String, SQLParseElement> elementParsers = ImmutableMap.of(
             Fields.STMT, (SQLParseElement) new SQLStmtParseElement(),
             Fields.ARGS, (SQLParseElement) new SQLArgsParseElement(),
-            Fields.BULK_ARGS, (SQLParseElement) new SQLBulkArgsParseElement()
+            Fields.BULK_ARGS, (SQLParseElement) new SQLBulkArgsParseElement(),
+            Fields.FETCH_SIZE, (SQLParseElement) new SQLFetchSizeParseElement(),
+            Fields.CURSOR, (SQLParseElement) new SQLCursorParseElement()
     );
 
     public SQLXContentSourceParser(SQLXContentSourceContext context) {
@@ -56,7 +67,7 @@ public class SQLXContentSourceParser {
     }
 
     private void validate() throws SQLParseSourceException {
-        if (context.stmt() == null) {
+        if (context.stmt() == null && context.cursor() == null) {
             throw new SQLParseSourceException(context, "Field [stmt] was not defined");
         }
     }
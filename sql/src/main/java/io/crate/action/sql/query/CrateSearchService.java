@@ -24,7 +24,9 @@ package io.crate.action.sql.query;
 import com.google.common.collect.ImmutableMap;
 import io.crate.Constants;
 import io.crate.core.StringUtils;
+import io.crate.executor.transport.task.elasticsearch.ESFieldExtractor;
 import io.crate.executor.transport.task.elasticsearch.SortOrder;
+import io.crate.lucene.DocValuesUtils;
 import io.crate.lucene.LuceneQueryBuilder;
 import io.crate.metadata.ColumnIdent;
 import io.crate.metadata.Functions;
@@ -39,21 +41,30 @@ import io.crate.planner.symbol.*;
 import io.crate.types.DataType;
 import io.crate.types.DataTypes;
 import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.FieldComparator;
+import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TopDocsCollector;
+import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.search.TopScoreDocCollector;
 import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.cache.recycler.CacheRecycler;
 import org.elasticsearch.cache.recycler.PageCacheRecycler;
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.lucene.MinimumScoreCollector;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.fielddata.IndexFieldData;
-import org.elasticsearch.index.mapper.FieldMapper;
 import org.elasticsearch.index.query.ParsedQuery;
 import org.elasticsearch.index.service.IndexService;
 import org.elasticsearch.index.shard.service.IndexShard;
@@ -64,9 +75,14 @@ import org.elasticsearch.indices.warmer.IndicesWarmer;
 import org.elasticsearch.script.ScriptService;
 import org.elasticsearch.search.InternalSearchService;
 import org.elasticsearch.search.MultiValueMode;
+import org.elasticsearch.search.Scroll;
+import org.elasticsearch.search.SearchContextMissingException;
 import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.dfs.DfsPhase;
 import org.elasticsearch.search.fetch.FetchPhase;
+import org.elasticsearch.search.fetch.FetchSearchResult;
+import org.elasticsearch.search.fetch.ShardFetchSearchRequest;
+import org.elasticsearch.search.fetch.fielddata.FieldDataFieldsContext;
 import org.elasticsearch.search.fetch.source.FetchSourceContext;
 import org.elasticsearch.search.internal.DefaultSearchContext;
 import org.elasticsearch.search.internal.SearchContext;
@@ -82,12 +98,23 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 
 public class CrateSearchService extends InternalSearchService {
 
+    /**
+     * dummy request required to create {@link ShardFetchSearchRequest}s
+     */
+    private static final SearchRequest EMPTY_SEARCH_REQUEST = new SearchRequest();
+
     private final SortSymbolVisitor sortSymbolVisitor;
     private final Functions functions;
 
+    /**
+     * the last document of a kept alive search context which has been emitted by the previous pages
+     */
+    private final ConcurrentMap<Long, ScoreDoc> lastEmittedDocs = ConcurrentCollections.newConcurrentMap();
+
     @Inject
     public CrateSearchService(Settings settings,
                               ClusterService clusterService,
@@ -140,6 +167,96 @@ public class CrateSearchService extends InternalSearchService {
         }
     }
 
+    /**
+     * query the next page of a search context which has been kept alive.
+     * Only the documents after the last emitted document of the context are collected,
+     * so every page is as cheap as the first one.
+     */
+    public QuerySearchResult executeQueryPhase(QueryShardPageRequest request) {
+        SearchContext context = activeContexts.get(request.contextId());
+        if (context == null) {
+            throw new SearchContextMissingException(request.contextId());
+        }
+        SearchContext.setCurrent(context);
+        contextProcessing(context);
+        try {
+            ScoreDoc lastEmittedDoc = lastEmittedDoc(context, request.consumed());
+            TopDocsCollector<?> topDocsCollector;
+            if (context.sort() == null) {
+                topDocsCollector = TopScoreDocCollector.create(request.size(), lastEmittedDoc, false);
+            } else {
+                topDocsCollector = TopFieldCollector.create(
+                        context.sort(),
+                        request.size(),
+                        (FieldDoc) lastEmittedDoc,
+                        true,
+                        context.trackScores(),
+                        context.trackScores(),
+                        false
+                );
+            }
+            Collector collector = topDocsCollector;
+            if (context.minimumScore() != null) {
+                collector = new MinimumScoreCollector(collector, context.minimumScore());
+            }
+            context.searcher().search(context.query(), collector);
+
+            QuerySearchResult queryResult = context.queryResult();
+            queryResult.topDocs(topDocsCollector.topDocs());
+            queryResult.from(0);
+            queryResult.size(request.size());
+            contextProcessedSuccessfully(context);
+            return queryResult;
+        } catch (Throwable e) {
+            logger.trace("Query page failed", e);
+            freeContext(context.id());
+            throw ExceptionsHelper.convertToRuntime(e);
+        } finally {
+            cleanContext(context);
+        }
+    }
+
+    @Nullable
+    private ScoreDoc lastEmittedDoc(SearchContext context, int consumed) {
+        if (consumed == 0) {
+            // nothing of the previous page has been emitted, continue after the same document as before
+            return lastEmittedDocs.get(context.id());
+        }
+        ScoreDoc lastEmittedDoc = context.queryResult().topDocs().scoreDocs[consumed - 1];
+        lastEmittedDocs.put(context.id(), lastEmittedDoc);
+        return lastEmittedDoc;
+    }
+
+    @Override
+    public boolean freeContext(long id) {
+        lastEmittedDocs.remove(id);
+        return super.freeContext(id);
+    }
+
+    /**
+     * execute the fetch phase for all contexts of the request.
+     * If fetching one context fails the remaining contexts are fetched nevertheless
+     * so that all of them are released, the first failure is raised afterwards.
+     */
+    public FetchNodeResponse executeFetchPhase(FetchNodeRequest request) {
+        FetchSearchResult[] results = new FetchSearchResult[request.size()];
+        Throwable failure = null;
+        for (int i = 0; i < request.size(); i++) {
+            try {
+                results[i] = executeFetchPhase(
+                        new ShardFetchSearchRequest(EMPTY_SEARCH_REQUEST, request.contextId(i), request.docIds(i)));
+            } catch (Throwable t) {
+                if (failure == null) {
+                    failure = t;
+                }
+            }
+        }
+        if (failure != null) {
+            throw ExceptionsHelper.convertToRuntime(failure);
+        }
+        return new FetchNodeResponse(results);
+    }
+
     private SearchContext createAndPutContext(QueryShardRequest request) {
         SearchContext context = createContext(request, null);
         boolean success = false;
@@ -208,7 +325,7 @@ public class CrateSearchService extends InternalSearchService {
                 context.minimumScore(minScore);
             }
 
-            // the OUTPUTS_VISITOR sets the sourceFetchContext / version / minScore onto the SearchContext
+            // the OUTPUTS_VISITOR sets the sourceFetchContext / fieldDataFields / version onto the SearchContext
             OutputContext outputContext = new OutputContext(context, request.partitionBy());
             OUTPUTS_VISITOR.process(request.outputs(), outputContext);
 
@@ -226,6 +343,10 @@ public class CrateSearchService extends InternalSearchService {
             // compute the context keep alive
             long keepAlive = defaultKeepAlive;
             context.keepAlive(keepAlive);
+            if (request.keepContextAlive()) {
+                // contexts with a scroll aren't released by the fetch phase
+                context.scroll(new Scroll(TimeValue.timeValueMillis(keepAlive)));
+            }
         } catch (Throwable e) {
             context.close();
             throw ExceptionsHelper.convertToRuntime(e);
@@ -274,7 +395,14 @@ public class CrateSearchService extends InternalSearchService {
                     context.needWholeSource = true;
                 }
             } else if (!context.partitionBy.contains(symbol.info())) {
-                context.fields.add(columnIdent.fqn());
+                if (DocValuesUtils.hasDocValues(
+                        symbol, context.searchContext, ESFieldExtractor.DocValues.SUPPORTED_TYPES)) {
+                    // read from the doc values instead of parsing the source
+                    context.searchContext.fieldDataFields().add(
+                            new FieldDataFieldsContext.FieldDataField(columnIdent.fqn()));
+                } else {
+                    context.fields.add(columnIdent.fqn());
+                }
             }
             return null;
         }
@@ -462,35 +590,34 @@ public class CrateSearchService extends InternalSearchService {
         @SuppressWarnings("unchecked")
         @Override
         public int compareBottom(int doc) throws IOException {
-            for (int i = 0, collectorExpressionsSize = collectorExpressions.size(); i < collectorExpressionsSize; i++) {
-                LuceneCollectorExpression collectorExpression = collectorExpressions.get(i);
-                collectorExpression.setNextDocId(doc);
-            }
-            return valueType.compareValueTo(bottom, input.value());
+            return valueType.compareValueTo(bottom, valueOf(doc));
         }
 
         @SuppressWarnings("unchecked")
         @Override
         public int compareTop(int doc) throws IOException {
-            for (int i = 0, collectorExpressionsSize = collectorExpressions.size(); i < collectorExpressionsSize; i++) {
-                LuceneCollectorExpression collectorExpression = collectorExpressions.get(i);
-                collectorExpression.setNextDocId(doc);
-            }
-            return valueType.compareValueTo(top, input.value());
+            return valueType.compareValueTo(top, valueOf(doc));
         }
 
         @Override
         public void copy(int slot, int doc) throws IOException {
+            values[slot] = valueOf(doc);
+        }
+
+        /**
+         * @return the value of the doc or the missing value if it is null,
+         * the same value has to be used for copying and comparing
+         */
+        private Object valueOf(int doc) {
             for (int i = 0, collectorExpressionsSize = collectorExpressions.size(); i < collectorExpressionsSize; i++) {
                 LuceneCollectorExpression collectorExpression = collectorExpressions.get(i);
                 collectorExpression.setNextDocId(doc);
             }
             Object value = input.value();
             if (value == null) {
-                values[slot] = missingValue;
-            } else {
-                values[slot] = value;
+                return missingValue;
             }
+            return value;
         }
 
         @Override
@@ -0,0 +1,96 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.action.sql.query;
+
+import com.carrotsearch.hppc.IntArrayList;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+
+/**
+ * request to fetch the documents of all search contexts of one node
+ * which were created by previous {@link QueryShardRequest}s in one round trip.
+ */
+public class FetchNodeRequest extends ActionRequest<FetchNodeRequest> {
+
+    private long[] contextIds;
+    private IntArrayList[] docIds;
+
+    public FetchNodeRequest() {}
+
+    public FetchNodeRequest(long[] contextIds, IntArrayList[] docIds) {
+        assert contextIds.length == docIds.length : "need the docIds to load for every context";
+        this.contextIds = contextIds;
+        this.docIds = docIds;
+    }
+
+    @Override
+    public ActionRequestValidationException validate() {
+        return null;
+    }
+
+    public int size() {
+        return contextIds.length;
+    }
+
+    public long contextId(int idx) {
+        return contextIds[idx];
+    }
+
+    public IntArrayList docIds(int idx) {
+        return docIds[idx];
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        int size = in.readVInt();
+        contextIds = new long[size];
+        docIds = new IntArrayList[size];
+        for (int i = 0; i < size; i++) {
+            contextIds[i] = in.readLong();
+            int numDocs = in.readVInt();
+            IntArrayList contextDocIds = new IntArrayList(numDocs);
+            for (int j = 0; j < numDocs; j++) {
+                contextDocIds.add(in.readVInt());
+            }
+            docIds[i] = contextDocIds;
+        }
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeVInt(contextIds.length);
+        for (int i = 0; i < contextIds.length; i++) {
+            out.writeLong(contextIds[i]);
+            IntArrayList contextDocIds = docIds[i];
+            out.writeVInt(contextDocIds.size());
+            for (int j = 0; j < contextDocIds.size(); j++) {
+                out.writeVInt(contextDocIds.get(j));
+            }
+        }
+    }
+}
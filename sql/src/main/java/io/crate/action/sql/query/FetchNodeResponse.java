@@ -0,0 +1,66 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.action.sql.query;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.search.fetch.FetchSearchResult;
+import org.elasticsearch.transport.TransportResponse;
+
+import java.io.IOException;
+
+/**
+ * the {@link FetchSearchResult}s of a {@link FetchNodeRequest},
+ * in the same order as the contexts of the request
+ */
+public class FetchNodeResponse extends TransportResponse {
+
+    private FetchSearchResult[] results;
+
+    public FetchNodeResponse() {}
+
+    public FetchNodeResponse(FetchSearchResult[] results) {
+        this.results = results;
+    }
+
+    public FetchSearchResult[] results() {
+        return results;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        results = new FetchSearchResult[in.readVInt()];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = FetchSearchResult.readFetchSearchResult(in);
+        }
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeVInt(results.length);
+        for (FetchSearchResult result : results) {
+            result.writeTo(out);
+        }
+    }
+}
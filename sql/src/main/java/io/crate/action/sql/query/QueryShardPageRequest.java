@@ -0,0 +1,90 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.action.sql.query;
+
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+
+/**
+ * request to query the next page of a search context which has been created
+ * by a {@link QueryShardRequest} with <code>keepContextAlive</code> set.
+ *
+ * The shard continues after the last of its documents which has been emitted by the
+ * previous pages instead of collecting and skipping all of them again.
+ */
+public class QueryShardPageRequest extends ActionRequest<QueryShardPageRequest> {
+
+    private long contextId;
+    private int consumed;
+    private int size;
+
+    public QueryShardPageRequest() {}
+
+    /**
+     * @param contextId the id of the search context of the shard
+     * @param consumed the number of documents of the previous page of this shard
+     *                 which have been emitted (or skipped by the offset)
+     * @param size the number of documents to query
+     */
+    public QueryShardPageRequest(long contextId, int consumed, int size) {
+        this.contextId = contextId;
+        this.consumed = consumed;
+        this.size = size;
+    }
+
+    @Override
+    public ActionRequestValidationException validate() {
+        return null;
+    }
+
+    public long contextId() {
+        return contextId;
+    }
+
+    public int consumed() {
+        return consumed;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        contextId = in.readLong();
+        consumed = in.readVInt();
+        size = in.readVInt();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeLong(contextId);
+        out.writeVInt(consumed);
+        out.writeVInt(size);
+    }
+}
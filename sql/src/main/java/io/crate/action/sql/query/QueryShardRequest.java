@@ -46,6 +46,7 @@ public class QueryShardRequest extends ActionRequest<QueryShardRequest> {
     private int offset;
     private WhereClause whereClause;
     private List<ReferenceInfo> partitionBy;
+    private boolean keepContextAlive;
 
     public QueryShardRequest() {}
 
@@ -59,6 +60,24 @@ public class QueryShardRequest extends ActionRequest<QueryShardRequest> {
                              int offset,
                              WhereClause whereClause,
                              List<ReferenceInfo> partitionBy) {
+        this(index, shard, outputs, orderBy, reverseFlags, nullsFirst, limit, offset, whereClause, partitionBy, false);
+    }
+
+    /**
+     * @param keepContextAlive if true the search context isn't released after the fetch phase
+     *                         so that further pages can be queried using {@link QueryShardPageRequest}s
+     */
+    public QueryShardRequest(String index,
+                             int shard,
+                             List<? extends Symbol> outputs,
+                             List<Symbol> orderBy,
+                             boolean[] reverseFlags,
+                             Boolean[] nullsFirst,
+                             int limit,
+                             int offset,
+                             WhereClause whereClause,
+                             List<ReferenceInfo> partitionBy,
+                             boolean keepContextAlive) {
         this.index = index;
         this.shard = shard;
         this.outputs = outputs;
@@ -69,6 +88,7 @@ public class QueryShardRequest extends ActionRequest<QueryShardRequest> {
         this.offset = offset;
         this.whereClause = whereClause;
         this.partitionBy = partitionBy;
+        this.keepContextAlive = keepContextAlive;
     }
 
 
@@ -120,6 +140,7 @@ public class QueryShardRequest extends ActionRequest<QueryShardRequest> {
             referenceInfo.readFrom(in);
             partitionBy.add(referenceInfo);
         }
+        keepContextAlive = in.readBoolean();
     }
 
     @Override
@@ -157,6 +178,7 @@ public class QueryShardRequest extends ActionRequest<QueryShardRequest> {
         for (ReferenceInfo referenceInfo : partitionBy) {
             referenceInfo.writeTo(out);
         }
+        out.writeBoolean(keepContextAlive);
     }
 
     public String index() {
@@ -199,6 +221,10 @@ public class QueryShardRequest extends ActionRequest<QueryShardRequest> {
         return partitionBy;
     }
 
+    public boolean keepContextAlive() {
+        return keepContextAlive;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -206,6 +232,7 @@ public class QueryShardRequest extends ActionRequest<QueryShardRequest> {
 
         QueryShardRequest request = (QueryShardRequest) o;
 
+        if (keepContextAlive != request.keepContextAlive) return false;
         if (limit != request.limit) return false;
         if (offset != request.offset) return false;
         if (!index.equals(request.index)) return false;
@@ -232,6 +259,7 @@ public class QueryShardRequest extends ActionRequest<QueryShardRequest> {
         result = 31 * result + offset;
         result = 31 * result + whereClause.hashCode();
         result = 31 * result + partitionBy.hashCode();
+        result = 31 * result + (keepContextAlive ? 1 : 0);
         return result;
     }
 }
@@ -38,6 +38,8 @@ import java.util.concurrent.Executor;
 public class TransportQueryShardAction {
 
     private final String transportAction = "crate/sql/shard/query";
+    private final String pageTransportAction = "crate/sql/shard/query/page";
+    private final String fetchTransportAction = "crate/sql/node/fetch";
     private final static String executorName = ThreadPool.Names.SEARCH;
     private final ClusterService clusterService;
     private final Executor executor;
@@ -54,12 +56,68 @@ public class TransportQueryShardAction {
         this.clusterService = clusterService;
         executor = threadPool.executor(executorName);
         transportService.registerHandler(transportAction, new TransportHandler());
+        transportService.registerHandler(pageTransportAction, new PageTransportHandler());
+        transportService.registerHandler(fetchTransportAction, new FetchTransportHandler());
     }
 
     public void execute(String node, QueryShardRequest request, ActionListener<QuerySearchResult> listener) {
         new AsyncAction(node, request, listener).start();
     }
 
+    /**
+     * query the next page of a search context which has been kept alive on the given node
+     */
+    public void executePage(String node, final QueryShardPageRequest request, final ActionListener<QuerySearchResult> listener) {
+        ClusterState clusterState = clusterService.state();
+        if (node.equals("_local") || node.equals(clusterState.nodes().localNodeId())) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    pageOperation(request, listener);
+                }
+            });
+        } else {
+            transportService.sendRequest(
+                    clusterState.nodes().get(node),
+                    pageTransportAction,
+                    request,
+                    new DefaultTransportResponseHandler<QuerySearchResult>(listener, executorName) {
+                        @Override
+                        public QuerySearchResult newInstance() {
+                            return new QuerySearchResult();
+                        }
+                    }
+            );
+        }
+    }
+
+    /**
+     * fetch the documents of all search contexts the request refers to from the given node
+     */
+    public void executeFetch(String node, final FetchNodeRequest request, final ActionListener<FetchNodeResponse> listener) {
+        ClusterState clusterState = clusterService.state();
+        if (node.equals("_local") || node.equals(clusterState.nodes().localNodeId())) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    nodeFetchOperation(request, listener);
+                }
+            });
+        } else {
+            transportService.sendRequest(
+                    clusterState.nodes().get(node),
+                    fetchTransportAction,
+                    request,
+                    new DefaultTransportResponseHandler<FetchNodeResponse>(listener, executorName) {
+                        @Override
+                        public FetchNodeResponse newInstance() {
+                            return new FetchNodeResponse();
+                        }
+                    }
+            );
+        }
+    }
+
     private void shardOperation(QueryShardRequest request, ActionListener<QuerySearchResult> listener) {
         try {
             QuerySearchResult querySearchResult = searchService.executeQueryPhase(request);
@@ -69,6 +127,22 @@ public class TransportQueryShardAction {
         }
     }
 
+    private void pageOperation(QueryShardPageRequest request, ActionListener<QuerySearchResult> listener) {
+        try {
+            listener.onResponse(searchService.executeQueryPhase(request));
+        } catch (Exception e) {
+            listener.onFailure(e);
+        }
+    }
+
+    private void nodeFetchOperation(FetchNodeRequest request, ActionListener<FetchNodeResponse> listener) {
+        try {
+            listener.onResponse(searchService.executeFetchPhase(request));
+        } catch (Exception e) {
+            listener.onFailure(e);
+        }
+    }
+
     private class AsyncAction {
         private final String nodeId;
         private final QueryShardRequest request;
@@ -125,4 +199,42 @@ public class TransportQueryShardAction {
             return executorName;
         }
     }
+
+    private class PageTransportHandler extends BaseTransportRequestHandler<QueryShardPageRequest> {
+
+        @Override
+        public QueryShardPageRequest newInstance() {
+            return new QueryShardPageRequest();
+        }
+
+        @Override
+        public void messageReceived(QueryShardPageRequest request, TransportChannel channel) throws Exception {
+            ActionListener<QuerySearchResult> listener = ResponseForwarder.forwardTo(channel);
+            pageOperation(request, listener);
+        }
+
+        @Override
+        public String executor() {
+            return executorName;
+        }
+    }
+
+    private class FetchTransportHandler extends BaseTransportRequestHandler<FetchNodeRequest> {
+
+        @Override
+        public FetchNodeRequest newInstance() {
+            return new FetchNodeRequest();
+        }
+
+        @Override
+        public void messageReceived(FetchNodeRequest request, TransportChannel channel) throws Exception {
+            ActionListener<FetchNodeResponse> listener = ResponseForwarder.forwardTo(channel);
+            nodeFetchOperation(request, listener);
+        }
+
+        @Override
+        public String executor() {
+            return executorName;
+        }
+    }
 }
@@ -27,6 +27,7 @@ import com.google.common.collect.*;
 import io.crate.PartitionName;
 import io.crate.exceptions.UnsupportedFeatureException;
 import io.crate.metadata.*;
+import io.crate.metadata.doc.DocTableInfo;
 import io.crate.metadata.table.TableInfo;
 import io.crate.operation.aggregation.impl.CollectSetAggregation;
 import io.crate.operation.operator.*;
@@ -499,10 +500,22 @@ abstract class DataStatementAnalyzer<T extends AbstractDataAnalyzedStatement> ex
         EvaluatingNormalizer normalizer =
                 new EvaluatingNormalizer(functions, RowGranularity.PARTITION, partitionReferenceResolver);
 
+        List<PartitionName> partitions = table.partitions();
+        if (table instanceof DocTableInfo) {
+            // only evaluate the query for partitions which can match the conditions on partition columns
+            List<PartitionName> candidates = ((DocTableInfo) table).partitionIndex().candidates(whereClause.query());
+            if (candidates != null) {
+                if (candidates.isEmpty()) {
+                    return WhereClause.NO_MATCH;
+                }
+                partitions = candidates;
+            }
+        }
+
         Symbol normalized = null;
         Map<Symbol, List<Literal>> queryPartitionMap = new HashMap<>();
 
-        for (PartitionName partitionName : table.partitions()) {
+        for (PartitionName partitionName : partitions) {
             for (PartitionExpression partitionExpression : partitionReferenceResolver.expressions()) {
                 partitionExpression.setNextRow(partitionName);
             }
@@ -19,31 +19,20 @@
  * software solely pursuant to the terms of the relevant commercial agreement.
  */
 
-package io.crate.core.collections;
+package io.crate.exceptions;
 
-import java.util.NoSuchElementException;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.Locale;
 
-public class NonBlockingArrayQueue<E> extends ArrayBlockingQueue<E> implements BlockingQueue<E> {
-    public NonBlockingArrayQueue(int capacity) {
-        super(capacity);
-        assert capacity > 0;
+public class CursorUnknownException extends ResourceUnknownException {
+
+    public CursorUnknownException(String cursorId) {
+        super(String.format(Locale.ENGLISH,
+                "Cursor '%s' doesn't exist. It has either expired, been consumed completely or was opened on another node",
+                cursorId));
     }
 
     @Override
-    public boolean offer(E e) {
-        while (true) {
-            if (!super.offer(e)) {
-                try {
-                    super.remove();
-                } catch (NoSuchElementException ex) {
-                    // race condition, queue was already empty... ignore
-                }
-            } else {
-                break;
-            }
-        }
-        return true;
+    public int errorCode() {
+        return 7;
     }
 }
@@ -21,16 +21,32 @@
 
 package io.crate.executor;
 
+import javax.annotation.Nullable;
+
 public class QueryResult extends TaskResult {
 
     private final Object[][] rows;
+    private final Cursor cursor;
 
     public QueryResult(Object[][] rows) {
+        this(rows, null);
+    }
+
+    public QueryResult(Object[][] rows, @Nullable Cursor cursor) {
         this.rows = rows;
+        this.cursor = cursor;
     }
 
     @Override
     public Object[][] rows() {
         return rows;
     }
+
+    /**
+     * @return the cursor to query the next page of the result or null if there are no further pages
+     */
+    @Nullable
+    public Cursor cursor() {
+        return cursor;
+    }
 }
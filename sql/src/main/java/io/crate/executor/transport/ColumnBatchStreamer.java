@@ -0,0 +1,250 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.executor.transport;
+
+import io.crate.Streamer;
+import io.crate.types.DataTypes;
+import org.apache.lucene.util.ByteBlockPool;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefHash;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+
+/**
+ * Serializes rows column by column instead of row by row.
+ *
+ * The encoding of a column is chosen by its streamer:
+ * <ul>
+ *     <li>long, timestamp, integer and double columns are written as a null bitmap
+ *         followed by the packed non-null values</li>
+ *     <li>string columns are written as a null bitmap followed by the values,
+ *         dictionary encoded if the column contains enough repeated values and
+ *         no value which is too large for the dictionary</li>
+ *     <li>all other columns are written value by value using their {@link Streamer}</li>
+ * </ul>
+ */
+public class ColumnBatchStreamer {
+
+    private static final byte GENERIC = 0;
+    private static final byte LONG = 1;
+    private static final byte INTEGER = 2;
+    private static final byte DOUBLE = 3;
+    private static final byte BYTES_REF = 4;
+    private static final byte BYTES_REF_DICTIONARY = 5;
+
+    /**
+     * the dictionary can't hold values that don't fit into a single block (incl. the 2 length bytes)
+     */
+    private static final int MAX_DICTIONARY_VALUE_LENGTH = ByteBlockPool.BYTE_BLOCK_SIZE - 2;
+
+    private ColumnBatchStreamer() {
+    }
+
+    public static void writeRows(StreamOutput out, Streamer<?>[] streamers, Object[][] rows) throws IOException {
+        out.writeVInt(rows.length);
+        for (int c = 0; c < streamers.length; c++) {
+            writeColumn(out, streamers[c], rows, c);
+        }
+    }
+
+    public static Object[][] readRows(StreamInput in, Streamer<?>[] streamers) throws IOException {
+        Object[][] rows = new Object[in.readVInt()][streamers.length];
+        for (int c = 0; c < streamers.length; c++) {
+            readColumn(in, streamers[c], rows, c);
+        }
+        return rows;
+    }
+
+    private static void writeColumn(StreamOutput out, Streamer<?> streamer, Object[][] rows, int col) throws IOException {
+        if (streamer == DataTypes.LONG || streamer == DataTypes.TIMESTAMP) {
+            out.writeByte(LONG);
+            writeNullBitmap(out, rows, col);
+            for (Object[] row : rows) {
+                if (row[col] != null) {
+                    out.writeLong(((Number) row[col]).longValue());
+                }
+            }
+        } else if (streamer == DataTypes.INTEGER) {
+            out.writeByte(INTEGER);
+            writeNullBitmap(out, rows, col);
+            for (Object[] row : rows) {
+                if (row[col] != null) {
+                    out.writeInt(((Number) row[col]).intValue());
+                }
+            }
+        } else if (streamer == DataTypes.DOUBLE) {
+            out.writeByte(DOUBLE);
+            writeNullBitmap(out, rows, col);
+            for (Object[] row : rows) {
+                if (row[col] != null) {
+                    out.writeDouble(((Number) row[col]).doubleValue());
+                }
+            }
+        } else if (streamer == DataTypes.STRING) {
+            writeBytesRefColumn(out, rows, col);
+        } else {
+            out.writeByte(GENERIC);
+            for (Object[] row : rows) {
+                streamer.writeValueTo(out, row[col]);
+            }
+        }
+    }
+
+    private static void writeBytesRefColumn(StreamOutput out, Object[][] rows, int col) throws IOException {
+        for (Object[] row : rows) {
+            if (row[col] != null && ((BytesRef) row[col]).length > MAX_DICTIONARY_VALUE_LENGTH) {
+                writePlainBytesRefColumn(out, rows, col);
+                return;
+            }
+        }
+
+        BytesRefHash dictionary = new BytesRefHash();
+        int[] ords = new int[rows.length];
+        int numValues = 0;
+        for (Object[] row : rows) {
+            if (row[col] != null) {
+                int ord = dictionary.add((BytesRef) row[col]);
+                ords[numValues++] = ord < 0 ? -ord - 1 : ord;
+            }
+        }
+
+        // only worth it if every dictionary entry is used at least twice on average
+        if (dictionary.size() * 2 <= numValues) {
+            out.writeByte(BYTES_REF_DICTIONARY);
+            writeNullBitmap(out, rows, col);
+            out.writeVInt(dictionary.size());
+            BytesRef spare = new BytesRef();
+            for (int i = 0; i < dictionary.size(); i++) {
+                out.writeBytesRef(dictionary.get(i, spare));
+            }
+            for (int i = 0; i < numValues; i++) {
+                out.writeVInt(ords[i]);
+            }
+        } else {
+            writePlainBytesRefColumn(out, rows, col);
+        }
+    }
+
+    private static void writePlainBytesRefColumn(StreamOutput out, Object[][] rows, int col) throws IOException {
+        out.writeByte(BYTES_REF);
+        writeNullBitmap(out, rows, col);
+        for (Object[] row : rows) {
+            if (row[col] != null) {
+                out.writeBytesRef((BytesRef) row[col]);
+            }
+        }
+    }
+
+    private static void readColumn(StreamInput in, Streamer<?> streamer, Object[][] rows, int col) throws IOException {
+        byte encoding = in.readByte();
+        if (encoding == GENERIC) {
+            for (Object[] row : rows) {
+                row[col] = streamer.readValueFrom(in);
+            }
+            return;
+        }
+
+        byte[] nulls = readNullBitmap(in, rows.length);
+        switch (encoding) {
+            case LONG:
+                for (int r = 0; r < rows.length; r++) {
+                    if (!isNull(nulls, r)) {
+                        rows[r][col] = in.readLong();
+                    }
+                }
+                break;
+            case INTEGER:
+                for (int r = 0; r < rows.length; r++) {
+                    if (!isNull(nulls, r)) {
+                        rows[r][col] = in.readInt();
+                    }
+                }
+                break;
+            case DOUBLE:
+                for (int r = 0; r < rows.length; r++) {
+                    if (!isNull(nulls, r)) {
+                        rows[r][col] = in.readDouble();
+                    }
+                }
+                break;
+            case BYTES_REF:
+                for (int r = 0; r < rows.length; r++) {
+                    if (!isNull(nulls, r)) {
+                        rows[r][col] = in.readBytesRef();
+                    }
+                }
+                break;
+            case BYTES_REF_DICTIONARY:
+                BytesRef[] dictionary = new BytesRef[in.readVInt()];
+                for (int i = 0; i < dictionary.length; i++) {
+                    dictionary[i] = in.readBytesRef();
+                }
+                for (int r = 0; r < rows.length; r++) {
+                    if (!isNull(nulls, r)) {
+                        rows[r][col] = dictionary[in.readVInt()];
+                    }
+                }
+                break;
+            default:
+                throw new IOException("unknown column encoding " + encoding);
+        }
+    }
+
+    /**
+     * write a bitmap with a bit set for every row whose value is null.
+     * If the column contains no nulls, only a single byte is written.
+     */
+    private static void writeNullBitmap(StreamOutput out, Object[][] rows, int col) throws IOException {
+        byte[] nulls = null;
+        for (int r = 0; r < rows.length; r++) {
+            if (rows[r][col] == null) {
+                if (nulls == null) {
+                    nulls = new byte[(rows.length + 7) >>> 3];
+                }
+                nulls[r >>> 3] |= 1 << (r & 7);
+            }
+        }
+        if (nulls == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            out.writeBytes(nulls);
+        }
+    }
+
+    @Nullable
+    private static byte[] readNullBitmap(StreamInput in, int numRows) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        byte[] nulls = new byte[(numRows + 7) >>> 3];
+        in.readBytes(nulls, 0, nulls.length);
+        return nulls;
+    }
+
+    private static boolean isNull(@Nullable byte[] nulls, int row) {
+        return nulls != null && (nulls[row >>> 3] & (1 << (row & 7))) != 0;
+    }
+}
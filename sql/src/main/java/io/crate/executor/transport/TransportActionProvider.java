@@ -32,6 +32,7 @@ import org.elasticsearch.action.admin.indices.settings.put.TransportUpdateSettin
 import org.elasticsearch.action.admin.indices.template.delete.TransportDeleteIndexTemplateAction;
 import org.elasticsearch.action.admin.indices.template.get.TransportGetIndexTemplatesAction;
 import org.elasticsearch.action.admin.indices.template.put.TransportPutIndexTemplateAction;
+import org.elasticsearch.action.bulk.BulkRetryCoordinator;
 import org.elasticsearch.action.bulk.TransportShardBulkAction;
 import org.elasticsearch.action.bulk.TransportShardBulkActionDelegate;
 import org.elasticsearch.action.bulk.TransportShardBulkActionDelegateImpl;
@@ -73,6 +74,7 @@ public class TransportActionProvider {
     private final Provider<TransportPutMappingAction> transportPutMappingActionProvider;
     private final Provider<TransportRefreshAction> transportRefreshActionProvider;
     private final Provider<TransportUpdateSettingsAction> transportUpdateSettingsActionProvider;
+    private final Provider<BulkRetryCoordinator> bulkRetryCoordinatorProvider;
 
     @Inject
     public TransportActionProvider(Provider<TransportShardBulkAction> transportShardBulkActionProvider,
@@ -96,7 +98,8 @@ public class TransportActionProvider {
                                    Provider<SearchServiceTransportAction> searchServiceTransportActionProvider,
                                    Provider<TransportPutMappingAction> transportPutMappingActionProvider,
                                    Provider<TransportRefreshAction> transportRefreshActionProvider,
-                                   Provider<TransportUpdateSettingsAction> transportUpdateSettingsActionProvider) {
+                                   Provider<TransportUpdateSettingsAction> transportUpdateSettingsActionProvider,
+                                   Provider<BulkRetryCoordinator> bulkRetryCoordinatorProvider) {
         this.transportCreateIndexActionProvider = transportCreateIndexActionProvider;
         this.transportDeleteIndexActionProvider = transportDeleteIndexActionProvider;
         this.transportPutIndexTemplateActionProvider = transportPutIndexTemplateActionProvider;
@@ -119,6 +122,7 @@ public class TransportActionProvider {
         this.transportPutMappingActionProvider = transportPutMappingActionProvider;
         this.transportRefreshActionProvider = transportRefreshActionProvider;
         this.transportUpdateSettingsActionProvider = transportUpdateSettingsActionProvider;
+        this.bulkRetryCoordinatorProvider = bulkRetryCoordinatorProvider;
     }
 
 
@@ -178,6 +182,10 @@ public class TransportActionProvider {
         return new TransportShardBulkActionDelegateImpl(transportShardBulkActionProvider.get());
     }
 
+    public BulkRetryCoordinator bulkRetryCoordinator() {
+        return bulkRetryCoordinatorProvider.get();
+    }
+
     public TransportCollectNodeAction transportCollectNodeAction() {
         return transportCollectNodeActionProvider.get();
     }
@@ -254,6 +254,7 @@ public class TransportExecutor implements Executor {
                 context.addTask(new ESBulkIndexTask(clusterService, settings,
                         transportActionProvider.transportShardBulkAction(),
                         transportActionProvider.transportCreateIndexAction(),
+                        transportActionProvider.bulkRetryCoordinator(),
                         node));
             } else {
                 context.addTask(new ESIndexTask(
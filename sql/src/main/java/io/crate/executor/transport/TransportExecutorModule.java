@@ -25,6 +25,7 @@ import io.crate.action.sql.query.CrateSearchService;
 import io.crate.action.sql.query.TransportQueryShardAction;
 import io.crate.executor.Executor;
 import io.crate.executor.transport.merge.TransportMergeNodeAction;
+import org.elasticsearch.action.bulk.BulkRetryCoordinator;
 import org.elasticsearch.common.inject.AbstractModule;
 import org.elasticsearch.search.SearchService;
 
@@ -37,6 +38,7 @@ public class TransportExecutorModule extends AbstractModule {
         bind(TransportCollectNodeAction.class).asEagerSingleton();
         bind(TransportMergeNodeAction.class).asEagerSingleton();
         bind(TransportQueryShardAction.class).asEagerSingleton();
+        bind(BulkRetryCoordinator.class).asEagerSingleton();
 
         bind(SearchService.class).to(CrateSearchService.class).asEagerSingleton();
     }
@@ -25,6 +25,7 @@ import com.google.common.base.Optional;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Striped;
 import io.crate.Streamer;
 import io.crate.breaker.RamAccountingContext;
 import io.crate.executor.transport.merge.NodeMergeResponse;
@@ -33,18 +34,30 @@ import io.crate.operation.DownstreamOperationFactory;
 import io.crate.operation.collect.StatsTables;
 import io.crate.planner.node.PlanNodeStreamerVisitor;
 import io.crate.planner.node.dql.MergeNode;
+import org.elasticsearch.ElasticsearchTimeoutException;
 import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.stream.BytesStreamInput;
 import org.elasticsearch.common.io.stream.HandlesStreamInput;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.io.IOException;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
 
 
 /**
@@ -56,31 +69,55 @@ import java.util.*;
  *
  * in case of this race condition the rows that are sent from the collector cannot be de-serialized immediately
  * so they are placed into a memoryStream and later read.
+ * The buffered bytes are accounted for by the circuit breaker.
+ * Buffered pages are only acknowledged once the context has been created. Upstreams send their next page
+ * after the previous one was acknowledged, so there is at most one buffered page per upstream and context.
  *
  * this class is also responsible for this lazy-de-serialization.
  *
+ * Looking up an existing context doesn't lock, only the race between creating a context and
+ * buffering early arrived rows is guarded by a lock striped by the contextId.
+ *
+ * Contexts which didn't receive anything for longer than the keepAlive and are waiting for an upstream
+ * node that left the cluster are failed by {@link #reapOrphanedContexts(DiscoveryNodes)}, as are
+ * buffered rows of contexts which haven't been created within the keepAlive.
+ *
  * the merge itself is done inside {@link DownstreamOperationContext}
  */
 public class DistributedRequestContextManager {
 
+    public static final String KEEP_ALIVE_SETTING = "distributed_merge.keep_alive";
+    public static final TimeValue DEFAULT_KEEP_ALIVE = TimeValue.timeValueMinutes(5);
+    private static final int LOCK_STRIPES = 64;
+
     private final ESLogger logger = Loggers.getLogger(getClass());
 
-    private final Map<UUID, DownstreamOperationContext> activeMergeOperations = new HashMap<>();
-    private final Map<UUID, List<BytesReference>> unreadStreams = new HashMap<>();
-    private final Set<UUID> unreadFailures = new HashSet<>();
-    private final Object lock = new Object();
+    private final ConcurrentMap<UUID, DownstreamOperationContext> activeMergeOperations =
+            ConcurrentCollections.newConcurrentMap();
+    private final ConcurrentMap<UUID, PendingContext> pendingContexts = ConcurrentCollections.newConcurrentMap();
+    private final Striped<Lock> locks = Striped.lock(LOCK_STRIPES);
     private final DownstreamOperationFactory downstreamOperationFactory;
     private final PlanNodeStreamerVisitor planNodeStreamerVisitor;
     private final StatsTables statsTables;
     private final CircuitBreaker circuitBreaker;
+    private final long keepAliveMillis;
 
     public DistributedRequestContextManager(DownstreamOperationFactory downstreamOperationFactory,
                                             Functions functions,
                                             StatsTables statsTables,
                                             CircuitBreaker circuitBreaker) {
+        this(downstreamOperationFactory, functions, statsTables, circuitBreaker, DEFAULT_KEEP_ALIVE);
+    }
+
+    public DistributedRequestContextManager(DownstreamOperationFactory downstreamOperationFactory,
+                                            Functions functions,
+                                            StatsTables statsTables,
+                                            CircuitBreaker circuitBreaker,
+                                            TimeValue keepAlive) {
         this.downstreamOperationFactory = downstreamOperationFactory;
         this.statsTables = statsTables;
         this.circuitBreaker = circuitBreaker;
+        this.keepAliveMillis = keepAlive.millis();
         this.planNodeStreamerVisitor = new PlanNodeStreamerVisitor(functions);
     }
 
@@ -105,6 +142,7 @@ public class DistributedRequestContextManager {
                 downstreamOperationFactory.create(mergeNode, ramAccountingContext),
                 settableFuture,
                 streamerContext.inputStreamers(),
+                mergeNode.upstreamNodes(),
                 new DoneCallback() {
                     @Override
                     public void finished() {
@@ -134,52 +172,97 @@ public class DistributedRequestContextManager {
 
     /**
      * merge to rows inside the request
+     *
+     * @param listener notified once the rows have been merged. If the context doesn't exist yet
+     *                 the rows are buffered and the listener is notified once the context has been created.
      */
-    public void addToContext(DistributedResultRequest request) throws Exception {
+    public void addToContext(DistributedResultRequest request,
+                             ActionListener<DistributedResultResponse> listener) throws Exception {
         logger.trace("addToContext: hasrows: {}", request.rowsRead());
         DownstreamOperationContext operationContext;
         if (request.rowsRead()) {
             operationContext = activeMergeOperations.get(request.contextId());
-            assert operationContext != null;
+            if (operationContext == null) {
+                // the context has been removed since the request was read, e.g. because it expired
+                throw new IllegalStateException(String.format(Locale.ENGLISH,
+                        "merge context %s doesn't exist anymore", request.contextId()));
+            }
             logger.trace("addToContext rowsRead: {}", operationContext);
             if (request.failure()) {
                 operationContext.addFailure(null);
             } else {
-                operationContext.add(request.rows());
+                operationContext.add(request.rows(), request.lastPage());
             }
             logger.trace("addToContext rowsRead succes");
+            listener.onResponse(new DistributedResultResponse());
             return;
         }
-        synchronized (lock) {
+        Lock lock = locks.get(request.contextId());
+        lock.lock();
+        try {
             operationContext = activeMergeOperations.get(request.contextId());
             logger.trace("addToContext: norows: operationContext: {} {} {}", this, request.contextId(), operationContext);
             if (operationContext == null) {
                 logger.trace("addToContext: without context norows failure: {}", request.failure());
-                assert !request.rowsRead();
+                PendingContext pendingContext = pendingContext(request.contextId());
                 if (request.failure()) {
-                    unreadFailures.add(request.contextId());
+                    pendingContext.failures++;
                     logger.error("adding unread failure from distributed result for context: ", request.contextId());
                 } else {
                     assert request.memoryStream() != null;
-                    List<BytesReference> bytesStreamOutputs = unreadStreams.get(request.contextId());
-                    if (bytesStreamOutputs == null) {
-                        bytesStreamOutputs = new ArrayList<>();
-                        unreadStreams.put(request.contextId(), bytesStreamOutputs);
-                    }
-                    bytesStreamOutputs.add(request.memoryStream().bytes());
-                }
-            } else {
-                logger.trace("addToContext: with context norows failure: {}", request.failure());
-                if (request.failure()) {
-                    operationContext.addFailure(null);
-                    logger.error("addToContext: failure in distributed result");
+                    bufferRequest(pendingContext, request, listener);
                     return;
                 }
-                logger.trace("addToContext: using memory stream: ", request.memoryStream());
-                addFromBytesReference(request.memoryStream().bytes(), operationContext);
             }
+        } finally {
+            lock.unlock();
+        }
+        if (operationContext == null) {
+            listener.onResponse(new DistributedResultResponse());
+            return;
         }
-        logger.trace("addToContext: finished");
+        logger.trace("addToContext: with context norows failure: {}", request.failure());
+        if (request.failure()) {
+            operationContext.addFailure(null);
+            logger.error("addToContext: failure in distributed result");
+        } else {
+            logger.trace("addToContext: using memory stream: ", request.memoryStream());
+            addFromBytesReference(request.memoryStream().bytes(), request.lastPage(), operationContext);
+            logger.trace("addToContext: finished");
+        }
+        listener.onResponse(new DistributedResultResponse());
+    }
+
+    /**
+     * must be called while holding the lock of the contextId
+     */
+    private PendingContext pendingContext(UUID contextId) {
+        PendingContext pendingContext = pendingContexts.get(contextId);
+        if (pendingContext == null) {
+            pendingContext = new PendingContext();
+            pendingContexts.put(contextId, pendingContext);
+        }
+        pendingContext.lastActivity = System.currentTimeMillis();
+        return pendingContext;
+    }
+
+    /**
+     * must be called while holding the lock of the contextId
+     */
+    private void bufferRequest(PendingContext pendingContext,
+                               DistributedResultRequest request,
+                               ActionListener<DistributedResultResponse> listener) {
+        long bytes = request.memoryStream().size();
+        try {
+            circuitBreaker.addEstimateBytesAndMaybeBreak(bytes, "distributed result: " + request.contextId());
+        } catch (CircuitBreakingException e) {
+            // the rows of this upstream are lost, so the merge must fail once the context is created
+            pendingContext.failures++;
+            throw e;
+        }
+        pendingContext.bytes += bytes;
+        pendingContext.requests.add(request);
+        pendingContext.listeners.add(listener);
     }
 
     private SettableFuture<Object[][]> wrapActionListener(final Streamer<?>[] streamers,
@@ -199,25 +282,47 @@ public class DistributedRequestContextManager {
         return settableFuture;
     }
 
+    /**
+     * replays the buffered results, registers the context and acknowledges the buffered pages.
+     *
+     * The buffered pages are replayed while holding the lock and before the context becomes
+     * visible, so that a page arriving concurrently can't be added (and possibly finish the context)
+     * before an earlier one.
+     */
     private void put(UUID contextId, DownstreamOperationContext downstreamOperationContext) {
-        List<BytesReference> bytesReferences;
-        synchronized (lock) {
+        PendingContext pendingContext;
+        Lock lock = locks.get(contextId);
+        lock.lock();
+        try {
             logger.trace("put: {} {}", contextId, downstreamOperationContext);
-            activeMergeOperations.put(contextId, downstreamOperationContext);
-            bytesReferences = unreadStreams.remove(contextId);
-            if (unreadFailures.contains(contextId)) {
-                unreadFailures.remove(contextId);
-                downstreamOperationContext.addFailure(null);
+            pendingContext = pendingContexts.remove(contextId);
+            if (pendingContext != null) {
+                circuitBreaker.addWithoutBreaking(-pendingContext.bytes);
+                for (int i = 0; i < pendingContext.failures; i++) {
+                    downstreamOperationContext.addFailure(null);
+                }
+                for (DistributedResultRequest request : pendingContext.requests) {
+                    addFromBytesReference(request.memoryStream().bytes(), request.lastPage(), downstreamOperationContext);
+                }
+            }
+            // all upstreams might have finished with the buffered results already
+            if (!downstreamOperationContext.isFinished()) {
+                activeMergeOperations.put(contextId, downstreamOperationContext);
             }
+        } finally {
+            lock.unlock();
         }
-        if (bytesReferences != null) {
-            for (BytesReference bytes : bytesReferences) {
-                addFromBytesReference(bytes, downstreamOperationContext);
+        if (pendingContext != null) {
+            // upstreams will send their next page now
+            for (ActionListener<DistributedResultResponse> listener : pendingContext.listeners) {
+                listener.onResponse(new DistributedResultResponse());
             }
         }
     }
 
-    private void addFromBytesReference(BytesReference bytesReference, DownstreamOperationContext ctx) {
+    private void addFromBytesReference(BytesReference bytesReference,
+                                       boolean lastPage,
+                                       DownstreamOperationContext ctx) {
         // bytesReference must be wrapped into HandlesStreamInput because it has a different readString()
         // implementation than BytesStreamInput alone.
         // and the memoryOutputStream originates from a HandlesStreamOutput.
@@ -231,21 +336,138 @@ public class DistributedRequestContextManager {
             return;
         }
         assert rows != null;
-        ctx.add(rows);
+        ctx.add(rows, lastPage);
     }
 
     public void setFailure(UUID contextId) {
-        synchronized (lock) {
-            DownstreamOperationContext downstreamOperationContext = activeMergeOperations.get(contextId);
+        DownstreamOperationContext downstreamOperationContext;
+        Lock lock = locks.get(contextId);
+        lock.lock();
+        try {
+            downstreamOperationContext = activeMergeOperations.get(contextId);
             if (downstreamOperationContext == null) {
-                unreadFailures.add(contextId);
+                pendingContext(contextId).failures++;
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        downstreamOperationContext.addFailure(null);
+    }
+
+    /**
+     * fail contexts that didn't receive anything within the keepAlive and wait for an upstream
+     * node which isn't part of the cluster anymore. Contexts whose upstreams are unknown are failed
+     * once they didn't receive anything within the keepAlive.
+     *
+     * Buffered rows of contexts that haven't been created within the keepAlive are dropped,
+     * those are left behind if the creator of the context died.
+     */
+    public void reapOrphanedContexts(DiscoveryNodes nodes) {
+        reapOrphanedContexts(nodes, System.currentTimeMillis());
+    }
+
+    void reapOrphanedContexts(DiscoveryNodes nodes, long now) {
+        long expiredBefore = now - keepAliveMillis;
+        for (Map.Entry<UUID, DownstreamOperationContext> entry : activeMergeOperations.entrySet()) {
+            DownstreamOperationContext context = entry.getValue();
+            if (context.lastActivity() >= expiredBefore) {
+                continue;
+            }
+            String reason;
+            if (context.upstreamNodes().isEmpty()) {
+                reason = "";
             } else {
-                downstreamOperationContext.addFailure(null);
+                String missingNode = missingUpstreamNode(context.upstreamNodes(), nodes);
+                if (missingNode == null) {
+                    // the upstreams are still alive and might just be slow
+                    continue;
+                }
+                reason = String.format(Locale.ENGLISH, " and upstream node %s left the cluster", missingNode);
+            }
+            logger.debug("expiring merge context {} that didn't receive rows for {}ms{}",
+                    entry.getKey(), keepAliveMillis, reason);
+            context.expire(new ElasticsearchTimeoutException(String.format(Locale.ENGLISH,
+                    "merge context %s didn't receive rows for %dms%s", entry.getKey(), keepAliveMillis, reason)));
+        }
+        for (Map.Entry<UUID, PendingContext> entry : pendingContexts.entrySet()) {
+            if (entry.getValue().lastActivity >= expiredBefore) {
+                continue;
+            }
+            boolean dropped = false;
+            Lock lock = locks.get(entry.getKey());
+            lock.lock();
+            try {
+                if (entry.getValue().lastActivity < expiredBefore
+                    && pendingContexts.remove(entry.getKey(), entry.getValue())) {
+                    logger.debug("dropping {} buffered results for missing merge context {}",
+                            entry.getValue().requests.size(), entry.getKey());
+                    circuitBreaker.addWithoutBreaking(-entry.getValue().bytes);
+                    dropped = true;
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (dropped) {
+                // the upstreams are still waiting for the acknowledgement of their buffered page
+                ElasticsearchTimeoutException timeoutException = new ElasticsearchTimeoutException(String.format(
+                        Locale.ENGLISH, "merge context %s wasn't created within %dms", entry.getKey(), keepAliveMillis));
+                for (ActionListener<DistributedResultResponse> listener : entry.getValue().listeners) {
+                    listener.onFailure(timeoutException);
+                }
+            }
+        }
+    }
+
+    @Nullable
+    private static String missingUpstreamNode(Set<String> upstreamNodes, DiscoveryNodes nodes) {
+        for (String nodeId : upstreamNodes) {
+            if (!nodes.nodeExists(nodeId)) {
+                return nodeId;
             }
         }
+        return null;
+    }
+
+    /**
+     * @return the number of merge contexts that are waiting for upstream results
+     */
+    public int numActiveContexts() {
+        return activeMergeOperations.size();
+    }
+
+    /**
+     * @return the number of contexts for which results arrived before the context was created
+     */
+    public int numPendingContexts() {
+        return pendingContexts.size();
+    }
+
+    /**
+     * @return the number of bytes that are buffered for contexts which don't exist yet
+     */
+    public long pendingBytes() {
+        long bytes = 0;
+        for (PendingContext pendingContext : pendingContexts.values()) {
+            bytes += pendingContext.bytes;
+        }
+        return bytes;
     }
 
     public interface DoneCallback {
         public void finished();
     }
+
+    /**
+     * results and failures received for a context that wasn't created yet,
+     * only modified while holding the lock of the contextId
+     */
+    private static class PendingContext {
+
+        private final List<DistributedResultRequest> requests = new ArrayList<>();
+        private final List<ActionListener<DistributedResultResponse>> listeners = new ArrayList<>();
+        private int failures = 0;
+        private volatile long bytes = 0;
+        private volatile long lastActivity;
+    }
 }
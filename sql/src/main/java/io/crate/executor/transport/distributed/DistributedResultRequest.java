@@ -23,6 +23,7 @@ package io.crate.executor.transport.distributed;
 
 import com.google.common.base.Optional;
 import io.crate.Streamer;
+import io.crate.executor.transport.ColumnBatchStreamer;
 import org.elasticsearch.common.io.Streams;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -44,6 +45,12 @@ public class DistributedResultRequest extends TransportRequest {
     // exception and the error handling in the DistributedMergeTask can be simplified.
     private boolean failure = false;
 
+    /**
+     * the rows of an upstream may be sent in several pages,
+     * the last one marks the upstream as finished.
+     */
+    private boolean lastPage = true;
+
     public DistributedResultRequest(DistributedRequestContextManager contextManager) {
         this.contextManager = contextManager;
     }
@@ -82,19 +89,11 @@ public class DistributedResultRequest extends TransportRequest {
             failure= true;
             return;
         }
+        lastPage = in.readBoolean();
 
         final Optional<Streamer<?>[]> optStreamer = contextManager.getStreamer(contextId);
         if (optStreamer.isPresent()) {
-            final Streamer<?>[] streamers = optStreamer.get();
-            final int numColumns = streamers.length;
-
-            rows = new Object[in.readVInt()][];
-            for (int r = 0; r < rows.length; r++) {
-                rows[r] = new Object[numColumns];
-                for (int c = 0; c < numColumns; c++) {
-                    rows[r][c] = streamers[c].readValueFrom(in);
-                }
-            }
+            rows = ColumnBatchStreamer.readRows(in, optStreamer.get());
         } else {
             memoryStream = new BytesStreamOutput();
             Streams.copy(in, memoryStream);
@@ -102,16 +101,7 @@ public class DistributedResultRequest extends TransportRequest {
     }
 
     public static Object[][] readRemaining(Streamer<?>[] streamers, StreamInput input) throws IOException {
-        final int numColumns = streamers.length;
-        final Object[][] rows = new Object[input.readVInt()][];
-        for (int r = 0; r < rows.length; r++) {
-            rows[r] = new Object[numColumns];
-            for (int c = 0; c < numColumns; c++) {
-                rows[r][c] = streamers[c].readValueFrom(input);
-            }
-        }
-
-        return rows;
+        return ColumnBatchStreamer.readRows(input, streamers);
     }
 
     @Override
@@ -125,16 +115,18 @@ public class DistributedResultRequest extends TransportRequest {
             return;
         }
         out.writeBoolean(false);
+        out.writeBoolean(lastPage);
 
         assert streamers != null;
-        final int numColumns = streamers.length;
+        ColumnBatchStreamer.writeRows(out, streamers, rows);
+    }
 
-        out.writeVInt(rows.length);
-        for (Object[] row : rows) {
-            for (int i = 0; i < numColumns; i++) {
-                streamers[i].writeValueTo(out, row[i]);
-            }
-        }
+    public void lastPage(boolean lastPage) {
+        this.lastPage = lastPage;
+    }
+
+    public boolean lastPage() {
+        return lastPage;
     }
 
     public void failure(boolean failure) {
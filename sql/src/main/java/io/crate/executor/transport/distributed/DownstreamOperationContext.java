@@ -31,6 +31,8 @@ import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
 
 import javax.annotation.Nullable;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class DownstreamOperationContext {
@@ -42,12 +44,16 @@ public class DownstreamOperationContext {
     private final SettableFuture<Object[][]> listener;
     private final Streamer<?>[] streamers;
     private final DistributedRequestContextManager.DoneCallback doneCallback;
+    private final Set<String> upstreamNodes;
     private boolean needsMoreRows = true;
     private final Object lock = new Object();
+    private final AtomicBoolean finished = new AtomicBoolean(false);
+    private volatile long lastActivity = System.currentTimeMillis();
 
     public DownstreamOperationContext(DownstreamOperation downstreamOperation,
                                       final SettableFuture<Object[][]> listener,
                                       Streamer<?>[] streamers,
+                                      Set<String> upstreamNodes,
                                       DistributedRequestContextManager.DoneCallback doneCallback) {
         this.mergeOperationsLeft = new AtomicInteger(downstreamOperation.numUpstreams());
         this.downstreamOperation = downstreamOperation;
@@ -65,10 +71,12 @@ public class DownstreamOperationContext {
             }
         });
         this.streamers = streamers;
+        this.upstreamNodes = upstreamNodes;
         this.doneCallback = doneCallback;
     }
 
     public void addFailure(@Nullable Throwable failure) {
+        lastActivity = System.currentTimeMillis();
         if (failure != null) {
             logger.error("addFailure local", failure);
         } else {
@@ -79,15 +87,20 @@ public class DownstreamOperationContext {
             logger.trace("addFailure first: {}", firstFailure);
         } finally {
             if (mergeOperationsLeft.decrementAndGet() == 0) {
-                doneCallback.finished();
-                downstreamOperation.finished();
+                finish();
             }
         }
     }
 
-    public void add(Object[][] rows) {
+    /**
+     * add a page of rows from an upstream.
+     *
+     * @param lastPage if true the upstream has sent all of its rows
+     */
+    public void add(Object[][] rows, boolean lastPage) {
         assert rows != null;
         logger.trace("add rows.size: {}", rows.length);
+        lastActivity = System.currentTimeMillis();
         synchronized (lock) {
             if (needsMoreRows) {
                 try {
@@ -99,7 +112,43 @@ public class DownstreamOperationContext {
             }
         }
 
-        if (mergeOperationsLeft.decrementAndGet() == 0) {
+        if (lastPage && mergeOperationsLeft.decrementAndGet() == 0) {
+            finish();
+        }
+    }
+
+    /**
+     * fail and finish the context without waiting for the remaining upstreams,
+     * used if an upstream node left the cluster and the upstreams didn't send anything for too long.
+     */
+    public void expire(Throwable failure) {
+        listener.setException(failure);
+        finish();
+    }
+
+    /**
+     * @return the ids of the nodes which send results to this context, empty if unknown
+     */
+    public Set<String> upstreamNodes() {
+        return upstreamNodes;
+    }
+
+    /**
+     * @return the time in millis an upstream sent rows or a failure the last time
+     */
+    public long lastActivity() {
+        return lastActivity;
+    }
+
+    /**
+     * @return true if all upstreams have finished or the context expired
+     */
+    public boolean isFinished() {
+        return finished.get();
+    }
+
+    private void finish() {
+        if (finished.compareAndSet(false, true)) {
             doneCallback.finished();
             downstreamOperation.finished();
         }
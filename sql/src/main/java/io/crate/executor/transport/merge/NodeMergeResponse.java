@@ -22,6 +22,7 @@
 package io.crate.executor.transport.merge;
 
 import io.crate.Streamer;
+import io.crate.executor.transport.ColumnBatchStreamer;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.transport.TransportResponse;
@@ -49,28 +50,12 @@ public class NodeMergeResponse extends TransportResponse {
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
-        final int numColumns = streamers.length;
-        rows = new Object[in.readVInt()][];
-
-        for (int r = 0; r < rows.length; r++) {
-            rows[r] = new Object[numColumns];
-            for (int c = 0; c < numColumns; c++) {
-                rows[r][c] = streamers[c].readValueFrom(in);
-            }
-        }
+        rows = ColumnBatchStreamer.readRows(in, streamers);
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         super.writeTo(out);
-
-        final int numColumns = streamers.length;
-
-        out.writeVInt(rows.length);
-        for (Object[] row : rows) {
-            for (int c = 0; c < numColumns; c++) {
-                streamers[c].writeValueTo(out, row[c]);
-            }
-        }
+        ColumnBatchStreamer.writeRows(out, streamers, rows);
     }
 }
@@ -47,6 +47,7 @@ import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.*;
 
@@ -61,6 +62,7 @@ public class TransportMergeNodeAction {
     public final static String mergeRowsAction = "crate/sql/node/merge/add_rows";
     public final static String failAction = "crate/sql/node/merge/fail";
     private final static String startMergeAction = "crate/sql/node/merge/start";
+    private final static TimeValue REAP_INTERVAL = TimeValue.timeValueMinutes(1);
     private final TransportService transportService;
     private final ClusterService clusterService;
     private final PlanNodeStreamerVisitor planNodeStreamerVisitor;
@@ -99,13 +101,26 @@ public class TransportMergeNodeAction {
                         ramAccountingContext
                 );
             }
-        }, functions, statsTables, circuitBreaker);
+        }, functions, statsTables, circuitBreaker, settings.getAsTime(
+                DistributedRequestContextManager.KEEP_ALIVE_SETTING,
+                DistributedRequestContextManager.DEFAULT_KEEP_ALIVE));
+
+        threadPool.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                contextManager.reapOrphanedContexts(clusterService.state().nodes());
+            }
+        }, REAP_INTERVAL);
 
         transportService.registerHandler(startMergeAction, new StartMergeHandler());
         transportService.registerHandler(failAction, new FailureHandler(contextManager));
         transportService.registerHandler(mergeRowsAction, new DistributedResultRequestHandler(contextManager));
     }
 
+    public DistributedRequestContextManager contextManager() {
+        return contextManager;
+    }
+
     public void startMerge(String node, NodeMergeRequest request, ActionListener<NodeMergeResponse> listener) {
         logger.trace("startMerge: {}", node);
         new AsyncMergeStartAction(node, request, listener).start();
@@ -30,6 +30,7 @@ import io.crate.executor.Task;
 import io.crate.executor.TaskResult;
 import io.crate.planner.node.dml.ESIndexNode;
 import org.elasticsearch.action.admin.indices.create.TransportCreateIndexAction;
+import org.elasticsearch.action.bulk.BulkRetryCoordinator;
 import org.elasticsearch.action.bulk.BulkShardProcessor;
 import org.elasticsearch.action.bulk.TransportShardBulkAction;
 import org.elasticsearch.action.bulk.TransportShardBulkActionDelegate;
@@ -52,6 +53,7 @@ public class ESBulkIndexTask implements Task<RowCountResult> {
                            Settings settings,
                            TransportShardBulkActionDelegate transportShardBulkActionDelegate,
                            TransportCreateIndexAction transportCreateIndexAction,
+                           BulkRetryCoordinator bulkRetryCoordinator,
                            ESIndexNode node) {
         this.node = node;
         this.bulkShardProcessor = new BulkShardProcessor(
@@ -59,6 +61,7 @@ public class ESBulkIndexTask implements Task<RowCountResult> {
                 settings,
                 transportShardBulkActionDelegate,
                 transportCreateIndexAction,
+                bulkRetryCoordinator,
                 node.partitionedTable(),
                 true,
                 this.node.sourceMaps().size());
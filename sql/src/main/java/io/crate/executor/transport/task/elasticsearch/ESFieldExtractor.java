@@ -21,12 +21,16 @@
 
 package io.crate.executor.transport.task.elasticsearch;
 
+import com.google.common.collect.ImmutableSet;
 import io.crate.PartitionName;
 import io.crate.metadata.ColumnIdent;
 import io.crate.metadata.ReferenceInfo;
 import io.crate.planner.symbol.Reference;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHitField;
 
 import javax.annotation.Nullable;
 import java.util.ArrayList;
@@ -102,6 +106,49 @@ public abstract class ESFieldExtractor implements FieldExtractor<SearchHit> {
         }
     }
 
+    /**
+     * extracts the value from the doc values which were loaded during the fetch phase
+     * and falls back to the source if the shard didn't load the doc values of the column
+     */
+    public static class DocValues extends Source {
+
+        /**
+         * types whose doc values can be converted back into the column value
+         */
+        public static final ImmutableSet<DataType> SUPPORTED_TYPES = ImmutableSet.<DataType>of(
+                DataTypes.STRING,
+                DataTypes.BYTE,
+                DataTypes.SHORT,
+                DataTypes.INTEGER,
+                DataTypes.LONG,
+                DataTypes.FLOAT,
+                DataTypes.DOUBLE,
+                DataTypes.TIMESTAMP
+        );
+
+        private final String fqn;
+        private final DataType type;
+
+        public DocValues(Reference reference) {
+            super(reference.info().ident().columnIdent());
+            this.fqn = reference.info().ident().columnIdent().fqn();
+            this.type = reference.valueType();
+        }
+
+        @Override
+        public Object extract(SearchHit hit) {
+            SearchHitField field = hit.field(fqn);
+            if (field == null) {
+                return super.extract(hit);
+            }
+            List<Object> values = field.getValues();
+            if (values.isEmpty()) {
+                return null;
+            }
+            return type.value(values.get(0));
+        }
+    }
+
     public static class PartitionedByColumnExtractor extends ESFieldExtractor {
 
         private final Reference reference;
@@ -24,10 +24,14 @@ package io.crate.executor.transport.task.elasticsearch;
 import com.carrotsearch.hppc.IntArrayList;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
+import io.crate.action.sql.query.FetchNodeRequest;
+import io.crate.action.sql.query.FetchNodeResponse;
+import io.crate.action.sql.query.QueryShardPageRequest;
 import io.crate.action.sql.query.QueryShardRequest;
 import io.crate.action.sql.query.TransportQueryShardAction;
 import io.crate.exceptions.Exceptions;
 import io.crate.exceptions.FailedShardsException;
+import io.crate.executor.Cursor;
 import io.crate.executor.QueryResult;
 import io.crate.executor.Task;
 import io.crate.executor.TaskResult;
@@ -53,11 +57,9 @@ import org.elasticsearch.common.util.concurrent.AtomicArray;
 import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchShardTarget;
-import org.elasticsearch.search.action.SearchServiceListener;
 import org.elasticsearch.search.action.SearchServiceTransportAction;
 import org.elasticsearch.search.controller.SearchPhaseController;
 import org.elasticsearch.search.fetch.FetchSearchResult;
-import org.elasticsearch.search.fetch.ShardFetchSearchRequest;
 import org.elasticsearch.search.internal.InternalSearchResponse;
 import org.elasticsearch.search.query.QueryPhaseExecutionException;
 import org.elasticsearch.search.query.QuerySearchResult;
@@ -76,14 +78,14 @@ public class QueryThenFetchTask implements Task<QueryResult> {
     private final SearchServiceTransportAction searchServiceTransportAction;
     private final SearchPhaseController searchPhaseController;
     private final ThreadPool threadPool;
-    private final SettableFuture<QueryResult> result;
+    private volatile SettableFuture<QueryResult> result;
     private final List<ListenableFuture<QueryResult>> results;
 
     private final Routing routing;
-    private final AtomicArray<IntArrayList> docIdsToLoad;
+    private volatile AtomicArray<IntArrayList> docIdsToLoad;
     private final List<Tuple<String, QueryShardRequest>> requests;
-    private final AtomicArray<QuerySearchResult> firstResults;
-    private final AtomicArray<FetchSearchResult> fetchResults;
+    private volatile AtomicArray<QuerySearchResult> firstResults;
+    private volatile AtomicArray<FetchSearchResult> fetchResults;
     private final DiscoveryNodes nodes;
     private final int numColumns;
     private final ClusterState state;
@@ -92,6 +94,20 @@ public class QueryThenFetchTask implements Task<QueryResult> {
     private volatile AtomicArray<ShardSearchFailure> shardFailures;
     private final Object shardFailuresMutex = new Object();
 
+    /**
+     * state of the search contexts which are kept alive on the shards
+     * if the result is returned page by page (fetchSize > 0)
+     */
+    private final int fetchSize;
+    private final PageCursor cursor;
+    private volatile boolean firstPage = true;
+    private volatile int pageSize;
+    private volatile int remaining;
+    private final long[] contextIds;
+    private final String[] contextNodeIds;
+    private final int[] consumed;
+    private final boolean[] exhausted;
+
 
     /**
      * dummy request required to re-use the searchService transport
@@ -126,11 +142,21 @@ public class QueryThenFetchTask implements Task<QueryResult> {
         for (Symbol symbol : searchNode.outputs()) {
             extractors.add(fieldExtractorVisitor.process(symbol, context));
         }
+        fetchSize = searchNode.fetchSize();
+        remaining = searchNode.limit();
+        pageSize = fetchSize > 0 ? Math.min(fetchSize, remaining) : remaining;
+        cursor = fetchSize > 0 ? new PageCursor() : null;
+
         requests = prepareRequests(context.references);
         docIdsToLoad = new AtomicArray<>(requests.size());
         firstResults = new AtomicArray<>(requests.size());
         fetchResults = new AtomicArray<>(requests.size());
 
+        contextIds = new long[requests.size()];
+        contextNodeIds = new String[requests.size()];
+        consumed = new int[requests.size()];
+        exhausted = new boolean[requests.size()];
+
         numColumns = searchNode.outputs().size();
     }
 
@@ -173,6 +199,8 @@ public class QueryThenFetchTask implements Task<QueryResult> {
             };
         } else if (partitionBy.contains(reference.info())) {
             return new ESFieldExtractor.PartitionedByColumnExtractor(reference, partitionBy);
+        } else if (ESFieldExtractor.DocValues.SUPPORTED_TYPES.contains(reference.valueType())) {
+            return new ESFieldExtractor.DocValues(reference);
         } else {
             return new ESFieldExtractor.Source(columnIdent);
         }
@@ -194,7 +222,7 @@ public class QueryThenFetchTask implements Task<QueryResult> {
             transportQueryShardAction.execute(
                     requestTuple.v1(),
                     requestTuple.v2(),
-                    new QueryShardResponseListener(requestIdx, firstResults, totalOps)
+                    new QueryShardResponseListener(requestIdx, firstResults, totalOps, requests.size())
             );
         }
     }
@@ -205,6 +233,14 @@ public class QueryThenFetchTask implements Task<QueryResult> {
         if (locations == null) {
             return requests;
         }
+        int limit = searchNode.limit();
+        int offset = searchNode.offset();
+        if (cursor != null) {
+            // the shards collect the rows skipped by the offset as well
+            // so that the following pages can continue after them
+            limit = offset + pageSize;
+            offset = 0;
+        }
         for (Map.Entry<String, Map<String, Set<Integer>>> entry : locations.entrySet()) {
             String node = entry.getKey();
             for (Map.Entry<String, Set<Integer>> indexEntry : entry.getValue().entrySet()) {
@@ -221,10 +257,11 @@ public class QueryThenFetchTask implements Task<QueryResult> {
                                     searchNode.orderBy(),
                                     searchNode.reverseFlags(),
                                     searchNode.nullsFirst(),
-                                    searchNode.limit(),
-                                    searchNode.offset(),
+                                    limit,
+                                    offset,
                                     searchNode.whereClause(),
-                                    searchNode.partitionBy()
+                                    searchNode.partitionBy(),
+                                    cursor != null
                             )
                     ));
                 }
@@ -236,6 +273,9 @@ public class QueryThenFetchTask implements Task<QueryResult> {
     private void moveToSecondPhase() throws IOException {
         // boolean useScroll = !useSlowScroll && request.scroll() != null;
         sortedShardList = searchPhaseController.sortDocs(false, firstResults);
+        if (cursor != null) {
+            sortedShardList = consumePage(sortedShardList);
+        }
         searchPhaseController.fillDocIdsToLoad(docIdsToLoad, sortedShardList);
 
         if (docIdsToLoad.asList().isEmpty()) {
@@ -243,29 +283,110 @@ public class QueryThenFetchTask implements Task<QueryResult> {
             return;
         }
 
-        final AtomicInteger counter = new AtomicInteger(docIdsToLoad.asList().size());
+        // group the contexts by node so that all documents of one node are fetched in one request
+        Map<String, List<AtomicArray.Entry<IntArrayList>>> entriesByNode = new HashMap<>();
         for (AtomicArray.Entry<IntArrayList> entry : docIdsToLoad.asList()) {
-            QuerySearchResult queryResult = firstResults.get(entry.index);
-            DiscoveryNode node = nodes.get(queryResult.shardTarget().nodeId());
-            ShardFetchSearchRequest fetchRequest = createFetchRequest(queryResult, entry);
-            executeFetch(entry.index, queryResult.shardTarget(), counter, fetchRequest, node);
+            String nodeId = firstResults.get(entry.index).shardTarget().nodeId();
+            List<AtomicArray.Entry<IntArrayList>> nodeEntries = entriesByNode.get(nodeId);
+            if (nodeEntries == null) {
+                nodeEntries = new ArrayList<>();
+                entriesByNode.put(nodeId, nodeEntries);
+            }
+            nodeEntries.add(entry);
+        }
+
+        final AtomicInteger counter = new AtomicInteger(entriesByNode.size());
+        for (Map.Entry<String, List<AtomicArray.Entry<IntArrayList>>> nodeEntries : entriesByNode.entrySet()) {
+            executeFetch(nodeEntries.getKey(), nodeEntries.getValue(), counter);
+        }
+    }
+
+    /**
+     * count the documents of every shard which are consumed by the current page
+     * and mark shards which have no further documents as exhausted.
+     *
+     * @return the documents of the page without the documents which are skipped by the offset
+     */
+    private ScoreDoc[] consumePage(ScoreDoc[] sortedDocs) {
+        int skip = firstPage ? searchNode.offset() : 0;
+        Arrays.fill(consumed, 0);
+        for (ScoreDoc scoreDoc : sortedDocs) {
+            consumed[scoreDoc.shardIndex]++;
+        }
+        for (AtomicArray.Entry<QuerySearchResult> entry : firstResults.asList()) {
+            int numDocs = entry.value.topDocs().scoreDocs.length;
+            exhausted[entry.index] = numDocs < skip + pageSize && consumed[entry.index] == numDocs;
+        }
+        ScoreDoc[] page;
+        if (skip == 0) {
+            page = sortedDocs;
+        } else if (skip >= sortedDocs.length) {
+            page = new ScoreDoc[0];
+        } else {
+            page = Arrays.copyOfRange(sortedDocs, skip, sortedDocs.length);
+        }
+        remaining -= page.length;
+        return page;
+    }
+
+    private boolean cursorExhausted() {
+        if (remaining <= 0) {
+            return true;
+        }
+        for (int i = 0; i < exhausted.length; i++) {
+            if (contextNodeIds[i] != null && !exhausted[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * release the kept alive search contexts of all exhausted shards
+     * or of all shards if <code>all</code> is true
+     */
+    private void releaseCursorContexts(boolean all) {
+        for (int i = 0; i < contextNodeIds.length; i++) {
+            String nodeId = contextNodeIds[i];
+            if (nodeId == null || !(all || exhausted[i])) {
+                continue;
+            }
+            contextNodeIds[i] = null;
+            try {
+                DiscoveryNode node = nodes.get(nodeId);
+                if (node != null) {
+                    searchServiceTransportAction.sendFreeContext(node, contextIds[i], EMPTY_SEARCH_REQUEST);
+                }
+            } catch (Throwable t) {
+                logger.trace("failed to release context", t);
+            }
         }
     }
 
-    private void executeFetch(final int shardIndex,
-                              final SearchShardTarget shardTarget,
-                              final AtomicInteger counter,
-                              ShardFetchSearchRequest shardFetchSearchRequest,
-                              DiscoveryNode node) {
+    private void executeFetch(String nodeId,
+                              final List<AtomicArray.Entry<IntArrayList>> entries,
+                              final AtomicInteger counter) {
+        long[] contextIds = new long[entries.size()];
+        IntArrayList[] docIds = new IntArrayList[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            AtomicArray.Entry<IntArrayList> entry = entries.get(i);
+            contextIds[i] = firstResults.get(entry.index).id();
+            docIds[i] = entry.value;
+        }
 
-        searchServiceTransportAction.sendExecuteFetch(
-                node,
-                shardFetchSearchRequest,
-                new SearchServiceListener<FetchSearchResult>() {
+        transportQueryShardAction.executeFetch(
+                nodeId,
+                new FetchNodeRequest(contextIds, docIds),
+                new ActionListener<FetchNodeResponse>() {
                     @Override
-                    public void onResult(FetchSearchResult result) {
-                        result.shardTarget(shardTarget);
-                        fetchResults.set(shardIndex, result);
+                    public void onResponse(FetchNodeResponse response) {
+                        FetchSearchResult[] results = response.results();
+                        for (int i = 0; i < entries.size(); i++) {
+                            int shardIndex = entries.get(i).index;
+                            FetchSearchResult result = results[i];
+                            result.shardTarget(firstResults.get(shardIndex).shardTarget());
+                            fetchResults.set(shardIndex, result);
+                        }
                         if (counter.decrementAndGet() == 0) {
                             finish();
                         }
@@ -273,8 +394,10 @@ public class QueryThenFetchTask implements Task<QueryResult> {
 
                     @Override
                     public void onFailure(Throwable t) {
-                        docIdsToLoad.set(shardIndex, null);
-                        addShardFailure(shardIndex, shardTarget, t);
+                        for (AtomicArray.Entry<IntArrayList> entry : entries) {
+                            docIdsToLoad.set(entry.index, null);
+                            addShardFailure(entry.index, firstResults.get(entry.index).shardTarget(), t);
+                        }
                         if (counter.decrementAndGet() == 0) {
                             finish();
                         }
@@ -316,6 +439,9 @@ public class QueryThenFetchTask implements Task<QueryResult> {
                         if(shardFailures != null && shardFailures.length() > 0){
                             FailedShardsException ex = new FailedShardsException(shardFailures.toArray(
                                     new ShardSearchFailure[shardFailures.length()]));
+                            if (cursor != null) {
+                                releaseCursorContexts(true);
+                            }
                             result.setException(ex);
                             return;
                         }
@@ -329,17 +455,34 @@ public class QueryThenFetchTask implements Task<QueryResult> {
                                 rows[r][c] = extractors.get(c).extract(hits[r]);
                             }
                         }
-                        result.set(new QueryResult(rows));
+                        if (cursor == null) {
+                            result.set(new QueryResult(rows));
+                        } else if (cursorExhausted()) {
+                            releaseCursorContexts(true);
+                            result.set(new QueryResult(rows));
+                        } else {
+                            releaseCursorContexts(false);
+                            result.set(new QueryResult(rows, cursor));
+                        }
                     } catch (Throwable t) {
+                        if (cursor != null) {
+                            releaseCursorContexts(true);
+                        }
                         result.setException(t);
                     } finally {
-                        releaseIrrelevantSearchContexts(firstResults, docIdsToLoad);
+                        if (cursor == null) {
+                            releaseIrrelevantSearchContexts(firstResults, docIdsToLoad);
+                        }
                     }
                 }
             });
         } catch (EsRejectedExecutionException e) {
             try {
-                releaseIrrelevantSearchContexts(firstResults, docIdsToLoad);
+                if (cursor == null) {
+                    releaseIrrelevantSearchContexts(firstResults, docIdsToLoad);
+                } else {
+                    releaseCursorContexts(true);
+                }
             } finally {
                 result.setException(e);
             }
@@ -362,11 +505,6 @@ public class QueryThenFetchTask implements Task<QueryResult> {
         }
     }
 
-    protected ShardFetchSearchRequest createFetchRequest(QuerySearchResult queryResult,
-                                                    AtomicArray.Entry<IntArrayList> entry) {
-        return new ShardFetchSearchRequest(EMPTY_SEARCH_REQUEST, queryResult.id(), entry.value);
-    }
-
     @Override
     public List<ListenableFuture<QueryResult>> result() {
         return results;
@@ -386,12 +524,13 @@ public class QueryThenFetchTask implements Task<QueryResult> {
 
         public QueryShardResponseListener(int requestIdx,
                                           AtomicArray<QuerySearchResult> firstResults,
-                                          AtomicInteger totalOps) {
+                                          AtomicInteger totalOps,
+                                          int expectedOps) {
 
             this.requestIdx = requestIdx;
             this.firstResults = firstResults;
             this.totalOps = totalOps;
-            this.expectedOps = firstResults.length();
+            this.expectedOps = expectedOps;
         }
 
         @Override
@@ -401,6 +540,10 @@ public class QueryThenFetchTask implements Task<QueryResult> {
 
             querySearchResult.shardTarget(
                     new SearchShardTarget(requestTuple.v1(), request.index(), request.shardId()));
+            if (cursor != null) {
+                contextIds[requestIdx] = querySearchResult.id();
+                contextNodeIds[requestIdx] = requestTuple.v1();
+            }
             firstResults.set(requestIdx, querySearchResult);
             if (totalOps.incrementAndGet() == expectedOps) {
                 try {
@@ -418,14 +561,18 @@ public class QueryThenFetchTask implements Task<QueryResult> {
     }
 
     private void raiseEarlyFailure(Throwable t) {
-        for (AtomicArray.Entry<QuerySearchResult> entry : firstResults.asList()) {
-            try {
-                DiscoveryNode node = nodes.get(entry.value.shardTarget().nodeId());
-                if (node != null) {
-                    searchServiceTransportAction.sendFreeContext(node, entry.value.id(), EMPTY_SEARCH_REQUEST);
+        if (cursor != null) {
+            releaseCursorContexts(true);
+        } else {
+            for (AtomicArray.Entry<QuerySearchResult> entry : firstResults.asList()) {
+                try {
+                    DiscoveryNode node = nodes.get(entry.value.shardTarget().nodeId());
+                    if (node != null) {
+                        searchServiceTransportAction.sendFreeContext(node, entry.value.id(), EMPTY_SEARCH_REQUEST);
+                    }
+                } catch (Throwable t1) {
+                    logger.trace("failed to release context", t1);
                 }
-            } catch (Throwable t1) {
-                logger.trace("failed to release context", t1);
             }
         }
         t = Exceptions.unwrap(t);
@@ -436,6 +583,47 @@ public class QueryThenFetchTask implements Task<QueryResult> {
         result.setException(t);
     }
 
+    private class PageCursor implements Cursor {
+
+        @Override
+        public ListenableFuture<QueryResult> nextPage() {
+            SettableFuture<QueryResult> pageResult = SettableFuture.create();
+            result = pageResult;
+            firstPage = false;
+            pageSize = Math.min(fetchSize, remaining);
+            docIdsToLoad = new AtomicArray<>(requests.size());
+            firstResults = new AtomicArray<>(requests.size());
+            fetchResults = new AtomicArray<>(requests.size());
+            shardFailures = null;
+
+            List<Integer> shardsToQuery = new ArrayList<>(requests.size());
+            for (int i = 0; i < requests.size(); i++) {
+                if (contextNodeIds[i] != null && !exhausted[i]) {
+                    shardsToQuery.add(i);
+                }
+            }
+            if (shardsToQuery.isEmpty()) {
+                pageResult.set(QueryResult.EMPTY_RESULT);
+                return pageResult;
+            }
+
+            AtomicInteger totalOps = new AtomicInteger(0);
+            for (Integer shardIdx : shardsToQuery) {
+                transportQueryShardAction.executePage(
+                        contextNodeIds[shardIdx],
+                        new QueryShardPageRequest(contextIds[shardIdx], consumed[shardIdx], pageSize),
+                        new QueryShardResponseListener(shardIdx, firstResults, totalOps, shardsToQuery.size())
+                );
+            }
+            return pageResult;
+        }
+
+        @Override
+        public void close() {
+            releaseCursorContexts(true);
+        }
+    }
+
     static class Context {
         private Functions functions;
         List<Reference> references = new ArrayList<>();
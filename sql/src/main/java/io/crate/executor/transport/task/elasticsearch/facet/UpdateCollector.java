@@ -23,7 +23,8 @@ package io.crate.executor.transport.task.elasticsearch.facet;
 
 import io.crate.Constants;
 import org.apache.lucene.index.AtomicReaderContext;
-import org.elasticsearch.action.update.TransportUpdateAction;
+import org.elasticsearch.action.bulk.ShardUpdateProcessor;
+import org.elasticsearch.action.bulk.TransportShardBulkActionDelegate;
 import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.index.fielddata.ScriptDocValues;
 import org.elasticsearch.index.mapper.Uid;
@@ -36,12 +37,14 @@ import java.io.IOException;
 import java.util.Map;
 
 /**
- * A Collector which generates elasticsearch update requests for every document it collects
+ * A Collector which generates elasticsearch update requests for every document it collects.
+ * The requests are sent in batches to the (local) primary of the shard, so the collector
+ * doesn't wait for every single document to be updated.
  */
 public class UpdateCollector extends FacetExecutor.Collector {
 
     private final SearchLookup lookup;
-    private final TransportUpdateAction updateAction;
+    private final ShardUpdateProcessor updateProcessor;
     private final Map<String, Object> updateDoc;
     private final ShardId shardId;
     private long rowCount;
@@ -68,11 +71,12 @@ public class UpdateCollector extends FacetExecutor.Collector {
     public UpdateCollector(
             Map<String, Object> doc,
             Long requiredVersion,
-            TransportUpdateAction updateAction,
+            TransportShardBulkActionDelegate transportShardBulkActionDelegate,
             SearchContext context
             ) {
         this.shardId = context.indexShard().shardId();
-        this.updateAction = updateAction;
+        this.updateProcessor = new ShardUpdateProcessor(
+                shardId, transportShardBulkActionDelegate, ShardUpdateProcessor.DEFAULT_BATCH_SIZE);
         this.lookup = context.lookup();
         this.updateDoc = doc;
         this.rowCount = 0;
@@ -86,7 +90,7 @@ public class UpdateCollector extends FacetExecutor.Collector {
 
     @Override
     public void postCollection() {
-        // nothing to do
+        rowCount = updateProcessor.close();
     }
 
     @Override
@@ -98,7 +102,6 @@ public class UpdateCollector extends FacetExecutor.Collector {
 
     private void collect(Uid uid) {
         UpdateRequest request = new CollectorUpdateRequest(shardId, uid);
-        updateAction.execute(request).actionGet();
-        rowCount++;
+        updateProcessor.add(request);
     }
 }
@@ -23,7 +23,9 @@ package io.crate.executor.transport.task.elasticsearch.facet;
 
 import com.google.common.base.Optional;
 import io.crate.exceptions.SQLParseException;
-import org.elasticsearch.action.update.TransportUpdateAction;
+import org.elasticsearch.action.bulk.TransportShardBulkAction;
+import org.elasticsearch.action.bulk.TransportShardBulkActionDelegate;
+import org.elasticsearch.action.bulk.TransportShardBulkActionDelegateImpl;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
@@ -41,15 +43,15 @@ import java.util.Map;
  */
 public class UpdateFacetParser extends AbstractComponent implements FacetParser {
 
-    private final TransportUpdateAction updateAction;
+    private final TransportShardBulkActionDelegate transportShardBulkActionDelegate;
 
     @Inject
     public UpdateFacetParser(
             Settings settings,
-            TransportUpdateAction updateAction) {
+            TransportShardBulkAction transportShardBulkAction) {
         super(settings);
         InternalUpdateFacet.registerStreams();
-        this.updateAction = updateAction;
+        this.transportShardBulkActionDelegate = new TransportShardBulkActionDelegateImpl(transportShardBulkAction);
     }
 
     @Override
@@ -90,6 +92,6 @@ public class UpdateFacetParser extends AbstractComponent implements FacetParser
         } catch (ClassCastException e) {
             throw new SQLParseException("invalid update doc");
         }
-        return new UpdateFacetExecutor(doc, version, searchContext, updateAction);
+        return new UpdateFacetExecutor(doc, version, searchContext, transportShardBulkActionDelegate);
     }
 }
@@ -0,0 +1,47 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+
+package io.crate.lucene;
+
+import io.crate.planner.symbol.Reference;
+import io.crate.types.DataType;
+import org.elasticsearch.index.mapper.FieldMapper;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.util.Collection;
+
+public class DocValuesUtils {
+
+    /**
+     * @param supportedTypes the types the caller is able to read from doc values
+     * @return true if the column is of one of the supported types and its mapping has doc values enabled
+     */
+    public static boolean hasDocValues(Reference reference,
+                                       SearchContext searchContext,
+                                       Collection<DataType> supportedTypes) {
+        if (!supportedTypes.contains(reference.valueType())) {
+            return false;
+        }
+        FieldMapper fieldMapper = searchContext.smartNameFieldMapper(reference.info().ident().columnIdent().fqn());
+        return fieldMapper != null && fieldMapper.hasDocValues();
+    }
+}
@@ -21,7 +21,7 @@
 
 package io.crate.lucene;
 
-import com.google.common.base.Predicates;
+import com.google.common.base.Predicate;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
 import com.spatial4j.core.context.jts.JtsSpatialContext;
@@ -764,11 +764,19 @@ public class LuceneQueryBuilder {
             if (function.valueType() != DataTypes.BOOLEAN) {
                 raiseUnsupported(function);
             }
-            // avoid field-cache
+            // avoid field-cache for columns without doc values
             // reason1: analyzed columns or columns with index off wouldn't work
             //   substr(n, 1, 1) in the case of n => analyzed would throw an error because n would be an array
             // reason2: would have to load each value into the field cache
-            DocReferenceConverter.convertIf(function, Predicates.<Reference>alwaysTrue());
+            // primitive columns with doc values are read from the doc values, which is much cheaper than
+            // loading the stored source of every candidate document
+            DocReferenceConverter.convertIf(function, new Predicate<Reference>() {
+                @Override
+                public boolean apply(@Nullable Reference input) {
+                    return input == null
+                           || !DocValuesUtils.hasDocValues(input, searchContext, DataTypes.PRIMITIVE_TYPES);
+                }
+            });
 
             final CollectInputSymbolVisitor.Context ctx = inputSymbolVisitor.process(function);
             assert ctx.topLevelInputs().size() == 1;
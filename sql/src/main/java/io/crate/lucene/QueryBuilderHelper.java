@@ -1,5 +1,6 @@
 package io.crate.lucene;
 
+import io.crate.operation.operator.LikeOperator;
 import io.crate.types.CollectionType;
 import io.crate.types.DataType;
 import io.crate.types.DataTypes;
@@ -187,8 +188,14 @@ public abstract class QueryBuilderHelper {
 
         @Override
         public Query like(String columnName, Object value) {
+            String pattern = BytesRefs.toString(value);
+            String prefix = LikeOperator.prefix(pattern);
+            if (prefix != null) {
+                // seeks to the prefix in the terms dictionary instead of running an automaton
+                return new PrefixQuery(new Term(columnName, prefix));
+            }
             return new WildcardQuery(
-                    new Term(columnName, LuceneQueryBuilder.convertWildcard(BytesRefs.toString(value))));
+                    new Term(columnName, LuceneQueryBuilder.convertWildcard(pattern)));
         }
     }
 }
@@ -62,6 +62,7 @@ public class DocTableInfo extends AbstractTableInfo {
 
     private final String[] indices;
     private final List<PartitionName> partitions;
+    private volatile PartitionIndex partitionIndex;
 
     private final boolean isAlias;
     private final boolean hasAutoGeneratedPrimaryKey;
@@ -260,6 +261,17 @@ public class DocTableInfo extends AbstractTableInfo {
         return partitions;
     }
 
+    /**
+     * index on the partition values, built on first use.
+     * A new DocTableInfo is created if partitions are added or removed.
+     */
+    public PartitionIndex partitionIndex() {
+        if (partitionIndex == null) {
+            partitionIndex = new PartitionIndex(partitionedByColumns, partitions);
+        }
+        return partitionIndex;
+    }
+
     @Override
     public boolean isPartitioned() {
         return isPartitioned;
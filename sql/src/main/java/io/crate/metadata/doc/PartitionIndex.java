@@ -0,0 +1,266 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.metadata.doc;
+
+import io.crate.PartitionName;
+import io.crate.metadata.ColumnIdent;
+import io.crate.metadata.ReferenceInfo;
+import io.crate.operation.operator.AndOperator;
+import io.crate.operation.operator.EqOperator;
+import io.crate.operation.operator.GtOperator;
+import io.crate.operation.operator.GteOperator;
+import io.crate.operation.operator.LtOperator;
+import io.crate.operation.operator.LteOperator;
+import io.crate.planner.symbol.Function;
+import io.crate.planner.symbol.Literal;
+import io.crate.planner.symbol.Reference;
+import io.crate.planner.symbol.Symbol;
+import io.crate.types.DataType;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * index on the values of the partitions of a table, sorted per partitioned by column.
+ *
+ * Used to find the partitions which can match the conditions on partitioned by columns
+ * of a query without evaluating the query for every single partition.
+ * Only top level conjunctions of comparisons between a partitioned by column and a literal
+ * are taken into account, the result is a superset of the matching partitions.
+ */
+public class PartitionIndex {
+
+    private final List<PartitionName> partitions;
+    private final List<ColumnIdent> columns;
+    private final ColumnValues[] columnValues;
+
+    public PartitionIndex(List<ReferenceInfo> partitionedByColumns, List<PartitionName> partitions) {
+        this.partitions = partitions;
+        this.columns = new ArrayList<>(partitionedByColumns.size());
+        this.columnValues = new ColumnValues[partitionedByColumns.size()];
+        for (int i = 0; i < partitionedByColumns.size(); i++) {
+            ReferenceInfo column = partitionedByColumns.get(i);
+            columns.add(column.ident().columnIdent());
+            columnValues[i] = new ColumnValues(column.type(), partitions, i);
+        }
+    }
+
+    /**
+     * @return the partitions which can match the query
+     *         or null if the query contains no conditions which can be looked up
+     */
+    @Nullable
+    public List<PartitionName> candidates(Symbol query) {
+        BitSet matches = match(query);
+        if (matches == null) {
+            return null;
+        }
+        List<PartitionName> candidates = new ArrayList<>(matches.cardinality());
+        for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+            candidates.add(partitions.get(i));
+        }
+        return candidates;
+    }
+
+    @Nullable
+    private BitSet match(Symbol query) {
+        if (!(query instanceof Function)) {
+            return null;
+        }
+        Function function = (Function) query;
+        String name = function.info().ident().name();
+        List<Symbol> arguments = function.arguments();
+        if (arguments.size() != 2) {
+            return null;
+        }
+        if (name.equals(AndOperator.NAME)) {
+            BitSet left = match(arguments.get(0));
+            BitSet right = match(arguments.get(1));
+            if (left == null) {
+                return right;
+            }
+            if (right != null) {
+                left.and(right);
+            }
+            return left;
+        }
+
+        Symbol left = arguments.get(0);
+        Symbol right = arguments.get(1);
+        if (left instanceof Literal && right instanceof Reference) {
+            name = flip(name);
+            Symbol tmp = left;
+            left = right;
+            right = tmp;
+        }
+        if (name == null || !(left instanceof Reference) || !(right instanceof Literal)) {
+            return null;
+        }
+        int columnIdx = columns.indexOf(((Reference) left).info().ident().columnIdent());
+        Object value = ((Literal) right).value();
+        if (columnIdx < 0 || value == null) {
+            return null;
+        }
+        return columnValues[columnIdx].match(name, value);
+    }
+
+    /**
+     * @return the operator for swapped arguments or null if it isn't a supported comparison
+     */
+    @Nullable
+    private static String flip(String operatorName) {
+        switch (operatorName) {
+            case EqOperator.NAME:
+                return EqOperator.NAME;
+            case GtOperator.NAME:
+                return LtOperator.NAME;
+            case GteOperator.NAME:
+                return LteOperator.NAME;
+            case LtOperator.NAME:
+                return GtOperator.NAME;
+            case LteOperator.NAME:
+                return GteOperator.NAME;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * the non-null values of one partitioned by column in ascending order
+     * together with the positions of their partitions
+     */
+    private static class ColumnValues {
+
+        private final DataType type;
+        private final int numPartitions;
+        private final Object[] values;
+        private final int[] partitionIds;
+
+        @SuppressWarnings("unchecked")
+        private ColumnValues(final DataType type, List<PartitionName> partitions, int valuesIdx) {
+            this.type = type;
+            this.numPartitions = partitions.size();
+            final Object[] unsorted = new Object[numPartitions];
+            List<Integer> ids = new ArrayList<>(numPartitions);
+            for (int i = 0; i < numPartitions; i++) {
+                unsorted[i] = type.value(partitions.get(i).values().get(valuesIdx));
+                if (unsorted[i] != null) {
+                    ids.add(i);
+                }
+            }
+            Integer[] sortedIds = ids.toArray(new Integer[ids.size()]);
+            Arrays.sort(sortedIds, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer o1, Integer o2) {
+                    return type.compareValueTo(unsorted[o1], unsorted[o2]);
+                }
+            });
+            values = new Object[sortedIds.length];
+            partitionIds = new int[sortedIds.length];
+            for (int i = 0; i < sortedIds.length; i++) {
+                partitionIds[i] = sortedIds[i];
+                values[i] = unsorted[sortedIds[i]];
+            }
+        }
+
+        @Nullable
+        private BitSet match(String operatorName, Object literalValue) {
+            Object value;
+            try {
+                value = type.value(literalValue);
+            } catch (IllegalArgumentException | ClassCastException e) {
+                return null;
+            }
+            int from;
+            int to;
+            switch (operatorName) {
+                case EqOperator.NAME:
+                    from = lowerBound(value);
+                    to = upperBound(value);
+                    break;
+                case GtOperator.NAME:
+                    from = upperBound(value);
+                    to = values.length;
+                    break;
+                case GteOperator.NAME:
+                    from = lowerBound(value);
+                    to = values.length;
+                    break;
+                case LtOperator.NAME:
+                    from = 0;
+                    to = lowerBound(value);
+                    break;
+                case LteOperator.NAME:
+                    from = 0;
+                    to = upperBound(value);
+                    break;
+                default:
+                    return null;
+            }
+            BitSet matches = new BitSet(numPartitions);
+            for (int i = from; i < to; i++) {
+                matches.set(partitionIds[i]);
+            }
+            return matches;
+        }
+
+        /**
+         * @return the position of the first value which is greater than or equal to the given value
+         */
+        @SuppressWarnings("unchecked")
+        private int lowerBound(Object value) {
+            int low = 0;
+            int high = values.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (type.compareValueTo(values[mid], value) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * @return the position of the first value which is greater than the given value
+         */
+        @SuppressWarnings("unchecked")
+        private int upperBound(Object value) {
+            int low = 0;
+            int high = values.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (type.compareValueTo(values[mid], value) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -108,6 +108,31 @@ public class SysNodesTableInfo extends SysTableInfo {
         register("process", DataTypes.LONG, ImmutableList.of("open_file_descriptors"));
         register("process", DataTypes.LONG, ImmutableList.of("max_open_file_descriptors"));
 
+        register("bulk", DataTypes.OBJECT, null);
+        register("bulk", DataTypes.LONG, ImmutableList.of("queued"));
+        register("bulk", DataTypes.LONG, ImmutableList.of("in_flight"));
+        register("bulk", DataTypes.LONG, ImmutableList.of("retried"));
+
+        register("plan_cache", DataTypes.OBJECT, null);
+        register("plan_cache", DataTypes.LONG, ImmutableList.of("hits"));
+        register("plan_cache", DataTypes.LONG, ImmutableList.of("misses"));
+        register("plan_cache", DataTypes.LONG, ImmutableList.of("size"));
+
+        register("distributed_merge", DataTypes.OBJECT, null);
+        register("distributed_merge", DataTypes.LONG, ImmutableList.of("active"));
+        register("distributed_merge", DataTypes.LONG, ImmutableList.of("pending"));
+        register("distributed_merge", DataTypes.LONG, ImmutableList.of("pending_bytes"));
+
+        register("latency", DataTypes.OBJECT, null);
+        register("latency", DataTypes.OBJECT, ImmutableList.of("jobs"));
+        register("latency", DataTypes.LONG, ImmutableList.of("jobs", "p50"));
+        register("latency", DataTypes.LONG, ImmutableList.of("jobs", "p95"));
+        register("latency", DataTypes.LONG, ImmutableList.of("jobs", "p99"));
+        register("latency", DataTypes.OBJECT, ImmutableList.of("operations"));
+        register("latency", DataTypes.LONG, ImmutableList.of("operations", "p50"));
+        register("latency", DataTypes.LONG, ImmutableList.of("operations", "p95"));
+        register("latency", DataTypes.LONG, ImmutableList.of("operations", "p99"));
+
         register("fs", DataTypes.OBJECT, null);
         register("fs", DataTypes.OBJECT, ImmutableList.of("total"));
         register("fs", DataTypes.LONG, ImmutableList.of("total", "size"));
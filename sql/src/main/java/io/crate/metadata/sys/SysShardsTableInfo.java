@@ -59,6 +59,8 @@ public class SysShardsTableInfo extends SysTableInfo {
         register("size", LongType.INSTANCE, null);
         register("state", StringType.INSTANCE, null);
         register("orphan_partition", BooleanType.INSTANCE, null);
+        register("blob_cache_hits", LongType.INSTANCE, null);
+        register("blob_cache_misses", LongType.INSTANCE, null);
     }
 
     @Inject
@@ -53,5 +53,7 @@ public class AggregationImplModule extends AbstractModule {
         SumAggregation.register(this);
         CountAggregation.register(this);
         CollectSetAggregation.register(this);
+        HyperLogLogDistinctAggregation.register(this);
+        PercentileAggregation.register(this);
     }
 }
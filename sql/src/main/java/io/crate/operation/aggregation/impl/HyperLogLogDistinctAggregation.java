@@ -0,0 +1,209 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.operation.aggregation.impl;
+
+import com.google.common.collect.ImmutableList;
+import io.crate.breaker.RamAccountingContext;
+import io.crate.metadata.FunctionIdent;
+import io.crate.metadata.FunctionInfo;
+import io.crate.operation.Input;
+import io.crate.operation.aggregation.AggregationFunction;
+import io.crate.operation.aggregation.AggregationState;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.hash.MurmurHash3;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.search.aggregations.metrics.cardinality.HyperLogLogPlusPlus;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * approximate count of distinct values using a HyperLogLog++ sketch.
+ *
+ * Unlike <code>count(distinct col)</code> the state has a fixed size of at most
+ * 2^precision bytes, independent of the number of distinct values.
+ */
+public class HyperLogLogDistinctAggregation
+        extends AggregationFunction<HyperLogLogDistinctAggregation.HllState> {
+
+    public static final String NAME = "hyperloglog_distinct";
+    public static final int DEFAULT_PRECISION = 14;
+
+    private final FunctionInfo info;
+
+    public static void register(AggregationImplModule mod) {
+        for (DataType dataType : DataTypes.PRIMITIVE_TYPES) {
+            mod.register(new HyperLogLogDistinctAggregation(new FunctionInfo(
+                    new FunctionIdent(NAME, ImmutableList.of(dataType)), DataTypes.LONG,
+                    FunctionInfo.Type.AGGREGATE)));
+            mod.register(new HyperLogLogDistinctAggregation(new FunctionInfo(
+                    new FunctionIdent(NAME, ImmutableList.<DataType>of(dataType, DataTypes.INTEGER)), DataTypes.LONG,
+                    FunctionInfo.Type.AGGREGATE)));
+        }
+    }
+
+    HyperLogLogDistinctAggregation(FunctionInfo info) {
+        this.info = info;
+    }
+
+    @Override
+    public FunctionInfo info() {
+        return info;
+    }
+
+    @Override
+    public boolean iterate(HllState state, Input... args) throws CircuitBreakingException {
+        if (!state.isInitialized()) {
+            int precision = DEFAULT_PRECISION;
+            if (args.length > 1 && args[1].value() != null) {
+                precision = ((Number) args[1].value()).intValue();
+            }
+            state.init(precision);
+        }
+        state.add(args[0].value());
+        return true;
+    }
+
+    @Override
+    public HllState newState(RamAccountingContext ramAccountingContext) {
+        return new HllState(ramAccountingContext);
+    }
+
+    public static class HllState extends AggregationState<HllState> {
+
+        private HyperLogLogPlusPlus hyperLogLog;
+        private final MurmurHash3.Hash128 hash = new MurmurHash3.Hash128();
+
+        public HllState(RamAccountingContext ramAccountingContext) {
+            super(ramAccountingContext);
+        }
+
+        boolean isInitialized() {
+            return hyperLogLog != null;
+        }
+
+        void init(int precision) throws CircuitBreakingException {
+            if (precision < HyperLogLogPlusPlus.MIN_PRECISION || precision > HyperLogLogPlusPlus.MAX_PRECISION) {
+                throw new IllegalArgumentException(String.format(Locale.ENGLISH,
+                        "%s precision must be between %d and %d", NAME,
+                        HyperLogLogPlusPlus.MIN_PRECISION, HyperLogLogPlusPlus.MAX_PRECISION));
+            }
+            setHyperLogLog(new HyperLogLogPlusPlus(precision, BigArrays.NON_RECYCLING_INSTANCE, 1));
+        }
+
+        private void setHyperLogLog(HyperLogLogPlusPlus hyperLogLog) throws CircuitBreakingException {
+            // the registers, the initial linear counting set is smaller
+            addEstimatedSize(1L << hyperLogLog.precision());
+            this.hyperLogLog = hyperLogLog;
+        }
+
+        void add(Object value) {
+            if (value != null) {
+                hyperLogLog.collect(0, hash(value));
+            }
+        }
+
+        private long hash(Object value) {
+            if (value instanceof BytesRef) {
+                BytesRef bytesRef = (BytesRef) value;
+                return MurmurHash3.hash128(bytesRef.bytes, bytesRef.offset, bytesRef.length, 0, hash).h1;
+            } else if (value instanceof String) {
+                BytesRef bytesRef = new BytesRef((String) value);
+                return MurmurHash3.hash128(bytesRef.bytes, bytesRef.offset, bytesRef.length, 0, hash).h1;
+            } else if (value instanceof Double || value instanceof Float) {
+                return mix(Double.doubleToLongBits(((Number) value).doubleValue()));
+            } else if (value instanceof Number) {
+                return mix(((Number) value).longValue());
+            } else if (value instanceof Boolean) {
+                return mix((Boolean) value ? 1L : 0L);
+            }
+            return mix(value.hashCode());
+        }
+
+        /**
+         * the finalization step of murmur3 to spread the bits of numeric values
+         */
+        private static long mix(long k) {
+            k ^= k >>> 33;
+            k *= 0xff51afd7ed558ccdL;
+            k ^= k >>> 33;
+            k *= 0xc4ceb9fe1a85ec53L;
+            k ^= k >>> 33;
+            return k;
+        }
+
+        @Override
+        public Object value() {
+            if (hyperLogLog == null) {
+                return 0L;
+            }
+            return hyperLogLog.cardinality(0);
+        }
+
+        @Override
+        public void reduce(HllState other) throws CircuitBreakingException {
+            if (other == null || other.hyperLogLog == null) {
+                return;
+            }
+            if (hyperLogLog == null) {
+                setHyperLogLog(other.hyperLogLog);
+            } else {
+                hyperLogLog.merge(0, other.hyperLogLog, 0);
+            }
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            if (in.readBoolean()) {
+                setHyperLogLog(HyperLogLogPlusPlus.readFrom(in, BigArrays.NON_RECYCLING_INSTANCE));
+            }
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            if (hyperLogLog == null) {
+                out.writeBoolean(false);
+            } else {
+                out.writeBoolean(true);
+                hyperLogLog.writeTo(0, out);
+            }
+        }
+
+        @Override
+        public int compareTo(HllState o) {
+            if (o == null) {
+                return 1;
+            }
+            return Long.compare((Long) value(), (Long) o.value());
+        }
+
+        @Override
+        public String toString() {
+            return "<HllState \"" + value() + "\">";
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.operation.aggregation.impl;
+
+import com.google.common.collect.ImmutableList;
+import io.crate.breaker.RamAccountingContext;
+import io.crate.metadata.FunctionIdent;
+import io.crate.metadata.FunctionInfo;
+import io.crate.operation.Input;
+import io.crate.operation.aggregation.AggregationFunction;
+import io.crate.operation.aggregation.AggregationState;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.search.aggregations.metrics.percentiles.tdigest.TDigestState;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * approximate percentile of numeric values using a t-digest sketch.
+ *
+ * <code>percentile(col, 0.95)</code> returns the value below which 95% of the values fall.
+ */
+public class PercentileAggregation extends AggregationFunction<PercentileAggregation.PercentileState> {
+
+    public static final String NAME = "percentile";
+    private static final double COMPRESSION = 100.0;
+    // rough estimate of the memory used by the centroids of a digest
+    private static final long ESTIMATED_DIGEST_SIZE = (long) COMPRESSION * 5 * 24;
+
+    private final FunctionInfo info;
+
+    public static void register(AggregationImplModule mod) {
+        for (DataType dataType : DataTypes.NUMERIC_PRIMITIVE_TYPES) {
+            mod.register(new PercentileAggregation(new FunctionInfo(
+                    new FunctionIdent(NAME, ImmutableList.<DataType>of(dataType, DataTypes.DOUBLE)), DataTypes.DOUBLE,
+                    FunctionInfo.Type.AGGREGATE)));
+        }
+        mod.register(new PercentileAggregation(new FunctionInfo(
+                new FunctionIdent(NAME, ImmutableList.<DataType>of(DataTypes.TIMESTAMP, DataTypes.DOUBLE)),
+                DataTypes.DOUBLE, FunctionInfo.Type.AGGREGATE)));
+    }
+
+    PercentileAggregation(FunctionInfo info) {
+        this.info = info;
+    }
+
+    @Override
+    public FunctionInfo info() {
+        return info;
+    }
+
+    @Override
+    public boolean iterate(PercentileState state, Input... args) throws CircuitBreakingException {
+        if (state.fraction == null) {
+            Object fraction = args[1].value();
+            if (fraction == null) {
+                throw new IllegalArgumentException(String.format(Locale.ENGLISH,
+                        "%s requires a fraction between 0 and 1", NAME));
+            }
+            state.fraction(((Number) fraction).doubleValue());
+        }
+        state.add(args[0].value());
+        return true;
+    }
+
+    @Override
+    public PercentileState newState(RamAccountingContext ramAccountingContext) {
+        return new PercentileState(ramAccountingContext);
+    }
+
+    public static class PercentileState extends AggregationState<PercentileState> {
+
+        private Double fraction;
+        private TDigestState digest;
+
+        public PercentileState(RamAccountingContext ramAccountingContext) {
+            super(ramAccountingContext);
+        }
+
+        void fraction(double fraction) {
+            if (fraction < 0.0 || fraction > 1.0) {
+                throw new IllegalArgumentException(String.format(Locale.ENGLISH,
+                        "%s requires a fraction between 0 and 1, got %s", NAME, fraction));
+            }
+            this.fraction = fraction;
+        }
+
+        void add(Object value) throws CircuitBreakingException {
+            if (value != null) {
+                digest().add(((Number) value).doubleValue());
+            }
+        }
+
+        private TDigestState digest() throws CircuitBreakingException {
+            if (digest == null) {
+                addEstimatedSize(ESTIMATED_DIGEST_SIZE);
+                digest = new TDigestState(COMPRESSION);
+            }
+            return digest;
+        }
+
+        @Override
+        public Object value() {
+            if (digest == null || digest.size() == 0 || fraction == null) {
+                return null;
+            }
+            return digest.quantile(fraction);
+        }
+
+        @Override
+        public void reduce(PercentileState other) throws CircuitBreakingException {
+            if (other == null || other.digest == null) {
+                return;
+            }
+            if (fraction == null) {
+                fraction = other.fraction;
+            }
+            digest().add(other.digest);
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            if (in.readBoolean()) {
+                fraction = in.readDouble();
+            }
+            if (in.readBoolean()) {
+                addEstimatedSize(ESTIMATED_DIGEST_SIZE);
+                digest = TDigestState.read(in);
+            }
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeBoolean(fraction != null);
+            if (fraction != null) {
+                out.writeDouble(fraction);
+            }
+            out.writeBoolean(digest != null);
+            if (digest != null) {
+                TDigestState.write(digest, out);
+            }
+        }
+
+        @Override
+        public int compareTo(PercentileState o) {
+            if (o == null) {
+                return 1;
+            }
+            Double thisValue = (Double) value();
+            Double otherValue = (Double) o.value();
+            if (thisValue == null) {
+                return otherValue == null ? 0 : -1;
+            }
+            return otherValue == null ? 1 : thisValue.compareTo(otherValue);
+        }
+
+        @Override
+        public String toString() {
+            return "<PercentileState \"" + value() + "\">";
+        }
+    }
+}
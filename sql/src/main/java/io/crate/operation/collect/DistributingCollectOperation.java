@@ -22,7 +22,6 @@
 package io.crate.operation.collect;
 
 import com.google.common.base.Function;
-import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
@@ -30,7 +29,6 @@ import com.google.common.util.concurrent.ListenableFuture;
 import io.crate.Streamer;
 import io.crate.breaker.CrateCircuitBreakerService;
 import io.crate.breaker.RamAccountingContext;
-import io.crate.executor.TaskResult;
 import io.crate.executor.transport.TransportActionProvider;
 import io.crate.executor.transport.distributed.DistributedFailureRequest;
 import io.crate.executor.transport.distributed.DistributedResultRequest;
@@ -38,7 +36,6 @@ import io.crate.executor.transport.distributed.DistributedResultResponse;
 import io.crate.executor.transport.merge.TransportMergeNodeAction;
 import io.crate.metadata.Functions;
 import io.crate.metadata.ReferenceResolver;
-import io.crate.operation.projectors.ResultProvider;
 import io.crate.planner.node.PlanNodeStreamerVisitor;
 import io.crate.planner.node.dql.CollectNode;
 import org.elasticsearch.cluster.ClusterService;
@@ -49,7 +46,6 @@ import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.settings.Settings;
-import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.BaseTransportResponseHandler;
@@ -58,9 +54,9 @@ import org.elasticsearch.transport.TransportService;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.ArrayDeque;
 import java.util.List;
+import java.util.Queue;
 import java.util.UUID;
 
 /**
@@ -69,124 +65,155 @@ import java.util.UUID;
  */
 public class DistributingCollectOperation extends MapSideDataCollectOperation {
 
-    private ESLogger logger = Loggers.getLogger(getClass());
-
-    public static class DistributingShardCollectFuture extends ShardCollectFuture {
+    /**
+     * maximum number of rows sent to a downstream node with a single request
+     */
+    public static final int PAGE_SIZE = 10_000;
+
+    /**
+     * Sends pages of rows to one downstream node.
+     *
+     * Pages are queued and the next page is only sent after the downstream node has responded to the previous one,
+     * which it does after the rows have been merged. So a downstream node never has more than one
+     * page per upstream to buffer and the size of a single request is bounded.
+     *
+     * Exactly one terminal message is sent to the downstream node: either the last page or a failure.
+     * If a page can't be sent or the collect fails the downstream node is told that this upstream failed,
+     * otherwise its merge context would wait for the remaining pages forever.
+     */
+    static class BucketPageSender {
 
         private final ESLogger logger = Loggers.getLogger(getClass());
 
         private final TransportService transportService;
-        private final DistributedResultRequest[] requests;
-        private final List<DiscoveryNode> downStreams;
-        private final int numDownStreams;
         private final UUID jobId;
-
-
-        public DistributingShardCollectFuture(UUID jobId,
-                                              int numShards,
-                                              ResultProvider resultProvider,
-                                              List<DiscoveryNode> downStreams,
-                                              TransportService transportService,
-                                              Streamer<?>[] streamers) {
-            super(numShards, resultProvider);
-            Preconditions.checkNotNull(downStreams, "downstream nodes is null");
-            Preconditions.checkNotNull(jobId, "jobId is null");
-            this.jobId = jobId;
+        private final Streamer<?>[] streamers;
+        private final DiscoveryNode node;
+
+        // guarded by this
+        private final Queue<DistributedResultRequest> pages = new ArrayDeque<>();
+        private boolean inFlight = false;
+        private boolean done = false;
+        private boolean failurePending = false;
+
+        BucketPageSender(TransportService transportService,
+                         UUID jobId,
+                         Streamer<?>[] streamers,
+                         DiscoveryNode node) {
             this.transportService = transportService;
-            this.downStreams = downStreams;
-            this.numDownStreams = this.downStreams.size();
-
-            this.requests = new DistributedResultRequest[numDownStreams];
-            for (int i=0, length = this.downStreams.size(); i<length; i++) {
-                this.requests[i] = new DistributedResultRequest(jobId, streamers);
-            }
+            this.jobId = jobId;
+            this.streamers = streamers;
+            this.node = node;
         }
 
-        @Override
-        protected void onAllShardsFinished() {
-            Throwable throwable = lastException.get();
-            if (throwable != null) {
-                setException(throwable);
-                forwardFailures();
-                return;
+        /**
+         * queue a page, ignored once the last page has been queued or the sender failed
+         */
+        void add(List<Object[]> rows, boolean lastPage) {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                DistributedResultRequest request = new DistributedResultRequest(jobId, streamers);
+                request.rows(rows.toArray(new Object[rows.size()][]));
+                request.lastPage(lastPage);
+                pages.add(request);
+                done = lastPage;
             }
-            super.set(TaskResult.EMPTY_RESULT.rows());
-
-            BucketingIterator bucketingIterator = new ModuloBucketingIterator(
-                    this.numDownStreams,
-                    resultProvider
-            );
+            sendNext();
+        }
 
-            // send requests
-            int i = 0;
-            for (List<Object[]> bucket : bucketingIterator) {
-                DistributedResultRequest request = this.requests[i];
-                request.rows(bucket.toArray(new Object[bucket.size()][]));
-                final DiscoveryNode node = downStreams.get(i);
-                if (logger.isTraceEnabled()) {
-                    logger.trace("[{}] sending distributing collect request to {} ...",
-                            jobId.toString(),
-                            node.id());
+        /**
+         * drop the queued pages and tell the downstream node that the upstream failed,
+         * ignored once the last page has been queued
+         */
+        void fail() {
+            synchronized (this) {
+                if (done) {
+                    return;
                 }
-                sendRequest(request, node);
-                i++;
+                done = true;
+                failurePending = true;
+                pages.clear();
             }
+            sendNext();
         }
 
-        private void forwardFailures() {
-            int idx = 0;
-            for (DistributedResultRequest request : requests) {
-                request.failure(true);
-                sendRequest(request, downStreams.get(idx));
-                idx++;
+        private void sendNext() {
+            final DistributedResultRequest request;
+            synchronized (this) {
+                if (inFlight) {
+                    return;
+                }
+                if (failurePending) {
+                    failurePending = false;
+                    request = null;
+                } else {
+                    request = pages.poll();
+                    if (request == null) {
+                        return;
+                    }
+                    inFlight = true;
+                }
+            }
+            if (request == null) {
+                failDownstream();
+                return;
             }
-        }
 
-        private void sendRequest(final DistributedResultRequest request, final DiscoveryNode node) {
+            if (logger.isTraceEnabled()) {
+                logger.trace("[{}] sending distributing collect request to {} ...", jobId, node.id());
+            }
             transportService.submitRequest(
-                node,
-                TransportMergeNodeAction.mergeRowsAction, // NOTICE: hard coded transport action, should be delivered by collectNode
-                request,
-                new BaseTransportResponseHandler<DistributedResultResponse>() {
-                    @Override
-                    public DistributedResultResponse newInstance() {
-                        return new DistributedResultResponse();
-                    }
+                    node,
+                    TransportMergeNodeAction.mergeRowsAction, // NOTICE: hard coded transport action, should be delivered by collectNode
+                    request,
+                    new BaseTransportResponseHandler<DistributedResultResponse>() {
+                        @Override
+                        public DistributedResultResponse newInstance() {
+                            return new DistributedResultResponse();
+                        }
 
-                    @Override
-                    public void handleResponse(DistributedResultResponse response) {
-                        if (logger.isTraceEnabled()) {
-                            logger.trace("[{}] successfully sent distributing collect request to {}",
-                                    jobId.toString(),
-                                    node.id());
+                        @Override
+                        public void handleResponse(DistributedResultResponse response) {
+                            if (logger.isTraceEnabled()) {
+                                logger.trace("[{}] successfully sent distributing collect request to {}", jobId, node.id());
+                            }
+                            synchronized (BucketPageSender.this) {
+                                inFlight = false;
+                            }
+                            sendNext();
                         }
-                    }
 
-                    @Override
-                    public void handleException(TransportException exp) {
-                        Throwable cause = exp.getCause();
-                        if (cause instanceof EsRejectedExecutionException) {
-                            sendFailure(request.contextId(), node);
-                        } else {
+                        @Override
+                        public void handleException(TransportException exp) {
                             logger.error("[{}] Exception sending distributing collect request to {}",
                                     exp, jobId, node.id());
-                            setException(cause);
+                            synchronized (BucketPageSender.this) {
+                                inFlight = false;
+                                done = true;
+                                failurePending = false;
+                                pages.clear();
+                            }
+                            failDownstream();
                         }
-                    }
 
-                    @Override
-                    public String executor() {
-                        return ThreadPool.Names.SAME;
+                        @Override
+                        public String executor() {
+                            return ThreadPool.Names.SAME;
+                        }
                     }
-                }
             );
         }
 
-        private void sendFailure(UUID contextId, final DiscoveryNode node) {
+        /**
+         * uses the fail action because the merge action might be the one which rejected the page
+         */
+        private void failDownstream() {
             transportService.submitRequest(
                     node,
                     TransportMergeNodeAction.failAction,
-                    new DistributedFailureRequest(contextId),
+                    new DistributedFailureRequest(jobId),
                     new BaseTransportResponseHandler<DistributedResultResponse>() {
                         @Override
                         public DistributedResultResponse newInstance() {
@@ -201,7 +228,6 @@ public class DistributingCollectOperation extends MapSideDataCollectOperation {
                         public void handleException(TransportException exp) {
                             logger.error("[{}] Exception sending distributing collect failure to {}",
                                     exp, jobId, node.id());
-                            setException(exp.getCause());
                         }
 
                         @Override
@@ -213,14 +239,6 @@ public class DistributingCollectOperation extends MapSideDataCollectOperation {
         }
     }
 
-    private static List<DistributedResultRequest> genRequests(UUID jobId, int size, Streamer<?>[] streamers) {
-        List<DistributedResultRequest> requests = new ArrayList<>(size);
-        for (int i = 0; i < size; i++) {
-            requests.add(new DistributedResultRequest(jobId,streamers ));
-        }
-        return requests;
-    }
-
     private final TransportService transportService;
     private final PlanNodeStreamerVisitor streamerVisitor;
     private final CircuitBreaker circuitBreaker;
@@ -247,77 +265,50 @@ public class DistributingCollectOperation extends MapSideDataCollectOperation {
 
     @Override
     protected ListenableFuture<Object[][]> handleNodeCollect(CollectNode collectNode, RamAccountingContext ramAccountingContext) {
-        assert collectNode.jobId().isPresent();
         assert collectNode.hasDownstreams() : "distributing collect without downStreams";
-        ListenableFuture<Object[][]> future = super.handleNodeCollect(collectNode, ramAccountingContext);
+        DistributingProjector projector = distributingProjector(
+                collectNode, streamerVisitor.process(collectNode, ramAccountingContext).outputStreamers());
+        return finishOnResult(super.handleNodeCollect(collectNode, ramAccountingContext, projector), projector);
+    }
 
-        final List<DiscoveryNode> downStreams = toDiscoveryNodes(collectNode.downStreamNodes());
-        final List<DistributedResultRequest> requests = genRequests(
-                collectNode.jobId().get(),
-                downStreams.size(),
-                streamerVisitor.process(collectNode, ramAccountingContext).outputStreamers()
-        );
-        sendRequestsOnFinish(future, downStreams, requests);
-        return future;
+    @Override
+    protected ListenableFuture<Object[][]> handleShardCollect(CollectNode collectNode, RamAccountingContext ramAccountingContext) {
+        assert collectNode.hasDownstreams() : "no downstreams";
+        Streamer<?>[] streamers = streamerVisitor.process(
+                collectNode, new RamAccountingContext("dummy", circuitBreaker)).outputStreamers();
+        DistributingProjector projector = distributingProjector(collectNode, streamers);
+        return finishOnResult(super.handleShardCollect(collectNode, ramAccountingContext, projector), projector);
     }
 
-    private void sendRequestsOnFinish(
-            ListenableFuture<Object[][]> future,
-            final List<DiscoveryNode> downStreams,
-            final List<DistributedResultRequest> requests) {
+    private DistributingProjector distributingProjector(CollectNode collectNode, Streamer<?>[] streamers) {
+        assert collectNode.jobId().isPresent();
+        UUID jobId = collectNode.jobId().get();
+        List<DiscoveryNode> downStreams = toDiscoveryNodes(collectNode.downStreamNodes());
+        BucketPageSender[] senders = new BucketPageSender[downStreams.size()];
+        for (int i = 0; i < senders.length; i++) {
+            senders[i] = new BucketPageSender(transportService, jobId, streamers, downStreams.get(i));
+        }
+        return new DistributingProjector(senders);
+    }
+
+    /**
+     * the collect might be done without ever starting the projector (e.g. if there are no matching rows)
+     * or fail before it is started, so the projector is finished or failed with the collect as well
+     */
+    private ListenableFuture<Object[][]> finishOnResult(ListenableFuture<Object[][]> future,
+                                                        final DistributingProjector projector) {
         Futures.addCallback(future, new FutureCallback<Object[][]>() {
             @Override
             public void onSuccess(@Nullable Object[][] result) {
-                assert result != null;
-                BucketingIterator bucketingIterator = new ModuloBucketingIterator(
-                        downStreams.size(), Arrays.asList(result));
-
-                int i = 0;
-                for (List<Object[]> bucket : bucketingIterator) {
-                    DistributedResultRequest request = requests.get(i);
-                    request.rows(bucket.toArray(new Object[bucket.size()][]));
-                    sendRequest(request, downStreams.get(i));
-                    i++;
-                }
+                projector.finish();
             }
 
             @Override
             public void onFailure(@Nonnull Throwable t) {
-                int idx = 0;
-                for (DistributedResultRequest request : requests) {
-                    request.failure(true);
-                    sendRequest(request, downStreams.get(idx));
-                    idx++;
-                }
+                projector.fail(t);
             }
         });
-    }
-
-    private void sendRequest(DistributedResultRequest request, DiscoveryNode discoveryNode) {
-        transportService.sendRequest(
-                discoveryNode,
-                TransportMergeNodeAction.mergeRowsAction,
-                request,
-                new BaseTransportResponseHandler<DistributedResultResponse>() {
-                    @Override
-                    public DistributedResultResponse newInstance() {
-                        return new DistributedResultResponse();
-                    }
-
-                    @Override
-                    public void handleResponse(DistributedResultResponse response) {
-                    }
-
-                    @Override
-                    public void handleException(TransportException exp) {
-                        logger.error(exp.getMessage(), exp);
-                    }
-
-                    @Override
-                    public String executor() {
-                        return ThreadPool.Names.SAME;
-                    }
-                });
+        return future;
     }
 
     private List<DiscoveryNode> toDiscoveryNodes(List<String> nodeIds) {
@@ -331,28 +322,4 @@ public class DistributingCollectOperation extends MapSideDataCollectOperation {
             }
         });
     }
-
-    @Override
-    protected ListenableFuture<Object[][]> handleShardCollect(CollectNode collectNode, RamAccountingContext ramAccountingContext) {
-        assert collectNode.hasDownstreams() : "no downstreams";
-        return super.handleShardCollect(collectNode, ramAccountingContext);
-    }
-
-    @Override
-    protected ShardCollectFuture getShardCollectFuture(
-            int numShards, ShardProjectorChain projectorChain, CollectNode collectNode) {
-        assert collectNode.jobId().isPresent();
-        PlanNodeStreamerVisitor.Context streamerContext = new PlanNodeStreamerVisitor.Context(null);
-        streamerVisitor.process(collectNode, streamerContext);
-        Streamer<?>[] streamers = streamerVisitor.process(
-                collectNode, new RamAccountingContext("dummy", circuitBreaker)).outputStreamers();
-        return new DistributingShardCollectFuture(
-                collectNode.jobId().get(),
-                numShards,
-                projectorChain,
-                toDiscoveryNodes(collectNode.downStreamNodes()),
-                transportService,
-                streamers
-        );
-    }
 }
@@ -0,0 +1,165 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.operation.collect;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import io.crate.executor.TaskResult;
+import io.crate.operation.ProjectorUpstream;
+import io.crate.operation.projectors.Projector;
+import io.crate.operation.projectors.ResultProvider;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Last projector of a distributing collect.
+ *
+ * Rows are put into one bucket per downstream node and a bucket is handed to its
+ * {@link DistributingCollectOperation.BucketPageSender} as soon as it contains
+ * {@link DistributingCollectOperation#PAGE_SIZE} rows, so pages are sent while the collect is still running.
+ * Once all upstreams are finished the remaining rows are sent as the last page.
+ *
+ * The rows are not kept, the result of this projector is always empty.
+ */
+class DistributingProjector implements Projector, ResultProvider {
+
+    private final DistributingCollectOperation.BucketPageSender[] senders;
+    private final AtomicInteger upstreamsRemaining = new AtomicInteger(0);
+    private final AtomicReference<Throwable> upstreamFailure = new AtomicReference<>();
+    private final SettableFuture<Object[][]> result = SettableFuture.create();
+
+    // guarded by this
+    private final List<List<Object[]>> buckets;
+    private boolean finished = false;
+
+    DistributingProjector(DistributingCollectOperation.BucketPageSender[] senders) {
+        this.senders = senders;
+        this.buckets = new ArrayList<>(senders.length);
+        for (int i = 0; i < senders.length; i++) {
+            buckets.add(new ArrayList<Object[]>());
+        }
+    }
+
+    @Override
+    public void downstream(Projector downstream) {
+    }
+
+    @Override
+    public void startProjection() {
+        if (upstreamsRemaining.get() <= 0) {
+            finish();
+        }
+    }
+
+    @Override
+    public synchronized boolean setNextRow(Object... row) {
+        if (finished) {
+            return false;
+        }
+        int bucketIdx = ModuloBucketingIterator.bucket(row, senders.length);
+        List<Object[]> bucket = buckets.get(bucketIdx);
+        bucket.add(row);
+        if (bucket.size() >= DistributingCollectOperation.PAGE_SIZE) {
+            senders[bucketIdx].add(bucket, false);
+            buckets.set(bucketIdx, new ArrayList<Object[]>());
+        }
+        return true;
+    }
+
+    @Override
+    public void registerUpstream(ProjectorUpstream upstream) {
+        upstreamsRemaining.incrementAndGet();
+    }
+
+    @Override
+    public void upstreamFinished() {
+        if (upstreamsRemaining.decrementAndGet() <= 0) {
+            finish();
+        }
+    }
+
+    @Override
+    public void upstreamFailed(Throwable throwable) {
+        upstreamFailure.set(throwable);
+        if (upstreamsRemaining.decrementAndGet() <= 0) {
+            finish();
+        }
+    }
+
+    /**
+     * send the remaining rows of each bucket as last page,
+     * if an upstream failed the downstream nodes are told about the failure instead
+     */
+    void finish() {
+        Throwable throwable = upstreamFailure.get();
+        if (throwable != null) {
+            fail(throwable);
+            return;
+        }
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            for (int i = 0; i < senders.length; i++) {
+                senders[i].add(buckets.get(i), true);
+            }
+            buckets.clear();
+        }
+        result.set(TaskResult.EMPTY_RESULT.rows());
+    }
+
+    /**
+     * tell all downstream nodes that the collect failed, ignored if already finished
+     */
+    void fail(Throwable throwable) {
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            buckets.clear();
+        }
+        for (DistributingCollectOperation.BucketPageSender sender : senders) {
+            sender.fail();
+        }
+        result.setException(throwable);
+    }
+
+    @Override
+    public ListenableFuture<Object[][]> result() {
+        return result;
+    }
+
+    @Override
+    public Iterator<Object[]> iterator() throws IllegalStateException {
+        if (!result.isDone()) {
+            throw new IllegalStateException("result not ready yet");
+        }
+        return Collections.emptyIterator();
+    }
+}
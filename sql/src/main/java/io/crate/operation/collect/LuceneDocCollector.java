@@ -29,6 +29,7 @@ import io.crate.breaker.RamAccountingContext;
 import io.crate.lucene.LuceneQueryBuilder;
 import io.crate.metadata.Functions;
 import io.crate.operation.Input;
+import io.crate.operation.projectors.BatchProjector;
 import io.crate.operation.projectors.Projector;
 import io.crate.operation.reference.doc.lucene.CollectorContext;
 import io.crate.operation.reference.doc.lucene.LuceneCollectorExpression;
@@ -54,19 +55,37 @@ import org.elasticsearch.search.internal.ShardSearchLocalRequest;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 
 /**
  * collect documents from ES shard, a lucene index
+ *
+ * Matching doc ids are buffered per segment and turned into rows block-wise.
+ * The doc ids of a block are sorted, so doc values and stored fields are read in index order,
+ * and a {@link BatchProjector} downstream receives each block with a single call.
  */
 public class LuceneDocCollector extends Collector implements CrateCollector {
 
+    /**
+     * the first block is small, so that collects which only need a few rows
+     * (like a query with a small limit) don't read many documents that are never used.
+     * The size of every following block is doubled up to {@link #MAX_BLOCK_SIZE}.
+     */
+    static final int MIN_BLOCK_SIZE = 32;
+    static final int MAX_BLOCK_SIZE = 1024;
+
     private final CollectorFieldsVisitor fieldsVisitor;
     private boolean visitorEnabled = false;
     private AtomicReader currentReader;
     private RamAccountingContext ramAccountingContext;
 
+    private final int[] docs = new int[MAX_BLOCK_SIZE];
+    private int numDocs = 0;
+    private int blockSize = MIN_BLOCK_SIZE;
+    private final Object[][] rows = new Object[MAX_BLOCK_SIZE][];
+
     public static class CollectorFieldsVisitor extends FieldsVisitor {
 
         final HashSet<String> requiredFields;
@@ -159,25 +178,57 @@ public class LuceneDocCollector extends Collector implements CrateCollector {
 
     @Override
     public void collect(int doc) throws IOException {
+        docs[numDocs++] = doc;
+        if (numDocs == blockSize) {
+            collectBlock();
+            blockSize = Math.min(blockSize << 1, MAX_BLOCK_SIZE);
+        }
+    }
+
+    /**
+     * turn the buffered doc ids of the current segment into rows and send them downstream
+     */
+    private void collectBlock() throws IOException {
+        if (numDocs == 0) {
+            return;
+        }
         if (ramAccountingContext != null && ramAccountingContext.trippedBreaker()) {
             // stop collecting because breaker limit was reached
             throw new UnexpectedCollectionTerminatedException(
                     CrateCircuitBreakerService.breakingExceptionMessage(ramAccountingContext.contextId(),
                             ramAccountingContext.limit()));
         }
-        Object[] newRow = new Object[topLevelInputs.size()];
-        if (visitorEnabled){
-            fieldsVisitor.reset();
-            currentReader.document(doc, fieldsVisitor);
-        }
-        for (LuceneCollectorExpression e : collectorExpressions) {
-            e.setNextDocId(doc);
+        Arrays.sort(docs, 0, numDocs);
+        int numInputs = topLevelInputs.size();
+        for (int d = 0; d < numDocs; d++) {
+            int doc = docs[d];
+            if (visitorEnabled){
+                fieldsVisitor.reset();
+                currentReader.document(doc, fieldsVisitor);
+            }
+            for (LuceneCollectorExpression e : collectorExpressions) {
+                e.setNextDocId(doc);
+            }
+            Object[] newRow = new Object[numInputs];
+            int i = 0;
+            for (Input<?> input : topLevelInputs) {
+                newRow[i++] = input.value();
+            }
+            rows[d] = newRow;
         }
-        int i = 0;
-        for (Input<?> input : topLevelInputs) {
-            newRow[i++] = input.value();
+        int numRows = numDocs;
+        numDocs = 0;
+
+        boolean wantMore = true;
+        if (downstream instanceof BatchProjector) {
+            wantMore = ((BatchProjector) downstream).setNextRows(rows, numRows);
+        } else {
+            for (int r = 0; r < numRows && wantMore; r++) {
+                wantMore = downstream.setNextRow(rows[r]);
+            }
         }
-        if (!downstream.setNextRow(newRow)) {
+        Arrays.fill(rows, 0, numRows, null);
+        if (!wantMore) {
             // no more rows required, we can stop here
             throw new CollectionAbortedException();
         }
@@ -185,6 +236,8 @@ public class LuceneDocCollector extends Collector implements CrateCollector {
 
     @Override
     public void setNextReader(AtomicReaderContext context) throws IOException {
+        // buffered docs belong to the previous segment
+        collectBlock();
         this.currentReader = context.reader();
         for (LuceneCollectorExpression expr : collectorExpressions) {
             expr.setNextReader(context);
@@ -216,6 +269,10 @@ public class LuceneDocCollector extends Collector implements CrateCollector {
         // do the lucene search
         try {
             searchContext.searcher().search(query, this);
+            collectBlock();
+            downstream.upstreamFinished();
+        } catch (CollectionAbortedException e) {
+            // the downstream doesn't need more rows, e.g. because its limit is reached
             downstream.upstreamFinished();
         } catch (Exception e) {
             downstream.upstreamFailed(e);
@@ -21,6 +21,7 @@
 
 package io.crate.operation.collect;
 
+import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.util.concurrent.FutureCallback;
@@ -40,6 +41,7 @@ import io.crate.operation.collect.files.FileInputFactory;
 import io.crate.operation.collect.files.FileReadingCollector;
 import io.crate.operation.projectors.FlatProjectorChain;
 import io.crate.operation.projectors.ProjectionToProjectorVisitor;
+import io.crate.operation.projectors.Projector;
 import io.crate.operation.reference.file.FileLineReferenceResolver;
 import io.crate.planner.RowGranularity;
 import io.crate.planner.node.dql.CollectNode;
@@ -167,13 +169,23 @@ public class MapSideDataCollectOperation implements CollectOperation<Object[][]>
      * @return the collect result from this node, one row only so return value is <code>Object[1][]</code>
      */
     protected ListenableFuture<Object[][]> handleNodeCollect(CollectNode collectNode, RamAccountingContext ramAccountingContext) {
+        return handleNodeCollect(collectNode, ramAccountingContext, null);
+    }
+
+    /**
+     * @param resultProjector receives the rows of the projector chain, see
+     *                        {@link FlatProjectorChain#FlatProjectorChain(List, ProjectionToProjectorVisitor, RamAccountingContext, Projector)}
+     */
+    protected ListenableFuture<Object[][]> handleNodeCollect(CollectNode collectNode,
+                                                             RamAccountingContext ramAccountingContext,
+                                                             @Nullable Projector resultProjector) {
         collectNode = collectNode.normalize(nodeNormalizer);
         if (collectNode.whereClause().noMatch()) {
             return Futures.immediateFuture(TaskResult.EMPTY_RESULT.rows());
         }
 
         FlatProjectorChain projectorChain = new FlatProjectorChain(
-                collectNode.projections(), projectorVisitor, ramAccountingContext);
+                collectNode.projections(), projectorVisitor, ramAccountingContext, resultProjector);
 
         CrateCollector collector;
         try {
@@ -195,16 +207,21 @@ public class MapSideDataCollectOperation implements CollectOperation<Object[][]>
     private CrateCollector getCollector(CollectNode collectNode,
                                         FlatProjectorChain projectorChain) throws Exception {
         if (collectNode instanceof FileUriCollectNode) {
-            FileCollectInputSymbolVisitor.Context context = fileInputSymbolVisitor.process(collectNode);
-            FileUriCollectNode fileUriCollectNode = (FileUriCollectNode) collectNode;
+            final FileUriCollectNode fileUriCollectNode = (FileUriCollectNode) collectNode;
 
             String[] readers = fileUriCollectNode.executionNodes().toArray(
                     new String[fileUriCollectNode.executionNodes().size()]);
             Arrays.sort(readers);
             return new FileReadingCollector(
                     StringValueSymbolVisitor.INSTANCE.process(fileUriCollectNode.targetUri()),
-                    context.topLevelInputs(),
-                    context.expressions(),
+                    new Supplier<FileCollectInputSymbolVisitor.Context>() {
+                        @Override
+                        public FileCollectInputSymbolVisitor.Context get() {
+                            return fileInputSymbolVisitor.process(fileUriCollectNode);
+                        }
+                    },
+                    executor,
+                    executor.getCorePoolSize(),
                     projectorChain.firstProjector(),
                     fileUriCollectNode.fileFormat(),
                     fileUriCollectNode.compression(),
@@ -235,13 +252,23 @@ public class MapSideDataCollectOperation implements CollectOperation<Object[][]>
      * @return the collect results from all shards on this node that were given in {@link io.crate.planner.node.dql.CollectNode#routing}
      */
     protected ListenableFuture<Object[][]> handleShardCollect(CollectNode collectNode, RamAccountingContext ramAccountingContext) {
+        return handleShardCollect(collectNode, ramAccountingContext, null);
+    }
+
+    /**
+     * @param resultProjector receives the rows of the projector chain, see
+     *                        {@link ShardProjectorChain#ShardProjectorChain(int, List, ProjectionToProjectorVisitor, RamAccountingContext, Projector)}
+     */
+    protected ListenableFuture<Object[][]> handleShardCollect(CollectNode collectNode,
+                                                              RamAccountingContext ramAccountingContext,
+                                                              @Nullable Projector resultProjector) {
 
         String localNodeId = clusterService.localNode().id();
         final int numShards = collectNode.routing().numShards(localNodeId);
 
         collectNode = collectNode.normalize(nodeNormalizer);
         ShardProjectorChain projectorChain = new ShardProjectorChain(numShards,
-                collectNode.projections(), projectorVisitor, ramAccountingContext);
+                collectNode.projections(), projectorVisitor, ramAccountingContext, resultProjector);
 
         final ShardCollectFuture result = getShardCollectFuture(numShards, projectorChain, collectNode);
 
@@ -22,6 +22,7 @@
 package io.crate.operation.collect;
 
 import io.crate.analyze.EvaluatingNormalizer;
+import io.crate.analyze.WhereClause;
 import io.crate.blob.v2.BlobIndices;
 import io.crate.breaker.CircuitBreakerModule;
 import io.crate.breaker.CrateCircuitBreakerService;
@@ -34,17 +35,21 @@ import io.crate.metadata.shard.blob.BlobShardReferenceResolver;
 import io.crate.operation.ImplementationSymbolVisitor;
 import io.crate.operation.Input;
 import io.crate.operation.collect.blobs.BlobDocCollector;
+import io.crate.operation.operator.EqOperator;
 import io.crate.operation.projectors.ProjectionToProjectorVisitor;
 import io.crate.operation.projectors.Projector;
 import io.crate.operation.reference.DocLevelReferenceResolver;
+import io.crate.operation.reference.doc.blob.BlobDigestExpression;
 import io.crate.operation.reference.doc.blob.BlobReferenceResolver;
 import io.crate.operation.reference.doc.lucene.LuceneDocLevelReferenceResolver;
 import io.crate.planner.RowGranularity;
 import io.crate.planner.node.dql.CollectNode;
-import io.crate.planner.symbol.Literal;
+import io.crate.planner.symbol.*;
+import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.cache.recycler.CacheRecycler;
 import org.elasticsearch.cache.recycler.PageCacheRecycler;
 import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
@@ -179,10 +184,41 @@ public class ShardCollectService {
                 ctx.topLevelInputs(),
                 ctx.docLevelExpressions(),
                 condition,
+                digestLookup(collectNode.whereClause()),
                 downstream
         );
     }
 
+    /**
+     * @return the digest of a <code>digest = 'literal'</code> query, a blob with this digest
+     * can be looked up directly instead of walking all blobs.
+     * Literals which aren't valid digests can't match a blob file name, they are collected by walking all blobs.
+     */
+    @Nullable
+    private static String digestLookup(WhereClause whereClause) {
+        if (!whereClause.hasQuery() || !(whereClause.query() instanceof Function)) {
+            return null;
+        }
+        Function function = (Function) whereClause.query();
+        if (!function.info().ident().name().equals(EqOperator.NAME)) {
+            return null;
+        }
+        Symbol left = function.arguments().get(0);
+        Symbol right = function.arguments().get(1);
+        if (left instanceof Reference
+                && right.symbolType() == SymbolType.LITERAL
+                && ((Reference) left).info().ident().columnIdent().fqn().equals(BlobDigestExpression.COLUMN_NAME)) {
+            Object value = ((Literal) right).value();
+            if (value instanceof BytesRef) {
+                String digest = ((BytesRef) value).utf8ToString();
+                if (BlobDocCollector.isDigest(digest)) {
+                    return digest;
+                }
+            }
+        }
+        return null;
+    }
+
     private CrateCollector getLuceneIndexCollector(CollectNode collectNode, Projector downstream) throws Exception {
         CollectInputSymbolVisitor.Context docCtx = docInputSymbolVisitor.process(collectNode);
         return new LuceneDocCollector(
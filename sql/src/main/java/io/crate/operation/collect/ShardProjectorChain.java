@@ -21,6 +21,7 @@
 
 package io.crate.operation.collect;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -82,11 +83,26 @@ public class ShardProjectorChain implements ResultProvider {
                                List<Projection> projections,
                                ProjectionToProjectorVisitor nodeProjectorVisitor,
                                RamAccountingContext ramAccountingContext) {
+        this(numShards, projections, nodeProjectorVisitor, ramAccountingContext, null);
+    }
+
+    /**
+     * @param resultProjector a projector which is also a {@link ResultProvider} and receives the rows of the
+     *                        last projector instead of a {@link CollectingProjector}.
+     *                        The last projection must support downstreams if it is given.
+     */
+    public ShardProjectorChain(int numShards,
+                               List<Projection> projections,
+                               ProjectionToProjectorVisitor nodeProjectorVisitor,
+                               RamAccountingContext ramAccountingContext,
+                               @Nullable Projector resultProjector) {
+        Preconditions.checkArgument(resultProjector == null || resultProjector instanceof ResultProvider,
+                "resultProjector must be a ResultProvider");
         this.projections = projections;
         nodeProjectors = new ArrayList<>();
 
         if (projections.size() == 0) {
-            firstNodeProjector = new CollectingProjector();
+            firstNodeProjector = resultProjector == null ? new CollectingProjector() : resultProjector;
             lastProjector = (ResultProvider) firstNodeProjector;
             nodeProjectors.add(firstNodeProjector);
             shardProjectors = ImmutableList.of();
@@ -120,13 +136,19 @@ public class ShardProjectorChain implements ResultProvider {
             // shardprojector will be created later
             if (nodeProjectors.isEmpty()) {
                 // no node projectors
-                previousProjector = firstNodeProjector = new CollectingProjector();
+                previousProjector = firstNodeProjector =
+                        resultProjector == null ? new CollectingProjector() : resultProjector;
             }
         } else {
             shardProjectors = ImmutableList.of();
         }
         assert previousProjector != null;
-        if (previousProjector instanceof ResultProvider) {
+        if (resultProjector != null) {
+            if (previousProjector != resultProjector) {
+                previousProjector.downstream(resultProjector);
+            }
+            lastProjector = (ResultProvider) resultProjector;
+        } else if (previousProjector instanceof ResultProvider) {
             lastProjector = (ResultProvider) previousProjector;
         } else {
             lastProjector = new CollectingProjector();
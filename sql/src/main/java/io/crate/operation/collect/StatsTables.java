@@ -21,8 +21,7 @@
 
 package io.crate.operation.collect;
 
-import io.crate.core.collections.NonBlockingArrayQueue;
-import io.crate.core.collections.NoopQueue;
+import io.crate.core.collections.RingBuffer;
 import io.crate.metadata.settings.CrateSettings;
 import io.crate.operation.reference.sys.job.JobContext;
 import io.crate.operation.reference.sys.job.JobContextLog;
@@ -37,7 +36,6 @@ import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -53,10 +51,13 @@ public class StatsTables {
 
     protected final Map<UUID, JobContext> jobsTable = new ConcurrentHashMap<>();
     protected final Map<UUID, OperationContext> operationsTable = new ConcurrentHashMap<>();
-    protected final AtomicReference<BlockingQueue<JobContextLog>> jobsLog = new AtomicReference<>();
-    protected final AtomicReference<BlockingQueue<OperationContextLog>> operationsLog = new AtomicReference<>();
-    private final static NoopQueue<OperationContextLog> NOOP_OPERATIONS_LOG = NoopQueue.instance();
-    private final static NoopQueue<JobContextLog> NOOP_JOBS_LOG = NoopQueue.instance();
+    protected final AtomicReference<RingBuffer<JobContextLog>> jobsLog = new AtomicReference<>();
+    protected final AtomicReference<RingBuffer<OperationContextLog>> operationsLog = new AtomicReference<>();
+    private final static RingBuffer<OperationContextLog> NOOP_OPERATIONS_LOG = new RingBuffer<>(0);
+    private final static RingBuffer<JobContextLog> NOOP_JOBS_LOG = new RingBuffer<>(0);
+
+    private final LatencyHistogram jobsLatency = new LatencyHistogram();
+    private final LatencyHistogram operationsLatency = new LatencyHistogram();
 
     private final JobsLogIterableGetter jobsLogIterableGetter;
     private final JobsIterableGetter jobsIterableGetter;
@@ -145,8 +146,9 @@ public class StatsTables {
         if (jobContext == null) {
             return;
         }
-        BlockingQueue<JobContextLog> jobContextLogs = jobsLog.get();
-        jobContextLogs.offer(new JobContextLog(jobContext, errorMessage));
+        JobContextLog jobContextLog = new JobContextLog(jobContext, errorMessage);
+        jobsLatency.record(jobContextLog.ended() - jobContextLog.started());
+        jobsLog.get().add(jobContextLog);
     }
 
     public void operationStarted(UUID operationId, UUID jobId, String name) {
@@ -168,8 +170,23 @@ public class StatsTables {
             return;
         }
         operationContext.usedBytes = usedBytes;
-        BlockingQueue<OperationContextLog> operationContextLogs = operationsLog.get();
-        operationContextLogs.offer(new OperationContextLog(operationContext, errorMessage));
+        OperationContextLog operationContextLog = new OperationContextLog(operationContext, errorMessage);
+        operationsLatency.record(operationContextLog.ended() - operationContextLog.started());
+        operationsLog.get().add(operationContextLog);
+    }
+
+    /**
+     * latencies in milliseconds of the jobs that finished since stats have been enabled
+     */
+    public LatencyHistogram jobsLatency() {
+        return jobsLatency;
+    }
+
+    /**
+     * latencies in milliseconds of the operations that finished since stats have been enabled
+     */
+    public LatencyHistogram operationsLatency() {
+        return operationsLatency;
     }
 
 
@@ -225,12 +242,12 @@ public class StatsTables {
         if (size == 0) {
             operationsLog.set(NOOP_OPERATIONS_LOG);
         } else {
-            BlockingQueue<OperationContextLog> oldQ = operationsLog.get();
-            NonBlockingArrayQueue<OperationContextLog> newQ = new NonBlockingArrayQueue<>(size);
-            if (oldQ != null && oldQ.size() > 0) {
-                oldQ.drainTo(newQ, size);
+            RingBuffer<OperationContextLog> oldLog = operationsLog.get();
+            RingBuffer<OperationContextLog> newLog = new RingBuffer<>(size);
+            if (oldLog != null) {
+                oldLog.copyTo(newLog);
             }
-            operationsLog.set(newQ);
+            operationsLog.set(newLog);
         }
     }
 
@@ -238,12 +255,12 @@ public class StatsTables {
         if (size == 0) {
             jobsLog.set(NOOP_JOBS_LOG);
         } else {
-            BlockingQueue<JobContextLog> oldQ = jobsLog.get();
-            NonBlockingArrayQueue<JobContextLog> newQ = new NonBlockingArrayQueue<>(size);
-            if (oldQ != null && oldQ.size() > 0) {
-                oldQ.drainTo(newQ, size);
+            RingBuffer<JobContextLog> oldLog = jobsLog.get();
+            RingBuffer<JobContextLog> newLog = new RingBuffer<>(size);
+            if (oldLog != null) {
+                oldLog.copyTo(newLog);
             }
-            jobsLog.set(newQ);
+            jobsLog.set(newLog);
         }
     }
 
@@ -270,6 +287,8 @@ public class StatsTables {
             } else if (wasEnabled) { // !becomesEnabled
                 setOperationsLog(0);
                 setJobsLog(0);
+                jobsLatency.reset();
+                operationsLatency.reset();
                 lastIsEnabled = false;
 
                 lastOperationsLogSize = CrateSettings.STATS_OPERATIONS_LOG_SIZE.extract(settings);
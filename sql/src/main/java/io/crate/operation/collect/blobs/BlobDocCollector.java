@@ -27,16 +27,24 @@ import io.crate.breaker.RamAccountingContext;
 import io.crate.operation.Input;
 import io.crate.operation.collect.CrateCollector;
 import io.crate.operation.projectors.Projector;
+import org.elasticsearch.common.Nullable;
 
 import java.io.File;
 import java.util.List;
+import java.util.regex.Pattern;
 
 public class BlobDocCollector implements CrateCollector {
 
+    /**
+     * blob files are named after the lowercase sha1 hex digest of their content
+     */
+    private static final Pattern DIGEST_PATTERN = Pattern.compile("^[0-9a-f]{40}$");
+
     private final BlobShard blobShard;
     private final List<Input<?>> inputs;
     private final List<BlobCollectorExpression<?>> expressions;
     private final Input<Boolean> condition;
+    private final String digest;
 
     private Projector downstream;
 
@@ -46,10 +54,25 @@ public class BlobDocCollector implements CrateCollector {
             List<BlobCollectorExpression<?>> expressions,
             Input<Boolean> condition,
             Projector downstream) {
+        this(blobShard, inputs, expressions, condition, null, downstream);
+    }
+
+    /**
+     * @param digest if set to a valid digest only the blob with this digest is looked up
+     *               instead of walking all blobs, the condition is still applied to it
+     */
+    public BlobDocCollector(
+            BlobShard blobShard,
+            List<Input<?>> inputs,
+            List<BlobCollectorExpression<?>> expressions,
+            Input<Boolean> condition,
+            @Nullable String digest,
+            Projector downstream) {
         this.blobShard = blobShard;
         this.inputs = inputs;
         this.expressions = expressions;
         this.condition = condition;
+        this.digest = digest;
         downstream(downstream);
     }
 
@@ -57,12 +80,26 @@ public class BlobDocCollector implements CrateCollector {
     public void doCollect(RamAccountingContext ramAccountingContext) throws Exception {
         BlobContainer.FileVisitor fileVisitor = new FileListingsFileVisitor();
         try {
-            blobShard.blobContainer().walkFiles(null, fileVisitor);
+            if (!isDigest(digest)) {
+                blobShard.blobContainer().walkFiles(null, fileVisitor);
+            } else {
+                File file = blobShard.blobContainer().getFile(digest);
+                if (file.exists()) {
+                    fileVisitor.visit(file);
+                }
+            }
         } finally {
             downstream.upstreamFinished();
         }
     }
 
+    /**
+     * @return true if the value is a valid digest and may be used as a blob file name
+     */
+    public static boolean isDigest(@Nullable String value) {
+        return value != null && DIGEST_PATTERN.matcher(value).matches();
+    }
+
     private class FileListingsFileVisitor implements BlobContainer.FileVisitor {
 
         @Override
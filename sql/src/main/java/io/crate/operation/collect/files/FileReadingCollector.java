@@ -24,6 +24,7 @@ package io.crate.operation.collect.files;
 import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
+import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import io.crate.breaker.RamAccountingContext;
@@ -31,23 +32,43 @@ import io.crate.operation.Input;
 import io.crate.operation.collect.CollectionAbortedException;
 import io.crate.operation.collect.CrateCollector;
 import io.crate.operation.projectors.Projector;
+import io.crate.operation.projectors.ThreadSafeProjector;
+import org.apache.lucene.util.BytesRef;
 
 import javax.annotation.Nullable;
-import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.net.URI;
-import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.zip.GZIPInputStream;
 
+/**
+ * Collects rows from the lines of one or more files.
+ *
+ * If an executor is given and the downstream is a {@link ThreadSafeProjector},
+ * files are read in parallel. Large uncompressed local files are additionally split into
+ * byte ranges which are read concurrently.
+ */
 public class FileReadingCollector implements CrateCollector {
 
+    /**
+     * local files are only split into ranges of at least this size
+     */
+    static final long MIN_SPLIT_SIZE = 16 * 1024 * 1024;
+
     private final Map<String, FileInputFactory> fileInputFactoryMap;
     private final URI fileUri;
     private final Predicate<URI> globPredicate;
@@ -57,8 +78,10 @@ public class FileReadingCollector implements CrateCollector {
     private URI preGlobUri;
     private Projector downstream;
     private final boolean compressed;
-    private final List<Input<?>> inputs;
-    private final List<LineCollectorExpression<?>> collectorExpressions;
+    private final Supplier<FileCollectInputSymbolVisitor.Context> contextSupplier;
+    @Nullable
+    private final Executor executor;
+    private final int maxParallelReaders;
 
     private static final Pattern HAS_GLOBS_PATTERN = Pattern.compile("(.*)[^\\\\]\\*.*");
     private static final Predicate<URI> MATCH_ALL_PREDICATE = new Predicate<URI>() {
@@ -73,8 +96,46 @@ public class FileReadingCollector implements CrateCollector {
     }
 
     public FileReadingCollector(String fileUri,
-                                List<Input<?>> inputs,
-                                List<LineCollectorExpression<?>> collectorExpressions,
+                                final List<Input<?>> inputs,
+                                final List<LineCollectorExpression<?>> collectorExpressions,
+                                Projector downstream,
+                                FileFormat format,
+                                String compression,
+                                Map<String, FileInputFactory> additionalFileInputFactories,
+                                Boolean shared,
+                                int numReaders,
+                                int readerNumber) {
+        this(fileUri,
+                new Supplier<FileCollectInputSymbolVisitor.Context>() {
+                    @Override
+                    public FileCollectInputSymbolVisitor.Context get() {
+                        FileCollectInputSymbolVisitor.Context context = new FileCollectInputSymbolVisitor.Context();
+                        context.topLevelInputs().addAll(inputs);
+                        context.expressions().addAll(collectorExpressions);
+                        return context;
+                    }
+                },
+                null,
+                1,
+                downstream,
+                format,
+                compression,
+                additionalFileInputFactories,
+                shared,
+                numReaders,
+                readerNumber);
+    }
+
+    /**
+     * @param contextSupplier supplies the inputs and expressions of one reader thread,
+     *                        every call must return new instances
+     * @param executor used to read files or file ranges in parallel, if null the calling thread reads everything
+     * @param maxParallelReaders maximum number of threads reading at the same time
+     */
+    public FileReadingCollector(String fileUri,
+                                Supplier<FileCollectInputSymbolVisitor.Context> contextSupplier,
+                                @Nullable Executor executor,
+                                int maxParallelReaders,
                                 Projector downstream,
                                 FileFormat format,
                                 String compression,
@@ -95,8 +156,9 @@ public class FileReadingCollector implements CrateCollector {
         }
         downstream(downstream);
         this.compressed = compression != null && compression.equalsIgnoreCase("gzip");
-        this.inputs = inputs;
-        this.collectorExpressions = collectorExpressions;
+        this.contextSupplier = contextSupplier;
+        this.executor = executor;
+        this.maxParallelReaders = Math.max(1, maxParallelReaders);
         this.fileInputFactoryMap = new HashMap<>(ImmutableMap.<String, FileInputFactory>of(
                 "s3", new FileInputFactory() {
                     @Override
@@ -151,56 +213,140 @@ public class FileReadingCollector implements CrateCollector {
         }
         Predicate<URI> uriPredicate = generateUriPredicate(fileInput);
 
-        CollectorContext collectorContext = new CollectorContext();
-        for (LineCollectorExpression<?> collectorExpression : collectorExpressions) {
-            collectorExpression.startCollect(collectorContext);
+        try {
+            List<URI> uris = getUris(fileInput, uriPredicate);
+            boolean parallel = executor != null && maxParallelReaders > 1
+                    && downstream instanceof ThreadSafeProjector;
+            if (!parallel) {
+                LineProcessor lineProcessor = new LineProcessor();
+                for (URI uri : uris) {
+                    InputStream inputStream = fileInput.getStream(uri);
+                    if (inputStream != null) {
+                        lineProcessor.process(createReader(inputStream));
+                    }
+                }
+            } else {
+                collectParallel(fileInput, uris);
+            }
+        } finally {
+            downstream.upstreamFinished();
         }
-        Object[] newRow;
-        String line;
-        List<URI> uris;
-        uris = getUris(fileInput, uriPredicate);
+    }
+
+    /**
+     * Read all splits using the calling thread and up to <code>maxParallelReaders - 1</code>
+     * threads of the executor. Every reader takes the next unread split until none is left.
+     * The calling thread reads splits too, so the collect makes progress even if the executor
+     * doesn't run the submitted readers in time.
+     */
+    private void collectParallel(FileInput fileInput, List<URI> uris) throws IOException {
+        final List<FileSplit> splits = new ArrayList<>();
+        final List<FileChannel> channels = new ArrayList<>();
         try {
             for (URI uri : uris) {
-                InputStream inputStream = fileInput.getStream(uri);
-                if (inputStream == null) {
-                    continue;
+                addSplits(fileInput, uri, splits, channels);
+            }
+            final AtomicInteger nextSplit = new AtomicInteger(0);
+            final CountDownLatch splitsDone = new CountDownLatch(splits.size());
+            final AtomicReference<Throwable> failure = new AtomicReference<>();
+            Runnable reader = new Runnable() {
+                @Override
+                public void run() {
+                    LineProcessor lineProcessor = null;
+                    int split;
+                    while ((split = nextSplit.getAndIncrement()) < splits.size()) {
+                        try {
+                            if (failure.get() == null) {
+                                if (lineProcessor == null) {
+                                    lineProcessor = new LineProcessor();
+                                }
+                                LineReader lineReader = splits.get(split).open();
+                                if (lineReader != null) {
+                                    lineProcessor.process(lineReader);
+                                }
+                            }
+                        } catch (Throwable t) {
+                            failure.compareAndSet(null, t);
+                        } finally {
+                            splitsDone.countDown();
+                        }
+                    }
                 }
-                BufferedReader reader;
-                reader = createReader(inputStream);
+            };
 
+            int numThreads = Math.min(maxParallelReaders, splits.size());
+            for (int i = 1; i < numThreads; i++) {
                 try {
-                    while ((line = reader.readLine()) != null) {
-                        collectorContext.lineContext().rawSource(line.getBytes());
-                        newRow = new Object[inputs.size()];
-                        for (LineCollectorExpression expression : collectorExpressions) {
-                            expression.setNextLine(line);
-                        }
-                        int i = 0;
-                        for (Input<?> input : inputs) {
-                            newRow[i++] = input.value();
-                        }
-                        if (!downstream.setNextRow(newRow)) {
-                            throw new CollectionAbortedException();
-                        }
-                    }
-                } finally {
-                    reader.close();
+                    executor.execute(reader);
+                } catch (RejectedExecutionException e) {
+                    // remaining splits are read by the calling thread
+                    break;
                 }
             }
+            reader.run();
+            try {
+                splitsDone.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CollectionAbortedException();
+            }
+
+            Throwable t = failure.get();
+            if (t != null) {
+                if (t instanceof IOException) {
+                    throw (IOException) t;
+                }
+                if (t instanceof RuntimeException) {
+                    throw (RuntimeException) t;
+                }
+                throw new RuntimeException(t);
+            }
         } finally {
-            downstream.upstreamFinished();
+            for (FileChannel channel : channels) {
+                channel.close();
+            }
+        }
+    }
+
+    private void addSplits(final FileInput fileInput, final URI uri,
+                           List<FileSplit> splits, List<FileChannel> channels) throws IOException {
+        if (!compressed && "file".equals(uri.getScheme())) {
+            File file = new File(uri);
+            long size = file.length();
+            int numSplits = (int) Math.min(maxParallelReaders, size / MIN_SPLIT_SIZE);
+            if (numSplits > 1) {
+                final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+                channels.add(channel);
+                for (int i = 0; i < numSplits; i++) {
+                    final long start = size * i / numSplits;
+                    final long end = i == numSplits - 1 ? Long.MAX_VALUE : size * (i + 1) / numSplits;
+                    splits.add(new FileSplit() {
+                        @Override
+                        public LineReader open() throws IOException {
+                            return LineReader.forRange(channel, start, end);
+                        }
+                    });
+                }
+                return;
+            }
         }
+        splits.add(new FileSplit() {
+            @Override
+            public LineReader open() throws IOException {
+                InputStream inputStream = fileInput.getStream(uri);
+                if (inputStream == null) {
+                    return null;
+                }
+                return createReader(inputStream);
+            }
+        });
     }
 
-    private BufferedReader createReader(InputStream inputStream) throws IOException {
-        BufferedReader reader;
+    private LineReader createReader(InputStream inputStream) throws IOException {
         if (compressed) {
-            reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(inputStream),
-                    StandardCharsets.UTF_8));
-        } else {
-            reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+            return LineReader.forStream(new GZIPInputStream(inputStream));
         }
-        return reader;
+        return LineReader.forStream(inputStream);
     }
 
     private List<URI> getUris(FileInput fileInput, Predicate<URI> uriPredicate) throws IOException {
@@ -239,6 +385,58 @@ public class FileReadingCollector implements CrateCollector {
         return moduloPredicate;
     }
 
+    private interface FileSplit {
+
+        /**
+         * @return a reader for the lines of this split or null if the file doesn't exist
+         */
+        @Nullable
+        LineReader open() throws IOException;
+    }
+
+    /**
+     * turns lines into rows using its own inputs and expressions,
+     * so that every reader thread uses a separate instance
+     */
+    private class LineProcessor {
+
+        private final List<Input<?>> inputs;
+        private final List<LineCollectorExpression<?>> collectorExpressions;
+        private final CollectorContext collectorContext = new CollectorContext();
+
+        LineProcessor() {
+            FileCollectInputSymbolVisitor.Context context = contextSupplier.get();
+            inputs = context.topLevelInputs();
+            collectorExpressions = context.expressions();
+            for (LineCollectorExpression<?> collectorExpression : collectorExpressions) {
+                collectorExpression.startCollect(collectorContext);
+            }
+        }
+
+        void process(LineReader reader) throws IOException {
+            try {
+                byte[] line;
+                while ((line = reader.readLine()) != null) {
+                    collectorContext.lineContext().rawSource(line);
+                    BytesRef lineRef = new BytesRef(line);
+                    for (LineCollectorExpression<?> expression : collectorExpressions) {
+                        expression.setNextLine(lineRef);
+                    }
+                    Object[] newRow = new Object[inputs.size()];
+                    int i = 0;
+                    for (Input<?> input : inputs) {
+                        newRow[i++] = input.value();
+                    }
+                    if (!downstream.setNextRow(newRow)) {
+                        throw new CollectionAbortedException();
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
     @Override
     public void downstream(Projector downstream) {
         this.downstream = downstream;
@@ -22,10 +22,11 @@
 package io.crate.operation.collect.files;
 
 import io.crate.operation.Input;
+import org.apache.lucene.util.BytesRef;
 
 public abstract class LineCollectorExpression<ReturnType> implements Input<ReturnType> {
 
-    public abstract void setNextLine(String line);
+    public abstract void setNextLine(BytesRef line);
 
     public abstract void startCollect(CollectorContext context);
 }
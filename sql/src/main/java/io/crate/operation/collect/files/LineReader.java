@@ -0,0 +1,154 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.operation.collect.files;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Reads newline separated lines as raw bytes, without decoding them into strings.
+ *
+ * A reader can either consume a whole {@link InputStream} or a byte range of a {@link FileChannel}.
+ * A range reader returns every line which starts inside its range, so that adjacent ranges of
+ * a file return every line exactly once, no matter where the range boundaries are.
+ */
+public abstract class LineReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private byte[] buffer = new byte[BUFFER_SIZE];
+    private int pos = 0;
+    private int limit = 0;
+    private long bufferPosition;
+    private final long end;
+    private boolean eof = false;
+
+    protected LineReader(long start, long end) {
+        this.bufferPosition = start;
+        this.end = end;
+    }
+
+    public static LineReader forStream(final InputStream inputStream) {
+        return new LineReader(0, Long.MAX_VALUE) {
+            @Override
+            protected int fill(byte[] buffer, int offset, int length) throws IOException {
+                return inputStream.read(buffer, offset, length);
+            }
+
+            @Override
+            public void close() throws IOException {
+                inputStream.close();
+            }
+        };
+    }
+
+    /**
+     * create a reader for all lines of <code>channel</code> starting in the range [start, end).
+     * The channel is not closed by the reader.
+     */
+    public static LineReader forRange(final FileChannel channel, long start, long end) throws IOException {
+        // start one byte early, so the line which is cut by the range start can be skipped
+        final long readStart = Math.max(0, start - 1);
+        LineReader reader = new LineReader(readStart, end) {
+
+            private long position = readStart;
+
+            @Override
+            protected int fill(byte[] buffer, int offset, int length) throws IOException {
+                int read = channel.read(ByteBuffer.wrap(buffer, offset, length), position);
+                if (read > 0) {
+                    position += read;
+                }
+                return read;
+            }
+
+            @Override
+            public void close() throws IOException {
+            }
+        };
+        if (start > 0) {
+            reader.readLine();
+        }
+        return reader;
+    }
+
+    /**
+     * fill the buffer starting at offset
+     *
+     * @return the number of bytes read or -1 if there are no more bytes to read
+     */
+    protected abstract int fill(byte[] buffer, int offset, int length) throws IOException;
+
+    /**
+     * @return the next line without its line terminator or null if there are no more lines
+     */
+    public byte[] readLine() throws IOException {
+        if (bufferPosition + pos >= end) {
+            return null;
+        }
+        int scan = pos;
+        while (true) {
+            for (int i = scan; i < limit; i++) {
+                if (buffer[i] == '\n') {
+                    int lineEnd = (i > pos && buffer[i - 1] == '\r') ? i - 1 : i;
+                    byte[] line = Arrays.copyOfRange(buffer, pos, lineEnd);
+                    pos = i + 1;
+                    return line;
+                }
+            }
+            scan = limit;
+            if (eof) {
+                if (pos == limit) {
+                    return null;
+                }
+                byte[] line = Arrays.copyOfRange(buffer, pos, limit);
+                pos = limit;
+                return line;
+            }
+            int scanOffset = scan - pos;
+            readMore();
+            scan = pos + scanOffset;
+        }
+    }
+
+    private void readMore() throws IOException {
+        if (pos > 0) {
+            System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+            bufferPosition += pos;
+            limit -= pos;
+            pos = 0;
+        }
+        if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        int read = fill(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            eof = true;
+        } else {
+            limit += read;
+        }
+    }
+}
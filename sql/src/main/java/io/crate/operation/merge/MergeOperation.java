@@ -29,6 +29,7 @@ import io.crate.operation.ImplementationSymbolVisitor;
 import io.crate.operation.projectors.FlatProjectorChain;
 import io.crate.operation.projectors.ProjectionToProjectorVisitor;
 import io.crate.operation.projectors.Projector;
+import io.crate.operation.projectors.ThreadSafeProjector;
 import io.crate.planner.node.dql.MergeNode;
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.common.settings.Settings;
@@ -66,6 +67,19 @@ public class MergeOperation implements DownstreamOperation {
     }
 
     public boolean addRows(Object[][] rows) throws Exception {
+        if (downstream instanceof ThreadSafeProjector) {
+            // no need to serialize the upstreams
+            for (Object[] row : rows) {
+                if (!wantMore.get()) {
+                    return false;
+                }
+                if (!downstream.setNextRow(row)) {
+                    wantMore.set(false);
+                    return false;
+                }
+            }
+            return wantMore.get();
+        }
         for (Object[] row : rows) {
             boolean more = wantMore.get();
             if (more) {
@@ -21,15 +21,20 @@
 
 package io.crate.operation.operator;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import io.crate.metadata.FunctionInfo;
 import io.crate.operation.Input;
 import io.crate.planner.symbol.Function;
 import io.crate.planner.symbol.Literal;
 import io.crate.planner.symbol.Symbol;
 import io.crate.types.DataTypes;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.WildcardQuery;
 import org.apache.lucene.util.BytesRef;
-
-import java.util.regex.Pattern;
+import org.apache.lucene.util.automaton.CharacterRunAutomaton;
+import org.elasticsearch.common.Nullable;
 
 public class LikeOperator extends Operator<BytesRef> {
 
@@ -39,6 +44,20 @@ public class LikeOperator extends Operator<BytesRef> {
 
     public static final char DEFAULT_ESCAPE = '\\';
 
+    /**
+     * compiled patterns, so that patterns which are only known at execution time,
+     * e.g. parameters or column values, aren't compiled for every row
+     */
+    private static final LoadingCache<String, CharacterRunAutomaton> AUTOMATA = CacheBuilder.newBuilder()
+            .maximumSize(1000)
+            .build(new CacheLoader<String, CharacterRunAutomaton>() {
+                @Override
+                public CharacterRunAutomaton load(String pattern) throws Exception {
+                    return new CharacterRunAutomaton(
+                            WildcardQuery.toAutomaton(new Term("", patternToWildcard(pattern))));
+                }
+            });
+
     public static void register(OperatorModule module) {
         module.registerOperatorFunction(new LikeOperator(generateInfo(NAME, DataTypes.STRING)));
     }
@@ -80,11 +99,71 @@ public class LikeOperator extends Operator<BytesRef> {
         return matches(expression.utf8ToString(), pattern.utf8ToString());
     }
 
-    private boolean matches(String expression, String pattern) {
-        return Pattern.matches(
-                patternToRegex(pattern, DEFAULT_ESCAPE, true),
-                expression
-        );
+    /**
+     * match the expression against the LIKE pattern using a DFA,
+     * which runs in linear time unlike a backtracking regular expression
+     */
+    public static boolean matches(String expression, String pattern) {
+        return AUTOMATA.getUnchecked(pattern).run(expression);
+    }
+
+    /**
+     * convert a LIKE pattern into the syntax of a lucene {@link WildcardQuery}
+     */
+    public static String patternToWildcard(String pattern) {
+        StringBuilder wildcard = new StringBuilder(pattern.length() + 8);
+        boolean escaped = false;
+        for (int i = 0; i < pattern.length(); i++) {
+            char currentChar = pattern.charAt(i);
+            if (!escaped && currentChar == DEFAULT_ESCAPE) {
+                escaped = true;
+                continue;
+            }
+            if (!escaped && currentChar == '%') {
+                wildcard.append(WildcardQuery.WILDCARD_STRING);
+            } else if (!escaped && currentChar == '_') {
+                wildcard.append(WildcardQuery.WILDCARD_CHAR);
+            } else {
+                if (currentChar == WildcardQuery.WILDCARD_STRING
+                    || currentChar == WildcardQuery.WILDCARD_CHAR
+                    || currentChar == WildcardQuery.WILDCARD_ESCAPE) {
+                    wildcard.append(WildcardQuery.WILDCARD_ESCAPE);
+                }
+                wildcard.append(currentChar);
+            }
+            escaped = false;
+        }
+        return wildcard.toString();
+    }
+
+    /**
+     * @return the prefix if the pattern only consists of a literal prefix followed by a single <code>%</code>,
+     * e.g. <code>abc%</code>, otherwise null
+     */
+    @Nullable
+    public static String prefix(String pattern) {
+        if (pattern.length() < 2 || pattern.charAt(pattern.length() - 1) != '%') {
+            return null;
+        }
+        StringBuilder prefix = new StringBuilder(pattern.length() - 1);
+        boolean escaped = false;
+        for (int i = 0; i < pattern.length() - 1; i++) {
+            char currentChar = pattern.charAt(i);
+            if (!escaped && currentChar == DEFAULT_ESCAPE) {
+                escaped = true;
+                continue;
+            }
+            if (!escaped && (currentChar == '%' || currentChar == '_')) {
+                return null;
+            }
+            prefix.append(currentChar);
+            escaped = false;
+        }
+        if (escaped) {
+            // the trailing % is escaped
+            return null;
+        }
+        return prefix.toString();
     }
 
     public static String patternToRegex(String patternString, char escapeChar, boolean shouldEscape) {
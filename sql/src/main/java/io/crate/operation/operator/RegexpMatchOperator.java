@@ -21,6 +21,10 @@
 
 package io.crate.operation.operator;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import io.crate.metadata.FunctionInfo;
 import io.crate.operation.Input;
 import io.crate.planner.symbol.Function;
@@ -37,6 +41,15 @@ public class RegexpMatchOperator extends Operator<BytesRef> {
     public static final String NAME = "op_~";
     public static final FunctionInfo INFO = generateInfo(NAME, DataTypes.STRING);
 
+    private static final LoadingCache<String, ByteRunAutomaton> AUTOMATA = CacheBuilder.newBuilder()
+            .maximumSize(1000)
+            .build(new CacheLoader<String, ByteRunAutomaton>() {
+                @Override
+                public ByteRunAutomaton load(String pattern) throws Exception {
+                    return new ByteRunAutomaton(new RegExp(pattern).toAutomaton());
+                }
+            });
+
     public static void register(OperatorModule module) {
         module.registerOperatorFunction(new RegexpMatchOperator());
     }
@@ -53,11 +66,22 @@ public class RegexpMatchOperator extends Operator<BytesRef> {
         if (pattern == null) {
             return null;
         }
-        RegExp regexp = new RegExp(pattern.utf8ToString());
-        ByteRunAutomaton regexpRunAutomaton = new ByteRunAutomaton(regexp.toAutomaton());
+        ByteRunAutomaton regexpRunAutomaton = automaton(pattern.utf8ToString());
         return regexpRunAutomaton.run(source.bytes, source.offset, source.length);
     }
 
+    private static ByteRunAutomaton automaton(String pattern) {
+        try {
+            return AUTOMATA.getUnchecked(pattern);
+        } catch (UncheckedExecutionException e) {
+            // unwrap IllegalArgumentException of invalid patterns
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
     @Override
     public FunctionInfo info() {
         return INFO;
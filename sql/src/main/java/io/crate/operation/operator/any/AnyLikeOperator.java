@@ -27,8 +27,6 @@ import io.crate.operation.operator.LikeOperator;
 import io.crate.operation.operator.OperatorModule;
 import io.crate.planner.symbol.Function;
 
-import java.util.regex.Pattern;
-
 
 public class AnyLikeOperator extends AbstractAnyLikeOperator<AnyLikeOperator> {
 
@@ -56,9 +54,6 @@ public class AnyLikeOperator extends AbstractAnyLikeOperator<AnyLikeOperator> {
     }
 
     protected boolean matches(String expression, String pattern) {
-        return Pattern.matches(
-                LikeOperator.patternToRegex(pattern, LikeOperator.DEFAULT_ESCAPE, true),
-                expression
-        );
+        return LikeOperator.matches(expression, pattern);
     }
 }
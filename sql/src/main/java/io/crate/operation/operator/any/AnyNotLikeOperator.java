@@ -27,8 +27,6 @@ import io.crate.operation.operator.LikeOperator;
 import io.crate.operation.operator.OperatorModule;
 import io.crate.planner.symbol.Function;
 
-import java.util.regex.Pattern;
-
 public class AnyNotLikeOperator extends AbstractAnyLikeOperator<AnyNotLikeOperator> {
 
     public static final String NAME = AnyOperator.OPERATOR_PREFIX + "not_like";
@@ -56,9 +54,6 @@ public class AnyNotLikeOperator extends AbstractAnyLikeOperator<AnyNotLikeOperat
 
     @Override
     protected boolean matches(String expression, String pattern) {
-        return !Pattern.matches(
-                LikeOperator.patternToRegex(pattern, LikeOperator.DEFAULT_ESCAPE, true),
-                expression
-        );
+        return !LikeOperator.matches(expression, pattern);
     }
 }
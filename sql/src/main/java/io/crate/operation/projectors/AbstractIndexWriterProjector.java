@@ -39,6 +39,7 @@ import io.crate.operation.collect.CollectExpression;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.admin.indices.create.TransportCreateIndexAction;
+import org.elasticsearch.action.bulk.BulkRetryCoordinator;
 import org.elasticsearch.action.bulk.BulkShardProcessor;
 import org.elasticsearch.action.bulk.TransportShardBulkActionDelegate;
 import org.elasticsearch.cluster.ClusterService;
@@ -53,7 +54,7 @@ import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 
-public abstract class AbstractIndexWriterProjector implements Projector {
+public abstract class AbstractIndexWriterProjector implements ThreadSafeProjector {
 
     private final AtomicInteger remainingUpstreams = new AtomicInteger(0);
     private final CollectExpression<?>[] collectExpressions;
@@ -80,6 +81,7 @@ public abstract class AbstractIndexWriterProjector implements Projector {
                                            Settings settings,
                                            TransportShardBulkActionDelegate transportShardBulkActionDelegate,
                                            TransportCreateIndexAction transportCreateIndexAction,
+                                           BulkRetryCoordinator bulkRetryCoordinator,
                                            final String tableName,
                                            List<ColumnIdent> primaryKeys,
                                            List<Input<?>> idInputs,
@@ -114,6 +116,7 @@ public abstract class AbstractIndexWriterProjector implements Projector {
                 settings,
                 transportShardBulkActionDelegate,
                 transportCreateIndexAction,
+                bulkRetryCoordinator,
                 autoCreateIndices,
                 false,
                 MoreObjects.firstNonNull(bulkActions, 100)
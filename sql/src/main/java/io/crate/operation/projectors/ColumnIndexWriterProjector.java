@@ -25,6 +25,7 @@ import io.crate.metadata.ColumnIdent;
 import io.crate.operation.Input;
 import io.crate.operation.collect.CollectExpression;
 import org.elasticsearch.action.admin.indices.create.TransportCreateIndexAction;
+import org.elasticsearch.action.bulk.BulkRetryCoordinator;
 import org.elasticsearch.action.bulk.TransportShardBulkAction;
 import org.elasticsearch.action.bulk.TransportShardBulkActionDelegate;
 import org.elasticsearch.client.Requests;
@@ -53,6 +54,7 @@ public class ColumnIndexWriterProjector extends AbstractIndexWriterProjector {
                                          Settings settings,
                                          TransportShardBulkActionDelegate transportShardBulkActionDelegate,
                                          TransportCreateIndexAction transportCreateIndexAction,
+                                         BulkRetryCoordinator bulkRetryCoordinator,
                                          String tableName,
                                          List<ColumnIdent> primaryKeys,
                                          List<Input<?>> idInputs,
@@ -65,7 +67,7 @@ public class ColumnIndexWriterProjector extends AbstractIndexWriterProjector {
                                          @Nullable Integer bulkActions,
                                          boolean autoCreateIndices) {
         super(clusterService, settings, transportShardBulkActionDelegate,
-                transportCreateIndexAction, tableName, primaryKeys, idInputs,
+                transportCreateIndexAction, bulkRetryCoordinator, tableName, primaryKeys, idInputs,
                 partitionedByInputs, routingIdent, routingInput, collectExpressions,
                 bulkActions, autoCreateIndices);
         assert columnIdents.size() == columnInputs.size();
@@ -21,11 +21,13 @@
 
 package io.crate.operation.projectors;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.ListenableFuture;
 import io.crate.breaker.RamAccountingContext;
 import io.crate.planner.projection.Projection;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -52,9 +54,23 @@ public class FlatProjectorChain {
     public FlatProjectorChain(List<Projection> projections,
                               ProjectionToProjectorVisitor projectorVisitor,
                               RamAccountingContext ramAccountingContext) {
+        this(projections, projectorVisitor, ramAccountingContext, null);
+    }
+
+    /**
+     * @param resultProjector a projector which is also a {@link ResultProvider} and receives the rows of the
+     *                        last projector instead of a {@link CollectingProjector}.
+     *                        The last projection must support downstreams if it is given.
+     */
+    public FlatProjectorChain(List<Projection> projections,
+                              ProjectionToProjectorVisitor projectorVisitor,
+                              RamAccountingContext ramAccountingContext,
+                              @Nullable Projector resultProjector) {
+        Preconditions.checkArgument(resultProjector == null || resultProjector instanceof ResultProvider,
+                "resultProjector must be a ResultProvider");
         projectors = new ArrayList<>();
         if (projections.size() == 0) {
-            firstProjector = new CollectingProjector();
+            firstProjector = resultProjector == null ? new CollectingProjector() : resultProjector;
             lastProjector = (ResultProvider)firstProjector;
             projectors.add(firstProjector);
         } else {
@@ -71,7 +87,10 @@ public class FlatProjectorChain {
             }
 
             assert previousProjector != null;
-            if (previousProjector instanceof ResultProvider) {
+            if (resultProjector != null) {
+                lastProjector = (ResultProvider)resultProjector;
+                previousProjector.downstream(resultProjector);
+            } else if (previousProjector instanceof ResultProvider) {
                 lastProjector = (ResultProvider)previousProjector;
             } else {
                 lastProjector = new CollectingProjector();
@@ -21,12 +21,17 @@
 
 package io.crate.operation.projectors;
 
+import com.carrotsearch.hppc.LongObjectOpenHashMap;
+import com.carrotsearch.hppc.cursors.LongObjectCursor;
 import com.google.common.base.Predicate;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import io.crate.breaker.RamAccountingContext;
 import io.crate.breaker.SizeEstimator;
 import io.crate.breaker.SizeEstimatorFactory;
 import io.crate.operation.AggregationContext;
+import io.crate.operation.ImplementationSymbolVisitor;
 import io.crate.operation.Input;
 import io.crate.operation.ProjectorUpstream;
 import io.crate.operation.aggregation.AggregationCollector;
@@ -34,6 +39,12 @@ import io.crate.operation.aggregation.AggregationState;
 import io.crate.operation.collect.CollectExpression;
 import io.crate.types.DataType;
 import io.crate.types.DataTypes;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.ByteBlockPool;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefHash;
+import org.apache.lucene.util.Counter;
+import org.apache.lucene.util.RamUsageEstimator;
 import org.elasticsearch.common.breaker.CircuitBreakingException;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
@@ -41,21 +52,50 @@ import org.elasticsearch.common.unit.ByteSizeValue;
 
 import javax.annotation.Nullable;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
-public class GroupingProjector implements Projector {
+public class GroupingProjector implements ThreadSafeProjector, BatchProjector {
 
-    private final CollectExpression[] collectExpressions;
+    /**
+     * key types which are grouped using a primitive long hash table
+     */
+    private static final ImmutableSet<DataType> LONG_KEY_TYPES = ImmutableSet.<DataType>of(
+            DataTypes.LONG,
+            DataTypes.INTEGER,
+            DataTypes.SHORT,
+            DataTypes.BYTE,
+            DataTypes.TIMESTAMP
+    );
+
+    /**
+     * the byte pool can't hold keys that don't fit into a single block (incl. the 2 length bytes)
+     */
+    private static final int MAX_POOLED_KEY_LENGTH = ByteBlockPool.BYTE_BLOCK_SIZE - 2;
 
     private final ESLogger logger = Loggers.getLogger(getClass());
     private final RamAccountingContext ramAccountingContext;
+    private final List<? extends DataType> keyTypes;
+
+    /**
+     * creates the inputs for a new grouper, null if all upstreams share {@link #sharedGrouper}
+     */
+    private final Supplier<ImplementationSymbolVisitor.Context> inputsSupplier;
+    private final Map<Thread, Grouper> threadGroupers = new ConcurrentHashMap<>();
+    private final CollectExpression[] sharedCollectExpressions;
+    private final Grouper sharedGrouper;
 
-    private Grouper grouper;
-    private Projector downstream;
+    private volatile Projector downstream;
     private AtomicInteger remainingUpstreams = new AtomicInteger(0);
+    private final AtomicBoolean finished = new AtomicBoolean(false);
     private final AtomicReference<Throwable> failure = new AtomicReference<>(null);
 
+    /**
+     * Create a GroupingProjector whose inputs are shared by all upstreams.
+     * Rows are grouped by a single grouper and {@link #setNextRow(Object...)} is synchronized.
+     */
     public GroupingProjector(List<? extends DataType> keyTypes,
                              List<Input<?>> keyInputs,
                              CollectExpression[] collectExpressions,
@@ -63,9 +103,36 @@ public class GroupingProjector implements Projector {
                              RamAccountingContext ramAccountingContext) {
         assert keyTypes.size() == keyInputs.size() : "number of key types must match with number of key inputs";
         assert allTypesKnown(keyTypes) : "must have a known type for each key input";
-        this.collectExpressions = collectExpressions;
+        this.keyTypes = keyTypes;
+        this.ramAccountingContext = ramAccountingContext;
+        this.inputsSupplier = null;
+        this.sharedCollectExpressions = collectExpressions;
+        this.sharedGrouper = newGrouper(keyInputs, collectExpressions, aggregations);
+    }
+
+    /**
+     * Create a GroupingProjector which groups the rows of every upstream thread
+     * into its own grouper, using inputs created by <code>inputsSupplier</code>.
+     * No lock is held while rows are processed, the groupers are merged once
+     * all upstreams have finished.
+     *
+     * @param inputsSupplier supplies a context whose top level inputs are the key inputs
+     *                       and which contains the collect expressions and aggregations
+     */
+    public GroupingProjector(List<? extends DataType> keyTypes,
+                             Supplier<ImplementationSymbolVisitor.Context> inputsSupplier,
+                             RamAccountingContext ramAccountingContext) {
+        assert allTypesKnown(keyTypes) : "must have a known type for each key input";
+        this.keyTypes = keyTypes;
         this.ramAccountingContext = ramAccountingContext;
+        this.inputsSupplier = inputsSupplier;
+        this.sharedCollectExpressions = new CollectExpression[0];
+        this.sharedGrouper = null;
+    }
 
+    private Grouper newGrouper(List<Input<?>> keyInputs,
+                               CollectExpression[] collectExpressions,
+                               AggregationContext[] aggregations) {
         AggregationCollector[] aggregationCollectors = new AggregationCollector[aggregations.length];
         for (int i = 0; i < aggregations.length; i++) {
             aggregationCollectors[i] = new AggregationCollector(
@@ -77,15 +144,65 @@ public class GroupingProjector implements Projector {
 
         // grouper object size overhead
         ramAccountingContext.addBytes(8);
-        if (keyInputs.size() == 1) {
-            grouper = new SingleKeyGrouper(keyInputs.get(0), keyTypes.get(0),
+        if (keyInputs.size() == 1 && LONG_KEY_TYPES.contains(keyTypes.get(0))) {
+            return new LongKeyGrouper(keyInputs.get(0), keyTypes.get(0),
+                    collectExpressions, aggregationCollectors);
+        } else if (keyInputs.size() == 1 && keyTypes.get(0).equals(DataTypes.STRING)) {
+            return new BytesRefKeyGrouper(keyInputs.get(0),
+                    collectExpressions, aggregationCollectors);
+        } else if (keyInputs.size() == 1) {
+            return new SingleKeyGrouper(keyInputs.get(0), keyTypes.get(0),
                     collectExpressions, aggregationCollectors);
         } else {
-            grouper = new ManyKeyGrouper(keyInputs, keyTypes,
+            return new ManyKeyGrouper(keyInputs, keyTypes,
                     collectExpressions, aggregationCollectors);
         }
     }
 
+    private Grouper newGrouper() {
+        ImplementationSymbolVisitor.Context context = inputsSupplier.get();
+        assert keyTypes.size() == context.topLevelInputs().size() : "number of key types must match with number of key inputs";
+        CollectExpression[] collectExpressions = context.collectExpressions().toArray(
+                new CollectExpression[context.collectExpressions().size()]);
+        for (CollectExpression collectExpression : collectExpressions) {
+            collectExpression.startCollect();
+        }
+        return newGrouper(context.topLevelInputs(), collectExpressions, context.aggregations());
+    }
+
+    /**
+     * get the grouper of the current thread.
+     * Only the current thread adds its own entry, so no further synchronization is required.
+     */
+    private Grouper threadGrouper() {
+        Thread thread = Thread.currentThread();
+        Grouper grouper = threadGroupers.get(thread);
+        if (grouper == null) {
+            grouper = newGrouper();
+            threadGroupers.put(thread, grouper);
+        }
+        return grouper;
+    }
+
+    /**
+     * merge the groupers of all upstream threads into one.
+     * Must only be called after all upstreams have finished.
+     */
+    private Grouper mergeGroupers() {
+        if (sharedGrouper != null) {
+            return sharedGrouper;
+        }
+        Iterator<Grouper> it = threadGroupers.values().iterator();
+        if (!it.hasNext()) {
+            return newGrouper();
+        }
+        Grouper merged = it.next();
+        while (it.hasNext()) {
+            merged.merge(it.next());
+        }
+        return merged;
+    }
+
     private static boolean allTypesKnown(List<? extends DataType> keyTypes) {
         return Iterables.all(keyTypes, new Predicate<DataType>() {
             @Override
@@ -103,7 +220,7 @@ public class GroupingProjector implements Projector {
 
     @Override
     public void startProjection() {
-        for (CollectExpression collectExpression : collectExpressions) {
+        for (CollectExpression collectExpression : sharedCollectExpressions) {
             collectExpression.startCollect();
         }
 
@@ -113,16 +230,49 @@ public class GroupingProjector implements Projector {
     }
 
     @Override
-    public synchronized boolean setNextRow(final Object... row) {
+    public boolean setNextRow(final Object... row) {
         try {
-            return grouper.setNextRow(row);
+            if (sharedGrouper != null) {
+                synchronized (this) {
+                    return sharedGrouper.setNextRow(row);
+                }
+            }
+            return threadGrouper().setNextRow(row);
         } catch (CircuitBreakingException e) {
-            if (downstream != null) {
-                downstream.upstreamFailed(e);
-                downstream = null;
+            throw failDownstream(e);
+        }
+    }
+
+    @Override
+    public boolean setNextRows(Object[][] rows, int numRows) {
+        try {
+            if (sharedGrouper != null) {
+                synchronized (this) {
+                    return setNextRows(sharedGrouper, rows, numRows);
+                }
             }
-            throw e;
+            return setNextRows(threadGrouper(), rows, numRows);
+        } catch (CircuitBreakingException e) {
+            throw failDownstream(e);
+        }
+    }
+
+    private static boolean setNextRows(Grouper grouper, Object[][] rows, int numRows) {
+        for (int i = 0; i < numRows; i++) {
+            if (!grouper.setNextRow(rows[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private CircuitBreakingException failDownstream(CircuitBreakingException e) {
+        Projector downstream = this.downstream;
+        if (downstream != null) {
+            downstream.upstreamFailed(e);
+            this.downstream = null;
         }
+        return e;
     }
 
     @Override
@@ -133,8 +283,8 @@ public class GroupingProjector implements Projector {
     @Override
     public void upstreamFinished() {
         if (remainingUpstreams.decrementAndGet() <= 0) {
-            if (grouper != null) {
-                grouper.finish();
+            if (finished.compareAndSet(false, true)) {
+                mergeGroupers().finish();
                 cleanUp();
             }
         }
@@ -149,6 +299,7 @@ public class GroupingProjector implements Projector {
             if (downstream != null) {
                 downstream.upstreamFailed(throwable);
             }
+            finished.set(true);
             cleanUp();
             return;
         }
@@ -190,12 +341,71 @@ public class GroupingProjector implements Projector {
         }
     }
 
+    private void sendRows(Object[][] rows) {
+        boolean sendToDownStream = downstream != null;
+        for (Object[] row : rows) {
+            if (!sendToDownStream) {
+                break;
+            }
+            sendToDownStream = downstream.setNextRow(row);
+        }
+        if (downstream != null) {
+            downstream.upstreamFinished();
+        }
+    }
+
+    /**
+     * start a new set of aggregation states and feed the current row into them
+     */
+    private static AggregationState[] startStates(AggregationCollector[] aggregationCollectors,
+                                                  RamAccountingContext ramAccountingContext) {
+        // states array
+        ramAccountingContext.addBytes(ramAccountingContext.roundUp(12 + aggregationCollectors.length * 4));
+        AggregationState[] states = new AggregationState[aggregationCollectors.length];
+        for (int i = 0; i < aggregationCollectors.length; i++) {
+            aggregationCollectors[i].startCollect(ramAccountingContext);
+            aggregationCollectors[i].processRow();
+            states[i] = aggregationCollectors[i].state();
+        }
+        return states;
+    }
+
+    private static void processStates(AggregationCollector[] aggregationCollectors,
+                                      AggregationState[] states) {
+        for (int i = 0; i < aggregationCollectors.length; i++) {
+            aggregationCollectors[i].state(states[i]);
+            aggregationCollectors[i].processRow();
+        }
+    }
+
+    private static void statesToRow(AggregationState[] aggregationStates,
+                                    Object[] row,
+                                    AggregationCollector[] aggregationCollectors) {
+        for (int i = 0; i < aggregationStates.length; i++) {
+            aggregationCollectors[i].state(aggregationStates[i]);
+            row[i + 1] = aggregationCollectors[i].finishCollect();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void reduceStates(AggregationState[] states, AggregationState[] otherStates) {
+        for (int i = 0; i < states.length; i++) {
+            states[i].reduce(otherStates[i]);
+        }
+    }
+
     private void cleanUp() {
-        grouper = null;
+        threadGroupers.clear();
     }
 
     private interface Grouper {
         boolean setNextRow(final Object... row);
+
+        /**
+         * merge the groups of another grouper of the same type into this one
+         */
+        void merge(Grouper other);
+
         Object[][] finish();
     }
 
@@ -249,6 +459,18 @@ public class GroupingProjector implements Projector {
             return true;
         }
 
+        @Override
+        public void merge(Grouper other) {
+            for (Map.Entry<Object, AggregationState[]> entry : ((SingleKeyGrouper) other).result.entrySet()) {
+                AggregationState[] states = result.get(entry.getKey());
+                if (states == null) {
+                    result.put(entry.getKey(), entry.getValue());
+                } else {
+                    reduceStates(states, entry.getValue());
+                }
+            }
+        }
+
         @Override
         public Object[][] finish() {
             Throwable throwable = failure.get();
@@ -280,6 +502,304 @@ public class GroupingProjector implements Projector {
         }
     }
 
+    /**
+     * Grouper for a single key of an integral type (long, integer, short, byte, timestamp).
+     *
+     * Keys are stored unboxed in an open addressing hash table, so no key objects
+     * or map entries are allocated per group. The memory of the hash table itself is
+     * accounted exactly whenever it is resized.
+     */
+    private class LongKeyGrouper implements Grouper {
+
+        private final LongObjectOpenHashMap<AggregationState[]> result;
+        private final AggregationCollector[] aggregationCollectors;
+        private final Input keyInput;
+        private final DataType keyType;
+        private final CollectExpression[] collectExpressions;
+
+        private AggregationState[] nullKeyStates = null;
+        private long accountedTableBytes = 0;
+
+        public LongKeyGrouper(Input keyInput,
+                              DataType keyType,
+                              CollectExpression[] collectExpressions,
+                              AggregationCollector[] aggregationCollectors) {
+            this.collectExpressions = collectExpressions;
+            this.result = new LongObjectOpenHashMap<>();
+            this.keyInput = keyInput;
+            this.keyType = keyType;
+            this.aggregationCollectors = aggregationCollectors;
+            accountTable();
+        }
+
+        /**
+         * account the difference between the current and the last accounted size of the hash table
+         */
+        private void accountTable() {
+            int slots = result.keys.length;
+            long tableBytes = ramAccountingContext.roundUp(16 + slots * 8)   // long[] keys
+                    + ramAccountingContext.roundUp(16 + slots * 4)           // Object[] values
+                    + ramAccountingContext.roundUp(16 + slots);              // boolean[] allocated
+            ramAccountingContext.addBytes(tableBytes - accountedTableBytes);
+            accountedTableBytes = tableBytes;
+        }
+
+        @Override
+        public boolean setNextRow(Object... row) {
+            for (CollectExpression collectExpression : collectExpressions) {
+                collectExpression.setNextRow(row);
+            }
+
+            Object key = keyInput.value();
+            if (key == null) {
+                if (nullKeyStates == null) {
+                    nullKeyStates = startStates(aggregationCollectors, ramAccountingContext);
+                } else {
+                    processStates(aggregationCollectors, nullKeyStates);
+                }
+                return true;
+            }
+
+            long longKey = ((Number) key).longValue();
+            AggregationState[] states = result.get(longKey);
+            if (states == null) {
+                states = startStates(aggregationCollectors, ramAccountingContext);
+                int slots = result.keys.length;
+                result.put(longKey, states);
+                if (result.keys.length != slots) {
+                    accountTable();
+                }
+            } else {
+                processStates(aggregationCollectors, states);
+            }
+            return true;
+        }
+
+        @Override
+        public void merge(Grouper other) {
+            LongKeyGrouper otherGrouper = (LongKeyGrouper) other;
+            for (LongObjectCursor<AggregationState[]> cursor : otherGrouper.result) {
+                AggregationState[] states = result.get(cursor.key);
+                if (states == null) {
+                    int slots = result.keys.length;
+                    result.put(cursor.key, cursor.value);
+                    if (result.keys.length != slots) {
+                        accountTable();
+                    }
+                } else {
+                    reduceStates(states, cursor.value);
+                }
+            }
+            if (otherGrouper.nullKeyStates != null) {
+                if (nullKeyStates == null) {
+                    nullKeyStates = otherGrouper.nullKeyStates;
+                } else {
+                    reduceStates(nullKeyStates, otherGrouper.nullKeyStates);
+                }
+            }
+        }
+
+        @Override
+        public Object[][] finish() {
+            Throwable throwable = failure.get();
+            if (throwable != null && downstream != null) {
+                downstream.upstreamFailed(throwable);
+            }
+
+            int numGroups = result.size() + (nullKeyStates == null ? 0 : 1);
+            // account the multi-dimension `rows` array and the boxed keys
+            // 1st level
+            ramAccountingContext.addBytes(ramAccountingContext.roundUp(12 + numGroups * 4));
+            // 2nd level + key
+            ramAccountingContext.addBytes(numGroups * (ramAccountingContext.roundUp(
+                    (1 + aggregationCollectors.length) * 4 + 12) + 16));
+            Object[][] rows = new Object[numGroups][1 + aggregationCollectors.length];
+            int r = 0;
+            for (LongObjectCursor<AggregationState[]> cursor : result) {
+                Object[] row = rows[r];
+                row[0] = keyType.value(cursor.key);
+                statesToRow(cursor.value, row, aggregationCollectors);
+                r++;
+            }
+            if (nullKeyStates != null) {
+                Object[] row = rows[r];
+                row[0] = null;
+                statesToRow(nullKeyStates, row, aggregationCollectors);
+            }
+            sendRows(rows);
+            return rows;
+        }
+    }
+
+    /**
+     * Grouper for a single string key.
+     *
+     * The key bytes are copied into a paged byte pool and referenced by an int id,
+     * the aggregation states are stored in an array indexed by that id.
+     * Memory used by the pool and the hash table is tracked exactly by a {@link Counter}.
+     */
+    private class BytesRefKeyGrouper implements Grouper {
+
+        private final Counter bytesUsed = Counter.newCounter();
+        private final BytesRefHash keys;
+        private final Map<BytesRef, AggregationState[]> oversizedKeys = new HashMap<>();
+        private final AggregationCollector[] aggregationCollectors;
+        private final Input keyInput;
+        private final CollectExpression[] collectExpressions;
+        private final SizeEstimator sizeEstimator;
+
+        private AggregationState[][] states;
+        private AggregationState[] nullKeyStates = null;
+        private long accountedBytes = 0;
+
+        public BytesRefKeyGrouper(Input keyInput,
+                                  CollectExpression[] collectExpressions,
+                                  AggregationCollector[] aggregationCollectors) {
+            this.collectExpressions = collectExpressions;
+            this.keyInput = keyInput;
+            this.aggregationCollectors = aggregationCollectors;
+            this.sizeEstimator = SizeEstimatorFactory.create(DataTypes.STRING);
+            this.keys = new BytesRefHash(
+                    new ByteBlockPool(new ByteBlockPool.DirectTrackingAllocator(bytesUsed)),
+                    BytesRefHash.DEFAULT_CAPACITY,
+                    new BytesRefHash.DirectBytesStartArray(BytesRefHash.DEFAULT_CAPACITY, bytesUsed));
+            this.states = new AggregationState[BytesRefHash.DEFAULT_CAPACITY][];
+            accountBytesUsed();
+        }
+
+        /**
+         * account the difference between the current and the last accounted size
+         * of the byte pool, the hash table and the states array
+         */
+        private void accountBytesUsed() {
+            long bytes = bytesUsed.get() + ramAccountingContext.roundUp(16 + states.length * 4);
+            ramAccountingContext.addBytes(bytes - accountedBytes);
+            accountedBytes = bytes;
+        }
+
+        @Override
+        public boolean setNextRow(Object... row) {
+            for (CollectExpression collectExpression : collectExpressions) {
+                collectExpression.setNextRow(row);
+            }
+
+            BytesRef key = DataTypes.STRING.value(keyInput.value());
+            if (key == null) {
+                if (nullKeyStates == null) {
+                    nullKeyStates = startStates(aggregationCollectors, ramAccountingContext);
+                } else {
+                    processStates(aggregationCollectors, nullKeyStates);
+                }
+                return true;
+            }
+            if (key.length >= MAX_POOLED_KEY_LENGTH) {
+                return setNextOversizedKey(key);
+            }
+
+            int id = keys.add(key);
+            if (id >= 0) {
+                if (id >= states.length) {
+                    states = Arrays.copyOf(states,
+                            ArrayUtil.oversize(id + 1, RamUsageEstimator.NUM_BYTES_OBJECT_REF));
+                }
+                states[id] = startStates(aggregationCollectors, ramAccountingContext);
+                accountBytesUsed();
+            } else {
+                processStates(aggregationCollectors, states[-id - 1]);
+            }
+            return true;
+        }
+
+        private boolean setNextOversizedKey(BytesRef key) {
+            AggregationState[] keyStates = oversizedKeys.get(key);
+            if (keyStates == null) {
+                keyStates = startStates(aggregationCollectors, ramAccountingContext);
+                ramAccountingContext.addBytes(
+                        ramAccountingContext.roundUp(sizeEstimator.estimateSize(key)) + 24); // 24 bytes overhead per entry
+                oversizedKeys.put(BytesRef.deepCopyOf(key), keyStates);
+            } else {
+                processStates(aggregationCollectors, keyStates);
+            }
+            return true;
+        }
+
+        @Override
+        public void merge(Grouper other) {
+            BytesRefKeyGrouper otherGrouper = (BytesRefKeyGrouper) other;
+            BytesRef spare = new BytesRef();
+            for (int otherId = 0; otherId < otherGrouper.keys.size(); otherId++) {
+                otherGrouper.keys.get(otherId, spare);
+                int id = keys.add(spare);
+                if (id >= 0) {
+                    if (id >= states.length) {
+                        states = Arrays.copyOf(states,
+                                ArrayUtil.oversize(id + 1, RamUsageEstimator.NUM_BYTES_OBJECT_REF));
+                    }
+                    states[id] = otherGrouper.states[otherId];
+                } else {
+                    reduceStates(states[-id - 1], otherGrouper.states[otherId]);
+                }
+            }
+            accountBytesUsed();
+            for (Map.Entry<BytesRef, AggregationState[]> entry : otherGrouper.oversizedKeys.entrySet()) {
+                AggregationState[] keyStates = oversizedKeys.get(entry.getKey());
+                if (keyStates == null) {
+                    oversizedKeys.put(entry.getKey(), entry.getValue());
+                } else {
+                    reduceStates(keyStates, entry.getValue());
+                }
+            }
+            if (otherGrouper.nullKeyStates != null) {
+                if (nullKeyStates == null) {
+                    nullKeyStates = otherGrouper.nullKeyStates;
+                } else {
+                    reduceStates(nullKeyStates, otherGrouper.nullKeyStates);
+                }
+            }
+        }
+
+        @Override
+        public Object[][] finish() {
+            Throwable throwable = failure.get();
+            if (throwable != null && downstream != null) {
+                downstream.upstreamFailed(throwable);
+            }
+
+            int numGroups = keys.size() + oversizedKeys.size() + (nullKeyStates == null ? 0 : 1);
+            // account the multi-dimension `rows` array
+            // 1st level
+            ramAccountingContext.addBytes(ramAccountingContext.roundUp(12 + numGroups * 4));
+            // 2nd level
+            ramAccountingContext.addBytes(numGroups * ramAccountingContext.roundUp(
+                    (1 + aggregationCollectors.length) * 4 + 12));
+            Object[][] rows = new Object[numGroups][1 + aggregationCollectors.length];
+            BytesRef spare = new BytesRef();
+            int r = 0;
+            for (int id = 0; id < keys.size(); id++) {
+                Object[] row = rows[r];
+                keys.get(id, spare);
+                // keys are materialized out of the pool
+                ramAccountingContext.addBytes(ramAccountingContext.roundUp(sizeEstimator.estimateSize(spare)));
+                row[0] = BytesRef.deepCopyOf(spare);
+                statesToRow(states[id], row, aggregationCollectors);
+                r++;
+            }
+            for (Map.Entry<BytesRef, AggregationState[]> entry : oversizedKeys.entrySet()) {
+                Object[] row = rows[r];
+                row[0] = entry.getKey();
+                statesToRow(entry.getValue(), row, aggregationCollectors);
+                r++;
+            }
+            if (nullKeyStates != null) {
+                Object[] row = rows[r];
+                row[0] = null;
+                statesToRow(nullKeyStates, row, aggregationCollectors);
+            }
+            sendRows(rows);
+            return rows;
+        }
+    }
+
     private class ManyKeyGrouper implements Grouper {
 
         private final AggregationCollector[] aggregationCollectors;
@@ -344,6 +864,18 @@ public class GroupingProjector implements Projector {
             return true;
         }
 
+        @Override
+        public void merge(Grouper other) {
+            for (Map.Entry<List<Object>, AggregationState[]> entry : ((ManyKeyGrouper) other).result.entrySet()) {
+                AggregationState[] states = result.get(entry.getKey());
+                if (states == null) {
+                    result.put(entry.getKey(), entry.getValue());
+                } else {
+                    reduceStates(states, entry.getValue());
+                }
+            }
+        }
+
         @Override
         public Object[][] finish() {
             Throwable throwable = failure.get();
@@ -26,6 +26,7 @@ import io.crate.operation.Input;
 import io.crate.operation.collect.CollectExpression;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.action.admin.indices.create.TransportCreateIndexAction;
+import org.elasticsearch.action.bulk.BulkRetryCoordinator;
 import org.elasticsearch.action.bulk.TransportShardBulkAction;
 import org.elasticsearch.action.bulk.TransportShardBulkActionDelegate;
 import org.elasticsearch.client.Requests;
@@ -53,6 +54,7 @@ public class IndexWriterProjector extends AbstractIndexWriterProjector {
                                 Settings settings,
                                 TransportShardBulkActionDelegate transportShardBulkActionDelegate,
                                 TransportCreateIndexAction transportCreateIndexAction,
+                                BulkRetryCoordinator bulkRetryCoordinator,
                                 String tableName,
                                 List<ColumnIdent> primaryKeys,
                                 List<Input<?>> idInputs,
@@ -66,7 +68,7 @@ public class IndexWriterProjector extends AbstractIndexWriterProjector {
                                 @Nullable String[] excludes,
                                 boolean autoCreateIndices) {
         super(clusterService, settings, transportShardBulkActionDelegate,
-                transportCreateIndexAction, tableName, primaryKeys, idInputs, partitionedByInputs,
+                transportCreateIndexAction, bulkRetryCoordinator, tableName, primaryKeys, idInputs, partitionedByInputs,
                 routingIdent, routingInput,
                 collectExpressions, bulkActions, autoCreateIndices);
 
@@ -0,0 +1,321 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.operation.projectors;
+
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.NumericUtils;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A top-n queue for rows which are ordered by fixed width values only.
+ *
+ * The order by values of a row are encoded into a normalized key of <code>long</code>s,
+ * stored in one flat array. Comparing two keys word by word yields the order of their rows,
+ * including reverse flags and null ordering, so rows are compared without boxing.
+ *
+ * A candidate key is encoded into a scratch slot first, its row is only materialized
+ * if it beats the current bottom of the queue. The row arrays of evicted rows are reused.
+ *
+ * Not thread safe.
+ */
+class NormalizedKeyQueue {
+
+    private static final int INITIAL_SLOTS = 128;
+
+    private static final byte LONG_KEY = 0;
+    private static final byte DOUBLE_KEY = 1;
+    private static final byte INT_KEY = 2;
+    private static final byte FLOAT_KEY = 3;
+    private static final byte BOOLEAN_KEY = 4;
+
+    private final byte[] encodings;
+    private final int[] offsets;
+    private final boolean[] reverseFlags;
+    private final boolean[] nullsFirst;
+    private final int keyWidth;
+    private final int maxSize;
+    private final int rowSize;
+
+    private long[] keys;
+    private Object[][] rows;
+    /**
+     * 1-based binary heap of slots, <code>heap[1]</code> is the slot of the worst row
+     */
+    private int[] heap;
+    private int size = 0;
+    private int scratch = 0;
+    private int nextFreeSlot = 1;
+
+    /**
+     * @return true if all <code>types</code> can be encoded into a normalized key
+     */
+    static boolean supports(@Nullable List<? extends DataType> types) {
+        if (types == null || types.isEmpty()) {
+            return false;
+        }
+        for (DataType type : types) {
+            if (encoding(type) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte encoding(DataType type) {
+        if (type.equals(DataTypes.LONG) || type.equals(DataTypes.TIMESTAMP)) {
+            return LONG_KEY;
+        } else if (type.equals(DataTypes.DOUBLE)) {
+            return DOUBLE_KEY;
+        } else if (type.equals(DataTypes.INTEGER)
+                   || type.equals(DataTypes.SHORT)
+                   || type.equals(DataTypes.BYTE)) {
+            return INT_KEY;
+        } else if (type.equals(DataTypes.FLOAT)) {
+            return FLOAT_KEY;
+        } else if (type.equals(DataTypes.BOOLEAN)) {
+            return BOOLEAN_KEY;
+        }
+        return -1;
+    }
+
+    /**
+     * @param types        the types of the order by values
+     * @param reverseFlags for every order by value a boolean indicates ascending (<code>false</code>)
+     *                     or descending (<code>true</code>) order
+     * @param nullsFirst   for every order by value whether nulls are sorted first,
+     *                     if <code>null</code> nulls are last for ascending and first for descending order
+     * @param maxSize      the maximum number of rows the queue holds
+     * @param rowSize      the length of the row arrays handed out by {@link #insertCandidate()}
+     */
+    NormalizedKeyQueue(List<? extends DataType> types,
+                       boolean[] reverseFlags,
+                       Boolean[] nullsFirst,
+                       int maxSize,
+                       int rowSize) {
+        assert supports(types) : "types must be supported";
+        this.encodings = new byte[types.size()];
+        this.offsets = new int[types.size()];
+        this.reverseFlags = reverseFlags;
+        this.nullsFirst = new boolean[types.size()];
+        int width = 0;
+        for (int i = 0; i < encodings.length; i++) {
+            encodings[i] = encoding(types.get(i));
+            offsets[i] = width;
+            // values which are wider than 32 bit need an extra word to order nulls
+            width += encodings[i] == LONG_KEY || encodings[i] == DOUBLE_KEY ? 2 : 1;
+            this.nullsFirst[i] = nullsFirst[i] == null ? reverseFlags[i] : nullsFirst[i];
+        }
+        this.keyWidth = width;
+        this.maxSize = maxSize;
+        this.rowSize = rowSize;
+
+        // one slot more than maxSize is needed for the scratch key
+        int slots = Math.min(INITIAL_SLOTS, maxSize + 1);
+        keys = new long[slots * keyWidth];
+        rows = new Object[slots][];
+        heap = new int[slots + 1];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * encode the order by values of a row into the scratch key
+     *
+     * @return true if a row with these order by values would be inserted into the queue
+     */
+    boolean setCandidate(Object[] orderByValues) {
+        int base = scratch * keyWidth;
+        for (int i = 0; i < encodings.length; i++) {
+            encode(i, orderByValues[i], base + offsets[i]);
+        }
+        return size < maxSize || compareSlots(scratch, heap[1]) < 0;
+    }
+
+    /**
+     * insert the row of the candidate key. Must only be called if {@link #setCandidate(Object[])} returned true.
+     *
+     * @return the array the row values have to be written to
+     */
+    Object[] insertCandidate() {
+        int slot = insertScratch();
+        Object[] row = rows[slot];
+        if (row == null) {
+            row = new Object[rowSize];
+            rows[slot] = row;
+        }
+        return row;
+    }
+
+    /**
+     * move the rows of <code>other</code> into this queue, <code>other</code> must not be used afterwards
+     */
+    void addAll(NormalizedKeyQueue other) {
+        assert keyWidth == other.keyWidth : "queues must have the same key layout";
+        for (int i = 1; i <= other.size; i++) {
+            int otherSlot = other.heap[i];
+            System.arraycopy(other.keys, otherSlot * keyWidth, keys, scratch * keyWidth, keyWidth);
+            if (size < maxSize || compareSlots(scratch, heap[1]) < 0) {
+                int slot = insertScratch();
+                rows[slot] = other.rows[otherSlot];
+            }
+        }
+        other.size = 0;
+    }
+
+    /**
+     * @return the rows in sorted order, without the first <code>offset</code> rows.
+     * The queue is empty afterwards.
+     */
+    Object[][] drain(int offset) {
+        int resultSize = Math.max(size - offset, 0);
+        Object[][] result = new Object[resultSize][];
+        for (int i = resultSize - 1; i >= 0; i--) {
+            result[i] = rows[pop()];
+        }
+        size = 0;
+        Arrays.fill(rows, null);
+        return result;
+    }
+
+    private void encode(int column, @Nullable Object value, int offset) {
+        boolean reverse = reverseFlags[column];
+        switch (encodings[column]) {
+            case LONG_KEY:
+            case DOUBLE_KEY:
+                if (value == null) {
+                    keys[offset] = nullsFirst[column] ? -1 : 1;
+                    keys[offset + 1] = 0;
+                } else {
+                    long l = encodings[column] == LONG_KEY
+                            ? ((Number) value).longValue()
+                            : NumericUtils.doubleToSortableLong(((Number) value).doubleValue());
+                    keys[offset] = 0;
+                    keys[offset + 1] = reverse ? ~l : l;
+                }
+                break;
+            default:
+                if (value == null) {
+                    // outside of the 32 bit range every other value is encoded into
+                    keys[offset] = nullsFirst[column] ? Long.MIN_VALUE : Long.MAX_VALUE;
+                } else {
+                    int v;
+                    if (encodings[column] == INT_KEY) {
+                        v = ((Number) value).intValue();
+                    } else if (encodings[column] == FLOAT_KEY) {
+                        v = NumericUtils.floatToSortableInt(((Number) value).floatValue());
+                    } else {
+                        v = (Boolean) value ? 1 : 0;
+                    }
+                    keys[offset] = reverse ? ~v : v;
+                }
+        }
+    }
+
+    private int compareSlots(int a, int b) {
+        int aOffset = a * keyWidth;
+        int bOffset = b * keyWidth;
+        for (int i = 0; i < keyWidth; i++) {
+            long l = keys[aOffset + i];
+            long r = keys[bOffset + i];
+            if (l != r) {
+                return l < r ? -1 : 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * add the scratch slot to the heap, replacing the worst row if the queue is full
+     *
+     * @return the slot the candidate now occupies
+     */
+    private int insertScratch() {
+        int slot = scratch;
+        if (size < maxSize) {
+            heap[++size] = slot;
+            upHeap(size);
+            scratch = nextFreeSlot++;
+            ensureCapacity(scratch + 1);
+        } else {
+            // the evicted slot becomes the new scratch slot, its row array is reused
+            scratch = heap[1];
+            heap[1] = slot;
+            downHeap(1);
+        }
+        return slot;
+    }
+
+    private void ensureCapacity(int slots) {
+        if (slots > rows.length) {
+            int newSlots = Math.min(ArrayUtil.oversize(slots, 8), maxSize + 1);
+            keys = Arrays.copyOf(keys, newSlots * keyWidth);
+            rows = Arrays.copyOf(rows, newSlots);
+            heap = Arrays.copyOf(heap, newSlots + 1);
+        }
+    }
+
+    private int pop() {
+        int top = heap[1];
+        heap[1] = heap[size];
+        size--;
+        if (size > 0) {
+            downHeap(1);
+        }
+        return top;
+    }
+
+    private void upHeap(int i) {
+        int node = heap[i];
+        int parent = i >>> 1;
+        while (parent > 0 && compareSlots(node, heap[parent]) > 0) {
+            heap[i] = heap[parent];
+            i = parent;
+            parent = i >>> 1;
+        }
+        heap[i] = node;
+    }
+
+    private void downHeap(int i) {
+        int node = heap[i];
+        int child = i << 1;
+        while (child <= size) {
+            int right = child + 1;
+            if (right <= size && compareSlots(heap[right], heap[child]) > 0) {
+                child = right;
+            }
+            if (compareSlots(heap[child], node) <= 0) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+            child = i << 1;
+        }
+        heap[i] = node;
+    }
+}
@@ -21,6 +21,9 @@
 
 package io.crate.operation.projectors;
 
+import com.google.common.base.Supplier;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import io.crate.analyze.EvaluatingNormalizer;
 import io.crate.breaker.RamAccountingContext;
 import io.crate.executor.transport.TransportActionProvider;
@@ -34,10 +37,7 @@ import io.crate.types.StringType;
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.common.settings.Settings;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 public class ProjectionToProjectorVisitor extends ProjectionVisitor<ProjectionToProjectorVisitor.Context, Projector> {
 
@@ -76,39 +76,35 @@ public class ProjectionToProjectorVisitor extends ProjectionVisitor<ProjectionTo
     }
 
     @Override
-    public Projector visitTopNProjection(TopNProjection projection, Context context) {
+    public Projector visitTopNProjection(final TopNProjection projection, Context context) {
         Projector projector;
-        List<Input<?>> inputs = new ArrayList<>();
-        List<CollectExpression<?>> collectExpressions = new ArrayList<>();
-
-        ImplementationSymbolVisitor.Context ctx = symbolVisitor.process(projection.outputs());
-        inputs.addAll(ctx.topLevelInputs());
-        collectExpressions.addAll(ctx.collectExpressions());
-
         if (projection.isOrdered()) {
-            int numOutputs = inputs.size();
-            ImplementationSymbolVisitor.Context orderByCtx = symbolVisitor.process(projection.orderBy());
-
-            // append orderby inputs to row, needed for sorting on them
-            inputs.addAll(orderByCtx.topLevelInputs());
-            collectExpressions.addAll(orderByCtx.collectExpressions());
-
-            int[] orderByIndices = new int[inputs.size() - numOutputs];
-            int idx = 0;
-            for (int i = numOutputs; i < inputs.size(); i++) {
-                orderByIndices[idx++] = i;
+            int numOutputs = projection.outputs().size();
+            int[] orderByIndices = new int[projection.orderBy().size()];
+            for (int i = 0; i < orderByIndices.length; i++) {
+                // orderBy inputs are appended to the row, needed for sorting on them
+                orderByIndices[i] = numOutputs + i;
             }
 
             projector = new SortingTopNProjector(
-                    inputs.toArray(new Input<?>[inputs.size()]),
-                    collectExpressions.toArray(new CollectExpression[collectExpressions.size()]),
+                    new Supplier<ImplementationSymbolVisitor.Context>() {
+                        @Override
+                        public ImplementationSymbolVisitor.Context get() {
+                            return symbolVisitor.process(
+                                    Lists.newArrayList(Iterables.concat(projection.outputs(), projection.orderBy())));
+                        }
+                    },
                     numOutputs,
                     orderByIndices,
+                    Symbols.extractTypes(projection.orderBy()),
                     projection.reverseFlags(),
                     projection.nullsFirst(),
                     projection.limit(),
                     projection.offset());
         } else {
+            ImplementationSymbolVisitor.Context ctx = symbolVisitor.process(projection.outputs());
+            List<Input<?>> inputs = ctx.topLevelInputs();
+            Set<CollectExpression<?>> collectExpressions = ctx.collectExpressions();
             projector = new SimpleTopNProjector(
                     inputs.toArray(new Input<?>[inputs.size()]),
                     collectExpressions.toArray(new CollectExpression[collectExpressions.size()]),
@@ -119,18 +115,19 @@ public class ProjectionToProjectorVisitor extends ProjectionVisitor<ProjectionTo
     }
 
     @Override
-    public Projector visitGroupProjection(GroupProjection projection, Context context) {
-        ImplementationSymbolVisitor.Context symbolContext = symbolVisitor.process(projection.keys());
-        List<Input<?>> keyInputs = symbolContext.topLevelInputs();
-
-        for (Aggregation aggregation : projection.values()) {
-            symbolVisitor.process(aggregation, symbolContext);
-        }
+    public Projector visitGroupProjection(final GroupProjection projection, Context context) {
         return new GroupingProjector(
                 Symbols.extractTypes(projection.keys()),
-                keyInputs,
-                symbolContext.collectExpressions().toArray(new CollectExpression[symbolContext.collectExpressions().size()]),
-                symbolContext.aggregations(),
+                new Supplier<ImplementationSymbolVisitor.Context>() {
+                    @Override
+                    public ImplementationSymbolVisitor.Context get() {
+                        ImplementationSymbolVisitor.Context symbolContext = symbolVisitor.process(projection.keys());
+                        for (Aggregation aggregation : projection.values()) {
+                            symbolVisitor.process(aggregation, symbolContext);
+                        }
+                        return symbolContext;
+                    }
+                },
                 context.ramAccountingContext
         );
     }
@@ -218,6 +215,7 @@ public class ProjectionToProjectorVisitor extends ProjectionVisitor<ProjectionTo
                 settings,
                 transportActionProvider.transportShardBulkAction(),
                 transportActionProvider.transportCreateIndexAction(),
+                transportActionProvider.bulkRetryCoordinator(),
                 projection.tableName(),
                 projection.primaryKeys(),
                 idInputs,
@@ -257,6 +255,7 @@ public class ProjectionToProjectorVisitor extends ProjectionVisitor<ProjectionTo
                 settings,
                 transportActionProvider.transportShardBulkAction(),
                 transportActionProvider.transportCreateIndexAction(),
+                transportActionProvider.bulkRetryCoordinator(),
                 projection.tableName(),
                 projection.primaryKeys(),
                 idInputs,
@@ -22,24 +22,30 @@
 package io.crate.operation.projectors;
 
 import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
 import com.google.common.collect.Ordering;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 import io.crate.Constants;
 import io.crate.core.collections.ArrayIterator;
+import io.crate.operation.ImplementationSymbolVisitor;
 import io.crate.operation.Input;
 import io.crate.operation.ProjectorUpstream;
 import io.crate.operation.collect.CollectExpression;
+import io.crate.types.DataType;
 import org.apache.lucene.util.PriorityQueue;
 
 import javax.annotation.Nullable;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 
-public class SortingTopNProjector implements Projector, ResultProvider {
+public class SortingTopNProjector implements ThreadSafeProjector, BatchProjector, ResultProvider {
 
 
     class RowPriorityQueue extends PriorityQueue<Object[]> {
@@ -98,18 +104,139 @@ public class SortingTopNProjector implements Projector, ResultProvider {
     }
 
 
+    /**
+     * the queue of one upstream thread and the inputs its rows are evaluated with
+     */
+    private class TopNState {
+
+        private final Input<?>[] inputs;
+        private final CollectExpression<?>[] collectExpressions;
+
+        /**
+         * used if all orderBy inputs are of a fixed width type, {@link #pq} is null then
+         */
+        private final NormalizedKeyQueue keyQueue;
+        private final RowPriorityQueue pq;
+        private final Object[] orderByValues;
+
+        TopNState(Input<?>[] inputs, CollectExpression<?>[] collectExpressions) {
+            this.inputs = inputs;
+            this.collectExpressions = collectExpressions;
+            if (orderByPositions != null) {
+                this.keyQueue = new NormalizedKeyQueue(orderByTypes, reverseFlags, nullsFirst, maxSize, numOutputs);
+                this.pq = null;
+                this.orderByValues = new Object[orderBy.length];
+            } else {
+                this.keyQueue = null;
+                this.pq = new RowPriorityQueue(maxSize);
+                this.orderByValues = null;
+            }
+        }
+
+        void setNextRow(Object[] row) {
+            for (CollectExpression<?> collectExpression : collectExpressions) {
+                collectExpression.setNextRow(row);
+            }
+            if (keyQueue != null) {
+                insertIntoKeyQueue();
+            } else {
+                pq.insertWithOverflow(evaluateRow());
+            }
+        }
+
+        void setNextRows(Object[][] rows, int numRows) {
+            for (int i = 0; i < numRows; i++) {
+                setNextRow(rows[i]);
+            }
+        }
+
+        /**
+         * evaluates the orderBy inputs only, the outputs are evaluated if the row makes it into the queue
+         */
+        private void insertIntoKeyQueue() {
+            for (int i = 0; i < orderBy.length; i++) {
+                orderByValues[i] = inputs[orderBy[i]].value();
+            }
+            if (keyQueue.setCandidate(orderByValues)) {
+                Object[] outputRow = keyQueue.insertCandidate();
+                for (int i = 0; i < numOutputs; i++) {
+                    int orderByPosition = orderByPositions[i];
+                    outputRow[i] = orderByPosition < 0 ? inputs[i].value() : orderByValues[orderByPosition];
+                }
+            }
+        }
+
+        private Object[] evaluateRow() {
+            Object[] evaluatedRow = new Object[inputs.length];
+            int i = 0;
+            for (Input<?> input : inputs) {
+                evaluatedRow[i++] = input.value();
+            }
+            return evaluatedRow;
+        }
+
+        /**
+         * move the rows of <code>other</code> into this state
+         */
+        void merge(TopNState other) {
+            if (keyQueue != null) {
+                keyQueue.addAll(other.keyQueue);
+            } else {
+                Object[] row;
+                while ((row = other.pq.pop()) != null) {
+                    pq.insertWithOverflow(row);
+                }
+            }
+        }
+
+        /**
+         * @return the sorted output rows, without the first {@link #offset} rows
+         */
+        Object[][] result() {
+            if (keyQueue != null) {
+                return keyQueue.drain(offset);
+            }
+            final int resultSize = Math.max(pq.size() - offset, 0);
+            Object[][] rows = new Object[resultSize][];
+            for (int i = resultSize - 1; i >= 0; i--) {
+                rows[i] = Arrays.copyOfRange(pq.pop(), 0, numOutputs); // strip order by inputs
+            }
+            pq.clear();
+            return rows;
+        }
+    }
+
     private final int offset;
     private final int maxSize;
     private final int numOutputs;
 
-    private RowPriorityQueue pq;
     private final Comparator[] comparators;
+    private final int[] orderBy;
+    private final List<? extends DataType> orderByTypes;
+    private final boolean[] reverseFlags;
+    private final Boolean[] nullsFirst;
+    /**
+     * for every output the index of its value in the orderBy values or -1,
+     * null if the rows are not ordered by normalized keys
+     */
+    private final int[] orderByPositions;
     private final Input<?>[] inputs;
     private final CollectExpression<?>[] collectExpressions;
+
+    /**
+     * creates the inputs for a new state, null if all upstreams share {@link #sharedState}
+     */
+    private final Supplier<ImplementationSymbolVisitor.Context> inputsSupplier;
+    private final Map<Thread, TopNState> threadStates = new ConcurrentHashMap<>();
+    private volatile TopNState sharedState;
+
     private final AtomicInteger remainingUpstreams = new AtomicInteger(0);
     private final SettableFuture<Object[][]> result = SettableFuture.create();
 
     /**
+     * Create a SortingTopNProjector whose inputs are shared by all upstreams.
+     * {@link #setNextRow(Object...)} is synchronized.
+     *
      * @param inputs             contains output {@link io.crate.operation.Input}s and orderBy {@link io.crate.operation.Input}s
      * @param collectExpressions gathered from outputs and orderBy inputs
      * @param numOutputs         <code>inputs</code> contains this much output {@link io.crate.operation.Input}s starting form index 0
@@ -126,6 +253,59 @@ public class SortingTopNProjector implements Projector, ResultProvider {
                                 Boolean[] nullsFirst,
                                 int limit,
                                 int offset) {
+        this(inputs, collectExpressions, null, numOutputs, orderBy, null, reverseFlags, nullsFirst, limit, offset);
+    }
+
+    /**
+     * Like {@link #SortingTopNProjector(Input[], CollectExpression[], int, int[], boolean[], Boolean[], int, int)}.
+     * If all <code>orderByTypes</code> are fixed width types the rows are ordered by normalized keys.
+     *
+     * @param orderByTypes the types of the orderBy inputs, may be null if unknown
+     */
+    public SortingTopNProjector(Input<?>[] inputs,
+                                CollectExpression<?>[] collectExpressions,
+                                int numOutputs,
+                                int[] orderBy,
+                                @Nullable List<? extends DataType> orderByTypes,
+                                boolean[] reverseFlags,
+                                Boolean[] nullsFirst,
+                                int limit,
+                                int offset) {
+        this(inputs, collectExpressions, null, numOutputs, orderBy, orderByTypes, reverseFlags, nullsFirst, limit, offset);
+    }
+
+    /**
+     * Create a SortingTopNProjector which collects the rows of every upstream thread
+     * into its own queue, using inputs created by <code>inputsSupplier</code>.
+     * No lock is held while rows are processed, the queues are merged once
+     * all upstreams have finished.
+     *
+     * @param inputsSupplier supplies a context whose top level inputs contain
+     *                       the output and orderBy inputs, like <code>inputs</code> of
+     *                       {@link #SortingTopNProjector(Input[], CollectExpression[], int, int[], boolean[], Boolean[], int, int)}
+     * @param orderByTypes   the types of the orderBy inputs, may be null if unknown
+     */
+    public SortingTopNProjector(Supplier<ImplementationSymbolVisitor.Context> inputsSupplier,
+                                int numOutputs,
+                                int[] orderBy,
+                                @Nullable List<? extends DataType> orderByTypes,
+                                boolean[] reverseFlags,
+                                Boolean[] nullsFirst,
+                                int limit,
+                                int offset) {
+        this(null, null, inputsSupplier, numOutputs, orderBy, orderByTypes, reverseFlags, nullsFirst, limit, offset);
+    }
+
+    private SortingTopNProjector(@Nullable Input<?>[] inputs,
+                                 @Nullable CollectExpression<?>[] collectExpressions,
+                                 @Nullable Supplier<ImplementationSymbolVisitor.Context> inputsSupplier,
+                                 int numOutputs,
+                                 int[] orderBy,
+                                 @Nullable List<? extends DataType> orderByTypes,
+                                 boolean[] reverseFlags,
+                                 Boolean[] nullsFirst,
+                                 int limit,
+                                 int offset) {
         Preconditions.checkArgument(limit >= TopN.NO_LIMIT, "invalid limit");
         Preconditions.checkArgument(offset >= 0, "invalid offset");
         assert nullsFirst.length == reverseFlags.length;
@@ -133,7 +313,12 @@ public class SortingTopNProjector implements Projector, ResultProvider {
         this.inputs = inputs;
         this.numOutputs = numOutputs;
         this.collectExpressions = collectExpressions;
+        this.inputsSupplier = inputsSupplier;
         this.offset = offset;
+        this.orderBy = orderBy;
+        this.orderByTypes = orderByTypes;
+        this.reverseFlags = reverseFlags;
+        this.nullsFirst = nullsFirst;
 
         if (limit == TopN.NO_LIMIT) {
             limit = Constants.DEFAULT_SELECT_LIMIT;
@@ -145,11 +330,25 @@ public class SortingTopNProjector implements Projector, ResultProvider {
             boolean reverse = reverseFlags[i];
             comparators[i] = new ColOrdering(col, reverse, nullsFirst[i]);
         }
+
+        if (NormalizedKeyQueue.supports(orderByTypes)) {
+            orderByPositions = new int[numOutputs];
+            Arrays.fill(orderByPositions, -1);
+            for (int i = 0; i < orderBy.length; i++) {
+                if (orderBy[i] < numOutputs) {
+                    orderByPositions[orderBy[i]] = i;
+                }
+            }
+        } else {
+            orderByPositions = null;
+        }
     }
 
     @Override
     public void startProjection() {
-        pq = new RowPriorityQueue(maxSize);
+        if (inputsSupplier == null) {
+            sharedState = new TopNState(inputs, collectExpressions);
+        }
         if (remainingUpstreams.get() <= 0) {
             upstreamFinished();
             return;
@@ -157,27 +356,49 @@ public class SortingTopNProjector implements Projector, ResultProvider {
     }
 
     @Override
-    public synchronized boolean setNextRow(Object... row) {
-        Object[] evaluatedRow = evaluateRow(row);
-        pq.insertWithOverflow(evaluatedRow);
+    public boolean setNextRow(Object... row) {
+        if (sharedState != null) {
+            synchronized (this) {
+                sharedState.setNextRow(row);
+            }
+        } else {
+            threadState().setNextRow(row);
+        }
         return true;
     }
 
     @Override
-    public void registerUpstream(ProjectorUpstream upstream) {
-        remainingUpstreams.incrementAndGet();
+    public boolean setNextRows(Object[][] rows, int numRows) {
+        if (sharedState != null) {
+            synchronized (this) {
+                sharedState.setNextRows(rows, numRows);
+            }
+        } else {
+            threadState().setNextRows(rows, numRows);
+        }
+        return true;
     }
 
-    private Object[] evaluateRow(Object[] row) {
-        for (CollectExpression<?> collectExpression : collectExpressions) {
-            collectExpression.setNextRow(row);
-        }
-        Object[] evaluatedRow = new Object[inputs.length];
-        int i = 0;
-        for (Input<?> input : inputs) {
-            evaluatedRow[i++] = input.value();
+    /**
+     * get the state of the current thread.
+     * Only the current thread adds its own entry, so no further synchronization is required.
+     */
+    private TopNState threadState() {
+        Thread thread = Thread.currentThread();
+        TopNState state = threadStates.get(thread);
+        if (state == null) {
+            ImplementationSymbolVisitor.Context context = inputsSupplier.get();
+            state = new TopNState(
+                    context.topLevelInputs().toArray(new Input<?>[context.topLevelInputs().size()]),
+                    context.collectExpressions().toArray(new CollectExpression<?>[context.collectExpressions().size()]));
+            threadStates.put(thread, state);
         }
-        return evaluatedRow;
+        return state;
+    }
+
+    @Override
+    public void registerUpstream(ProjectorUpstream upstream) {
+        remainingUpstreams.incrementAndGet();
     }
 
     @Override
@@ -190,18 +411,34 @@ public class SortingTopNProjector implements Projector, ResultProvider {
     @Override
     public void upstreamFailed(Throwable throwable) {
         if (remainingUpstreams.decrementAndGet() <= 0) {
+            threadStates.clear();
             result.setException(throwable);
         }
     }
 
-    private void generateResult() {
-        final int resultSize = Math.max(pq.size() - offset, 0);
-        Object[][] rows = new Object[resultSize][];
-        for (int i = resultSize - 1; i >= 0; i--) {
-            rows[i] = Arrays.copyOfRange(pq.pop(), 0, numOutputs); // strip order by inputs
+    /**
+     * merge the states of all upstream threads into one.
+     * Must only be called after all upstreams have finished.
+     */
+    private TopNState mergeStates() {
+        if (sharedState != null) {
+            return sharedState;
         }
+        Iterator<TopNState> it = threadStates.values().iterator();
+        if (!it.hasNext()) {
+            return new TopNState(new Input<?>[0], new CollectExpression<?>[0]);
+        }
+        TopNState state = it.next();
+        while (it.hasNext()) {
+            state.merge(it.next());
+        }
+        return state;
+    }
+
+    private void generateResult() {
+        Object[][] rows = mergeStates().result();
+        threadStates.clear();
         result.set(rows);
-        pq.clear();
     }
 
     @Override
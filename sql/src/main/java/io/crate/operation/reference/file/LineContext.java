@@ -23,16 +23,27 @@ package io.crate.operation.reference.file;
 
 import io.crate.metadata.ColumnIdent;
 import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.ElasticsearchParseException;
+import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
 
 import javax.annotation.Nullable;
-import java.util.LinkedList;
-import java.util.Map;
+import java.io.IOException;
+import java.util.*;
 
 public class LineContext {
 
     private byte[] rawSource;
     private Map<String, Object> parsedSource;
+    private Map<String, Object> extractedColumns;
+
+    /**
+     * top level columns which are read using {@link #get(io.crate.metadata.ColumnIdent)}.
+     * Only these are materialized when a line is parsed, unless the whole source is requested.
+     */
+    private final Set<String> requiredColumns = new HashSet<>();
 
     @Nullable
     public BytesRef sourceAsBytesRef() {
@@ -53,20 +64,24 @@ public class LineContext {
         return parsedSource;
     }
 
-    public Object get(ColumnIdent columnIdent) {
-        if (parsedSource == null) {
-            // TODO: optimize if collectorContext has prefetchColumns
+    public void addRequiredColumn(ColumnIdent columnIdent) {
+        requiredColumns.add(columnIdent.name());
+    }
 
-            try {
-                parsedSource = XContentHelper.convertToMap(rawSource, false).v2();
-            } catch (NullPointerException e) {
-                return null;
-            }
+    public Object get(ColumnIdent columnIdent) {
+        Map<String, Object> source;
+        if (parsedSource == null && requiredColumns.contains(columnIdent.name())) {
+            source = extractColumns();
+        } else {
+            source = sourceAsMap();
+        }
+        if (source == null) {
+            return null;
         }
 
         LinkedList<String> path = new LinkedList<>(columnIdent.path());
         path.add(0, columnIdent.name());
-        Map parentMap = parsedSource;
+        Map parentMap = source;
 
         while (path.size() > 1) {
             Object o = parentMap.get(path.pollFirst());
@@ -83,5 +98,68 @@ public class LineContext {
     public void rawSource(byte[] bytes) {
         this.rawSource = bytes;
         this.parsedSource = null;
+        this.extractedColumns = null;
+    }
+
+    /**
+     * parse the raw source, materializing only the values of the required columns.
+     * All other values are skipped by the parser.
+     */
+    @Nullable
+    private Map<String, Object> extractColumns() {
+        if (extractedColumns == null && rawSource != null) {
+            XContentParser parser = null;
+            try {
+                parser = XContentFactory.xContent(XContentType.JSON).createParser(rawSource);
+                Map<String, Object> columns = new HashMap<>(requiredColumns.size());
+                XContentParser.Token token = parser.nextToken();
+                if (token == XContentParser.Token.START_OBJECT) {
+                    while ((token = parser.nextToken()) == XContentParser.Token.FIELD_NAME) {
+                        String fieldName = parser.currentName();
+                        token = parser.nextToken();
+                        if (requiredColumns.contains(fieldName)) {
+                            columns.put(fieldName, readValue(parser, token));
+                            if (columns.size() == requiredColumns.size()) {
+                                break;
+                            }
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                }
+                extractedColumns = columns;
+            } catch (IOException e) {
+                throw new ElasticsearchParseException("Failed to parse content to map", e);
+            } finally {
+                if (parser != null) {
+                    parser.close();
+                }
+            }
+        }
+        return extractedColumns;
+    }
+
+    @Nullable
+    private static Object readValue(XContentParser parser, XContentParser.Token token) throws IOException {
+        switch (token) {
+            case START_OBJECT:
+                return parser.map();
+            case START_ARRAY:
+                List<Object> values = new ArrayList<>();
+                while ((token = parser.nextToken()) != XContentParser.Token.END_ARRAY) {
+                    values.add(readValue(parser, token));
+                }
+                return values;
+            case VALUE_STRING:
+                return parser.text();
+            case VALUE_NUMBER:
+                return parser.numberValue();
+            case VALUE_BOOLEAN:
+                return parser.booleanValue();
+            case VALUE_NULL:
+                return null;
+            default:
+                return parser.objectText();
+        }
     }
 }
@@ -24,6 +24,7 @@ package io.crate.operation.reference.file;
 import io.crate.metadata.doc.DocSysColumns;
 import io.crate.operation.collect.files.CollectorContext;
 import io.crate.operation.collect.files.LineCollectorExpression;
+import org.apache.lucene.util.BytesRef;
 
 import java.util.Map;
 
@@ -38,7 +39,7 @@ public class SourceAsMapLineExpression extends LineCollectorExpression<Map<Strin
     }
 
     @Override
-    public void setNextLine(String line) {
+    public void setNextLine(BytesRef line) {
     }
 
     @Override
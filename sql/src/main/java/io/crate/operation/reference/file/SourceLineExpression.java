@@ -37,7 +37,7 @@ public class SourceLineExpression extends LineCollectorExpression<BytesRef> {
     }
 
     @Override
-    public void setNextLine(String line) {
+    public void setNextLine(BytesRef line) {
     }
 
     @Override
@@ -0,0 +1,73 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.operation.reference.sys.node;
+
+import com.google.common.collect.ImmutableList;
+import io.crate.metadata.ColumnIdent;
+import io.crate.operation.reference.sys.SysNodeObjectReference;
+import org.elasticsearch.action.bulk.BulkRetryCoordinator;
+import org.elasticsearch.common.inject.Inject;
+
+public class NodeBulkExpression extends SysNodeObjectReference {
+
+    abstract class BulkExpression extends SysNodeExpression<Long> {
+        BulkExpression(String name) {
+            super(new ColumnIdent(NAME, ImmutableList.of(name)));
+        }
+    }
+
+    public static final String NAME = "bulk";
+
+    public static final String QUEUED = "queued";
+    public static final String IN_FLIGHT = "in_flight";
+    public static final String RETRIED = "retried";
+
+    private final BulkRetryCoordinator bulkRetryCoordinator;
+
+    @Inject
+    public NodeBulkExpression(BulkRetryCoordinator bulkRetryCoordinator) {
+        super(NAME);
+        this.bulkRetryCoordinator = bulkRetryCoordinator;
+        addChildImplementations();
+    }
+
+    private void addChildImplementations() {
+        childImplementations.put(QUEUED, new BulkExpression(QUEUED) {
+            @Override
+            public Long value() {
+                return bulkRetryCoordinator.queuedItems();
+            }
+        });
+        childImplementations.put(IN_FLIGHT, new BulkExpression(IN_FLIGHT) {
+            @Override
+            public Long value() {
+                return bulkRetryCoordinator.inFlightItems();
+            }
+        });
+        childImplementations.put(RETRIED, new BulkExpression(RETRIED) {
+            @Override
+            public Long value() {
+                return bulkRetryCoordinator.retriedItems();
+            }
+        });
+    }
+}
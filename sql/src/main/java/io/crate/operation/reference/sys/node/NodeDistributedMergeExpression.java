@@ -0,0 +1,74 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.operation.reference.sys.node;
+
+import com.google.common.collect.ImmutableList;
+import io.crate.executor.transport.distributed.DistributedRequestContextManager;
+import io.crate.executor.transport.merge.TransportMergeNodeAction;
+import io.crate.metadata.ColumnIdent;
+import io.crate.operation.reference.sys.SysNodeObjectReference;
+import org.elasticsearch.common.inject.Inject;
+
+public class NodeDistributedMergeExpression extends SysNodeObjectReference {
+
+    abstract class DistributedMergeExpression extends SysNodeExpression<Long> {
+        DistributedMergeExpression(String name) {
+            super(new ColumnIdent(NAME, ImmutableList.of(name)));
+        }
+    }
+
+    public static final String NAME = "distributed_merge";
+
+    public static final String ACTIVE = "active";
+    public static final String PENDING = "pending";
+    public static final String PENDING_BYTES = "pending_bytes";
+
+    private final DistributedRequestContextManager contextManager;
+
+    @Inject
+    public NodeDistributedMergeExpression(TransportMergeNodeAction transportMergeNodeAction) {
+        super(NAME);
+        this.contextManager = transportMergeNodeAction.contextManager();
+        addChildImplementations();
+    }
+
+    private void addChildImplementations() {
+        childImplementations.put(ACTIVE, new DistributedMergeExpression(ACTIVE) {
+            @Override
+            public Long value() {
+                return (long) contextManager.numActiveContexts();
+            }
+        });
+        childImplementations.put(PENDING, new DistributedMergeExpression(PENDING) {
+            @Override
+            public Long value() {
+                return (long) contextManager.numPendingContexts();
+            }
+        });
+        childImplementations.put(PENDING_BYTES, new DistributedMergeExpression(PENDING_BYTES) {
+            @Override
+            public Long value() {
+                return contextManager.pendingBytes();
+            }
+        });
+    }
+}
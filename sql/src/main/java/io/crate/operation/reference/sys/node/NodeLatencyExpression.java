@@ -0,0 +1,70 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+
+package io.crate.operation.reference.sys.node;
+
+import io.crate.metadata.ColumnIdent;
+import io.crate.operation.collect.LatencyHistogram;
+import io.crate.operation.collect.StatsTables;
+import io.crate.operation.reference.sys.SysNodeObjectReference;
+import org.elasticsearch.common.inject.Inject;
+
+public class NodeLatencyExpression extends SysNodeObjectReference {
+
+    public static final String NAME = "latency";
+
+    public static final String JOBS = "jobs";
+    public static final String OPERATIONS = "operations";
+
+    public static final String P50 = "p50";
+    public static final String P95 = "p95";
+    public static final String P99 = "p99";
+
+    @Inject
+    public NodeLatencyExpression(StatsTables statsTables) {
+        super(NAME);
+        childImplementations.put(JOBS, new HistogramExpression(JOBS, statsTables.jobsLatency()));
+        childImplementations.put(OPERATIONS, new HistogramExpression(OPERATIONS, statsTables.operationsLatency()));
+    }
+
+    static class HistogramExpression extends SysNodeObjectReference {
+
+        private final LatencyHistogram histogram;
+
+        HistogramExpression(String name, LatencyHistogram histogram) {
+            super(new ColumnIdent(NodeLatencyExpression.NAME, name));
+            this.histogram = histogram;
+            addPercentile(P50, 50.0);
+            addPercentile(P95, 95.0);
+            addPercentile(P99, 99.0);
+        }
+
+        private void addPercentile(String name, final double percentile) {
+            childImplementations.put(name, new ChildExpression<Long>(name) {
+                @Override
+                public Long value() {
+                    return histogram.valueAtPercentile(percentile);
+                }
+            });
+        }
+    }
+}
@@ -48,6 +48,8 @@ public class SysShardExpressionModule extends AbstractModule {
         b.addBinding(infos.get(new ColumnIdent(ShardSchemaNameExpression.NAME)).ident()).to(ShardSchemaNameExpression.class).asEagerSingleton();
         b.addBinding(infos.get(new ColumnIdent(ShardPartitionIdentExpression.NAME)).ident()).to(ShardPartitionIdentExpression.class).asEagerSingleton();
         b.addBinding(infos.get(new ColumnIdent(ShardPartitionOrphanedExpression.NAME)).ident()).to(ShardPartitionOrphanedExpression.class).asEagerSingleton();
+        b.addBinding(infos.get(new ColumnIdent(ShardBlobCacheHitsExpression.NAME)).ident()).to(ShardBlobCacheHitsExpression.class).asEagerSingleton();
+        b.addBinding(infos.get(new ColumnIdent(ShardBlobCacheMissesExpression.NAME)).ident()).to(ShardBlobCacheMissesExpression.class).asEagerSingleton();
     }
 
 }
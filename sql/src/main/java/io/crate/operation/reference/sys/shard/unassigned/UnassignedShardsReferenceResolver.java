@@ -86,6 +86,18 @@ public class UnassignedShardsReferenceResolver implements DocLevelReferenceResol
                 return this.row.orphanedPartition();
             }
         });
+        register(new UnassignedShardCollectorExpression<Long>(ShardBlobCacheHitsExpression.NAME) {
+            @Override
+            public Long value() {
+                return null;
+            }
+        });
+        register(new UnassignedShardCollectorExpression<Long>(ShardBlobCacheMissesExpression.NAME) {
+            @Override
+            public Long value() {
+                return null;
+            }
+        });
 
         for (ReferenceInfo referenceInfo : SysNodesTableInfo.INFOS.values()) {
             register(nullExpression(referenceInfo));
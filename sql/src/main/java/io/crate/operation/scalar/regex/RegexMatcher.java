@@ -21,6 +21,10 @@
 
 package io.crate.operation.scalar.regex;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.CharsRef;
 import org.apache.lucene.util.UnicodeUtil;
@@ -31,12 +35,25 @@ import java.util.regex.Pattern;
 
 public class RegexMatcher {
 
+    /**
+     * compiled patterns keyed by flags and regex, so that patterns which are only known
+     * at execution time, e.g. column values, aren't compiled for every row
+     */
+    private static final LoadingCache<PatternKey, Pattern> PATTERNS = CacheBuilder.newBuilder()
+            .maximumSize(1000)
+            .build(new CacheLoader<PatternKey, Pattern>() {
+                @Override
+                public Pattern load(PatternKey key) throws Exception {
+                    return Pattern.compile(key.regex, key.flags);
+                }
+            });
+
     private final Matcher matcher;
     private final CharsRef utf16 = new CharsRef(10);
     private final boolean globalFlag;
 
     public RegexMatcher(String regex, int flags, boolean globalFlag) {
-        Pattern pattern = Pattern.compile(regex, flags);
+        Pattern pattern = compile(regex, flags);
         this.matcher = pattern.matcher(utf16);
         this.globalFlag = globalFlag;
     }
@@ -49,6 +66,18 @@ public class RegexMatcher {
         this(regex, 0, false);
     }
 
+    private static Pattern compile(String regex, int flags) {
+        try {
+            return PATTERNS.getUnchecked(new PatternKey(regex, flags));
+        } catch (UncheckedExecutionException e) {
+            // unwrap PatternSyntaxException
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
     private static void UTF8toUTF16(BytesRef bytes, CharsRef charsRef) {
         if (charsRef.chars.length < bytes.length) {
             charsRef.chars = new char[bytes.length];
@@ -136,4 +165,27 @@ public class RegexMatcher {
         return flags.utf8ToString().indexOf('g') != -1;
     }
 
+    private static class PatternKey {
+
+        private final String regex;
+        private final int flags;
+
+        private PatternKey(String regex, int flags) {
+            this.regex = regex;
+            this.flags = flags;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            PatternKey that = (PatternKey) o;
+            return flags == that.flags && regex.equals(that.regex);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * regex.hashCode() + flags;
+        }
+    }
 }
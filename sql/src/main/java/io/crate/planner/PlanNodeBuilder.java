@@ -67,6 +67,7 @@ class PlanNodeBuilder {
 
         assert collectNode.downStreamNodes()!=null && collectNode.downStreamNodes().size()>0;
         node.executionNodes(ImmutableSet.copyOf(collectNode.downStreamNodes()));
+        node.upstreamNodes(ImmutableSet.copyOf(collectNode.executionNodes()));
         connectTypes(collectNode, node);
         return node;
     }
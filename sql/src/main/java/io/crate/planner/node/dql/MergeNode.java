@@ -40,6 +40,7 @@ public class MergeNode extends AbstractDQLPlanNode {
     private List<DataType> inputTypes;
     private int numUpstreams;
     private Set<String> executionNodes;
+    private Set<String> upstreamNodes;
     private UUID contextId;
 
     public MergeNode() {
@@ -59,6 +60,21 @@ public class MergeNode extends AbstractDQLPlanNode {
         this.executionNodes = executionNodes;
     }
 
+    /**
+     * @return the nodes which send their results to this merge, empty if unknown
+     */
+    public Set<String> upstreamNodes() {
+        if (upstreamNodes == null) {
+            return ImmutableSet.of();
+        } else {
+            return upstreamNodes;
+        }
+    }
+
+    public void upstreamNodes(Set<String> upstreamNodes) {
+        this.upstreamNodes = upstreamNodes;
+    }
+
     public MergeNode(String id, int numUpstreams) {
         super(id);
         this.numUpstreams = numUpstreams;
@@ -111,6 +127,13 @@ public class MergeNode extends AbstractDQLPlanNode {
                 executionNodes.add(in.readString());
             }
         }
+        int numUpstreamNodes = in.readVInt();
+        if (numUpstreamNodes > 0) {
+            upstreamNodes = new HashSet<>(numUpstreamNodes);
+            for (int i = 0; i < numUpstreamNodes; i++) {
+                upstreamNodes.add(in.readString());
+            }
+        }
     }
 
     @Override
@@ -135,6 +158,14 @@ public class MergeNode extends AbstractDQLPlanNode {
                 out.writeString(node);
             }
         }
+        if (upstreamNodes == null) {
+            out.writeVInt(0);
+        } else {
+            out.writeVInt(upstreamNodes.size());
+            for (String node : upstreamNodes) {
+                out.writeString(node);
+            }
+        }
     }
 
     @Override
@@ -146,6 +177,7 @@ public class MergeNode extends AbstractDQLPlanNode {
                 .add("contextId", contextId)
                 .add("numUpstreams", numUpstreams)
                 .add("executionNodes", executionNodes)
+                .add("upstreamNodes", upstreamNodes)
                 .add("inputTypes", inputTypes)
                 .toString();
     }
@@ -48,6 +48,7 @@ public class QueryThenFetchNode extends ESDQLPlanNode {
     private final List<ReferenceInfo> partitionBy;
     private final Boolean[] nullsFirst;
     private final Routing routing;
+    private int fetchSize = 0;
 
     private static final Boolean[] EMPTY_OBJ_BOOLEAN_ARR = new Boolean[0];
     private static final boolean[] EMPTY_VALUE_BOOLEAN_ARR = new boolean[0];
@@ -119,6 +120,18 @@ public class QueryThenFetchNode extends ESDQLPlanNode {
         return whereClause;
     }
 
+    /**
+     * the number of rows per page if the result should be returned page by page
+     * using a {@link io.crate.executor.Cursor}, 0 to return the whole result at once.
+     */
+    public int fetchSize() {
+        return fetchSize;
+    }
+
+    public void fetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
     @Override
     public <C, R> R accept(PlanVisitor<C, R> visitor, C context) {
         return visitor.visitQueryThenFetchNode(this, context);
@@ -129,6 +142,7 @@ public class QueryThenFetchNode extends ESDQLPlanNode {
         return Objects.toStringHelper(this)
                 .add("offset", offset())
                 .add("limit", limit())
+                .add("fetchSize", fetchSize)
                 .add("orderBy", orderBy())
                 .add("reverseFlags", Arrays.toString(reverseFlags()))
                 .add("whereClause", whereClause())
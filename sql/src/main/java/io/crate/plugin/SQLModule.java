@@ -24,6 +24,7 @@ package io.crate.plugin;
 import io.crate.service.SQLService;
 import org.elasticsearch.common.inject.AbstractModule;
 import io.crate.action.sql.DDLStatementDispatcher;
+import io.crate.action.sql.PlanCache;
 import io.crate.metadata.FulltextAnalyzerResolver;
 
 
@@ -32,6 +33,7 @@ public class SQLModule extends AbstractModule {
     @Override
     protected void configure() {
         bind(SQLService.class).asEagerSingleton();
+        bind(PlanCache.class).asEagerSingleton();
         bind(DDLStatementDispatcher.class).asEagerSingleton();
         bind(FulltextAnalyzerResolver.class).asEagerSingleton();
     }
@@ -55,6 +55,7 @@ import io.crate.planner.PlanModule;
 import io.crate.rest.action.RestSQLAction;
 import io.crate.service.SQLService;
 import org.elasticsearch.action.ActionModule;
+import org.elasticsearch.action.bulk.BulkRetryCoordinator;
 import org.elasticsearch.action.count.CrateCountAction;
 import org.elasticsearch.action.count.CrateTransportCountAction;
 import org.elasticsearch.action.deletebyquery.CrateDeleteByQueryAction;
@@ -104,7 +105,9 @@ public class SQLPlugin extends AbstractPlugin {
 
     @Override
     public Collection<Class<? extends LifecycleComponent>> services() {
-        return ImmutableList.<Class<? extends LifecycleComponent>>of(SQLService.class);
+        return ImmutableList.<Class<? extends LifecycleComponent>>of(
+                SQLService.class,
+                BulkRetryCoordinator.class);
     }
 
     @Override
@@ -25,6 +25,7 @@ import io.crate.action.sql.*;
 import io.crate.action.sql.parser.SQLXContentSourceContext;
 import io.crate.action.sql.parser.SQLXContentSourceParser;
 import io.crate.exceptions.SQLParseException;
+import io.crate.http.netty.NettyHttpChannel;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.common.inject.Inject;
@@ -39,6 +40,11 @@ import java.io.StringWriter;
 
 public class RestSQLAction extends BaseRestHandler {
 
+    /**
+     * number of rows per chunk of a streamed response if the request doesn't contain a fetch_size
+     */
+    static final int DEFAULT_STREAM_FETCH_SIZE = 1000;
+
     @Inject
     public RestSQLAction(Settings settings, Client client, RestController controller) {
         super(settings, controller, client);
@@ -85,8 +91,28 @@ public class RestSQLAction extends BaseRestHandler {
         final SQLRequestBuilder requestBuilder = new SQLRequestBuilder(client);
         requestBuilder.stmt(context.stmt());
         requestBuilder.args(context.args());
+        requestBuilder.fetchSize(context.fetchSize());
+        requestBuilder.cursor(context.cursor());
         requestBuilder.includeTypesOnResponse(request.paramAsBoolean("types", false));
-        requestBuilder.execute(RestSQLAction.<SQLResponse>newListener(request, channel));
+        if (streamResponse(context, request, channel)) {
+            if (context.fetchSize() <= 0) {
+                requestBuilder.fetchSize(DEFAULT_STREAM_FETCH_SIZE);
+            }
+            requestBuilder.execute(new StreamingSQLResponseListener(request, (NettyHttpChannel) channel, client));
+        } else {
+            requestBuilder.execute(RestSQLAction.<SQLResponse>newListener(request, channel));
+        }
+    }
+
+    /**
+     * the result is streamed page by page if requested and if the channel supports chunked responses,
+     * a request which continues a cursor is answered with a single page
+     */
+    private static boolean streamResponse(SQLXContentSourceContext context, RestRequest request, RestChannel channel) {
+        return request.paramAsBoolean("stream", false)
+                && context.cursor() == null
+                && channel instanceof NettyHttpChannel
+                && ((NettyHttpChannel) channel).supportsChunkedResponse();
     }
 
     private void executeBulkRequest(SQLXContentSourceContext context, RestRequest request, RestChannel channel, Client client) {
@@ -117,7 +143,12 @@ public class RestSQLAction extends BaseRestHandler {
         public void onResponse(TResponse tResponse) {
             try {
                 XContentBuilder builder = channel.newBuilder();
-                tResponse.toXContent(builder, request);
+                if (tResponse instanceof SQLResponse) {
+                    // the response isn't used after it has been sent, release its rows early
+                    ((SQLResponse) tResponse).toXContentReleasingRows(builder);
+                } else {
+                    tResponse.toXContent(builder, request);
+                }
                 channel.sendResponse(new BytesRestResponse(RestStatus.OK, builder));
             } catch (Throwable e) {
                 onFailure(e);
@@ -0,0 +1,143 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+
+package io.crate.rest.action;
+
+import io.crate.action.sql.SQLRequestBuilder;
+import io.crate.action.sql.SQLResponse;
+import io.crate.http.netty.NettyHttpChannel;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.rest.BytesRestResponse;
+import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.RestStatus;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+
+import java.io.IOException;
+
+/**
+ * Sends the result of a paged select with chunked transfer encoding.
+ *
+ * Every page is written as one chunk and the next page is only fetched once the chunk
+ * has been written to the connection, so a slow client slows down the producers and at most
+ * one page of the result is held on this node.
+ * Results which fit into a single page are sent as a regular response.
+ */
+class StreamingSQLResponseListener implements ActionListener<SQLResponse> {
+
+    private static final ESLogger logger = Loggers.getLogger(StreamingSQLResponseListener.class);
+
+    private final RestRequest request;
+    private final NettyHttpChannel channel;
+    private final Client client;
+    private final long requestStartedTime;
+    private final BytesStreamOutput out = new BytesStreamOutput();
+
+    private XContentBuilder builder;
+    private long rowCount = 0;
+
+    StreamingSQLResponseListener(RestRequest request, NettyHttpChannel channel, Client client) {
+        this.request = request;
+        this.channel = channel;
+        this.client = client;
+        this.requestStartedTime = System.currentTimeMillis();
+    }
+
+    @Override
+    public void onResponse(SQLResponse page) {
+        try {
+            if (builder == null) {
+                if (page.cursor() == null) {
+                    // the statement can't be paged or the result fits into one page
+                    XContentBuilder responseBuilder = channel.newBuilder();
+                    page.toXContentReleasingRows(responseBuilder);
+                    channel.sendResponse(new BytesRestResponse(RestStatus.OK, responseBuilder));
+                    return;
+                }
+                builder = XContentFactory.jsonBuilder(out);
+                if (request.paramAsBoolean("pretty", false)) {
+                    builder.prettyPrint();
+                }
+                page.toXContentPagesStart(builder);
+                channel.sendChunkedResponseStart(RestStatus.OK, builder.contentType().restContentType());
+            }
+            rowCount += page.rows().length;
+            page.toXContentPageRows(builder);
+
+            final String cursor = page.cursor();
+            if (cursor == null) {
+                SQLResponse.toXContentPagesEnd(builder, rowCount, System.currentTimeMillis() - requestStartedTime);
+                channel.sendChunk(flush());
+                channel.sendLastChunk();
+                return;
+            }
+            channel.sendChunk(flush()).addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(ChannelFuture future) throws Exception {
+                    if (future.isSuccess()) {
+                        fetchNextPage(cursor);
+                    } else {
+                        // the cursor is released once it expires
+                        logger.debug("failed to send a page of a streamed response", future.getCause());
+                    }
+                }
+            });
+        } catch (Throwable e) {
+            onFailure(e);
+        }
+    }
+
+    private void fetchNextPage(String cursor) {
+        SQLRequestBuilder requestBuilder = new SQLRequestBuilder(client);
+        requestBuilder.cursor(cursor);
+        requestBuilder.execute(this);
+    }
+
+    private BytesReference flush() throws IOException {
+        builder.flush();
+        BytesReference bytes = out.bytes().copyBytesArray();
+        out.reset();
+        return bytes;
+    }
+
+    @Override
+    public void onFailure(Throwable e) {
+        if (builder != null) {
+            // the status has already been sent, the client notices the failure by the incomplete response
+            logger.warn("failed to stream the response of a select", e);
+            channel.abortChunkedResponse();
+            return;
+        }
+        try {
+            channel.sendResponse(new CrateThrowableRestResponse(channel, e));
+        } catch (Throwable e1) {
+            logger.error("failed to send failure response", e1);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package org.elasticsearch.action.bulk;
+
+import org.elasticsearch.common.component.AbstractLifecycleComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.inject.Singleton;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.settings.Settings;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.elasticsearch.common.util.concurrent.EsExecutors.daemonThreadFactory;
+
+/**
+ * Node wide service shared by all {@link BulkShardProcessor} instances.
+ *
+ * It owns the bounded pool used to schedule retries of rejected bulk requests
+ * and keeps track of the bulk items that are queued, in flight or retried.
+ */
+@Singleton
+public class BulkRetryCoordinator extends AbstractLifecycleComponent<BulkRetryCoordinator> {
+
+    public static final String POOL_SIZE_SETTING = "bulk.retry_pool_size";
+    private static final int DEFAULT_POOL_SIZE = 2;
+
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final CounterMetric queued = new CounterMetric();
+    private final CounterMetric inFlight = new CounterMetric();
+    private final CounterMetric retried = new CounterMetric();
+
+    @Inject
+    public BulkRetryCoordinator(Settings settings) {
+        super(settings);
+        scheduler = new ScheduledThreadPoolExecutor(
+                settings.getAsInt(POOL_SIZE_SETTING, DEFAULT_POOL_SIZE),
+                daemonThreadFactory(settings, "bulk_retry"));
+    }
+
+    public ScheduledFuture<?> schedule(Runnable runnable, long delay, TimeUnit unit) {
+        return scheduler.schedule(runnable, delay, unit);
+    }
+
+    /**
+     * number of bulk items which were added but not yet sent
+     */
+    public long queuedItems() {
+        return queued.count();
+    }
+
+    /**
+     * number of bulk items which were sent and are waiting for a response
+     */
+    public long inFlightItems() {
+        return inFlight.count();
+    }
+
+    /**
+     * number of bulk items which had to be retried because they were rejected
+     */
+    public long retriedItems() {
+        return retried.count();
+    }
+
+    void onItemsQueued(int numItems) {
+        queued.inc(numItems);
+    }
+
+    void onItemsSent(int numItems) {
+        queued.dec(numItems);
+        inFlight.inc(numItems);
+    }
+
+    void onItemsRetried(int numItems) {
+        retried.inc(numItems);
+    }
+
+    void onItemsDone(int numItems) {
+        inFlight.dec(numItems);
+    }
+
+    @Override
+    protected void doStart() {
+    }
+
+    @Override
+    protected void doStop() {
+        scheduler.shutdown();
+    }
+
+    @Override
+    protected void doClose() {
+        scheduler.shutdownNow();
+    }
+}
@@ -36,6 +36,8 @@ import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.index.shard.ShardId;
@@ -43,34 +45,47 @@ import org.elasticsearch.indices.IndexAlreadyExistsException;
 
 import javax.annotation.Nullable;
 import java.util.*;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
-import static org.elasticsearch.common.util.concurrent.EsExecutors.daemonThreadFactory;
-
 /**
  * Processor to do Bulk Inserts, similar to {@link org.elasticsearch.action.bulk.BulkProcessor}
  * but less flexible (only supports IndexRequests)
  *
  * If the Bulk threadPool Queue is full retries are made and
  * the {@link #add(String, org.elasticsearch.common.bytes.BytesReference, String, String)} method will start to block.
+ *
+ * Requests are queued per shard and sent once either the number of queued items
+ * reaches the bulk size or their sources exceed the configured request size.
+ * Retries are scheduled on the pool of the node wide {@link BulkRetryCoordinator}.
  */
 public class BulkShardProcessor {
 
+    public static final String REQUEST_SIZE_SETTING = "insert_by_query.request_size";
+    private static final ByteSizeValue DEFAULT_REQUEST_SIZE = new ByteSizeValue(5, ByteSizeUnit.MB);
+    private static final long RETRY_LOCK_POLL_DELAY_MS = 10;
+
     private final ClusterService clusterService;
     private final TransportShardBulkActionDelegate transportShardBulkActionDelegate;
     private final TransportCreateIndexAction transportCreateIndexAction;
     private final boolean autoCreateIndices;
     private final boolean allowCreateOnly;
+    private final BulkRetryCoordinator bulkRetryCoordinator;
     private final int bulkSize;
-    private final Map<ShardId, List<BulkItemRequest>> requestsByShard = new HashMap<>();
+    private final long bulkSizeInBytes;
+    private final ConcurrentMap<ShardId, Queue<BulkItemRequest>> requestsByShard = new ConcurrentHashMap<>();
     private final AutoCreateIndex autoCreateIndex;
     private final AtomicInteger globalCounter = new AtomicInteger(0);
     private final AtomicInteger counter = new AtomicInteger(0);
+    private final AtomicLong queuedBytes = new AtomicLong(0);
+    private final AtomicBoolean executing = new AtomicBoolean(false);
     private final SettableFuture<BitSet> result;
     private final AtomicInteger pending = new AtomicInteger(0);
     private final AtomicInteger currentDelay = new AtomicInteger(0);
@@ -78,11 +93,8 @@ public class BulkShardProcessor {
     private final BitSet responses;
     private final Object responsesLock = new Object();
     private volatile boolean closed = false;
-    private final Set<String> indicesCreated = new HashSet<>();
+    private final Set<String> indicesCreated = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
     private final ReadWriteLock retryLock = new ReadWriteLock();
-    private final Semaphore executeLock = new Semaphore(1);
-    private final ScheduledExecutorService scheduledExecutorService =
-        Executors.newScheduledThreadPool(1, daemonThreadFactory("bulkShardProcessor"));
     private final TimeValue requestTimeout;
 
     private final ESLogger logger = Loggers.getLogger(getClass());
@@ -91,6 +103,7 @@ public class BulkShardProcessor {
                               Settings settings,
                               TransportShardBulkActionDelegate transportShardBulkActionDelegate,
                               TransportCreateIndexAction transportCreateIndexAction,
+                              BulkRetryCoordinator bulkRetryCoordinator,
                               boolean autoCreateIndices,
                               boolean allowCreateOnly,
                               int bulkSize) {
@@ -99,7 +112,9 @@ public class BulkShardProcessor {
         this.transportCreateIndexAction = transportCreateIndexAction;
         this.autoCreateIndices = autoCreateIndices;
         this.allowCreateOnly = allowCreateOnly;
+        this.bulkRetryCoordinator = bulkRetryCoordinator;
         this.bulkSize = bulkSize;
+        this.bulkSizeInBytes = settings.getAsBytesSize(REQUEST_SIZE_SETTING, DEFAULT_REQUEST_SIZE).bytes();
         responses = new BitSet();
         result = SettableFuture.create();
         autoCreateIndex = new AutoCreateIndex(settings);
@@ -148,19 +163,18 @@ public class BulkShardProcessor {
         indexRequest.timestamp(Long.toString(System.currentTimeMillis()));
         indexRequest.create(allowCreateOnly);
 
-        try {
-            executeLock.acquire();
-        } catch (InterruptedException e) {
-            Thread.interrupted();
-        }
-        List<BulkItemRequest> items = requestsByShard.get(shardId);
+        Queue<BulkItemRequest> items = requestsByShard.get(shardId);
         if (items == null) {
-            items = new ArrayList<>();
-            requestsByShard.put(shardId, items);
+            items = new ConcurrentLinkedQueue<>();
+            Queue<BulkItemRequest> existing = requestsByShard.putIfAbsent(shardId, items);
+            if (existing != null) {
+                items = existing;
+            }
         }
-        counter.getAndIncrement();
         items.add(new BulkItemRequest(globalCounter.getAndIncrement(), indexRequest));
-        executeLock.release();
+        bulkRetryCoordinator.onItemsQueued(1);
+        counter.getAndIncrement();
+        queuedBytes.addAndGet(source.length());
     }
 
     public ListenableFuture<BitSet> result() {
@@ -174,7 +188,6 @@ public class BulkShardProcessor {
         if (pending.get() == 0) {
             setResult();
         }
-        scheduledExecutorService.shutdown();
     }
 
     private void setFailure(Throwable e) {
@@ -200,21 +213,37 @@ public class BulkShardProcessor {
     }
 
     private void executeIfNeeded() {
-        if (closed || counter.get() >= bulkSize) {
+        if (closed) {
             executeRequests();
+        } else if (counter.get() >= bulkSize || queuedBytes.get() >= bulkSizeInBytes) {
+            // concurrent writers don't wait for a running flush, their items are sent with the next one
+            if (executing.compareAndSet(false, true)) {
+                try {
+                    executeRequests();
+                } finally {
+                    executing.set(false);
+                }
+            }
         }
     }
 
     private void executeRequests() {
-        try {
-            executeLock.acquire();
-        } catch (InterruptedException e) {
-            Thread.interrupted();
-        }
-        for (Iterator<Map.Entry<ShardId, List<BulkItemRequest>>> it = requestsByShard.entrySet().iterator(); it.hasNext();) {
-            Map.Entry<ShardId, List<BulkItemRequest>> entry = it.next();
-            ShardId shardId= entry.getKey();
-            List<BulkItemRequest> items = entry.getValue();
+        for (Map.Entry<ShardId, Queue<BulkItemRequest>> entry : requestsByShard.entrySet()) {
+            ShardId shardId = entry.getKey();
+            Queue<BulkItemRequest> queue = entry.getValue();
+            List<BulkItemRequest> items = new ArrayList<>();
+            long bytes = 0;
+            BulkItemRequest item;
+            while ((item = queue.poll()) != null) {
+                items.add(item);
+                bytes += ((IndexRequest) item.request()).source().length();
+            }
+            if (items.isEmpty()) {
+                continue;
+            }
+            // only subtract what was drained, items queued concurrently are counted for the next flush
+            counter.addAndGet(-items.size());
+            queuedBytes.addAndGet(-bytes);
             BulkShardRequest bulkShardRequest = new BulkShardRequest(
                     new BulkRequest(),
                     shardId.index().name(),
@@ -223,19 +252,18 @@ public class BulkShardProcessor {
                     items.toArray(new BulkItemRequest[items.size()]));
             bulkShardRequest.timeout(requestTimeout);
             execute(bulkShardRequest);
-            it.remove();
         }
-        counter.set(0);
-        executeLock.release();
     }
 
     private void execute(BulkShardRequest bulkShardRequest) {
         trace(String.format("execute shard request %d", bulkShardRequest.shardId()));
+        bulkRetryCoordinator.onItemsSent(bulkShardRequest.items().length);
         transportShardBulkActionDelegate.execute(bulkShardRequest, new ResponseListener(bulkShardRequest));
     }
 
     private void doRetry(final BulkShardRequest request, final boolean repeatingRetry) {
         trace("doRetry");
+        bulkRetryCoordinator.onItemsRetried(request.items().length);
         if (repeatingRetry) {
             try {
                 Thread.sleep(currentDelay.incrementAndGet());
@@ -244,21 +272,29 @@ public class BulkShardProcessor {
             }
             transportShardBulkActionDelegate.execute(request, new RetryResponseListener(request));
         } else {
-            // new retries will be spawned in new thread because they can block
-            scheduledExecutorService.schedule(
-                    new Runnable() {
-                        @Override
-                        public void run() {
-                            // will block if other retries/writer are active
-                            try {
-                                retryLock.writeLock();
-                            } catch (InterruptedException e) {
-                                Thread.interrupted();
-                            }
+            // readers block from now on, the retry itself is only sent once no other retry is active
+            retryLock.registerWriter();
+            scheduleRetry(request, currentDelay.getAndIncrement());
+        }
+    }
+
+    /**
+     * The retry pool is shared by all bulk processors of the node,
+     * so a retry waiting for the write lock is rescheduled instead of blocking a pool thread.
+     */
+    private void scheduleRetry(final BulkShardRequest request, long delay) {
+        bulkRetryCoordinator.schedule(
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        if (retryLock.tryWriteLock()) {
                             transportShardBulkActionDelegate.execute(request, new RetryResponseListener(request));
+                        } else {
+                            trace("retry lock unavailable, rescheduling retry");
+                            scheduleRetry(request, RETRY_LOCK_POLL_DELAY_MS);
                         }
-                    }, currentDelay.getAndIncrement(), TimeUnit.MILLISECONDS);
-        }
+                    }
+                }, delay, TimeUnit.MILLISECONDS);
     }
 
     private void createIndexIfRequired(final String indexName) {
@@ -284,6 +320,7 @@ public class BulkShardProcessor {
 
     private void processResponse(BulkShardResponse bulkShardResponse) {
         trace("execute response");
+        bulkRetryCoordinator.onItemsDone(bulkShardResponse.getResponses().length);
         for (BulkItemResponse itemResponse : bulkShardResponse.getResponses()) {
             synchronized (responsesLock) {
                 responses.set(itemResponse.getItemId(), !itemResponse.isFailed());
@@ -307,6 +344,7 @@ public class BulkShardProcessor {
                     Thread.interrupted();
                 }
             }
+            bulkRetryCoordinator.onItemsDone(bulkShardRequest.items().length);
             for (BulkItemRequest bulkItemRequest : bulkShardRequest.items()) {
                 synchronized (responsesLock) {
                     responses.set(bulkItemRequest.id(), false);
@@ -382,13 +420,24 @@ public class BulkShardProcessor {
         public ReadWriteLock() {
         }
 
-        public void writeLock() throws InterruptedException {
+        /**
+         * announce a writer, all readers will block until it is unlocked by {@link #writeUnlock()}
+         */
+        public void registerWriter() {
             // check readLock permits to prevent deadlocks
             if (activeWriters.getAndIncrement() == 0 && readLock.availablePermits() == 1) {
                 // draining read permits, so all reads will block
                 readLock.drainPermits();
             }
-            writeLock.acquire();
+        }
+
+        /**
+         * acquire the write lock of a registered writer without blocking
+         *
+         * @return false if another writer holds the lock
+         */
+        public boolean tryWriteLock() {
+            return writeLock.tryAcquire();
         }
 
         public void writeUnlock() throws InterruptedException {
@@ -0,0 +1,163 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package org.elasticsearch.action.bulk;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.rest.RestStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Processor to update documents of a single shard in batches, similar to {@link BulkShardProcessor}
+ * but for {@link org.elasticsearch.action.update.UpdateRequest}s of an already known shard.
+ *
+ * The partial documents are merged on the primary by the {@link TransportShardBulkAction} and
+ * the resulting index operations are sent to the replicas per batch.
+ *
+ * {@link #add(UpdateRequest)} only blocks if the maximum number of batches is in flight.
+ * This class is not thread-safe, it is meant to be used by the single thread collecting the
+ * documents of a shard.
+ */
+public class ShardUpdateProcessor {
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    private static final int MAX_BATCHES_IN_FLIGHT = 2;
+
+    private final ESLogger logger = Loggers.getLogger(getClass());
+
+    private final ShardId shardId;
+    private final TransportShardBulkActionDelegate transportShardBulkActionDelegate;
+    private final int batchSize;
+    private final TimeValue requestTimeout;
+    private final Semaphore inFlight = new Semaphore(MAX_BATCHES_IN_FLIGHT);
+    private final AtomicLong rowCount = new AtomicLong(0);
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private List<BulkItemRequest> items;
+    private int itemId = 0;
+
+    public ShardUpdateProcessor(ShardId shardId,
+                                TransportShardBulkActionDelegate transportShardBulkActionDelegate,
+                                int batchSize) {
+        this.shardId = shardId;
+        this.transportShardBulkActionDelegate = transportShardBulkActionDelegate;
+        this.batchSize = batchSize;
+        this.requestTimeout = BulkShardRequest.DEFAULT_TIMEOUT;
+        this.items = new ArrayList<>(batchSize);
+    }
+
+    /**
+     * queue an update request and send the batch once it is full
+     */
+    public void add(UpdateRequest updateRequest) {
+        throwIfFailed();
+        items.add(new BulkItemRequest(itemId++, updateRequest));
+        if (items.size() >= batchSize) {
+            executeBatch();
+        }
+    }
+
+    /**
+     * send the remaining requests and wait until all batches are done
+     *
+     * @return the number of updated documents
+     */
+    public long close() {
+        if (!items.isEmpty()) {
+            executeBatch();
+        }
+        acquire(MAX_BATCHES_IN_FLIGHT);
+        inFlight.release(MAX_BATCHES_IN_FLIGHT);
+        throwIfFailed();
+        return rowCount.get();
+    }
+
+    private void executeBatch() {
+        acquire(1);
+        BulkShardRequest bulkShardRequest = new BulkShardRequest(
+                new BulkRequest(),
+                shardId.index().name(),
+                shardId.id(),
+                false,
+                items.toArray(new BulkItemRequest[items.size()]));
+        bulkShardRequest.timeout(requestTimeout);
+        items = new ArrayList<>(batchSize);
+        transportShardBulkActionDelegate.execute(bulkShardRequest, new ActionListener<BulkShardResponse>() {
+            @Override
+            public void onResponse(BulkShardResponse bulkShardResponse) {
+                try {
+                    processResponse(bulkShardResponse);
+                } finally {
+                    inFlight.release();
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                failure.compareAndSet(null, e);
+                inFlight.release();
+            }
+        });
+    }
+
+    private void processResponse(BulkShardResponse bulkShardResponse) {
+        for (BulkItemResponse itemResponse : bulkShardResponse.getResponses()) {
+            if (!itemResponse.isFailed()) {
+                rowCount.incrementAndGet();
+                continue;
+            }
+            RestStatus status = itemResponse.getFailure().getStatus();
+            if (status == RestStatus.CONFLICT || status == RestStatus.NOT_FOUND) {
+                // the document has been modified or deleted concurrently or doesn't match the required version
+                logger.trace("document {} not updated: {}", itemResponse.getId(), itemResponse.getFailureMessage());
+            } else {
+                failure.compareAndSet(null, new ElasticsearchException(itemResponse.getFailureMessage()));
+            }
+        }
+    }
+
+    private void acquire(int permits) {
+        try {
+            inFlight.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ElasticsearchException("interrupted while waiting for update batches of " + shardId, e);
+        }
+    }
+
+    private void throwIfFailed() {
+        Throwable throwable = failure.get();
+        if (throwable != null) {
+            throw ExceptionsHelper.convertToRuntime(throwable);
+        }
+    }
+}
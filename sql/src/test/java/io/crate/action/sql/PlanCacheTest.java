@@ -0,0 +1,203 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.action.sql;
+
+import com.google.common.collect.ImmutableList;
+import io.crate.metadata.ColumnIdent;
+import io.crate.metadata.ReferenceIdent;
+import io.crate.metadata.ReferenceInfo;
+import io.crate.metadata.TableIdent;
+import io.crate.metadata.table.TableInfo;
+import io.crate.planner.Plan;
+import io.crate.planner.RowGranularity;
+import io.crate.planner.node.dql.CollectNode;
+import io.crate.planner.node.dql.ESGetNode;
+import io.crate.planner.symbol.Symbol;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.elasticsearch.cluster.ClusterChangedEvent;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.notNullValue;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PlanCacheTest {
+
+    private static final String STMT = "select name from users where id = ?";
+
+    private PlanCache.Entry entry(Plan plan) {
+        return new PlanCache.Entry(plan, new String[]{"name"}, new DataType[0], false);
+    }
+
+    private Plan getPlan() {
+        Plan plan = new Plan();
+        plan.add(mock(ESGetNode.class));
+        return plan;
+    }
+
+    private Plan getPlan(String id) {
+        Plan plan = new Plan();
+        plan.add(new ESGetNode("users",
+                ImmutableList.<Symbol>of(),
+                ImmutableList.<DataType>of(),
+                ImmutableList.of(id),
+                ImmutableList.of(id),
+                null, null, null, null, 0, null));
+        return plan;
+    }
+
+    @Test
+    public void testCachedByStatementAndArgs() throws Exception {
+        PlanCache planCache = new PlanCache();
+        Plan plan = getPlan();
+        planCache.put(STMT, new Object[]{1, new Object[]{"a"}}, entry(plan), planCache.generation());
+
+        PlanCache.Entry cached = planCache.get(STMT, new Object[]{1, new Object[]{"a"}});
+        assertThat(cached, notNullValue());
+        assertThat(cached.plan(), is(plan));
+        assertThat(planCache.get(STMT, new Object[]{2, new Object[]{"a"}}), nullValue());
+        assertThat(planCache.get("select name from users", new Object[]{1, new Object[]{"a"}}), nullValue());
+        assertThat(planCache.hitCount(), is(1L));
+        assertThat(planCache.missCount(), is(2L));
+    }
+
+    @Test
+    public void testPlansWithContextsAreNotCached() throws Exception {
+        PlanCache planCache = new PlanCache();
+        Plan plan = new Plan();
+        plan.add(mock(CollectNode.class));
+        planCache.put(STMT, new Object[]{1}, entry(plan), planCache.generation());
+
+        assertThat(planCache.size(), is(0L));
+    }
+
+    @Test
+    public void testInvalidatedOnMetaDataChange() throws Exception {
+        PlanCache planCache = new PlanCache();
+        planCache.put(STMT, new Object[]{1}, entry(getPlan()), planCache.generation());
+
+        ClusterChangedEvent event = mock(ClusterChangedEvent.class);
+        planCache.clusterChanged(event);
+        assertThat(planCache.size(), is(1L));
+
+        when(event.metaDataChanged()).thenReturn(true);
+        planCache.clusterChanged(event);
+        assertThat(planCache.size(), is(0L));
+    }
+
+    @Test
+    public void testPlanOfInvalidatedGenerationIsNotCached() throws Exception {
+        PlanCache planCache = new PlanCache();
+        long generation = planCache.generation();
+
+        ClusterChangedEvent event = mock(ClusterChangedEvent.class);
+        when(event.metaDataChanged()).thenReturn(true);
+        planCache.put(STMT, new Object[]{1}, entry(getPlan()), generation);
+        planCache.clusterChanged(event);
+        assertThat(planCache.generation(), is(generation + 1));
+
+        // a plan created before the invalidation must not be cached afterwards
+        planCache.put(STMT, new Object[]{1}, entry(getPlan()), generation);
+        assertThat(planCache.size(), is(0L));
+
+        planCache.put(STMT, new Object[]{1}, entry(getPlan()), planCache.generation());
+        assertThat(planCache.size(), is(1L));
+    }
+
+    @Test
+    public void testTemplateIsBoundToArgs() throws Exception {
+        PlanCache planCache = new PlanCache();
+        TableInfo table = mock(TableInfo.class);
+        ColumnIdent id = new ColumnIdent("id");
+        when(table.primaryKey()).thenReturn(ImmutableList.of(id));
+        when(table.getReferenceInfo(id)).thenReturn(
+                new ReferenceInfo(new ReferenceIdent(new TableIdent(null, "users"), id), RowGranularity.DOC, DataTypes.INTEGER));
+
+        Object[] args = new Object[]{1};
+        Object[] probeArgs = ESGetPlanTemplate.probeArgs(args);
+        ESGetPlanTemplate template = ESGetPlanTemplate.create(
+                getPlan("1"), getPlan(probeArgs[0].toString()), table, args, probeArgs, 1);
+        assertThat(template, notNullValue());
+        planCache.put(STMT, args, new PlanCache.Entry(
+                getPlan("1"), new String[]{"name"}, new DataType[0], false, template), planCache.generation());
+
+        PlanCache.Entry cached = planCache.get(STMT, new Object[]{2});
+        assertThat(cached, notNullValue());
+        ESGetNode node = (ESGetNode) cached.plan().iterator().next();
+        assertThat(node.ids(), contains("2"));
+        assertThat(node.routingValues(), contains("2"));
+        assertThat(planCache.hitCount(), is(1L));
+
+        // other argument classes aren't bound
+        assertThat(planCache.get(STMT, new Object[]{"2"}), nullValue());
+        assertThat(planCache.get(STMT, new Object[]{null}), nullValue());
+        assertThat(planCache.missCount(), is(2L));
+    }
+
+    @Test
+    public void testNoTemplateIfArgIsNotBoundToIds() throws Exception {
+        TableInfo table = mock(TableInfo.class);
+        ColumnIdent id = new ColumnIdent("id");
+        when(table.primaryKey()).thenReturn(ImmutableList.of(id));
+        when(table.getReferenceInfo(id)).thenReturn(
+                new ReferenceInfo(new ReferenceIdent(new TableIdent(null, "users"), id), RowGranularity.DOC, DataTypes.INTEGER));
+
+        // the second argument only influences the where clause, e.g. "id = ? and ? < 100"
+        Object[] args = new Object[]{1, 5};
+        Object[] probeArgs = ESGetPlanTemplate.probeArgs(args);
+        assertThat(ESGetPlanTemplate.create(
+                getPlan("1"), getPlan(probeArgs[0].toString()), table, args, probeArgs, 2), nullValue());
+
+        // an argument is referenced twice, e.g. "id = $1 and $1 < 100"
+        args = new Object[]{1};
+        probeArgs = ESGetPlanTemplate.probeArgs(args);
+        assertThat(ESGetPlanTemplate.create(
+                getPlan("1"), getPlan(probeArgs[0].toString()), table, args, probeArgs, 2), nullValue());
+    }
+
+    @Test
+    public void testInvalidatedOnRoutingTableChange() throws Exception {
+        PlanCache planCache = new PlanCache();
+        planCache.put(STMT, new Object[]{1}, entry(getPlan()), planCache.generation());
+
+        ClusterChangedEvent event = mock(ClusterChangedEvent.class);
+        when(event.routingTableChanged()).thenReturn(true);
+        planCache.clusterChanged(event);
+        assertThat(planCache.size(), is(0L));
+    }
+
+    @Test
+    public void testInvalidatedOnNodesChange() throws Exception {
+        PlanCache planCache = new PlanCache();
+        planCache.put(STMT, new Object[]{1}, entry(getPlan()), planCache.generation());
+
+        ClusterChangedEvent event = mock(ClusterChangedEvent.class);
+        when(event.nodesChanged()).thenReturn(true);
+        planCache.clusterChanged(event);
+        assertThat(planCache.size(), is(0L));
+    }
+}
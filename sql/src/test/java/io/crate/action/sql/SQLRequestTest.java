@@ -49,7 +49,7 @@ public class SQLRequestTest {
         request.writeTo(out);
 
         byte[] expectedBytes = new byte[]
-                {0,19,115,101,108,101,99,116,32,42,32,102,114,111,109,32,117,115,101,114,115,2,0,4,97,114,103,49,0,4,97,114,103, 50, 0, 1};
+                {0,19,115,101,108,101,99,116,32,42,32,102,114,111,109,32,117,115,101,114,115,2,0,4,97,114,103,49,0,4,97,114,103, 50, 0, 1, 0, 0};
         assertThat(out.bytes().toBytes(), is(expectedBytes));
     }
 
@@ -57,7 +57,7 @@ public class SQLRequestTest {
     @Test
     public void testSerializationReadFrom() throws Exception {
         byte[] buf = new byte[]
-                {0,19,115,101,108,101,99,116,32,42,32,102,114,111,109,32,117,115,101,114,115,2,0,4,97,114,103,49,0,4,97,114,103, 50, 0, 1};
+                {0,19,115,101,108,101,99,116,32,42,32,102,114,111,109,32,117,115,101,114,115,2,0,4,97,114,103,49,0,4,97,114,103, 50, 0, 1, 0, 0};
         BytesStreamInput in = new BytesStreamInput(buf, false);
         SQLRequest request = new SQLRequest();
         request.readFrom(in);
@@ -66,4 +66,22 @@ public class SQLRequestTest {
         assertThat(request.includeTypesOnResponse(), is(true));
         assertThat(request.stmt(), is("select * from users"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testSerializationWithCursor() throws Exception {
+        SQLRequest request = new SQLRequest("select * from users");
+        request.fetchSize(100);
+        request.cursor("abc");
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        request.writeTo(out);
+
+        BytesStreamInput in = new BytesStreamInput(out.bytes());
+        SQLRequest inRequest = new SQLRequest();
+        inRequest.readFrom(in);
+
+        assertThat(inRequest.stmt(), is("select * from users"));
+        assertThat(inRequest.fetchSize(), is(100));
+        assertThat(inRequest.cursor(), is("abc"));
+    }
+}
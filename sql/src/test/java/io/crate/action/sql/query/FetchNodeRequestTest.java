@@ -0,0 +1,54 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.action.sql.query;
+
+import com.carrotsearch.hppc.IntArrayList;
+import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class FetchNodeRequestTest {
+
+    @Test
+    public void testFetchNodeRequestSerialization() throws Exception {
+        FetchNodeRequest request = new FetchNodeRequest(
+                new long[] { 1L, 42L },
+                new IntArrayList[] { IntArrayList.from(3, 1, 2), new IntArrayList() }
+        );
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        request.writeTo(out);
+
+        BytesStreamInput in = new BytesStreamInput(out.bytes());
+        FetchNodeRequest inRequest = new FetchNodeRequest();
+        inRequest.readFrom(in);
+
+        assertThat(inRequest.size(), is(2));
+        assertThat(inRequest.contextId(0), is(1L));
+        assertThat(inRequest.docIds(0), is(IntArrayList.from(3, 1, 2)));
+        assertThat(inRequest.contextId(1), is(42L));
+        assertThat(inRequest.docIds(1).size(), is(0));
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.executor.transport;
+
+import io.crate.Streamer;
+import io.crate.types.DataTypes;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+public class ColumnBatchStreamerTest {
+
+    private static Object[][] roundTrip(Streamer<?>[] streamers, Object[][] rows) throws Exception {
+        BytesStreamOutput out = new BytesStreamOutput();
+        ColumnBatchStreamer.writeRows(out, streamers, rows);
+        return ColumnBatchStreamer.readRows(new BytesStreamInput(out.bytes()), streamers);
+    }
+
+    @Test
+    public void testRoundTripWithNulls() throws Exception {
+        Streamer<?>[] streamers = new Streamer[]{
+                DataTypes.LONG, DataTypes.INTEGER, DataTypes.DOUBLE,
+                DataTypes.STRING, DataTypes.TIMESTAMP, DataTypes.BOOLEAN
+        };
+        Object[][] rows = new Object[][]{
+                {1L, 1, 1.5d, new BytesRef("foo"), 1412939210000L, true},
+                {null, null, null, null, null, null},
+                {-3L, 42, -0.25d, new BytesRef("bar"), 0L, false},
+        };
+        assertThat(roundTrip(streamers, rows), is(rows));
+    }
+
+    @Test
+    public void testRoundTripEmpty() throws Exception {
+        Streamer<?>[] streamers = new Streamer[]{DataTypes.LONG, DataTypes.STRING};
+        assertThat(roundTrip(streamers, new Object[0][]).length, is(0));
+    }
+
+    @Test
+    public void testStringDictionary() throws Exception {
+        Streamer<?>[] streamers = new Streamer[]{DataTypes.STRING};
+        Object[][] rows = new Object[100][];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = new Object[]{i % 10 == 0 ? null : new BytesRef("country_" + (i % 3))};
+        }
+        assertThat(roundTrip(streamers, rows), is(rows));
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        ColumnBatchStreamer.writeRows(out, streamers, rows);
+        // every value written plain would take at least 10 bytes
+        assertThat(out.size(), lessThan(90 * 10));
+    }
+
+    @Test
+    public void testRoundTripOversizedString() throws Exception {
+        // too large for the dictionary, the column falls back to the plain encoding
+        char[] chars = new char[40_000];
+        Arrays.fill(chars, 'x');
+        BytesRef oversized = new BytesRef(new String(chars));
+        Streamer<?>[] streamers = new Streamer[]{DataTypes.STRING};
+        Object[][] rows = new Object[][]{
+                {oversized}, {new BytesRef("foo")}, {oversized}, {oversized}, {null}
+        };
+        assertThat(roundTrip(streamers, rows), is(rows));
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.executor.transport.distributed;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import io.crate.Streamer;
+import io.crate.breaker.RamAccountingContext;
+import io.crate.executor.transport.merge.NodeMergeResponse;
+import io.crate.metadata.Functions;
+import io.crate.operation.DownstreamOperation;
+import io.crate.operation.DownstreamOperationFactory;
+import io.crate.operation.collect.StatsTables;
+import io.crate.operation.projectors.Projector;
+import io.crate.planner.node.dql.MergeNode;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.elasticsearch.ElasticsearchTimeoutException;
+import org.elasticsearch.Version;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.transport.DummyTransportAddress;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.node.settings.NodeSettingsService;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DistributedRequestContextManagerTest {
+
+    private CircuitBreaker circuitBreaker;
+    private DownstreamOperationFactory downstreamOperationFactory;
+    private DistributedRequestContextManager contextManager;
+
+    @Before
+    public void setUp() throws Exception {
+        circuitBreaker = mock(CircuitBreaker.class);
+        downstreamOperationFactory = mock(DownstreamOperationFactory.class);
+        contextManager = new DistributedRequestContextManager(
+                downstreamOperationFactory,
+                mock(Functions.class),
+                new StatsTables(ImmutableSettings.EMPTY, mock(NodeSettingsService.class)),
+                circuitBreaker,
+                TimeValue.timeValueSeconds(10));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ActionListener<DistributedResultResponse> ack() {
+        return mock(ActionListener.class);
+    }
+
+    private DistributedResultRequest earlyRequest(UUID contextId) throws Exception {
+        return request(contextId, new Object[][]{{1}, {2}}, true);
+    }
+
+    private DistributedResultRequest request(UUID contextId, Object[][] rows, boolean lastPage) throws Exception {
+        Streamer<?>[] streamers = new Streamer[]{DataTypes.INTEGER.streamer()};
+        DistributedResultRequest sender = new DistributedResultRequest(contextId, streamers);
+        sender.rows(rows);
+        sender.lastPage(lastPage);
+        BytesStreamOutput out = new BytesStreamOutput();
+        sender.writeTo(out);
+
+        DistributedResultRequest receiver = new DistributedResultRequest(contextManager);
+        receiver.readFrom(new BytesStreamInput(out.bytes()));
+        return receiver;
+    }
+
+    @Test
+    public void testEarlyResultsAreBufferedAndAccounted() throws Exception {
+        UUID contextId = UUID.randomUUID();
+        DistributedResultRequest request = earlyRequest(contextId);
+        contextManager.addToContext(request, ack());
+
+        long bytes = request.memoryStream().size();
+        assertThat(contextManager.numPendingContexts(), is(1));
+        assertThat(contextManager.numActiveContexts(), is(0));
+        assertThat(contextManager.pendingBytes(), is(bytes));
+        verify(circuitBreaker).addEstimateBytesAndMaybeBreak(eq(bytes), anyString());
+    }
+
+    @Test
+    public void testOrphanedPendingContextIsReaped() throws Exception {
+        UUID contextId = UUID.randomUUID();
+        DistributedResultRequest request = earlyRequest(contextId);
+        ActionListener<DistributedResultResponse> ack = ack();
+        contextManager.addToContext(request, ack);
+        contextManager.setFailure(UUID.randomUUID());
+        assertThat(contextManager.numPendingContexts(), is(2));
+
+        // not expired yet
+        contextManager.reapOrphanedContexts(nodes("n1"), System.currentTimeMillis());
+        assertThat(contextManager.numPendingContexts(), is(2));
+
+        contextManager.reapOrphanedContexts(nodes("n1"), System.currentTimeMillis() + 11_000);
+        assertThat(contextManager.numPendingContexts(), is(0));
+        assertThat(contextManager.pendingBytes(), is(0L));
+        verify(circuitBreaker).addWithoutBreaking(-request.memoryStream().size());
+        // the upstream waiting for the acknowledgement of the dropped page fails
+        verify(ack).onFailure(any(ElasticsearchTimeoutException.class));
+    }
+
+    private static DiscoveryNodes nodes(String... nodeIds) {
+        DiscoveryNodes.Builder builder = DiscoveryNodes.builder();
+        for (String nodeId : nodeIds) {
+            builder.put(new DiscoveryNode(nodeId, DummyTransportAddress.INSTANCE, Version.CURRENT));
+        }
+        return builder.build();
+    }
+
+    private RecordingDownstreamOperation createContext(UUID contextId, Set<String> upstreamNodes) throws Exception {
+        MergeNode mergeNode = new MergeNode("merge", 1);
+        mergeNode.contextId(contextId);
+        mergeNode.inputTypes(Arrays.<DataType>asList(DataTypes.INTEGER));
+        mergeNode.upstreamNodes(upstreamNodes);
+        RecordingDownstreamOperation downstreamOperation = new RecordingDownstreamOperation(contextId);
+        when(downstreamOperationFactory.create(any(MergeNode.class), any(RamAccountingContext.class)))
+                .thenReturn(downstreamOperation);
+        @SuppressWarnings("unchecked")
+        ActionListener<NodeMergeResponse> listener = mock(ActionListener.class);
+        contextManager.createContext(mergeNode, listener);
+        return downstreamOperation;
+    }
+
+    @Test
+    public void testContextIsOnlyExpiredIfAnUpstreamNodeLeft() throws Exception {
+        UUID contextId = UUID.randomUUID();
+        createContext(contextId, ImmutableSet.of("n1", "n2"));
+        assertThat(contextManager.numActiveContexts(), is(1));
+
+        // all upstream nodes are still there, the context is kept even though it is idle
+        contextManager.reapOrphanedContexts(nodes("n1", "n2", "n3"), System.currentTimeMillis() + 11_000);
+        assertThat(contextManager.numActiveContexts(), is(1));
+
+        // an upstream left but the context received rows recently
+        contextManager.reapOrphanedContexts(nodes("n1", "n3"), System.currentTimeMillis());
+        assertThat(contextManager.numActiveContexts(), is(1));
+
+        contextManager.reapOrphanedContexts(nodes("n1", "n3"), System.currentTimeMillis() + 11_000);
+        assertThat(contextManager.numActiveContexts(), is(0));
+        assertThat(contextManager.getStreamer(contextId).isPresent(), is(false));
+    }
+
+    @Test
+    public void testContextWithUnknownUpstreamsIsExpiredWhenIdle() throws Exception {
+        createContext(UUID.randomUUID(), ImmutableSet.<String>of());
+
+        contextManager.reapOrphanedContexts(nodes("n1"), System.currentTimeMillis());
+        assertThat(contextManager.numActiveContexts(), is(1));
+
+        contextManager.reapOrphanedContexts(nodes("n1"), System.currentTimeMillis() + 11_000);
+        assertThat(contextManager.numActiveContexts(), is(0));
+    }
+
+    @Test
+    public void testBufferedPageIsMergedBeforeDirectLastPage() throws Exception {
+        UUID contextId = UUID.randomUUID();
+        MergeNode mergeNode = new MergeNode("merge", 1);
+        mergeNode.contextId(contextId);
+        mergeNode.inputTypes(Arrays.<DataType>asList(DataTypes.INTEGER));
+        RecordingDownstreamOperation downstreamOperation = new RecordingDownstreamOperation(contextId);
+        when(downstreamOperationFactory.create(any(MergeNode.class), any(RamAccountingContext.class)))
+                .thenReturn(downstreamOperation);
+
+        // the first page of the upstream arrives before the context exists,
+        // it is only acknowledged once the context has been created
+        ActionListener<DistributedResultResponse> ack = ack();
+        contextManager.addToContext(request(contextId, new Object[][]{{1}, {2}}, false), ack);
+        verify(ack, never()).onResponse(any(DistributedResultResponse.class));
+        @SuppressWarnings("unchecked")
+        ActionListener<NodeMergeResponse> listener = mock(ActionListener.class);
+        contextManager.createContext(mergeNode, listener);
+        verify(ack).onResponse(any(DistributedResultResponse.class));
+
+        // the buffered page was merged before the context could be used by the following page
+        assertThat(downstreamOperation.contextVisible, contains(false));
+        assertThat(contextManager.numPendingContexts(), is(0));
+        assertThat(contextManager.numActiveContexts(), is(1));
+
+        DistributedResultRequest lastPage = request(contextId, new Object[][]{{3}}, true);
+        assertThat(lastPage.rowsRead(), is(true));
+        contextManager.addToContext(lastPage, ack());
+
+        assertThat(downstreamOperation.rows, contains(1, 2, 3));
+        assertThat(downstreamOperation.result().isDone(), is(true));
+        assertThat(contextManager.numActiveContexts(), is(0));
+    }
+
+    @Test
+    public void testContextFinishedByBufferedPagesIsNotRegistered() throws Exception {
+        UUID contextId = UUID.randomUUID();
+        MergeNode mergeNode = new MergeNode("merge", 1);
+        mergeNode.contextId(contextId);
+        mergeNode.inputTypes(Arrays.<DataType>asList(DataTypes.INTEGER));
+        RecordingDownstreamOperation downstreamOperation = new RecordingDownstreamOperation(contextId);
+        when(downstreamOperationFactory.create(any(MergeNode.class), any(RamAccountingContext.class)))
+                .thenReturn(downstreamOperation);
+
+        contextManager.addToContext(request(contextId, new Object[][]{{1}}, false), ack());
+        contextManager.addToContext(request(contextId, new Object[][]{{2}}, true), ack());
+        @SuppressWarnings("unchecked")
+        ActionListener<NodeMergeResponse> listener = mock(ActionListener.class);
+        contextManager.createContext(mergeNode, listener);
+
+        assertThat(downstreamOperation.rows, contains(1, 2));
+        assertThat(downstreamOperation.result().isDone(), is(true));
+        assertThat(contextManager.numActiveContexts(), is(0));
+    }
+
+    /**
+     * collects the first column of all added rows and records if the context could be looked up at that time
+     */
+    private class RecordingDownstreamOperation implements DownstreamOperation {
+
+        private final UUID contextId;
+        private final SettableFuture<Object[][]> result = SettableFuture.create();
+        private final List<Integer> rows = new ArrayList<>();
+        private final List<Boolean> contextVisible = new ArrayList<>();
+
+        RecordingDownstreamOperation(UUID contextId) {
+            this.contextId = contextId;
+        }
+
+        @Override
+        public synchronized boolean addRows(Object[][] rows) throws Exception {
+            contextVisible.add(contextManager.getStreamer(contextId).isPresent());
+            for (Object[] row : rows) {
+                this.rows.add((Integer) row[0]);
+            }
+            return true;
+        }
+
+        @Override
+        public int numUpstreams() {
+            return 1;
+        }
+
+        @Override
+        public void finished() {
+            result.set(new Object[0][]);
+        }
+
+        @Override
+        public ListenableFuture<Object[][]> result() {
+            return result;
+        }
+
+        @Override
+        public void downstream(Projector downstream) {
+        }
+    }
+}
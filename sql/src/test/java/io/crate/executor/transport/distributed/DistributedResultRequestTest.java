@@ -66,6 +66,27 @@ public class DistributedResultRequestTest {
         assertEquals(r1.rows().length, r2.rows().length);
 
         assertThat(r1.rows(), is(r2.rows()));
+        assertThat(r2.lastPage(), is(true));
+    }
+
+    @Test
+    public void testStreamingPage() throws Exception {
+        DistributedRequestContextManager cm = mock(DistributedRequestContextManager.class);
+
+        Streamer<?>[] streamers = new Streamer[]{DataTypes.INTEGER.streamer()};
+        when(cm.getStreamer((UUID) anyObject())).thenReturn(Optional.of(streamers));
+
+        DistributedResultRequest r1 = new DistributedResultRequest(UUID.randomUUID(), streamers);
+        r1.rows(new Object[][]{{1}, {2}});
+        r1.lastPage(false);
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        r1.writeTo(out);
+        DistributedResultRequest r2 = new DistributedResultRequest(cm);
+        r2.readFrom(new BytesStreamInput(out.bytes()));
+
+        assertThat(r2.lastPage(), is(false));
+        assertThat(r1.rows(), is(r2.rows()));
     }
 
 }
@@ -131,7 +131,7 @@ public class DistributedResultRequestTest {
         assertTrue(requestReceiver.memoryStream().size() > 0);
 
 
-        contextManager.addToContext(requestReceiver);
+        contextManager.addToContext(requestReceiver, mock(ActionListener.class));
         final SettableFuture<Object[][]> result = SettableFuture.create();
 
         contextManager.createContext(dummyMergeNode, new ActionListener<NodeMergeResponse>() {
@@ -23,13 +23,22 @@ package io.crate.executor.transport.task.elasticsearch;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import io.crate.metadata.ColumnIdent;
+import io.crate.metadata.*;
+import io.crate.planner.symbol.Reference;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHitField;
 import org.junit.Test;
 
+import javax.annotation.Nullable;
 import java.util.*;
 
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class ESFieldExtractorTest {
 
@@ -110,4 +119,54 @@ public class ESFieldExtractorTest {
         assertEquals(expected, ex.toValue(source));
     }
 
+    private static Reference reference(String column, DataType type) {
+        return new Reference(new ReferenceInfo(
+                new ReferenceIdent(new TableIdent(null, "t"), column), RowGranularity.DOC, type));
+    }
+
+    private static SearchHit hit(Map<String, Object> source, @Nullable SearchHitField field) {
+        SearchHit hit = mock(SearchHit.class);
+        when(hit.getSource()).thenReturn(source);
+        if (field != null) {
+            when(hit.field(field.name())).thenReturn(field);
+        }
+        return hit;
+    }
+
+    private static SearchHitField field(String name, Object... values) {
+        SearchHitField field = mock(SearchHitField.class);
+        when(field.name()).thenReturn(name);
+        when(field.getValues()).thenReturn(Arrays.asList(values));
+        return field;
+    }
+
+    @Test
+    public void testDocValuesAreConvertedToTheColumnType() throws Exception {
+        // the values in the source differ to make sure the doc values are used
+        ESFieldExtractor ex = new ESFieldExtractor.DocValues(reference("ts", DataTypes.TIMESTAMP));
+        Map<String, Object> source = ImmutableMap.<String, Object>of("ts", 1L);
+        assertEquals(1413504000000L, ex.extract(hit(source, field("ts", 1413504000000L))));
+
+        ex = new ESFieldExtractor.DocValues(reference("name", DataTypes.STRING));
+        source = ImmutableMap.<String, Object>of("name", "from source");
+        assertEquals(new BytesRef("Arthur"), ex.extract(hit(source, field("name", "Arthur"))));
+
+        ex = new ESFieldExtractor.DocValues(reference("i", DataTypes.INTEGER));
+        source = ImmutableMap.<String, Object>of("i", 1);
+        assertEquals(2, ex.extract(hit(source, field("i", 2L))));
+    }
+
+    @Test
+    public void testDocValuesWithoutValue() throws Exception {
+        ESFieldExtractor ex = new ESFieldExtractor.DocValues(reference("i", DataTypes.INTEGER));
+        assertNull(ex.extract(hit(ImmutableMap.<String, Object>of(), field("i"))));
+    }
+
+    @Test
+    public void testDocValuesFallBackToSource() throws Exception {
+        // e.g. a partition which maps the column without doc values
+        ESFieldExtractor ex = new ESFieldExtractor.DocValues(reference("i", DataTypes.INTEGER));
+        assertEquals(1, ex.extract(hit(ImmutableMap.<String, Object>of("i", 1), null)));
+    }
+
 }
@@ -25,9 +25,13 @@ import com.carrotsearch.hppc.IntArrayList;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import io.crate.action.sql.query.FetchNodeRequest;
+import io.crate.action.sql.query.FetchNodeResponse;
+import io.crate.action.sql.query.QueryShardPageRequest;
 import io.crate.action.sql.query.QueryShardRequest;
 import io.crate.action.sql.query.TransportQueryShardAction;
 import io.crate.analyze.WhereClause;
+import io.crate.executor.Cursor;
 import io.crate.executor.QueryResult;
 import io.crate.metadata.Functions;
 import io.crate.metadata.Routing;
@@ -36,17 +40,21 @@ import io.crate.planner.node.dql.QueryThenFetchNode;
 import io.crate.planner.symbol.Aggregation;
 import io.crate.planner.symbol.Symbol;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.block.ClusterBlocks;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
+import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchShardTarget;
-import org.elasticsearch.search.action.SearchServiceListener;
 import org.elasticsearch.search.action.SearchServiceTransportAction;
 import org.elasticsearch.search.controller.SearchPhaseController;
-import org.elasticsearch.search.fetch.ShardFetchSearchRequest;
+import org.elasticsearch.search.fetch.FetchSearchResult;
+import org.elasticsearch.search.internal.InternalSearchResponse;
 import org.elasticsearch.search.query.QuerySearchResult;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.junit.Before;
@@ -62,8 +70,11 @@ import org.mockito.stubbing.Answer;
 
 import javax.annotation.Nullable;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
@@ -163,14 +174,14 @@ public class QueryThenFetchTaskTest {
         verify(transportQueryShardAction).execute(anyString(), any(QueryShardRequest.class), responseListener.capture());
         responseListener.getValue().onResponse(queryResult);
 
-        ArgumentCaptor<SearchServiceListener> searchServiceListenerArgumentCaptor = ArgumentCaptor.forClass(SearchServiceListener.class);
-        verify(searchServiceTransportAction).sendExecuteFetch(
-                any(DiscoveryNode.class),
-                any(ShardFetchSearchRequest.class), searchServiceListenerArgumentCaptor.capture());
+        ArgumentCaptor<ActionListener> fetchListenerArgumentCaptor = ArgumentCaptor.forClass(ActionListener.class);
+        verify(transportQueryShardAction).executeFetch(
+                eq("node_1"),
+                any(FetchNodeRequest.class), fetchListenerArgumentCaptor.capture());
 
 
         OutOfMemoryError oom = new OutOfMemoryError();
-        searchServiceListenerArgumentCaptor.getValue().onFailure(oom);
+        fetchListenerArgumentCaptor.getValue().onFailure(oom);
         List<ListenableFuture<QueryResult>> result = queryThenFetchTask.result();
 
         Futures.addCallback(Futures.allAsList(result), new FutureCallback<List<QueryResult>>() {
@@ -217,4 +228,155 @@ public class QueryThenFetchTaskTest {
         });
 
     }
+
+    private QueryThenFetchTask pagingTask(int fetchSize, int limit) {
+        QueryThenFetchNode searchNode = mock(QueryThenFetchNode.class);
+        Map<String, Map<String, Set<Integer>>> locations = new HashMap<>();
+        HashMap<String, Set<Integer>> location1 = new HashMap<String, Set<Integer>>();
+        location1.put("loc1", new HashSet<>(Arrays.asList(1)));
+        locations.put("node_1", location1);
+        when(searchNode.routing()).thenReturn(new Routing(locations));
+        when(searchNode.fetchSize()).thenReturn(fetchSize);
+        when(searchNode.limit()).thenReturn(limit);
+        when(nodes.get("node_1")).thenReturn(mock(DiscoveryNode.class));
+
+        return new QueryThenFetchTask(
+                mock(Functions.class),
+                searchNode,
+                clusterService,
+                transportQueryShardAction,
+                searchServiceTransportAction,
+                searchPhaseController,
+                new ThreadPool("testpool"));
+    }
+
+    private QuerySearchResult queryResult(long contextId, int numDocs) {
+        QuerySearchResult queryResult = mock(QuerySearchResult.class);
+        SearchShardTarget target = mock(SearchShardTarget.class);
+        when(target.nodeId()).thenReturn("node_1");
+        when(queryResult.shardTarget()).thenReturn(target);
+        when(queryResult.id()).thenReturn(contextId);
+        when(queryResult.topDocs()).thenReturn(new TopDocs(numDocs, scoreDocs(numDocs), 1.0f));
+        return queryResult;
+    }
+
+    private static ScoreDoc[] scoreDocs(int numDocs) {
+        ScoreDoc[] scoreDocs = new ScoreDoc[numDocs];
+        for (int i = 0; i < numDocs; i++) {
+            scoreDocs[i] = new ScoreDoc(i, 1.0f, 0);
+        }
+        return scoreDocs;
+    }
+
+    /**
+     * let the mocked search phase controller return the given docs of the shard
+     * and respond to the fetch request of the page
+     */
+    @SuppressWarnings("unchecked")
+    private void mockPage(final ScoreDoc[] docs) {
+        when(searchPhaseController.sortDocs(eq(false), any(AtomicArray.class))).thenReturn(docs);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                AtomicArray<IntArrayList> docIdsToLoad = (AtomicArray<IntArrayList>) invocation.getArguments()[0];
+                ScoreDoc[] page = (ScoreDoc[]) invocation.getArguments()[1];
+                if (page.length > 0) {
+                    IntArrayList docIds = new IntArrayList();
+                    for (ScoreDoc scoreDoc : page) {
+                        docIds.add(scoreDoc.doc);
+                    }
+                    docIdsToLoad.set(0, docIds);
+                }
+                return null;
+            }
+        }).when(searchPhaseController).fillDocIdsToLoad(any(AtomicArray.class), any(ScoreDoc[].class));
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                ActionListener<FetchNodeResponse> listener = (ActionListener<FetchNodeResponse>) invocation.getArguments()[2];
+                listener.onResponse(new FetchNodeResponse(new FetchSearchResult[]{mock(FetchSearchResult.class)}));
+                return null;
+            }
+        }).when(transportQueryShardAction).executeFetch(anyString(), any(FetchNodeRequest.class), any(ActionListener.class));
+        InternalSearchResponse response = mock(InternalSearchResponse.class, Answers.RETURNS_DEEP_STUBS.get());
+        SearchHit[] hits = new SearchHit[docs.length];
+        for (int i = 0; i < hits.length; i++) {
+            hits[i] = mock(SearchHit.class);
+        }
+        when(response.hits().hits()).thenReturn(hits);
+        when(searchPhaseController.merge(any(ScoreDoc[].class), any(AtomicArray.class), any(AtomicArray.class)))
+                .thenReturn(response);
+    }
+
+    @Test
+    public void testPagingContinuesWithConsumedDocsAndReleasesExhaustedContexts() throws Exception {
+        QueryThenFetchTask task = pagingTask(2, 10);
+        ArgumentCaptor<QueryShardRequest> request = ArgumentCaptor.forClass(QueryShardRequest.class);
+        ArgumentCaptor<QueryThenFetchTask.QueryShardResponseListener> responseListener =
+                ArgumentCaptor.forClass(QueryThenFetchTask.QueryShardResponseListener.class);
+
+        mockPage(scoreDocs(2));
+        task.start();
+        verify(transportQueryShardAction).execute(eq("node_1"), request.capture(), responseListener.capture());
+        assertThat(request.getValue().keepContextAlive(), is(true));
+        assertThat(request.getValue().limit(), is(2));
+        responseListener.getValue().onResponse(queryResult(42L, 2));
+
+        QueryResult firstPage = task.result().get(0).get(10, TimeUnit.SECONDS);
+        assertThat(firstPage.rows().length, is(2));
+        Cursor cursor = firstPage.cursor();
+        assertThat(cursor, notNullValue());
+        // a full page was returned, the shard may have more docs
+        verify(searchServiceTransportAction, never()).sendFreeContext(any(DiscoveryNode.class), anyLong(), any(SearchRequest.class));
+
+        // the second page contains less docs than requested, so the shard is exhausted
+        mockPage(scoreDocs(1));
+        ListenableFuture<QueryResult> secondPageFuture = cursor.nextPage();
+        ArgumentCaptor<QueryShardPageRequest> pageRequest = ArgumentCaptor.forClass(QueryShardPageRequest.class);
+        verify(transportQueryShardAction).executePage(eq("node_1"), pageRequest.capture(), responseListener.capture());
+        assertThat(pageRequest.getValue().contextId(), is(42L));
+        assertThat(pageRequest.getValue().consumed(), is(2));
+        assertThat(pageRequest.getValue().size(), is(2));
+        responseListener.getValue().onResponse(queryResult(42L, 1));
+
+        QueryResult secondPage = secondPageFuture.get(10, TimeUnit.SECONDS);
+        assertThat(secondPage.rows().length, is(1));
+        assertThat(secondPage.cursor(), nullValue());
+        verify(searchServiceTransportAction, times(1)).sendFreeContext(any(DiscoveryNode.class), eq(42L), any(SearchRequest.class));
+    }
+
+    @Test
+    public void testPagingStopsAtLimit() throws Exception {
+        QueryThenFetchTask task = pagingTask(2, 2);
+        ArgumentCaptor<QueryThenFetchTask.QueryShardResponseListener> responseListener =
+                ArgumentCaptor.forClass(QueryThenFetchTask.QueryShardResponseListener.class);
+
+        mockPage(scoreDocs(2));
+        task.start();
+        verify(transportQueryShardAction).execute(eq("node_1"), any(QueryShardRequest.class), responseListener.capture());
+        responseListener.getValue().onResponse(queryResult(42L, 2));
+
+        QueryResult page = task.result().get(0).get(10, TimeUnit.SECONDS);
+        assertThat(page.rows().length, is(2));
+        assertThat(page.cursor(), nullValue());
+        verify(searchServiceTransportAction, times(1)).sendFreeContext(any(DiscoveryNode.class), eq(42L), any(SearchRequest.class));
+    }
+
+    @Test
+    public void testClosingTheCursorReleasesTheContexts() throws Exception {
+        QueryThenFetchTask task = pagingTask(2, 10);
+        ArgumentCaptor<QueryThenFetchTask.QueryShardResponseListener> responseListener =
+                ArgumentCaptor.forClass(QueryThenFetchTask.QueryShardResponseListener.class);
+
+        mockPage(scoreDocs(2));
+        task.start();
+        verify(transportQueryShardAction).execute(eq("node_1"), any(QueryShardRequest.class), responseListener.capture());
+        responseListener.getValue().onResponse(queryResult(42L, 2));
+
+        Cursor cursor = task.result().get(0).get(10, TimeUnit.SECONDS).cursor();
+        assertThat(cursor, notNullValue());
+        cursor.close();
+        cursor.close();
+        verify(searchServiceTransportAction, times(1)).sendFreeContext(any(DiscoveryNode.class), eq(42L), any(SearchRequest.class));
+    }
 }
@@ -37,13 +37,15 @@ import java.net.InetSocketAddress;
 public class SQLHttpIntegrationTest extends SQLTransportIntegrationTest {
 
     private HttpPost httpPost;
+    private String baseUri;
 
     @Before
     public void setup() {
         HttpServerTransport httpServerTransport = cluster().getInstance(HttpServerTransport.class);
         InetSocketAddress address = ((InetSocketTransportAddress) httpServerTransport.boundAddress().publishAddress())
                 .address();
-        httpPost = new HttpPost(String.format("http://%s:%s/_sql?error_trace", address.getHostName(), address.getPort()));
+        baseUri = String.format("http://%s:%s/_sql", address.getHostName(), address.getPort());
+        httpPost = new HttpPost(baseUri + "?error_trace");
     }
 
     protected CloseableHttpClient httpClient = HttpClients.createDefault();
@@ -61,4 +63,13 @@ public class SQLHttpIntegrationTest extends SQLTransportIntegrationTest {
         return post(null);
     }
 
+    /**
+     * @param params url parameters of the request, e.g. "stream=true"
+     */
+    protected CloseableHttpResponse postWithParams(String params, String body) throws IOException {
+        HttpPost post = new HttpPost(baseUri + "?" + params);
+        post.setEntity(new StringEntity(body));
+        return httpClient.execute(post);
+    }
+
 }
@@ -0,0 +1,289 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.integrationtests;
+
+import io.crate.action.sql.SQLActionException;
+import io.crate.action.sql.SQLRequestBuilder;
+import io.crate.action.sql.SQLResponse;
+import io.crate.test.integration.CrateIntegrationTest;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ * cursors are node local, so all pages are fetched from the single node of this cluster
+ */
+@CrateIntegrationTest.ClusterScope(scope = CrateIntegrationTest.Scope.SUITE, numNodes = 1)
+public class SelectPagingIntegrationTest extends SQLHttpIntegrationTest {
+
+    static {
+        ClassLoader.getSystemClassLoader().setDefaultAssertionStatus(true);
+    }
+
+    private static final int NUM_ROWS = 25;
+
+    private boolean setUpDone = false;
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @Override
+    protected Settings nodeSettings(int nodeOrdinal) {
+        // keep alive of the cursors, see testCursorExpires
+        return ImmutableSettings.builder()
+                .put("search.default_keep_alive", "3s")
+                .build();
+    }
+
+    @Before
+    public void initTestData() {
+        if (setUpDone) {
+            return;
+        }
+        execute("create table paging (id integer primary key, x integer, name string) " +
+                "clustered into 3 shards with (number_of_replicas=0)");
+        ensureGreen();
+        Object[][] bulkArgs = new Object[NUM_ROWS][];
+        for (int i = 0; i < NUM_ROWS; i++) {
+            // every fifth row has no x to page over missing sort values
+            bulkArgs[i] = new Object[]{i, i % 5 == 0 ? null : (i % 7) - 3, "name" + i};
+        }
+        execute("insert into paging (id, x, name) values (?, ?, ?)", bulkArgs);
+        refresh();
+        setUpDone = true;
+    }
+
+    private SQLResponse executePage(@Nullable String stmt, @Nullable String cursor, int fetchSize) {
+        SQLRequestBuilder requestBuilder = new SQLRequestBuilder(client());
+        if (cursor == null) {
+            requestBuilder.stmt(stmt);
+            requestBuilder.fetchSize(fetchSize);
+        } else {
+            requestBuilder.cursor(cursor);
+        }
+        return requestBuilder.execute().actionGet();
+    }
+
+    /**
+     * fetch all pages of the statement and assert that they contain the same rows
+     * in the same order as the result which is fetched at once
+     */
+    private void assertPagedResultEqualsResult(String stmt, int fetchSize) {
+        Object[][] expected = execute(stmt).rows();
+
+        List<Object[]> rows = new ArrayList<>();
+        SQLResponse page = executePage(stmt, null, fetchSize);
+        int numPages = 1;
+        while (true) {
+            assertThat(page.rows().length, lessThanOrEqualTo(fetchSize));
+            rows.addAll(Arrays.asList(page.rows()));
+            if (page.cursor() == null) {
+                break;
+            }
+            page = executePage(null, page.cursor(), fetchSize);
+            numPages++;
+            assertThat("too many pages", numPages, lessThanOrEqualTo(expected.length + 1));
+        }
+        assertThat(rows.size(), is(expected.length));
+        for (int i = 0; i < expected.length; i++) {
+            assertThat("row " + i, rows.get(i), is(expected[i]));
+        }
+    }
+
+    @Test
+    public void testPagingOrderedByPrimaryKey() throws Exception {
+        assertPagedResultEqualsResult("select id, name from paging order by id", 4);
+    }
+
+    @Test
+    public void testPagingUnordered() throws Exception {
+        Object[][] all = execute("select id from paging").rows();
+        List<Object> ids = new ArrayList<>();
+        SQLResponse page = executePage("select id from paging", null, 7);
+        while (true) {
+            for (Object[] row : page.rows()) {
+                ids.add(row[0]);
+            }
+            if (page.cursor() == null) {
+                break;
+            }
+            page = executePage(null, page.cursor(), 7);
+        }
+        // every row is returned exactly once
+        assertThat(ids.size(), is(all.length));
+        assertThat(ids.size(), is(NUM_ROWS));
+        assertThat(ids.containsAll(Arrays.asList(0, 12, 24)), is(true));
+        assertThat(new HashSet<>(ids).size(), is(NUM_ROWS));
+    }
+
+    @Test
+    public void testPagingOrderedByColumnWithNulls() throws Exception {
+        assertPagedResultEqualsResult("select id, x from paging order by x, id", 3);
+        assertPagedResultEqualsResult("select id, x from paging order by x desc nulls first, id", 3);
+    }
+
+    @Test
+    public void testPagingOrderedByFunctionWithNulls() throws Exception {
+        // uses the InputFieldComparator which continues after the last emitted doc using compareTop
+        assertPagedResultEqualsResult("select id, x from paging order by abs(x), id", 4);
+        assertPagedResultEqualsResult("select id, x from paging order by abs(x) desc nulls last, id desc", 4);
+    }
+
+    @Test
+    public void testPagingWithLimitAndOffset() throws Exception {
+        assertPagedResultEqualsResult("select id from paging order by id limit 11 offset 3", 4);
+        assertPagedResultEqualsResult("select id from paging order by id limit 8", 4);
+    }
+
+    @Test
+    public void testLastPageHasNoCursor() throws Exception {
+        SQLResponse response = executePage("select id from paging order by id", null, NUM_ROWS + 1);
+        assertThat(response.rows().length, is(NUM_ROWS));
+        assertThat(response.cursor(), nullValue());
+
+        response = executePage("select id from paging order by id limit 5", null, 5);
+        assertThat(response.rows().length, is(5));
+        assertThat(response.cursor(), nullValue());
+    }
+
+    @Test
+    public void testWithoutFetchSizeThereIsNoCursor() throws Exception {
+        SQLResponse response = execute("select id from paging");
+        assertThat(response.rows().length, is(NUM_ROWS));
+        assertThat(response.cursor(), nullValue());
+    }
+
+    @Test
+    public void testCursorIsKeptForTheFollowingPages() throws Exception {
+        SQLResponse response = executePage("select id from paging order by id", null, 5);
+        String cursor = response.cursor();
+        assertThat(cursor, notNullValue());
+
+        SQLResponse nextPage = executePage(null, cursor, 5);
+        assertThat(nextPage.rows()[0][0], is((Object) 5));
+        // the cursor stays the same but continues after the page which has been fetched last
+        assertThat(nextPage.cursor(), is(cursor));
+        assertThat(executePage(null, cursor, 5).rows()[0][0], is((Object) 10));
+    }
+
+    @Test
+    public void testUnknownCursor() throws Exception {
+        expectedException.expect(SQLActionException.class);
+        expectedException.expectMessage("unknown-cursor");
+        executePage(null, "unknown-cursor", 5);
+    }
+
+    @Test
+    public void testCursorExpires() throws Exception {
+        SQLResponse response = executePage("select id from paging order by id", null, 5);
+        assertThat(response.cursor(), notNullValue());
+        Thread.sleep(4000);
+
+        expectedException.expect(SQLActionException.class);
+        expectedException.expectMessage(response.cursor());
+        executePage(null, response.cursor(), 5);
+    }
+
+    @Test
+    public void testRestFetchSizeAndCursor() throws Exception {
+        CloseableHttpResponse response = post(
+                "{\"stmt\": \"select id from paging order by id\", \"fetch_size\": 10}");
+        assertEquals(200, response.getStatusLine().getStatusCode());
+        Map<String, Object> page = XContentHelper.convertToMap(
+                EntityUtils.toByteArray(response.getEntity()), false).v2();
+        assertThat(((List) page.get("rows")).size(), is(10));
+        assertThat(page.get("rowcount"), is((Object) 10));
+        String cursor = (String) page.get("cursor");
+        assertThat(cursor, notNullValue());
+
+        List<Object> ids = new ArrayList<>();
+        while (cursor != null) {
+            response = post("{\"cursor\": \"" + cursor + "\"}");
+            assertEquals(200, response.getStatusLine().getStatusCode());
+            page = XContentHelper.convertToMap(EntityUtils.toByteArray(response.getEntity()), false).v2();
+            for (Object row : (List) page.get("rows")) {
+                ids.add(((List) row).get(0));
+            }
+            cursor = (String) page.get("cursor");
+        }
+        assertThat(ids.size(), is(NUM_ROWS - 10));
+        assertThat(ids.get(0), is((Object) 10));
+        assertThat(ids.get(ids.size() - 1), is((Object) (NUM_ROWS - 1)));
+    }
+
+    @Test
+    public void testRestUnknownCursor() throws Exception {
+        CloseableHttpResponse response = post("{\"cursor\": \"unknown-cursor\"}");
+        assertEquals(404, response.getStatusLine().getStatusCode());
+        assertThat(EntityUtils.toString(response.getEntity()), containsString("4047"));
+    }
+
+    @Test
+    public void testRestStream() throws Exception {
+        CloseableHttpResponse response = postWithParams("stream=true",
+                "{\"stmt\": \"select id, name from paging order by id\", \"fetch_size\": 10}");
+        assertEquals(200, response.getStatusLine().getStatusCode());
+        assertThat(response.getFirstHeader("Transfer-Encoding").getValue(), is("chunked"));
+        assertThat(response.getFirstHeader("Content-Length"), nullValue());
+
+        Map<String, Object> result = XContentHelper.convertToMap(
+                EntityUtils.toByteArray(response.getEntity()), false).v2();
+        assertThat((List<Object>) result.get("cols"), contains((Object) "id", "name"));
+        assertThat(result.get("rowcount"), is((Object) NUM_ROWS));
+        assertThat(result.get("duration"), notNullValue());
+        assertThat(result.containsKey("cursor"), is(false));
+        List rows = (List) result.get("rows");
+        assertThat(rows.size(), is(NUM_ROWS));
+        for (int i = 0; i < NUM_ROWS; i++) {
+            assertThat((List<Object>) rows.get(i), contains((Object) i, "name" + i));
+        }
+    }
+
+    @Test
+    public void testRestStreamSinglePage() throws Exception {
+        CloseableHttpResponse response = postWithParams("stream=true",
+                "{\"stmt\": \"select id from paging where id < 5\"}");
+        assertEquals(200, response.getStatusLine().getStatusCode());
+        // results which fit into one page are sent as regular response
+        assertThat(response.getFirstHeader("Transfer-Encoding"), nullValue());
+
+        Map<String, Object> result = XContentHelper.convertToMap(
+                EntityUtils.toByteArray(response.getEntity()), false).v2();
+        assertThat(result.get("rowcount"), is((Object) 5));
+        assertThat(result.containsKey("cursor"), is(false));
+    }
+}
@@ -22,6 +22,7 @@
 package io.crate.integrationtests;
 
 
+import io.crate.action.sql.PlanCache;
 import io.crate.action.sql.SQLBulkRequest;
 import io.crate.action.sql.SQLBulkResponse;
 import io.crate.action.sql.SQLRequest;
@@ -35,6 +36,7 @@ import org.junit.rules.ExpectedException;
 import java.util.Arrays;
 import java.util.HashMap;
 
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 
@@ -247,4 +249,72 @@ public class TransportSQLActionSingleNodeTest extends SQLTransportIntegrationTes
         assertThat((String) response.rows()[0][0], is("Time"));
         assertThat((String) response.rows()[0][1], is("is"));
     }
+
+    @Test
+    public void testPlanCacheIsUsedForRepeatedStatements() throws Exception {
+        execute("create table cached (id integer primary key, name string) " +
+                "clustered into 2 shards with (number_of_replicas=0)");
+        ensureGreen();
+        execute("insert into cached (id, name) values (?, ?)", new Object[][]{
+                new Object[]{1, "Arthur"},
+                new Object[]{2, "Trillian"}
+        });
+        refresh();
+        PlanCache planCache = cluster().getInstance(PlanCache.class);
+
+        String stmt = "select name from cached where id = ?";
+        execute(stmt, new Object[]{1});
+        assertThat((String) response.rows()[0][0], is("Arthur"));
+        long hits = planCache.hitCount();
+
+        // the same statement and arguments use the cached plan but still read the current data
+        execute("update cached set name = 'Zaphod' where id = 1");
+        refresh();
+        execute(stmt, new Object[]{1});
+        assertThat((String) response.rows()[0][0], is("Zaphod"));
+        assertThat(planCache.hitCount(), is(hits + 1));
+
+        // the primary key lookup is bound to other arguments
+        execute(stmt, new Object[]{2});
+        assertThat((String) response.rows()[0][0], is("Trillian"));
+        assertThat(planCache.hitCount(), is(hits + 2));
+
+        execute(stmt, new Object[]{3});
+        assertThat(response.rowCount(), is(0L));
+        assertThat(planCache.hitCount(), is(hits + 3));
+
+        execute("select count(*) from cached");
+        execute("select count(*) from cached");
+        assertThat((Long) response.rows()[0][0], is(2L));
+        assertThat(planCache.hitCount(), is(hits + 4));
+
+        execute("select plan_cache['hits'], plan_cache['misses'], plan_cache['size'] from sys.nodes");
+        assertThat((Long) response.rows()[0][0], is(hits + 4));
+        assertThat((Long) response.rows()[0][2], is(planCache.size()));
+    }
+
+    @Test
+    public void testPlanCacheIsInvalidatedIfTheRoutingChanges() throws Exception {
+        execute("create table cached_routing (id integer primary key, name string) " +
+                "clustered into 1 shards with (number_of_replicas=0)");
+        ensureGreen();
+        execute("insert into cached_routing (id, name) values (1, 'Arthur')");
+        refresh();
+        PlanCache planCache = cluster().getInstance(PlanCache.class);
+
+        String stmt = "select name from cached_routing where name = ?";
+        execute(stmt, new Object[]{"Arthur"});
+        assertThat(planCache.size(), greaterThan(0L));
+
+        // a new table changes the metadata and the routing table
+        execute("create table cached_routing2 (id integer primary key) " +
+                "clustered into 1 shards with (number_of_replicas=0)");
+        ensureGreen();
+        assertThat(planCache.size(), is(0L));
+
+        long hits = planCache.hitCount();
+        execute(stmt, new Object[]{"Arthur"});
+        assertThat(response.rowCount(), is(1L));
+        assertThat(planCache.hitCount(), is(hits));
+    }
 }
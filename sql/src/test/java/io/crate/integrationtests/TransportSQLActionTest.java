@@ -2928,6 +2928,56 @@ public class TransportSQLActionTest extends SQLTransportIntegrationTest {
         ensureGreen();
         execute("insert into t (name, score) values ('Ford', 1.2)");
     }
+
+    private void createFetchTable() throws Exception {
+        // id, name and ts are read from the doc values, content and o only exist in the source
+        execute("create table fetch_t (" +
+                "  id integer primary key," +
+                "  name string," +
+                "  content string index using fulltext," +
+                "  ts timestamp," +
+                "  o object as (x integer)" +
+                ") clustered into 2 shards with (number_of_replicas=0)");
+        ensureGreen();
+        execute("insert into fetch_t (id, name, content, ts, o) values (?, ?, ?, ?, ?)", new Object[][]{
+                new Object[]{1, "Arthur", "Don't panic", 1413504000000L, new MapBuilder<String, Object>().put("x", 10).map()},
+                new Object[]{2, "Ford", "Mostly harmless", 1413590400000L, new MapBuilder<String, Object>().put("x", 20).map()},
+                new Object[]{3, null, null, null, null}
+        });
+        refresh();
+    }
+
+    @Test
+    public void testSelectDocValuesColumns() throws Exception {
+        createFetchTable();
+        execute("select name, ts from fetch_t order by id");
+        assertEquals("" +
+                "Arthur| 1413504000000\n" +
+                "Ford| 1413590400000\n" +
+                "NULL| NULL\n", TestingHelpers.printedTable(response.rows()));
+    }
+
+    @Test
+    public void testSelectSourceOnlyColumns() throws Exception {
+        createFetchTable();
+        execute("select content, o['x'] from fetch_t order by id");
+        assertEquals("" +
+                "Don't panic| 10\n" +
+                "Mostly harmless| 20\n" +
+                "NULL| NULL\n", TestingHelpers.printedTable(response.rows()));
+    }
+
+    @Test
+    public void testSelectDocValuesAndSourceColumns() throws Exception {
+        createFetchTable();
+        execute("select id, content, name, o['x'], ts from fetch_t order by id desc limit 2");
+        assertEquals("" +
+                "3| NULL| NULL| NULL| NULL\n" +
+                "2| Mostly harmless| Ford| 20| 1413590400000\n", TestingHelpers.printedTable(response.rows()));
+
+        execute("select name, o from fetch_t where name = 'Arthur' order by ts");
+        assertEquals("Arthur| {x=10}\n", TestingHelpers.printedTable(response.rows()));
+    }
 }
 
 
@@ -28,6 +28,7 @@ import io.crate.metadata.FunctionInfo;
 import io.crate.metadata.Functions;
 import io.crate.operation.operator.EqOperator;
 import io.crate.operation.operator.InOperator;
+import io.crate.operation.operator.LikeOperator;
 import io.crate.operation.operator.OperatorModule;
 import io.crate.planner.symbol.*;
 import io.crate.types.DataType;
@@ -37,6 +38,7 @@ import org.apache.lucene.search.*;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.common.inject.ModulesBuilder;
 import org.elasticsearch.index.cache.IndexCache;
+import org.elasticsearch.index.mapper.FieldMapper;
 import org.elasticsearch.search.internal.SearchContext;
 import org.junit.Before;
 import org.junit.Test;
@@ -47,19 +49,23 @@ import java.util.Arrays;
 import static io.crate.testing.TestingHelpers.createFunction;
 import static io.crate.testing.TestingHelpers.createReference;
 import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class LuceneQueryBuilderTest {
 
+    private SearchContext searchContext;
     private LuceneQueryBuilder builder;
 
     @Before
     public void setUp() throws Exception {
         Functions functions = new ModulesBuilder()
                 .add(new OperatorModule()).createInjector().getInstance(Functions.class);
+        searchContext = mock(SearchContext.class, Answers.RETURNS_MOCKS.get());
         builder = new LuceneQueryBuilder(functions,
-                mock(SearchContext.class, Answers.RETURNS_MOCKS.get()),
+                searchContext,
                 mock(IndexCache.class, Answers.RETURNS_MOCKS.get()));
     }
 
@@ -71,6 +77,44 @@ public class LuceneQueryBuilderTest {
     }
 
 
+    @Test
+    public void testGenericFunctionReadsColumnWithDocValuesFromDocValues() throws Exception {
+        mockDocValues("foo", true);
+        Reference foo = createReference("foo", DataTypes.LONG);
+        WhereClause whereClause = eq(foo, foo);
+        Query query = convert(whereClause);
+        assertThat(query, instanceOf(FilteredQuery.class));
+
+        for (Symbol argument : ((Function) whereClause.query()).arguments()) {
+            assertThat(((Reference) argument).info().ident().columnIdent().fqn(), is("foo"));
+        }
+    }
+
+    @Test
+    public void testGenericFunctionReadsColumnWithoutDocValuesFromSource() throws Exception {
+        mockDocValues("foo", false);
+        Reference foo = createReference("foo", DataTypes.LONG);
+        WhereClause whereClause = eq(foo, foo);
+        Query query = convert(whereClause);
+        assertThat(query, instanceOf(FilteredQuery.class));
+
+        for (Symbol argument : ((Function) whereClause.query()).arguments()) {
+            assertThat(((Reference) argument).info().ident().columnIdent().fqn(), is("_doc.foo"));
+        }
+    }
+
+    @Test
+    public void testGenericFunctionReadsNonPrimitiveColumnFromSource() throws Exception {
+        mockDocValues("foo", true);
+        Reference foo = createReference("foo", DataTypes.OBJECT);
+        WhereClause whereClause = eq(foo, foo);
+        convert(whereClause);
+
+        for (Symbol argument : ((Function) whereClause.query()).arguments()) {
+            assertThat(((Reference) argument).info().ident().columnIdent().fqn(), is("_doc.foo"));
+        }
+    }
+
     @Test
     public void testWhereRefInSetLiteralIsConvertedToBooleanQuery() throws Exception {
         DataType dataType = new SetType(DataTypes.STRING);
@@ -88,6 +132,38 @@ public class LuceneQueryBuilderTest {
     }
 
 
+    @Test
+    public void testLikeWithPrefixPatternIsConvertedToPrefixQuery() throws Exception {
+        Reference foo = createReference("foo", DataTypes.STRING);
+        Query query = convert(like(foo, "abc%"));
+        assertThat(query, instanceOf(PrefixQuery.class));
+        assertThat(((PrefixQuery) query).getPrefix().text(), is("abc"));
+
+        query = convert(like(foo, "a\\%c%"));
+        assertThat(((PrefixQuery) query).getPrefix().text(), is("a%c"));
+    }
+
+    @Test
+    public void testLikeWithWildcardsIsConvertedToWildcardQuery() throws Exception {
+        Reference foo = createReference("foo", DataTypes.STRING);
+        assertThat(convert(like(foo, "a_c%")), instanceOf(WildcardQuery.class));
+        assertThat(convert(like(foo, "%abc")), instanceOf(WildcardQuery.class));
+        assertThat(convert(like(foo, "abc\\%")), instanceOf(WildcardQuery.class));
+    }
+
+    private WhereClause like(Symbol left, String pattern) {
+        return new WhereClause(new Function(new FunctionInfo(
+                new FunctionIdent(LikeOperator.NAME, Arrays.asList(left.valueType(), DataTypes.STRING)), DataTypes.BOOLEAN),
+                Arrays.<Symbol>asList(left, Literal.newLiteral(pattern))
+        ));
+    }
+
+    private void mockDocValues(String columnName, boolean hasDocValues) {
+        FieldMapper mapper = mock(FieldMapper.class);
+        when(mapper.hasDocValues()).thenReturn(hasDocValues);
+        when(searchContext.smartNameFieldMapper(columnName)).thenReturn(mapper);
+    }
+
     private Query convert(WhereClause eq) {
         return builder.convert(eq).query;
     }
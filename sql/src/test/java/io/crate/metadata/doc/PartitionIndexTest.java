@@ -0,0 +1,119 @@
+package io.crate.metadata.doc;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.crate.PartitionName;
+import io.crate.exceptions.ColumnUnknownException;
+import io.crate.metadata.*;
+import io.crate.metadata.table.ColumnPolicy;
+import io.crate.planner.RowGranularity;
+import io.crate.planner.symbol.DynamicReference;
+import io.crate.types.DataTypes;
+import org.apache.lucene.util.BytesRef;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+public class DocTableInfoTest {
+
+package io.crate.metadata.doc;
+
+import com.google.common.collect.ImmutableList;
+import io.crate.PartitionName;
+import io.crate.metadata.FunctionIdent;
+import io.crate.metadata.FunctionInfo;
+import io.crate.metadata.ReferenceIdent;
+import io.crate.metadata.ReferenceInfo;
+import io.crate.metadata.TableIdent;
+import io.crate.operation.operator.AndOperator;
+import io.crate.operation.operator.EqOperator;
+import io.crate.operation.operator.GteOperator;
+import io.crate.operation.operator.LtOperator;
+import io.crate.operation.operator.OrOperator;
+import io.crate.planner.RowGranularity;
+import io.crate.planner.symbol.Function;
+import io.crate.planner.symbol.Literal;
+import io.crate.planner.symbol.Reference;
+import io.crate.planner.symbol.Symbol;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.apache.lucene.util.BytesRef;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class PartitionIndexTest {
+
+    private static final TableIdent TABLE_IDENT = new TableIdent(null, "parted");
+    private static final ReferenceInfo DAY = new ReferenceInfo(
+            new ReferenceIdent(TABLE_IDENT, "day"), RowGranularity.PARTITION, DataTypes.LONG);
+    private static final ReferenceInfo NAME = new ReferenceInfo(
+            new ReferenceIdent(TABLE_IDENT, "name"), RowGranularity.PARTITION, DataTypes.STRING);
+
+    private List<PartitionName> partitions;
+    private PartitionIndex partitionIndex;
+
+    @Before
+    public void prepare() throws Exception {
+        partitions = new ArrayList<>();
+        // inserted in descending order to check that the index is sorted
+        for (long day = 9; day >= 0; day--) {
+            partitions.add(partition(day, day % 2 == 0 ? "even" : "odd"));
+        }
+        partitions.add(new PartitionName("parted", Arrays.asList(null, new BytesRef("odd"))));
+        partitionIndex = new PartitionIndex(ImmutableList.of(DAY, NAME), partitions);
+    }
+
+    private static PartitionName partition(long day, String name) {
+        return new PartitionName("parted", Arrays.asList(new BytesRef(Long.toString(day)), new BytesRef(name)));
+    }
+
+    private static Function op(String name, Symbol left, Symbol right) {
+        return new Function(
+                new FunctionInfo(new FunctionIdent(name, Arrays.<DataType>asList(DataTypes.LONG, DataTypes.LONG)),
+                        DataTypes.BOOLEAN),
+                Arrays.asList(left, right));
+    }
+
+    @Test
+    public void testRange() throws Exception {
+        Symbol query = op(AndOperator.NAME,
+                op(GteOperator.NAME, new Reference(DAY), Literal.newLiteral(3L)),
+                op(LtOperator.NAME, new Reference(DAY), Literal.newLiteral(6L)));
+        assertThat(partitionIndex.candidates(query), contains(partition(5, "odd"), partition(4, "even"), partition(3, "odd")));
+    }
+
+    @Test
+    public void testEqualsWithLiteralOnTheLeft() throws Exception {
+        Symbol query = op(AndOperator.NAME,
+                op(EqOperator.NAME, Literal.newLiteral("even"), new Reference(NAME)),
+                op(LtOperator.NAME, Literal.newLiteral(5L), new Reference(DAY)));
+        assertThat(partitionIndex.candidates(query), contains(
+                partition(8, "even"), partition(6, "even")));
+    }
+
+    @Test
+    public void testNoMatch() throws Exception {
+        Symbol query = op(EqOperator.NAME, new Reference(DAY), Literal.newLiteral(42L));
+        assertThat(partitionIndex.candidates(query), empty());
+    }
+
+    @Test
+    public void testUnsupportedQuery() throws Exception {
+        Symbol query = op(OrOperator.NAME,
+                op(EqOperator.NAME, new Reference(DAY), Literal.newLiteral(1L)),
+                op(EqOperator.NAME, new Reference(DAY), Literal.newLiteral(2L)));
+        assertThat(partitionIndex.candidates(query), nullValue());
+    }
+}
@@ -95,6 +95,43 @@ public class SQLResponseTest {
                 json(r), true);
     }
 
+    @Test
+    public void testXContentReleasingRows() throws Exception {
+        SQLResponse r = new SQLResponse();
+        r.cols(new String[]{"some", "thing"});
+        r.rows(new Object[][]{
+                new Object[]{"one", "two"},
+                new Object[]{"three", "four"},
+        });
+        r.rowCount(2L);
+        JSONAssert.assertEquals(
+                "{\"cols\":[\"some\",\"thing\"],\"rows\":[[\"one\",\"two\"],[\"three\",\"four\"]],\"rowcount\":2,\"duration\":-1}",
+                r.toXContentReleasingRows(builder()).string(), true);
+        assertEquals(null, r.rows());
+        assertThat(r.rowCount(), is(2L));
+    }
+
+    @Test
+    public void testXContentPages() throws Exception {
+        SQLResponse first = new SQLResponse();
+        first.cols(new String[]{"some", "thing"});
+        first.rows(new Object[][]{new Object[]{"one", "two"}});
+        SQLResponse second = new SQLResponse();
+        second.cols(new String[]{"some", "thing"});
+        second.rows(new Object[][]{new Object[]{"three", "four"}});
+
+        XContentBuilder builder = builder();
+        first.toXContentPagesStart(builder);
+        first.toXContentPageRows(builder);
+        second.toXContentPageRows(builder);
+        SQLResponse.toXContentPagesEnd(builder, 2L, 10L);
+        JSONAssert.assertEquals(
+                "{\"cols\":[\"some\",\"thing\"],\"rows\":[[\"one\",\"two\"],[\"three\",\"four\"]],\"rowcount\":2,\"duration\":10}",
+                builder.string(), true);
+        assertEquals(null, first.rows());
+        assertEquals(null, second.rows());
+    }
+
     @Test
     public void testXContentColumnTypes() throws Exception {
         SQLResponse r = new SQLResponse();
@@ -157,6 +194,7 @@ public class SQLResponseTest {
         r1.colTypes(new DataType[0]);
         r1.rows(new Object[][]{new String[]{"ab","ba"}, new String[]{"ba", "ab"}});
         r1.rowCount(2L);
+        r1.cursor("abc");
 
         r1.writeTo(o);
 
@@ -167,6 +205,7 @@ public class SQLResponseTest {
         assertArrayEquals(r1.columnTypes(), r2.columnTypes());
         assertArrayEquals(r1.rows(), r2.rows());
         assertEquals(r1.rowCount(), r2.rowCount());
+        assertEquals("abc", r2.cursor());
     }
 
 
@@ -194,7 +233,7 @@ public class SQLResponseTest {
         resp.writeTo(out);
 
         byte[] expectedBytes = new byte[]
-                { 0,0,2,2,4,99,111,108,49,4,99,111,108,50,0,0,0,2,0,9,114,111,119,49,95,99,111,108,49,0,9,114,111,119,49,95,99,111,108,50,0,9,114,111,119,50,95,99,111,108,49,0,9,114,111,119,50,95,99,111,108,50,0,1,0,0,0,2,4,4};
+                { 0,0,2,2,4,99,111,108,49,4,99,111,108,50,0,0,0,2,0,9,114,111,119,49,95,99,111,108,49,0,9,114,111,119,49,95,99,111,108,50,0,9,114,111,119,50,95,99,111,108,49,0,9,114,111,119,50,95,99,111,108,50,0,1,0,0,0,2,4,4,0};
         byte[] bytes = out.bytes().toBytes();
         assertThat(bytes, is(expectedBytes));
     }
@@ -202,7 +241,7 @@ public class SQLResponseTest {
     @Test
     public void testSerializationReadFrom() throws Exception {
         byte[] buf = new byte[]
-                { 0,0,2,2,4,99,111,108,49,4,99,111,108,50,0,0,0,2,0,9,114,111,119,49,95,99,111,108,49,0,9,114,111,119,49,95,99,111,108,50,0,9,114,111,119,50,95,99,111,108,49,0,9,114,111,119,50,95,99,111,108,50,0,1,0,0,0,2,4,4};
+                { 0,0,2,2,4,99,111,108,49,4,99,111,108,50,0,0,0,2,0,9,114,111,119,49,95,99,111,108,49,0,9,114,111,119,49,95,99,111,108,50,0,9,114,111,119,50,95,99,111,108,49,0,9,114,111,119,50,95,99,111,108,50,0,1,0,0,0,2,4,4,0};
         BytesStreamInput in = new BytesStreamInput(buf, false);
         SQLResponse resp = new SQLResponse();
         resp.readFrom(in);
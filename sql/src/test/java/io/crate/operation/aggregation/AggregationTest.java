@@ -90,4 +90,25 @@ public abstract class AggregationTest {
         return new Object[][]{{state.value()}};
     }
 
+    /**
+     * execute an aggregation with several arguments, every row of data must contain a value for each argument
+     */
+    public Object[][] executeAggregation(String name, DataType[] argumentTypes, Object[][] data) throws Exception {
+        FunctionIdent fi = new FunctionIdent(name, ImmutableList.copyOf(argumentTypes));
+        InputCollectExpression[] inputs = new InputCollectExpression[argumentTypes.length];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = new InputCollectExpression(i);
+        }
+        AggregationFunction impl = (AggregationFunction) functions.get(fi);
+        AggregationState state = impl.newState(ramAccountingContext);
+
+        for (Object[] row : data) {
+            for (InputCollectExpression i : inputs) {
+                i.setNextRow(row);
+            }
+            impl.iterate(state, inputs);
+        }
+        return new Object[][]{{state.value()}};
+    }
+
 }
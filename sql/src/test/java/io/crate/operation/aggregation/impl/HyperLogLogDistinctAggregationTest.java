@@ -0,0 +1,118 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.operation.aggregation.impl;
+
+import com.google.common.collect.ImmutableList;
+import io.crate.metadata.FunctionIdent;
+import io.crate.operation.aggregation.AggregationFunction;
+import io.crate.operation.aggregation.AggregationState;
+import io.crate.operation.aggregation.AggregationTest;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+public class HyperLogLogDistinctAggregationTest extends AggregationTest {
+
+    @Test
+    public void testReturnType() throws Exception {
+        FunctionIdent fi = new FunctionIdent("hyperloglog_distinct", ImmutableList.<DataType>of(DataTypes.INTEGER));
+        assertEquals(DataTypes.LONG, functions.get(fi).info().returnType());
+    }
+
+    @Test
+    public void testLong() throws Exception {
+        Object[][] data = new Object[1000][];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = new Object[]{(long) (i % 100)};
+        }
+        Object[][] result = executeAggregation("hyperloglog_distinct", DataTypes.LONG, data);
+        // small cardinalities are counted exactly
+        assertThat((Long) result[0][0], is(100L));
+    }
+
+    @Test
+    public void testString() throws Exception {
+        Object[][] result = executeAggregation("hyperloglog_distinct", DataTypes.STRING,
+                new Object[][]{{new BytesRef("Youri")}, {new BytesRef("Ruben")}, {new BytesRef("Ruben")}, {null}});
+        assertThat((Long) result[0][0], is(2L));
+    }
+
+    @Test
+    public void testWithPrecision() throws Exception {
+        Object[][] result = executeAggregation("hyperloglog_distinct",
+                new DataType[]{DataTypes.INTEGER, DataTypes.INTEGER},
+                new Object[][]{{1, 4}, {2, 4}, {2, 4}});
+        assertThat((Long) result[0][0], is(2L));
+    }
+
+    @Test
+    public void testInvalidPrecision() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("hyperloglog_distinct precision must be between 4 and 18");
+        executeAggregation("hyperloglog_distinct",
+                new DataType[]{DataTypes.INTEGER, DataTypes.INTEGER},
+                new Object[][]{{1, 30}});
+    }
+
+    @Test
+    public void testSerializationAndReduce() throws Exception {
+        FunctionIdent fi = new FunctionIdent("hyperloglog_distinct", ImmutableList.<DataType>of(DataTypes.LONG));
+        HyperLogLogDistinctAggregation impl = (HyperLogLogDistinctAggregation) functions.get(fi);
+        HyperLogLogDistinctAggregation.HllState state = impl.newState(ramAccountingContext);
+        state.init(HyperLogLogDistinctAggregation.DEFAULT_PRECISION);
+        state.add(1L);
+        state.add(2L);
+
+        BytesStreamOutput streamOutput = new BytesStreamOutput();
+        state.writeTo(streamOutput);
+        HyperLogLogDistinctAggregation.HllState newState = impl.newState(ramAccountingContext);
+        newState.readFrom(new BytesStreamInput(streamOutput.bytes()));
+        assertEquals(state.value(), newState.value());
+
+        HyperLogLogDistinctAggregation.HllState other = impl.newState(ramAccountingContext);
+        other.init(HyperLogLogDistinctAggregation.DEFAULT_PRECISION);
+        other.add(2L);
+        other.add(3L);
+        newState.reduce(other);
+        assertThat((Long) newState.value(), is(3L));
+    }
+
+    @Test
+    public void testEmptyStateSerialization() throws Exception {
+        FunctionIdent fi = new FunctionIdent("hyperloglog_distinct", ImmutableList.<DataType>of(DataTypes.LONG));
+        AggregationFunction impl = (AggregationFunction) functions.get(fi);
+        AggregationState state = impl.newState(ramAccountingContext);
+
+        BytesStreamOutput streamOutput = new BytesStreamOutput();
+        state.writeTo(streamOutput);
+        AggregationState newState = impl.newState(ramAccountingContext);
+        newState.readFrom(new BytesStreamInput(streamOutput.bytes()));
+        assertThat((Long) newState.value(), is(0L));
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.operation.aggregation.impl;
+
+import com.google.common.collect.ImmutableList;
+import io.crate.metadata.FunctionIdent;
+import io.crate.operation.aggregation.AggregationTest;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+public class PercentileAggregationTest extends AggregationTest {
+
+    private Object[][] executeAggregation(DataType dataType, Object[][] data) throws Exception {
+        return executeAggregation("percentile", new DataType[]{dataType, DataTypes.DOUBLE}, data);
+    }
+
+    @Test
+    public void testReturnType() throws Exception {
+        FunctionIdent fi = new FunctionIdent("percentile",
+                ImmutableList.<DataType>of(DataTypes.INTEGER, DataTypes.DOUBLE));
+        assertEquals(DataTypes.DOUBLE, functions.get(fi).info().returnType());
+    }
+
+    @Test
+    public void testMedian() throws Exception {
+        Object[][] data = new Object[101][];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = new Object[]{i, 0.5};
+        }
+        Object[][] result = executeAggregation(DataTypes.INTEGER, data);
+        assertThat((Double) result[0][0], closeTo(50.0, 1.0));
+    }
+
+    @Test
+    public void testNoValues() throws Exception {
+        Object[][] result = executeAggregation(DataTypes.LONG, new Object[][]{{null, 0.5}});
+        assertThat(result[0][0], nullValue());
+    }
+
+    @Test
+    public void testInvalidFraction() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("percentile requires a fraction between 0 and 1, got 1.5");
+        executeAggregation(DataTypes.DOUBLE, new Object[][]{{1.0, 1.5}});
+    }
+
+    @Test
+    public void testSerializationAndReduce() throws Exception {
+        FunctionIdent fi = new FunctionIdent("percentile",
+                ImmutableList.<DataType>of(DataTypes.DOUBLE, DataTypes.DOUBLE));
+        PercentileAggregation impl = (PercentileAggregation) functions.get(fi);
+        PercentileAggregation.PercentileState state = impl.newState(ramAccountingContext);
+        state.fraction(1.0);
+        state.add(10.0);
+
+        BytesStreamOutput streamOutput = new BytesStreamOutput();
+        state.writeTo(streamOutput);
+        PercentileAggregation.PercentileState newState = impl.newState(ramAccountingContext);
+        newState.readFrom(new BytesStreamInput(streamOutput.bytes()));
+        assertEquals(state.value(), newState.value());
+
+        PercentileAggregation.PercentileState other = impl.newState(ramAccountingContext);
+        other.fraction(1.0);
+        other.add(20.0);
+        newState.reduce(other);
+        assertThat((Double) newState.value(), closeTo(20.0, 0.001));
+    }
+}
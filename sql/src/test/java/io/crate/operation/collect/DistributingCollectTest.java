@@ -22,13 +22,16 @@
 package io.crate.operation.collect;
 
 import com.google.common.collect.ImmutableSet;
+import io.crate.Streamer;
 import io.crate.action.sql.query.TransportQueryShardAction;
 import io.crate.analyze.WhereClause;
 import io.crate.blob.BlobEnvironment;
 import io.crate.blob.v2.BlobIndices;
 import io.crate.breaker.CircuitBreakerModule;
 import io.crate.executor.TaskResult;
+import io.crate.executor.transport.distributed.DistributedFailureRequest;
 import io.crate.executor.transport.distributed.DistributedResultRequest;
+import io.crate.executor.transport.distributed.DistributedResultResponse;
 import io.crate.executor.transport.merge.TransportMergeNodeAction;
 import io.crate.metadata.*;
 import io.crate.metadata.shard.ShardReferenceImplementation;
@@ -44,6 +47,7 @@ import io.crate.planner.symbol.Function;
 import io.crate.planner.symbol.Literal;
 import io.crate.planner.symbol.Reference;
 import io.crate.planner.symbol.Symbol;
+import io.crate.types.DataTypes;
 import org.elasticsearch.action.admin.indices.create.TransportCreateIndexAction;
 import org.elasticsearch.action.admin.indices.delete.TransportDeleteIndexAction;
 import org.elasticsearch.action.admin.indices.settings.put.TransportUpdateSettingsAction;
@@ -86,11 +90,13 @@ import org.elasticsearch.script.ScriptService;
 import org.elasticsearch.search.InternalSearchService;
 import org.elasticsearch.search.SearchService;
 import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportException;
 import org.elasticsearch.transport.TransportRequest;
 import org.elasticsearch.transport.TransportResponseHandler;
 import org.elasticsearch.transport.TransportService;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Matchers;
 import org.mockito.Mockito;
 import org.mockito.invocation.InvocationOnMock;
@@ -105,6 +111,9 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class DistributingCollectTest {
@@ -315,10 +324,74 @@ public class DistributingCollectTest {
         assertTrue(buckets.containsKey(OTHER_NODE_ID));
     }
 
+    @Test
+    public void testFailedPageFailsDownstream() throws Exception {
+        TransportService pageTransportService = mock(TransportService.class);
+        DiscoveryNode node = mock(DiscoveryNode.class);
+        DistributingCollectOperation.BucketPageSender sender = new DistributingCollectOperation.BucketPageSender(
+                pageTransportService, jobId, new Streamer[]{DataTypes.INTEGER.streamer()}, node);
+        sender.add(Arrays.<Object[]>asList(new Object[]{1}), false);
+        sender.add(Arrays.<Object[]>asList(new Object[]{2}), true);
+
+        ArgumentCaptor<TransportResponseHandler> handler = ArgumentCaptor.forClass(TransportResponseHandler.class);
+        verify(pageTransportService).submitRequest(Matchers.same(node), Matchers.same(TransportMergeNodeAction.mergeRowsAction),
+                Matchers.<TransportRequest>any(), handler.capture());
+
+        // the first page isn't the last one, the downstream would wait for the remaining pages
+        handler.getValue().handleException(new TransportException("page rejected"));
+
+        ArgumentCaptor<DistributedFailureRequest> failureRequest = ArgumentCaptor.forClass(DistributedFailureRequest.class);
+        verify(pageTransportService).submitRequest(Matchers.same(node), Matchers.same(TransportMergeNodeAction.failAction),
+                failureRequest.capture(), any(TransportResponseHandler.class));
+        assertThat(failureRequest.getValue().contextId(), is(jobId));
+        // no further pages are sent
+        verify(pageTransportService, times(1)).submitRequest(any(DiscoveryNode.class),
+                Matchers.same(TransportMergeNodeAction.mergeRowsAction),
+                Matchers.<TransportRequest>any(), any(TransportResponseHandler.class));
+    }
+
+    @Test
+    public void testNextPageIsSentAfterResponse() throws Exception {
+        TransportService pageTransportService = mock(TransportService.class);
+        DiscoveryNode node = mock(DiscoveryNode.class);
+        DistributingCollectOperation.BucketPageSender sender = new DistributingCollectOperation.BucketPageSender(
+                pageTransportService, jobId, new Streamer[]{DataTypes.INTEGER.streamer()}, node);
+        sender.add(Arrays.<Object[]>asList(new Object[]{1}), false);
+        sender.add(Arrays.<Object[]>asList(new Object[]{2}), false);
+
+        ArgumentCaptor<DistributedResultRequest> request = ArgumentCaptor.forClass(DistributedResultRequest.class);
+        ArgumentCaptor<TransportResponseHandler> handler = ArgumentCaptor.forClass(TransportResponseHandler.class);
+        verify(pageTransportService).submitRequest(Matchers.same(node), Matchers.same(TransportMergeNodeAction.mergeRowsAction),
+                request.capture(), handler.capture());
+        assertThat((Integer) request.getValue().rows()[0][0], is(1));
+
+        // the collect fails while the second page is queued
+        sender.fail();
+        verify(pageTransportService, never()).submitRequest(any(DiscoveryNode.class),
+                Matchers.same(TransportMergeNodeAction.failAction),
+                Matchers.<TransportRequest>any(), any(TransportResponseHandler.class));
+
+        handler.getValue().handleResponse(new DistributedResultResponse());
+        verify(pageTransportService).submitRequest(Matchers.same(node), Matchers.same(TransportMergeNodeAction.failAction),
+                Matchers.<TransportRequest>any(), any(TransportResponseHandler.class));
+        verify(pageTransportService, times(1)).submitRequest(any(DiscoveryNode.class),
+                Matchers.same(TransportMergeNodeAction.mergeRowsAction),
+                Matchers.<TransportRequest>any(), any(TransportResponseHandler.class));
+    }
+
     @Test
     public void testCollectFromNodes() throws Exception {
 
-        Mockito.doReturn(null).when(transportService).submitRequest(any(DiscoveryNode.class), Matchers.same(TransportMergeNodeAction.mergeRowsAction),
+        final List<Object[]> rows = Collections.synchronizedList(new ArrayList<Object[]>());
+        final CountDownLatch countDown = new CountDownLatch(2);
+        Mockito.doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                rows.addAll(Arrays.asList(((DistributedResultRequest) invocation.getArguments()[2]).rows()));
+                countDown.countDown();
+                return null;
+            }
+        }).when(transportService).submitRequest(any(DiscoveryNode.class), Matchers.same(TransportMergeNodeAction.mergeRowsAction),
                 Matchers.<TransportRequest>any(),
                 any(TransportResponseHandler.class));
 
@@ -327,8 +400,10 @@ public class DistributingCollectTest {
         collectNode.jobId(jobId);
         collectNode.maxRowGranularity(RowGranularity.NODE);
         collectNode.toCollect(Arrays.<Symbol>asList(Literal.newLiteral(true)));
-        Object[][] objects = operation.collect(collectNode, null).get();
-        assertThat((Boolean) objects[0][0], is(true));
+        assertThat(operation.collect(collectNode, null).get(), is(TaskResult.EMPTY_RESULT.rows()));
+        countDown.await(2, TimeUnit.SECONDS);
+        assertThat(rows.size(), is(1));
+        assertThat((Boolean) rows.get(0)[0], is(true));
 
     }
 
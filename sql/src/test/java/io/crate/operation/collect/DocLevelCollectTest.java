@@ -32,7 +32,10 @@ import io.crate.metadata.sys.SysShardsTableInfo;
 import io.crate.operation.operator.EqOperator;
 import io.crate.planner.RowGranularity;
 import io.crate.planner.node.dql.CollectNode;
+import io.crate.planner.projection.Projection;
+import io.crate.planner.projection.TopNProjection;
 import io.crate.planner.symbol.Function;
+import io.crate.planner.symbol.InputColumn;
 import io.crate.planner.symbol.Literal;
 import io.crate.planner.symbol.Reference;
 import io.crate.planner.symbol.Symbol;
@@ -77,6 +80,14 @@ public class DocLevelCollectTest extends SQLTransportIntegrationTest {
     );
 
     private static final String PARTITIONED_TABLE_NAME = "parted_table";
+    private static final String BLOCKS_TABLE_NAME = "blocks_table";
+    private static final Reference blocksIdReference = new Reference(
+            new ReferenceInfo(
+                    new ReferenceIdent(new TableIdent(null, BLOCKS_TABLE_NAME), "id"),
+                    RowGranularity.DOC,
+                    DataTypes.INTEGER
+            )
+    );
 
     private MapSideDataCollectOperation operation;
     private Functions functions;
@@ -226,4 +237,63 @@ public class DocLevelCollectTest extends SQLTransportIntegrationTest {
         assertThat((Long)result[0][1], isOneOf(0L, 1L));
         assertThat((Long)result[1][1], isOneOf(0L, 1L));
     }
+
+    /**
+     * create a single shard table with enough documents to be collected in several blocks
+     */
+    private int createBlocksTable() {
+        int numDocs = LuceneDocCollector.MAX_BLOCK_SIZE * 3 + 7;
+        execute(String.format(Locale.ENGLISH, "create table %s (" +
+                " id integer" +
+                ") clustered into 1 shards with(number_of_replicas=0)", BLOCKS_TABLE_NAME));
+        ensureGreen();
+        Object[][] bulkArgs = new Object[numDocs][];
+        for (int i = 0; i < numDocs; i++) {
+            bulkArgs[i] = new Object[]{i};
+        }
+        execute(String.format("insert into %s (id) values (?)", BLOCKS_TABLE_NAME), bulkArgs);
+        refresh();
+        return numDocs;
+    }
+
+    @Test
+    public void testCollectDocLevelAcrossBlocks() throws Exception {
+        int numDocs = createBlocksTable();
+        CollectNode collectNode = new CollectNode("docCollect", routing(BLOCKS_TABLE_NAME));
+        collectNode.toCollect(Arrays.<Symbol>asList(blocksIdReference));
+        collectNode.maxRowGranularity(RowGranularity.DOC);
+
+        Object[][] result = operation.collect(collectNode, null).get();
+        assertThat(result.length, is(numDocs));
+        BitSet ids = new BitSet(numDocs);
+        for (Object[] row : result) {
+            assertThat(row.length, is(1));
+            int id = (Integer) row[0];
+            assertThat(ids.get(id), is(false));
+            ids.set(id);
+        }
+        assertThat(ids.cardinality(), is(numDocs));
+    }
+
+    @Test
+    public void testCollectDocLevelWithLimitAcrossBlocks() throws Exception {
+        int numDocs = createBlocksTable();
+        // more than the first two blocks, less than all docs
+        int limit = LuceneDocCollector.MIN_BLOCK_SIZE * 3 + 5;
+        TopNProjection topN = new TopNProjection(limit, 0);
+        topN.outputs(Arrays.<Symbol>asList(new InputColumn(0)));
+        CollectNode collectNode = new CollectNode("docCollect", routing(BLOCKS_TABLE_NAME),
+                Arrays.<Symbol>asList(blocksIdReference), Arrays.<Projection>asList(topN));
+        collectNode.maxRowGranularity(RowGranularity.DOC);
+
+        Object[][] result = operation.collect(collectNode, null).get();
+        assertThat(result.length, is(limit));
+        Set<Integer> ids = new HashSet<>();
+        for (Object[] row : result) {
+            assertThat(row.length, is(1));
+            int id = (Integer) row[0];
+            assertThat(id >= 0 && id < numDocs, is(true));
+            assertThat(ids.add(id), is(true));
+        }
+    }
 }
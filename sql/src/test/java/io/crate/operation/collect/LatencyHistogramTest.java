@@ -0,0 +1,76 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.operation.collect;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testEmpty() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertThat(histogram.count(), is(0L));
+        assertThat(histogram.valueAtPercentile(50.0), is(-1L));
+    }
+
+    @Test
+    public void testSmallValuesAreExact() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 4; i++) {
+            histogram.record(i);
+        }
+        assertThat(histogram.count(), is(4L));
+        assertThat(histogram.valueAtPercentile(50.0), is(2L));
+        assertThat(histogram.valueAtPercentile(100.0), is(4L));
+    }
+
+    @Test
+    public void testRelativeError() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10_000; i++) {
+            histogram.record(i);
+        }
+        long p99 = histogram.valueAtPercentile(99.0);
+        assertThat(p99, greaterThanOrEqualTo(9900L));
+        assertThat(p99, lessThanOrEqualTo(9900L + 9900L / LatencyHistogram.SUB_BUCKETS));
+
+        histogram.record(Long.MAX_VALUE);
+        assertThat(histogram.valueAtPercentile(100.0), is(Long.MAX_VALUE));
+
+        histogram.reset();
+        assertThat(histogram.count(), is(0L));
+    }
+
+    @Test
+    public void testBucketBoundaries() throws Exception {
+        for (long value : new long[]{0, 7, 8, 9, 15, 16, 17, 1000, 123456789L, Long.MAX_VALUE}) {
+            long highest = LatencyHistogram.highestValueInBucket(LatencyHistogram.bucketIndex(value));
+            assertThat(highest, greaterThanOrEqualTo(value));
+            assertThat(highest - value, lessThanOrEqualTo(Math.max(0, value / LatencyHistogram.SUB_BUCKETS)));
+        }
+    }
+}
@@ -21,8 +21,6 @@
 
 package io.crate.operation.collect;
 
-import io.crate.core.collections.NonBlockingArrayQueue;
-import io.crate.core.collections.NoopQueue;
 import io.crate.metadata.settings.CrateSettings;
 import io.crate.operation.reference.sys.job.JobContext;
 import io.crate.operation.reference.sys.job.JobContextLog;
@@ -31,7 +29,6 @@ import io.crate.operation.reference.sys.operation.OperationContextLog;
 import org.elasticsearch.common.settings.ImmutableSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.node.settings.NodeSettingsService;
-import org.hamcrest.Matchers;
 import org.junit.Test;
 
 import java.util.UUID;
@@ -51,8 +48,8 @@ public class StatsTablesTest {
         assertThat(stats.lastJobsLogSize, is(CrateSettings.STATS_JOBS_LOG_SIZE.defaultValue()));
         assertThat(stats.lastOperationsLogSize, is(CrateSettings.STATS_OPERATIONS_LOG_SIZE.defaultValue()));
 
-        // even though logSizes are > 0 it must be a NoopQueue because the stats are disabled
-        assertThat(stats.jobsLog.get(), Matchers.instanceOf(NoopQueue.class));
+        // even though logSizes are > 0 the log must discard everything because the stats are disabled
+        assertThat(stats.jobsLog.get().capacity(), is(0));
 
         stats.listener.onRefreshSettings(ImmutableSettings.builder()
                 .put(CrateSettings.STATS_ENABLED.settingName(), true)
@@ -62,14 +59,14 @@ public class StatsTablesTest {
         assertThat(stats.lastJobsLogSize, is(CrateSettings.STATS_JOBS_LOG_SIZE.defaultValue()));
         assertThat(stats.lastOperationsLogSize, is(200));
 
-        assertThat(stats.jobsLog.get(), Matchers.instanceOf(NonBlockingArrayQueue.class));
+        assertThat(stats.jobsLog.get().capacity(), is(CrateSettings.STATS_JOBS_LOG_SIZE.defaultValue()));
 
 
         stats.listener.onRefreshSettings(ImmutableSettings.builder()
                 .put(CrateSettings.STATS_ENABLED.settingName(), false).build());
 
         // logs got wiped:
-        assertThat(stats.jobsLog.get(), Matchers.instanceOf(NoopQueue.class));
+        assertThat(stats.jobsLog.get().capacity(), is(0));
         assertThat(stats.isEnabled(), is(false));
     }
 
@@ -99,5 +96,47 @@ public class StatsTablesTest {
                 .put(CrateSettings.STATS_OPERATIONS_LOG_SIZE.settingName(), 1).build());
 
         assertThat(stats.operationsLog.get().size(), is(1));
+        // the newest entry is kept
+        assertThat(stats.operationsLog.get().iterator().next().started(), is(3L));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testLatencyIsRecordedOnJobFinished() {
+        NodeSettingsService nodeSettingsService = new NodeSettingsService(ImmutableSettings.EMPTY);
+        Settings settings = ImmutableSettings.builder()
+                .put(CrateSettings.STATS_ENABLED.settingName(), true).build();
+        StatsTables stats = new StatsTables(settings, nodeSettingsService);
+
+        UUID jobId = UUID.randomUUID();
+        stats.jobStarted(jobId, "select 1");
+        stats.jobFinished(jobId, null);
+
+        assertThat(stats.jobsLatency().count(), is(1L));
+        assertThat(stats.jobsLog.get().size(), is(1));
+        assertThat(stats.jobsLog.get().iterator().next().statement(), is("select 1"));
+    }
+
+    @Test
+    public void testLatencyIsResetWhenStatsAreDisabled() {
+        NodeSettingsService nodeSettingsService = new NodeSettingsService(ImmutableSettings.EMPTY);
+        Settings settings = ImmutableSettings.builder()
+                .put(CrateSettings.STATS_ENABLED.settingName(), true).build();
+        StatsTables stats = new StatsTables(settings, nodeSettingsService);
+
+        UUID jobId = UUID.randomUUID();
+        stats.jobStarted(jobId, "select 1");
+        stats.jobFinished(jobId, null);
+        UUID operationId = UUID.randomUUID();
+        stats.operationStarted(operationId, jobId, "collect");
+        stats.operationFinished(operationId, null, 0L);
+        assertThat(stats.jobsLatency().count(), is(1L));
+        assertThat(stats.operationsLatency().count(), is(1L));
+
+        stats.listener.onRefreshSettings(ImmutableSettings.builder()
+                .put(CrateSettings.STATS_ENABLED.settingName(), false).build());
+
+        assertThat(stats.jobsLatency().count(), is(0L));
+        assertThat(stats.operationsLatency().count(), is(0L));
+        assertThat(stats.jobsLatency().valueAtPercentile(50.0), is(-1L));
+    }
+}
@@ -40,8 +40,10 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -91,10 +93,86 @@ public class BlobDocCollectorTest {
         assertEquals(mtime, result[0][1]);
     }
 
+    @Test
+    public void testBlobLookedUpByDigest() throws Exception {
+        BlobContainer container = new BlobContainer(tmpDir.toFile());
+        String digest = "417de3231e23dcd6d224ff60918024bc6c59aa58";
+        assertTrue(container.getFile(digest).createNewFile());
+        assertTrue(container.getFile("ae3e1ee1aa9a8ba3c4ff1e5b0e5f1b6b3c5d3e2a").createNewFile());
+
+        BlobDigestExpression digestExpression = new BlobDigestExpression();
+        Input<Boolean> condition = new Input<Boolean>() {
+            @Override
+            public Boolean value() {
+                return true;
+            }
+        };
+
+        CollectingProjector projector = getProjector(
+                container,
+                Arrays.<Input<?>>asList(digestExpression),
+                Arrays.<BlobCollectorExpression<?>>asList(digestExpression),
+                condition,
+                digest
+        );
+        Object[][] result = projector.result().get();
+        assertEquals(1, result.length);
+        assertEquals(digest, ((BytesRef)result[0][0]).utf8ToString());
+
+        projector = getProjector(
+                container,
+                Arrays.<Input<?>>asList(digestExpression),
+                Arrays.<BlobCollectorExpression<?>>asList(digestExpression),
+                condition,
+                "417de3231e23dcd6d224ff60918024bc6c59aa59"
+        );
+        assertEquals(0, projector.result().get().length);
+    }
+
+    @Test
+    public void testInvalidDigestWalksAllBlobs() throws Exception {
+        BlobContainer container = new BlobContainer(tmpDir.toFile());
+        String digest = "417de3231e23dcd6d224ff60918024bc6c59aa58";
+        assertTrue(container.getFile(digest).createNewFile());
+        assertTrue(container.getFile("ae3e1ee1aa9a8ba3c4ff1e5b0e5f1b6b3c5d3e2a").createNewFile());
+
+        BlobDigestExpression digestExpression = new BlobDigestExpression();
+        Input<Boolean> condition = new Input<Boolean>() {
+            @Override
+            public Boolean value() {
+                return true;
+            }
+        };
+
+        // none of these are used as file names, the condition decides which blobs match
+        for (String invalidDigest : new String[]{
+                digest.toUpperCase(Locale.ENGLISH),
+                digest.substring(0, 39),
+                "41/../ae3e1ee1aa9a8ba3c4ff1e5b0e5f1b6b3c5d3e2a",
+                "../../../../../../../../../../../../etc/passwd"}) {
+            CollectingProjector projector = getProjector(
+                    container,
+                    Arrays.<Input<?>>asList(digestExpression),
+                    Arrays.<BlobCollectorExpression<?>>asList(digestExpression),
+                    condition,
+                    invalidDigest
+            );
+            assertEquals(2, projector.result().get().length);
+        }
+    }
+
     private CollectingProjector getProjector(BlobContainer container,
                                              List<Input<?>> inputs,
                                              List<BlobCollectorExpression<?>> expressions,
                                              Input<Boolean> condition) throws Exception {
+        return getProjector(container, inputs, expressions, condition, null);
+    }
+
+    private CollectingProjector getProjector(BlobContainer container,
+                                             List<Input<?>> inputs,
+                                             List<BlobCollectorExpression<?>> expressions,
+                                             Input<Boolean> condition,
+                                             String digest) throws Exception {
         CollectingProjector projector = new CollectingProjector();
         BlobShard blobShard = mock(BlobShard.class);
         when(blobShard.blobContainer()).thenReturn(container);
@@ -104,6 +182,7 @@ public class BlobDocCollectorTest {
                 inputs,
                 expressions,
                 condition,
+                digest,
                 projector
         );
 
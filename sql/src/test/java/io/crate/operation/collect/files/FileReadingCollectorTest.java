@@ -27,6 +27,8 @@ import com.amazonaws.services.s3.model.ObjectListing;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectInputStream;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.google.common.base.Strings;
+import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableMap;
 import io.crate.external.S3ClientHelper;
 import io.crate.metadata.DynamicFunctionResolver;
@@ -34,6 +36,7 @@ import io.crate.metadata.FunctionIdent;
 import io.crate.metadata.FunctionImplementation;
 import io.crate.metadata.Functions;
 import io.crate.operation.projectors.CollectingProjector;
+import io.crate.operation.projectors.ThreadSafeProjector;
 import io.crate.operation.reference.file.FileLineReferenceResolver;
 import io.crate.types.DataTypes;
 import org.apache.lucene.util.BytesRef;
@@ -46,6 +49,10 @@ import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.GZIPOutputStream;
 
 import static io.crate.testing.TestingHelpers.createReference;
@@ -140,6 +147,68 @@ public class FileReadingCollectorTest {
         assertCorrectResult(projector.result().get());
     }
 
+    @Test
+    public void testCollectSplitFileReadsEveryLineOnce() throws Throwable {
+        // large enough to be split into maxParallelReaders ranges, which will cut through lines
+        int numReaders = 4;
+        File file = File.createTempFile("fileReadingCollectorSplit", ".json");
+        ExecutorService executor = Executors.newFixedThreadPool(numReaders);
+        try {
+            int numLines = 0;
+            try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+                long written = 0;
+                while (written <= FileReadingCollector.MIN_SPLIT_SIZE * numReaders) {
+                    // vary the line length so that the range boundaries don't fall on the same offset in every line
+                    String line = "{\"id\": " + numLines + ", \"pad\": \"" + Strings.repeat("x", numLines % 97) + "\"}\n";
+                    writer.write(line);
+                    written += line.length();
+                    numLines++;
+                }
+            }
+
+            ThreadSafeCollectingProjector projector = new ThreadSafeCollectingProjector();
+            FileReadingCollector collector = new FileReadingCollector(
+                    file.getAbsolutePath(),
+                    new Supplier<FileCollectInputSymbolVisitor.Context>() {
+                        @Override
+                        public FileCollectInputSymbolVisitor.Context get() {
+                            return inputSymbolVisitor.process(createReference("_raw", DataTypes.STRING));
+                        }
+                    },
+                    executor,
+                    numReaders,
+                    projector,
+                    FileReadingCollector.FileFormat.JSON,
+                    null,
+                    ImmutableMap.<String, FileInputFactory>of(),
+                    false,
+                    1,
+                    0
+            );
+            projector.startProjection();
+            collector.doCollect(null);
+            Object[][] rows = projector.result().get();
+
+            assertThat(rows.length, is(numLines));
+            BitSet seen = new BitSet(numLines);
+            for (Object[] row : rows) {
+                String line = ((BytesRef) row[0]).utf8ToString();
+                int id = Integer.parseInt(line.substring("{\"id\": ".length(), line.indexOf(',')));
+                assertThat(line, is("{\"id\": " + id + ", \"pad\": \"" + Strings.repeat("x", id % 97) + "\"}"));
+                assertThat("line " + id + " collected twice", seen.get(id), is(false));
+                seen.set(id);
+            }
+            assertThat(seen.cardinality(), is(numLines));
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+            file.delete();
+        }
+    }
+
+    private static class ThreadSafeCollectingProjector extends CollectingProjector implements ThreadSafeProjector {
+    }
+
     private void assertCorrectResult(Object[][] rows) throws Throwable {
         assertThat(((BytesRef)rows[0][0]).utf8ToString(), is(
                 "{\"name\": \"Arthur\", \"id\": 4, \"details\": {\"age\": 38}}"));
@@ -0,0 +1,92 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.operation.collect.files;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class LineReaderTest {
+
+    private static final String CONTENT = "{\"id\": 1}\n{\"id\": 2}\r\n\n{\"id\": 3, \"name\": \"Arthur\"}\n{\"id\": 4}";
+    private static final List<String> LINES = Arrays.asList(
+            "{\"id\": 1}", "{\"id\": 2}", "", "{\"id\": 3, \"name\": \"Arthur\"}", "{\"id\": 4}");
+
+    private static Path file;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        file = Files.createTempFile("lineReader", ".json");
+        Files.write(file, CONTENT.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+        Files.delete(file);
+    }
+
+    private static List<String> readLines(LineReader reader) throws Exception {
+        List<String> lines = new ArrayList<>();
+        byte[] line;
+        while ((line = reader.readLine()) != null) {
+            lines.add(new String(line, StandardCharsets.UTF_8));
+        }
+        reader.close();
+        return lines;
+    }
+
+    @Test
+    public void testReadStream() throws Exception {
+        LineReader reader = LineReader.forStream(
+                new ByteArrayInputStream(CONTENT.getBytes(StandardCharsets.UTF_8)));
+        assertThat(readLines(reader), is(LINES));
+    }
+
+    @Test
+    public void testReadRangesReturnsEveryLineOnce() throws Exception {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (int numRanges = 1; numRanges <= size; numRanges++) {
+                List<String> lines = new ArrayList<>();
+                for (int i = 0; i < numRanges; i++) {
+                    long start = size * i / numRanges;
+                    long end = i == numRanges - 1 ? Long.MAX_VALUE : size * (i + 1) / numRanges;
+                    lines.addAll(readLines(LineReader.forRange(channel, start, end)));
+                }
+                assertThat(lines, is(LINES));
+            }
+        }
+    }
+}
@@ -159,4 +159,32 @@ public class LikeOperatorTest {
         assertNull(op.evaluate(Literal.newLiteral("foobarbaz"), brNullValue));
     }
 
+    @Test
+    public void testLikeOperatorWithSpecialCharacters() {
+        assertTrue(like("a+b", "a+b"));
+        assertTrue(like("a*b?c", "a*b?c"));
+        assertFalse(like("aab", "a*b"));
+        assertTrue(like("line\nbreak", "line%"));
+        assertTrue(like("100%", "100\\%"));
+        assertFalse(like("1000", "100\\%"));
+        assertTrue(like("back\\slash", "back\\\\slash"));
+    }
+
+    @Test
+    public void testPatternToWildcard() {
+        assertEquals("fo?bar*", LikeOperator.patternToWildcard("fo_bar%"));
+        assertEquals("fo_bar%", LikeOperator.patternToWildcard("fo\\_bar\\%"));
+        assertEquals("\\*\\?\\\\", LikeOperator.patternToWildcard("*?\\\\"));
+    }
+
+    @Test
+    public void testPrefix() {
+        assertEquals("abc", LikeOperator.prefix("abc%"));
+        assertEquals("a_c", LikeOperator.prefix("a\\_c%"));
+        assertNull(LikeOperator.prefix("a_c%"));
+        assertNull(LikeOperator.prefix("abc"));
+        assertNull(LikeOperator.prefix("%"));
+        assertNull(LikeOperator.prefix("abc\\%"));
+        assertNull(LikeOperator.prefix("a%c%"));
+    }
 }
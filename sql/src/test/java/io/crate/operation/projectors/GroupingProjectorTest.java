@@ -22,6 +22,8 @@ import org.elasticsearch.common.inject.ModulesBuilder;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
 import static org.hamcrest.CoreMatchers.instanceOf;
@@ -79,6 +81,142 @@ public class GroupingProjectorTest {
         assertThat(rows[0][1], instanceOf(CountAggregation.CountAggState.class));
     }
 
+    @Test
+    public void testGroupByLongKeyWithNull() throws Exception {
+        ImmutableList<Input<?>> keys = ImmutableList.<Input<?>>of(
+                new DummyObjectInput(1, null, 2, 1, null, 1));
+        GroupingProjector projector = new GroupingProjector(
+                Arrays.asList(DataTypes.INTEGER),
+                keys,
+                new CollectExpression[0],
+                new AggregationContext[] { countAggregationContext(Aggregation.Step.FINAL) },
+                RAM_ACCOUNTING_CONTEXT
+        );
+        Map<Object, Object> result = groupRows(projector, 6);
+        assertThat(result.size(), is(3));
+        assertThat((Long) result.get(1), is(3L));
+        assertThat((Long) result.get(2), is(1L));
+        assertThat((Long) result.get(null), is(2L));
+    }
+
+    @Test
+    public void testGroupByStringKeyWithNull() throws Exception {
+        ImmutableList<Input<?>> keys = ImmutableList.<Input<?>>of(
+                new DummyObjectInput(new BytesRef("a"), null, new BytesRef("b"), new BytesRef("a")));
+        GroupingProjector projector = new GroupingProjector(
+                Arrays.asList(DataTypes.STRING),
+                keys,
+                new CollectExpression[0],
+                new AggregationContext[] { countAggregationContext(Aggregation.Step.FINAL) },
+                RAM_ACCOUNTING_CONTEXT
+        );
+        Map<Object, Object> result = groupRows(projector, 4);
+        assertThat(result.size(), is(3));
+        assertThat((Long) result.get(new BytesRef("a")), is(2L));
+        assertThat((Long) result.get(new BytesRef("b")), is(1L));
+        assertThat((Long) result.get(null), is(1L));
+    }
+
+    @Test
+    public void testSetNextRows() throws Exception {
+        ImmutableList<Input<?>> keys = ImmutableList.<Input<?>>of(
+                new DummyObjectInput(1L, 2L, 1L, 3L, 1L));
+        GroupingProjector projector = new GroupingProjector(
+                Arrays.asList(DataTypes.LONG),
+                keys,
+                new CollectExpression[0],
+                new AggregationContext[] { countAggregationContext(Aggregation.Step.FINAL) },
+                RAM_ACCOUNTING_CONTEXT
+        );
+        CollectingProjector collectingProjector = new CollectingProjector();
+        projector.registerUpstream(null);
+        projector.downstream(collectingProjector);
+        projector.startProjection();
+
+        Object[][] rows = new Object[8][];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = new Object[0];
+        }
+        assertThat(projector.setNextRows(rows, 3), is(true));
+        assertThat(projector.setNextRows(rows, 2), is(true));
+        projector.upstreamFinished();
+
+        Map<Object, Object> result = new HashMap<>();
+        for (Object[] row : collectingProjector.result().get()) {
+            result.put(row[0], row[1]);
+        }
+        assertThat(result.size(), is(3));
+        assertThat((Long) result.get(1L), is(3L));
+        assertThat((Long) result.get(2L), is(1L));
+        assertThat((Long) result.get(3L), is(1L));
+    }
+
+    @Test
+    public void testGroupByOversizedStringKey() throws Exception {
+        // keys that don't fit into a block of the byte pool are grouped in a plain map
+        char[] chars = new char[40_000];
+        Arrays.fill(chars, 'x');
+        BytesRef oversized = new BytesRef(new String(chars));
+        ImmutableList<Input<?>> keys = ImmutableList.<Input<?>>of(
+                new DummyObjectInput(oversized, new BytesRef("a"), BytesRef.deepCopyOf(oversized), null));
+        GroupingProjector projector = new GroupingProjector(
+                Arrays.asList(DataTypes.STRING),
+                keys,
+                new CollectExpression[0],
+                new AggregationContext[] { countAggregationContext(Aggregation.Step.FINAL) },
+                RAM_ACCOUNTING_CONTEXT
+        );
+        Map<Object, Object> result = groupRows(projector, 4);
+        assertThat(result.size(), is(3));
+        assertThat((Long) result.get(oversized), is(2L));
+        assertThat((Long) result.get(new BytesRef("a")), is(1L));
+        assertThat((Long) result.get(null), is(1L));
+    }
+
+    private AggregationContext countAggregationContext(Aggregation.Step toStep) {
+        FunctionInfo countInfo = new FunctionInfo(new FunctionIdent("count", ImmutableList.<DataType>of()), DataTypes.LONG);
+        Aggregation countAggregation =
+                new Aggregation(countInfo, ImmutableList.<Symbol>of(), Aggregation.Step.ITER, toStep);
+        Functions functions = new ModulesBuilder()
+                .add(new AggregationImplModule()).createInjector().getInstance(Functions.class);
+        return new AggregationContext(
+                (AggregationFunction)functions.get(countInfo.ident()),
+                countAggregation);
+    }
+
+    private Map<Object, Object> groupRows(GroupingProjector projector, int numRows) throws Exception {
+        CollectingProjector collectingProjector = new CollectingProjector();
+        projector.registerUpstream(null);
+        projector.downstream(collectingProjector);
+
+        projector.startProjection();
+        for (int i = 0; i < numRows; i++) {
+            projector.setNextRow();
+        }
+        projector.upstreamFinished();
+        Map<Object, Object> result = new HashMap<>();
+        for (Object[] row : collectingProjector.result().get()) {
+            result.put(row[0], row[1]);
+        }
+        return result;
+    }
+
+    class DummyObjectInput implements Input<Object> {
+
+        private final Object[] values;
+        private int idx;
+
+        DummyObjectInput(Object... values)  {
+            this.values = values;
+            this.idx = 0;
+        }
+
+        @Override
+        public Object value() {
+            return values[idx++];
+        }
+    }
+
     class DummyInput implements Input<BytesRef> {
 
         private final BytesRef[] values;
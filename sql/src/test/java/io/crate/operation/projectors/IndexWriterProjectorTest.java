@@ -30,6 +30,7 @@ import io.crate.operation.collect.InputCollectExpression;
 import io.crate.test.integration.CrateIntegrationTest;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.action.admin.indices.create.TransportCreateIndexAction;
+import org.elasticsearch.action.bulk.BulkRetryCoordinator;
 import org.elasticsearch.action.bulk.TransportShardBulkAction;
 import org.elasticsearch.action.bulk.TransportShardBulkActionDelegateImpl;
 import org.elasticsearch.cluster.ClusterService;
@@ -60,6 +61,7 @@ public class IndexWriterProjectorTest extends SQLTransportIntegrationTest {
                 ImmutableSettings.EMPTY,
                 cluster().getInstance(TransportShardBulkActionDelegateImpl.class),
                 cluster().getInstance(TransportCreateIndexAction.class),
+                cluster().getInstance(BulkRetryCoordinator.class),
                 "bulk_import",
                 Arrays.asList(ID_IDENT),
                 Arrays.<Input<?>>asList(idInput),
@@ -28,6 +28,7 @@ import io.crate.operation.collect.CollectExpression;
 import io.crate.operation.collect.InputCollectExpression;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.action.admin.indices.create.TransportCreateIndexAction;
+import org.elasticsearch.action.bulk.BulkRetryCoordinator;
 import org.elasticsearch.action.bulk.TransportShardBulkAction;
 import org.elasticsearch.action.bulk.TransportShardBulkActionDelegateImpl;
 import org.elasticsearch.cluster.ClusterService;
@@ -75,6 +76,7 @@ public class IndexWriterProjectorUnitTest {
                 ImmutableSettings.EMPTY,
                 mock(TransportShardBulkActionDelegateImpl.class),
                 mock(TransportCreateIndexAction.class),
+                mock(BulkRetryCoordinator.class),
                 "bulk_import",
                 Arrays.asList(ID_IDENT),
                 Arrays.<Input<?>>asList(idInput),
@@ -113,6 +115,7 @@ public class IndexWriterProjectorUnitTest {
                 ImmutableSettings.EMPTY,
                 mock(TransportShardBulkActionDelegateImpl.class),
                 mock(TransportCreateIndexAction.class),
+                mock(BulkRetryCoordinator.class),
                 "bulk_import",
                 Arrays.asList(ID_IDENT),
                 Arrays.<Input<?>>asList(idInput),
@@ -56,6 +56,9 @@ import org.mockito.MockitoAnnotations;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.core.Is.is;
@@ -165,6 +168,47 @@ public class ProjectionToProjectorVisitorTest {
         }
     }
 
+    @Test
+    public void testSortingTopNProjectorWithConcurrentUpstreams() throws Exception {
+        TopNProjection projection = new TopNProjection(10, 0,
+                Arrays.<Symbol>asList(new InputColumn(0)),
+                new boolean[]{false},
+                new Boolean[] { null }
+        );
+        projection.outputs(Arrays.<Symbol>asList(new InputColumn(0)));
+        final Projector projector = visitor.process(projection, RAM_ACCOUNTING_CONTEXT);
+        assertThat(projector, instanceOf(SortingTopNProjector.class));
+
+        final int numUpstreams = 4;
+        final int rowsPerUpstream = 1000;
+        for (int i = 0; i < numUpstreams; i++) {
+            projector.registerUpstream(null);
+        }
+        projector.startProjection();
+
+        // every upstream sends every numUpstreams-th value, so the smallest values are spread over all queues
+        ExecutorService executor = Executors.newFixedThreadPool(numUpstreams);
+        for (int i = 0; i < numUpstreams; i++) {
+            final int upstream = i;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (int r = rowsPerUpstream - 1; r >= 0; r--) {
+                        projector.setNextRow(r * numUpstreams + upstream);
+                    }
+                    projector.upstreamFinished();
+                }
+            });
+        }
+        Object[][] rows = ((ResultProvider) projector).result().get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertThat(rows.length, is(10));
+        for (int i = 0; i < rows.length; i++) {
+            assertThat((Integer) rows[i][0], is(i));
+        }
+    }
+
     @Test
     public void testAggregationProjector() throws ExecutionException, InterruptedException {
         AggregationProjection projection = new AggregationProjection();
@@ -245,6 +289,49 @@ public class ProjectionToProjectorVisitorTest {
         assertThat((Long)rows[2][3], is(2L));
     }
 
+    @Test
+    public void testGroupProjectorWithConcurrentUpstreams() throws Exception {
+        // select race, count(race) ... group by race
+        GroupProjection projection = new GroupProjection();
+        projection.keys(Arrays.<Symbol>asList(new InputColumn(0, DataTypes.STRING)));
+        projection.values(Arrays.asList(
+                new Aggregation(countInfo, Arrays.<Symbol>asList(new InputColumn(0)), Aggregation.Step.ITER, Aggregation.Step.FINAL)
+        ));
+        final Projector projector = visitor.process(projection, RAM_ACCOUNTING_CONTEXT);
+        assertThat(projector, instanceOf(GroupingProjector.class));
+        CollectingProjector collectingProjector = new CollectingProjector();
+        projector.downstream(collectingProjector);
+
+        int numUpstreams = 4;
+        final int rowsPerUpstream = 1000;
+        for (int i = 0; i < numUpstreams; i++) {
+            projector.registerUpstream(null);
+        }
+        projector.startProjection();
+
+        final BytesRef human = new BytesRef("human");
+        final BytesRef vogon = new BytesRef("vogon");
+        ExecutorService executor = Executors.newFixedThreadPool(numUpstreams);
+        for (int i = 0; i < numUpstreams; i++) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (int r = 0; r < rowsPerUpstream; r++) {
+                        projector.setNextRow(r % 2 == 0 ? human : vogon);
+                    }
+                    projector.upstreamFinished();
+                }
+            });
+        }
+        Object[][] rows = collectingProjector.result().get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertThat(rows.length, is(2));
+        for (Object[] row : rows) {
+            assertThat((Long) row[1], is((long) numUpstreams * rowsPerUpstream / 2));
+        }
+    }
+
     @Test
     public void testFilterProjection() throws Exception {
         EqOperator op = (EqOperator)functions.get(
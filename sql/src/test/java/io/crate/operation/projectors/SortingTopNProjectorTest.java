@@ -21,12 +21,18 @@
 
 package io.crate.operation.projectors;
 
+import com.google.common.collect.ImmutableList;
 import io.crate.operation.Input;
 import io.crate.operation.collect.CollectExpression;
 import io.crate.operation.collect.InputCollectExpression;
 import io.crate.planner.symbol.Literal;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
 import org.junit.Test;
 
+import java.util.List;
+import java.util.Random;
+
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.number.OrderingComparison.lessThanOrEqualTo;
@@ -353,4 +359,73 @@ public class SortingTopNProjectorTest {
         assertThat(iterateLength, is(20));
 
     }
+
+    @Test
+    public void testOrderByNormalizedKeysWithNulls() throws Exception {
+        Input<Long> input = new InputCollectExpression<>(0);
+        SortingTopNProjector projector = new SortingTopNProjector(
+                new Input<?>[]{input},
+                new CollectExpression[]{(CollectExpression<?>) input},
+                1,
+                new int[]{0},
+                ImmutableList.<DataType>of(DataTypes.LONG),
+                new boolean[]{true},
+                new Boolean[]{null},
+                3,
+                1);
+        projector.registerUpstream(null);
+        projector.startProjection();
+        projector.setNextRow(1L);
+        projector.setNextRow(new Object[]{null});
+        projector.setNextRow(Long.MIN_VALUE);
+        projector.setNextRow(Long.MAX_VALUE);
+        projector.setNextRow(2L);
+        projector.upstreamFinished();
+
+        Object[][] rows = projector.result().get();
+        assertThat(rows.length, is(3));
+        // descending, nulls first, first row skipped by the offset
+        assertThat((Long) rows[0][0], is(Long.MAX_VALUE));
+        assertThat((Long) rows[1][0], is(2L));
+        assertThat((Long) rows[2][0], is(1L));
+    }
+
+    @Test
+    public void testNormalizedKeysOrderLikeComparators() throws Exception {
+        Random random = new Random(42L);
+        List<DataType> orderByTypes = ImmutableList.<DataType>of(DataTypes.INTEGER, DataTypes.DOUBLE);
+        for (int run = 0; run < 20; run++) {
+            boolean[] reverseFlags = new boolean[]{random.nextBoolean(), random.nextBoolean()};
+            Boolean[] nullsFirst = new Boolean[]{random.nextBoolean(), null};
+            int limit = random.nextInt(50) + 1;
+            int offset = random.nextInt(10);
+
+            Object[][] input = new Object[200][];
+            for (int i = 0; i < input.length; i++) {
+                input[i] = new Object[]{
+                        random.nextInt(10) == 0 ? null : random.nextInt(20) - 10,
+                        random.nextInt(10) == 0 ? null : random.nextInt(5) / 2.0
+                };
+            }
+
+            Input<Integer> first = new InputCollectExpression<>(0);
+            Input<Double> second = new InputCollectExpression<>(1);
+            SortingTopNProjector expected = new SortingTopNProjector(
+                    new Input<?>[]{first, second},
+                    new CollectExpression[]{(CollectExpression<?>) first, (CollectExpression<?>) second},
+                    2, new int[]{0, 1}, reverseFlags, nullsFirst, limit, offset);
+            SortingTopNProjector normalized = new SortingTopNProjector(
+                    new Input<?>[]{first, second},
+                    new CollectExpression[]{(CollectExpression<?>) first, (CollectExpression<?>) second},
+                    2, new int[]{0, 1}, orderByTypes, reverseFlags, nullsFirst, limit, offset);
+
+            for (SortingTopNProjector projector : new SortingTopNProjector[]{expected, normalized}) {
+                projector.registerUpstream(null);
+                projector.startProjection();
+                projector.setNextRows(input, input.length);
+                projector.upstreamFinished();
+            }
+            assertThat(normalized.result().get(), is(expected.result().get()));
+        }
+    }
 }
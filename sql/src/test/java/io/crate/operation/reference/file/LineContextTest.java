@@ -24,6 +24,8 @@ package io.crate.operation.reference.file;
 import io.crate.metadata.ColumnIdent;
 import org.junit.Test;
 
+import java.util.Arrays;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 
@@ -39,4 +41,28 @@ public class LineContextTest {
         assertNull(context.get(new ColumnIdent("details", "invalid")));
         assertEquals(43, context.get(new ColumnIdent("details", "age")));
     }
+
+    @Test
+    public void testGetRequiredColumns() throws Exception {
+        LineContext context = new LineContext();
+        context.addRequiredColumn(new ColumnIdent("name"));
+        context.addRequiredColumn(new ColumnIdent("details", "age"));
+        context.addRequiredColumn(new ColumnIdent("tags"));
+
+        String source = "{\"id\": 1, \"other\": {\"a\": [1, 2]}, \"name\": \"foo\", " +
+                "\"tags\": [\"a\", null], \"details\": {\"age\": 43}}";
+        context.rawSource(source.getBytes());
+
+        assertEquals("foo", context.get(new ColumnIdent("name")));
+        assertEquals(43, context.get(new ColumnIdent("details", "age")));
+        assertEquals(Arrays.asList("a", null), context.get(new ColumnIdent("tags")));
+        assertNull(context.get(new ColumnIdent("details", "invalid")));
+
+        // not required columns are read from the whole source
+        assertEquals(1, context.get(new ColumnIdent("id")));
+
+        context.rawSource("{\"name\": \"bar\"}".getBytes());
+        assertEquals("bar", context.get(new ColumnIdent("name")));
+        assertNull(context.get(new ColumnIdent("details", "age")));
+    }
 }
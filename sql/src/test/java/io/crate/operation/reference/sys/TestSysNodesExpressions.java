@@ -24,12 +24,21 @@ import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
 import io.crate.Build;
 import io.crate.Version;
+import io.crate.action.sql.PlanCache;
+import io.crate.executor.transport.distributed.DistributedRequestContextManager;
+import io.crate.executor.transport.merge.TransportMergeNodeAction;
+import io.crate.operation.collect.LatencyHistogram;
+import io.crate.operation.collect.StatsTables;
 import io.crate.metadata.GlobalReferenceResolver;
 import io.crate.metadata.ReferenceIdent;
 import io.crate.metadata.ReferenceResolver;
 import io.crate.metadata.sys.SysExpression;
 import io.crate.metadata.sys.SysNodesTableInfo;
 import io.crate.operation.Input;
+import io.crate.operation.reference.sys.node.NodeBulkExpression;
+import io.crate.operation.reference.sys.node.NodeLatencyExpression;
+import io.crate.operation.reference.sys.node.NodeDistributedMergeExpression;
+import io.crate.operation.reference.sys.node.NodePlanCacheExpression;
 import io.crate.operation.reference.sys.node.NodeVersionExpression;
 import io.crate.operation.reference.sys.node.SysNodeExpression;
 import io.crate.operation.reference.sys.node.SysNodeExpressionModule;
@@ -38,6 +47,7 @@ import io.crate.operation.reference.sys.node.fs.NodeFsExpression;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.action.admin.cluster.node.info.NodeInfo;
 import org.elasticsearch.action.admin.cluster.node.stats.NodeStats;
+import org.elasticsearch.action.bulk.BulkRetryCoordinator;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.inject.AbstractModule;
 import org.elasticsearch.common.inject.Injector;
@@ -259,6 +269,35 @@ public class TestSysNodesExpressions {
 
             ThreadPool threadPool = new ThreadPool(getClass().getName());
             bind(ThreadPool.class).toInstance(threadPool);
+
+            BulkRetryCoordinator bulkRetryCoordinator = mock(BulkRetryCoordinator.class);
+            when(bulkRetryCoordinator.queuedItems()).thenReturn(12L);
+            when(bulkRetryCoordinator.inFlightItems()).thenReturn(5L);
+            when(bulkRetryCoordinator.retriedItems()).thenReturn(2L);
+            bind(BulkRetryCoordinator.class).toInstance(bulkRetryCoordinator);
+
+            PlanCache planCache = mock(PlanCache.class);
+            when(planCache.hitCount()).thenReturn(20L);
+            when(planCache.missCount()).thenReturn(3L);
+            when(planCache.size()).thenReturn(2L);
+            bind(PlanCache.class).toInstance(planCache);
+
+            DistributedRequestContextManager contextManager = mock(DistributedRequestContextManager.class);
+            when(contextManager.numActiveContexts()).thenReturn(4);
+            when(contextManager.numPendingContexts()).thenReturn(1);
+            when(contextManager.pendingBytes()).thenReturn(512L);
+            TransportMergeNodeAction transportMergeNodeAction = mock(TransportMergeNodeAction.class);
+            when(transportMergeNodeAction.contextManager()).thenReturn(contextManager);
+            bind(TransportMergeNodeAction.class).toInstance(transportMergeNodeAction);
+
+            LatencyHistogram jobsLatency = new LatencyHistogram();
+            for (long i = 1; i <= 100; i++) {
+                jobsLatency.record(i);
+            }
+            StatsTables statsTables = mock(StatsTables.class);
+            when(statsTables.jobsLatency()).thenReturn(jobsLatency);
+            when(statsTables.operationsLatency()).thenReturn(new LatencyHistogram());
+            bind(StatsTables.class).toInstance(statsTables);
         }
     }
 
@@ -502,6 +541,58 @@ public class TestSysNodesExpressions {
         assertEquals(1000L, (long) v.get("max_open_file_descriptors"));
     }
 
+    @Test
+    public void testBulk() throws Exception {
+        ReferenceIdent ident = new ReferenceIdent(SysNodesTableInfo.IDENT, NodeBulkExpression.NAME);
+        SysObjectReference bulkRef = (SysObjectReference) resolver.getImplementation(ident);
+
+        Map<String, Object> v = bulkRef.value();
+        assertEquals(12L, (long) v.get("queued"));
+        assertEquals(5L, (long) v.get("in_flight"));
+        assertEquals(2L, (long) v.get("retried"));
+    }
+
+    @Test
+    public void testPlanCache() throws Exception {
+        ReferenceIdent ident = new ReferenceIdent(SysNodesTableInfo.IDENT, NodePlanCacheExpression.NAME);
+        SysObjectReference planCacheRef = (SysObjectReference) resolver.getImplementation(ident);
+
+        Map<String, Object> v = planCacheRef.value();
+        assertEquals(20L, (long) v.get("hits"));
+        assertEquals(3L, (long) v.get("misses"));
+        assertEquals(2L, (long) v.get("size"));
+    }
+
+    @Test
+    public void testDistributedMerge() throws Exception {
+        ReferenceIdent ident = new ReferenceIdent(SysNodesTableInfo.IDENT, NodeDistributedMergeExpression.NAME);
+        SysObjectReference distributedMergeRef = (SysObjectReference) resolver.getImplementation(ident);
+
+        Map<String, Object> v = distributedMergeRef.value();
+        assertEquals(4L, (long) v.get("active"));
+        assertEquals(1L, (long) v.get("pending"));
+        assertEquals(512L, (long) v.get("pending_bytes"));
+    }
+
+    @Test
+    public void testLatency() throws Exception {
+        ReferenceIdent ident = new ReferenceIdent(SysNodesTableInfo.IDENT, NodeLatencyExpression.NAME);
+        SysObjectReference latencyRef = (SysObjectReference) resolver.getImplementation(ident);
+
+        Map<String, Object> jobs = (Map<String, Object>) latencyRef.value().get("jobs");
+        // percentiles are reported as the upper bound of their histogram bucket
+        assertEquals(51L, (long) jobs.get("p50"));
+        assertEquals(95L, (long) jobs.get("p95"));
+        assertEquals(103L, (long) jobs.get("p99"));
+
+        Map<String, Object> operations = (Map<String, Object>) latencyRef.value().get("operations");
+        assertEquals(-1L, (long) operations.get("p50"));
+
+        ident = new ReferenceIdent(SysNodesTableInfo.IDENT, NodeLatencyExpression.NAME, Arrays.asList("jobs", "p95"));
+        SysNodeExpression<Long> p95 = (SysNodeExpression<Long>) resolver.getImplementation(ident);
+        assertEquals(95L, (long) p95.value());
+    }
+
     @Test
     public void testNestedBytesRefExpressionsString() throws Exception {
         ReferenceIdent ident = new ReferenceIdent(SysNodesTableInfo.IDENT, "version");
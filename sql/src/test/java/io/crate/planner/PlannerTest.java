@@ -244,6 +244,7 @@ public class PlannerTest {
 
         assertThat(mergeNode.numUpstreams(), is(2));
         assertThat(mergeNode.executionNodes().size(), is(2));
+        assertThat(mergeNode.upstreamNodes(), is(collectNode.executionNodes()));
         assertEquals(mergeNode.inputTypes(), collectNode.outputTypes());
         assertThat(mergeNode.projections().size(), is(1));
         assertThat(mergeNode.projections().get(0), instanceOf(GroupProjection.class));
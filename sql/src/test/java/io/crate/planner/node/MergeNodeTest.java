@@ -53,6 +53,7 @@ public class MergeNodeTest {
         MergeNode node = new MergeNode("merge", 2);
         node.contextId(UUID.randomUUID());
         node.executionNodes(Sets.newHashSet("node1", "node2"));
+        node.upstreamNodes(Sets.newHashSet("node3", "node4", "node5"));
         node.inputTypes(Arrays.<DataType>asList(DataTypes.UNDEFINED, DataTypes.STRING));
 
         Reference nameRef = TestingHelpers.createReference("name", DataTypes.STRING);
@@ -80,6 +81,7 @@ public class MergeNodeTest {
 
         assertThat(node.numUpstreams(), is(node2.numUpstreams()));
         assertThat(node.executionNodes(), is(node2.executionNodes()));
+        assertThat(node.upstreamNodes(), is(node2.upstreamNodes()));
         assertThat(node.contextId(), is(node2.contextId()));
         assertThat(node.inputTypes(), is(node2.inputTypes()));
     }
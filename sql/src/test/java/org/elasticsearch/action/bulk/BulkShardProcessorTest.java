@@ -42,6 +42,7 @@ import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.Transport;
 import org.elasticsearch.transport.TransportRequestHandler;
 import org.elasticsearch.transport.TransportService;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -50,12 +51,18 @@ import org.mockito.*;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
+import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
@@ -72,9 +79,53 @@ public class BulkShardProcessorTest {
     @Mock(answer = Answers.RETURNS_MOCKS)
     ClusterService clusterService;
 
+    private BulkRetryCoordinator bulkRetryCoordinator;
+
     @Before
     public void setUp() throws Exception {
         MockitoAnnotations.initMocks(this);
+        bulkRetryCoordinator = new BulkRetryCoordinator(ImmutableSettings.EMPTY);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        bulkRetryCoordinator.close();
+    }
+
+    @Test
+    public void testRequestsAreSentOnceRequestSizeIsReached() throws Exception {
+        ClusterService clusterService = mock(ClusterService.class);
+        OperationRouting operationRouting = mock(OperationRouting.class);
+        mockShard(operationRouting, 1);
+        mockShard(operationRouting, 2);
+        when(clusterService.operationRouting()).thenReturn(operationRouting);
+
+        final List<BulkShardRequest> requests = new ArrayList<>();
+        TransportShardBulkActionDelegate transportShardBulkActionDelegate = new TransportShardBulkActionDelegate() {
+            @Override
+            public void execute(BulkShardRequest request, ActionListener<BulkShardResponse> listener) {
+                requests.add(request);
+            }
+        };
+
+        final BulkShardProcessor bulkShardProcessor = new BulkShardProcessor(
+                clusterService,
+                ImmutableSettings.builder().put(BulkShardProcessor.REQUEST_SIZE_SETTING, "20b").build(),
+                transportShardBulkActionDelegate,
+                mock(TransportCreateIndexAction.class),
+                bulkRetryCoordinator,
+                false,
+                false,
+                100
+        );
+        bulkShardProcessor.add("foo", new BytesArray("{\"foo\": \"bar1\"}"), "1", null);
+        assertThat(requests.size(), is(0));
+        assertThat(bulkRetryCoordinator.queuedItems(), is(1L));
+
+        bulkShardProcessor.add("foo", new BytesArray("{\"foo\": \"bar2\"}"), "2", null);
+        assertThat(requests.size(), is(2));
+        assertThat(bulkRetryCoordinator.queuedItems(), is(0L));
+        assertThat(bulkRetryCoordinator.inFlightItems(), is(2L));
     }
 
     @Test
@@ -95,6 +146,7 @@ public class BulkShardProcessorTest {
                 ImmutableSettings.EMPTY,
                 transportShardBulkActionDelegate,
                 mock(TransportCreateIndexAction.class),
+                bulkRetryCoordinator,
                 false,
                 false,
                 1
@@ -136,6 +188,7 @@ public class BulkShardProcessorTest {
                 ImmutableSettings.EMPTY,
                 transportShardBulkActionDelegate,
                 mock(TransportCreateIndexAction.class),
+                bulkRetryCoordinator,
                 false,
                 false,
                 1
@@ -170,6 +223,76 @@ public class BulkShardProcessorTest {
         assertTrue(hadBlocked.get());
     }
 
+    @Test
+    public void testRetryWaitingForLockDoesNotBlockRetryPool() throws Exception {
+        BulkRetryCoordinator singleThreadCoordinator = new BulkRetryCoordinator(
+                ImmutableSettings.builder().put(BulkRetryCoordinator.POOL_SIZE_SETTING, 1).build());
+        try {
+            ClusterService clusterService = mock(ClusterService.class);
+            OperationRouting operationRouting = mock(OperationRouting.class);
+            mockShard(operationRouting, 1);
+            mockShard(operationRouting, 2);
+            mockShard(operationRouting, 3);
+            when(clusterService.operationRouting()).thenReturn(operationRouting);
+
+            final BlockingQueue<ActionListener<BulkShardResponse>> listeners = new LinkedBlockingQueue<>();
+            final BlockingQueue<ActionListener<BulkShardResponse>> otherListeners = new LinkedBlockingQueue<>();
+            BulkShardProcessor bulkShardProcessor = new BulkShardProcessor(
+                    clusterService,
+                    ImmutableSettings.EMPTY,
+                    new TransportShardBulkActionDelegate() {
+                        @Override
+                        public void execute(BulkShardRequest request, ActionListener<BulkShardResponse> listener) {
+                            listeners.add(listener);
+                        }
+                    },
+                    mock(TransportCreateIndexAction.class),
+                    singleThreadCoordinator,
+                    false,
+                    false,
+                    1
+            );
+            BulkShardProcessor otherBulkShardProcessor = new BulkShardProcessor(
+                    clusterService,
+                    ImmutableSettings.EMPTY,
+                    new TransportShardBulkActionDelegate() {
+                        @Override
+                        public void execute(BulkShardRequest request, ActionListener<BulkShardResponse> listener) {
+                            otherListeners.add(listener);
+                        }
+                    },
+                    mock(TransportCreateIndexAction.class),
+                    singleThreadCoordinator,
+                    false,
+                    false,
+                    1
+            );
+
+            bulkShardProcessor.add("foo", new BytesArray("{\"foo\": \"bar1\"}"), "1", null);
+            bulkShardProcessor.add("foo", new BytesArray("{\"foo\": \"bar2\"}"), "2", null);
+            ActionListener<BulkShardResponse> first = listeners.poll(5, TimeUnit.SECONDS);
+            ActionListener<BulkShardResponse> second = listeners.poll(5, TimeUnit.SECONDS);
+
+            first.onFailure(new EsRejectedExecutionException());
+            ActionListener<BulkShardResponse> firstRetry = listeners.poll(5, TimeUnit.SECONDS);
+            assertNotNull(firstRetry);
+
+            // the retry of the second request waits until the first retry is done
+            second.onFailure(new EsRejectedExecutionException());
+            assertNull(listeners.poll(50, TimeUnit.MILLISECONDS));
+
+            // but it doesn't occupy the only thread of the retry pool meanwhile
+            otherBulkShardProcessor.add("foo", new BytesArray("{\"foo\": \"bar3\"}"), "3", null);
+            otherListeners.poll(5, TimeUnit.SECONDS).onFailure(new EsRejectedExecutionException());
+            assertNotNull(otherListeners.poll(5, TimeUnit.SECONDS));
+
+            firstRetry.onResponse(new BulkShardResponse(new ShardId("foo", 1), new BulkItemResponse[0]));
+            assertNotNull(listeners.poll(5, TimeUnit.SECONDS));
+        } finally {
+            singleThreadCoordinator.close();
+        }
+    }
+
     private void mockShard(OperationRouting operationRouting, Integer shardId) {
         ShardIterator shardIterator = mock(ShardIterator.class);
         when(operationRouting.indexShards(
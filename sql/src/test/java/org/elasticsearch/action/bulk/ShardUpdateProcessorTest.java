@@ -0,0 +1,114 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package org.elasticsearch.action.bulk;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.action.update.UpdateResponse;
+import org.elasticsearch.index.engine.VersionConflictEngineException;
+import org.elasticsearch.index.shard.ShardId;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ShardUpdateProcessorTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    private final ShardId shardId = new ShardId("foo", 1);
+
+    private static BulkShardResponse successResponse(ShardId shardId, BulkShardRequest request) {
+        BulkItemResponse[] responses = new BulkItemResponse[request.items().length];
+        for (int i = 0; i < responses.length; i++) {
+            BulkItemRequest item = request.items()[i];
+            responses[i] = new BulkItemResponse(item.id(), "update",
+                    new UpdateResponse(shardId.index().name(), "default", Integer.toString(item.id()), 2, false));
+        }
+        return new BulkShardResponse(shardId, responses);
+    }
+
+    @Test
+    public void testRequestsAreSentInBatches() throws Exception {
+        final List<BulkShardRequest> requests = new ArrayList<>();
+        TransportShardBulkActionDelegate delegate = new TransportShardBulkActionDelegate() {
+            @Override
+            public void execute(BulkShardRequest request, ActionListener<BulkShardResponse> listener) {
+                requests.add(request);
+                listener.onResponse(successResponse(shardId, request));
+            }
+        };
+
+        ShardUpdateProcessor processor = new ShardUpdateProcessor(shardId, delegate, 2);
+        for (int i = 0; i < 5; i++) {
+            processor.add(new UpdateRequest("foo", "default", Integer.toString(i)));
+        }
+        assertThat(requests.size(), is(2));
+
+        assertThat(processor.close(), is(5L));
+        assertThat(requests.size(), is(3));
+        assertThat(requests.get(0).shardId(), is(1));
+        assertThat(requests.get(0).items().length, is(2));
+        assertThat(requests.get(2).items().length, is(1));
+    }
+
+    @Test
+    public void testVersionConflictsAreNotCounted() throws Exception {
+        TransportShardBulkActionDelegate delegate = new TransportShardBulkActionDelegate() {
+            @Override
+            public void execute(BulkShardRequest request, ActionListener<BulkShardResponse> listener) {
+                BulkItemRequest item = request.items()[0];
+                BulkItemResponse failed = new BulkItemResponse(item.id(), "update", new BulkItemResponse.Failure(
+                        "foo", "default", "0", new VersionConflictEngineException(shardId, "default", "0", 2, 1)));
+                listener.onResponse(new BulkShardResponse(shardId, new BulkItemResponse[]{failed}));
+            }
+        };
+
+        ShardUpdateProcessor processor = new ShardUpdateProcessor(shardId, delegate, 10);
+        processor.add(new UpdateRequest("foo", "default", "0"));
+        assertThat(processor.close(), is(0L));
+    }
+
+    @Test
+    public void testFailureIsRaisedOnClose() throws Exception {
+        TransportShardBulkActionDelegate delegate = new TransportShardBulkActionDelegate() {
+            @Override
+            public void execute(BulkShardRequest request, ActionListener<BulkShardResponse> listener) {
+                listener.onFailure(new ElasticsearchException("dummy"));
+            }
+        };
+
+        ShardUpdateProcessor processor = new ShardUpdateProcessor(shardId, delegate, 10);
+        processor.add(new UpdateRequest("foo", "default", "0"));
+
+        expectedException.expect(ElasticsearchException.class);
+        expectedException.expectMessage("dummy");
+        processor.close();
+    }
+}